@@ -83,6 +83,7 @@ import net.pms.service.Services;
 import net.pms.store.MediaInfoStore;
 import net.pms.store.MediaScanner;
 import net.pms.store.MediaStatusStore;
+import net.pms.store.MediaStoreIds;
 import net.pms.store.ThumbnailStore;
 import net.pms.store.container.CodeEnter;
 import net.pms.swing.LanguageSelection;
@@ -1125,6 +1126,7 @@ public class PMS {
 		}
 
 		if (MediaDatabase.isInstantiated()) {
+			MediaStoreIds.flush();
 			LOGGER.debug("Shutting down media database");
 			MediaDatabase.shutdown();
 			MediaDatabase.createDatabaseReportIfNeeded();
@@ -174,6 +174,7 @@ public class FormatConfiguration {
 	public static final String UND = "und";
 
 	private final ArrayList<SupportSpec> supportSpecs;
+	private final FormatMatchCache matchCache;
 
 	private static class SupportSpec {
 		private int iMaxBitrate = Integer.MAX_VALUE;
@@ -598,6 +599,15 @@ public class FormatConfiguration {
 				}
 			}
 		}
+
+		matchCache = new FormatMatchCache(
+			supportSpecs.stream().mapToInt(supportSpec -> supportSpec.iMaxNbChannels).toArray(),
+			supportSpecs.stream().mapToInt(supportSpec -> supportSpec.iMaxFrequency).toArray(),
+			supportSpecs.stream().mapToInt(supportSpec -> supportSpec.iMaxBitrate).toArray(),
+			supportSpecs.stream().mapToInt(supportSpec -> supportSpec.iMaxFramerate).toArray(),
+			supportSpecs.stream().mapToInt(supportSpec -> supportSpec.iMaxVideoWidth).toArray(),
+			supportSpecs.stream().mapToInt(supportSpec -> supportSpec.iMaxVideoHeight).toArray()
+		);
 	}
 
 	public boolean isFormatSupported(String container) {
@@ -816,6 +826,78 @@ public class FormatConfiguration {
 		String subsFormat,
 		boolean isInternal,
 		RendererConfiguration renderer
+	) {
+		FormatMatchCache.Signature signature = matchCache.signature(
+			container,
+			videoCodec,
+			audioCodec,
+			nbAudioChannels,
+			frequency,
+			bitrate,
+			framerate,
+			videoWidth,
+			videoHeight,
+			videoBitDepth,
+			videoHdrFormatInRendererFormat,
+			videoHdrFormatCompatibilityInRendererFormat,
+			extras,
+			subsFormat,
+			isInternal,
+			renderer,
+			videoHdrFormatInRendererFormat != null && EngineFactory.isEngineActive(TsMuxeRVideo.ID)
+		);
+		String decision = matchCache.get(signature);
+		if (decision != null) {
+			return FormatMatchCache.isNoMatch(decision) ? null : decision;
+		}
+
+		// Not computeIfAbsent, matching can call back here for the TS container
+		String matchedMimeType = matchSupportSpecs(
+			container,
+			videoCodec,
+			audioCodec,
+			nbAudioChannels,
+			frequency,
+			bitrate,
+			framerate,
+			videoWidth,
+			videoHeight,
+			videoBitDepth,
+			videoHdrFormatInRendererFormat,
+			videoHdrFormatCompatibilityInRendererFormat,
+			extras,
+			subsFormat,
+			isInternal,
+			renderer
+		);
+		matchCache.put(signature, matchedMimeType);
+		return matchedMimeType;
+	}
+
+	/**
+	 * Logs how often matches were answered from the cache.
+	 */
+	public void logMatchStatistics() {
+		matchCache.logStatistics(true);
+	}
+
+	private String matchSupportSpecs(
+		String container,
+		String videoCodec,
+		String audioCodec,
+		int nbAudioChannels,
+		int frequency,
+		int bitrate,
+		int framerate,
+		int videoWidth,
+		int videoHeight,
+		int videoBitDepth,
+		String videoHdrFormatInRendererFormat,
+		String videoHdrFormatCompatibilityInRendererFormat,
+		Map<String, String> extras,
+		String subsFormat,
+		boolean isInternal,
+		RendererConfiguration renderer
 	) {
 		String matchedMimeType = null;
 
@@ -0,0 +1,216 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.configuration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers the result of matching a media signature against the "Supported"
+ * lines of one {@link FormatConfiguration}.
+ *
+ * The numeric parts of the signature (channels, frequency, bit rate, frame
+ * rate, width and height) are reduced to buckets delimited by the limits
+ * found in the "Supported" lines. Two values in the same bucket compare the
+ * same way against every line, so they always give the same match and share
+ * a cache entry.
+ *
+ * A cache belongs to the {@link FormatConfiguration} it was created for, and
+ * is dropped with it when the renderer configuration is reloaded.
+ */
+final class FormatMatchCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FormatMatchCache.class);
+	private static final int MAX_ENTRIES = 4096;
+	private static final int LOG_INTERVAL = 1000;
+	private static final String NO_MATCH = "";
+
+	private final Map<Signature, String> decisions = new ConcurrentHashMap<>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final int[] nbChannelsLimits;
+	private final int[] frequencyLimits;
+	private final int[] bitrateLimits;
+	private final int[] framerateLimits;
+	private final int[] videoWidthLimits;
+	private final int[] videoHeightLimits;
+
+	FormatMatchCache(
+		int[] nbChannelsLimits,
+		int[] frequencyLimits,
+		int[] bitrateLimits,
+		int[] framerateLimits,
+		int[] videoWidthLimits,
+		int[] videoHeightLimits
+	) {
+		this.nbChannelsLimits = toSortedLimits(nbChannelsLimits);
+		this.frequencyLimits = toSortedLimits(frequencyLimits);
+		this.bitrateLimits = toSortedLimits(bitrateLimits);
+		this.framerateLimits = toSortedLimits(framerateLimits);
+		this.videoWidthLimits = toSortedLimits(videoWidthLimits);
+		this.videoHeightLimits = toSortedLimits(videoHeightLimits);
+	}
+
+	/**
+	 * Builds the signature of a match request.
+	 *
+	 * @return the signature to use with {@link #get} and {@link #put}.
+	 */
+	Signature signature(
+		String container,
+		String videoCodec,
+		String audioCodec,
+		int nbAudioChannels,
+		int frequency,
+		int bitrate,
+		int framerate,
+		int videoWidth,
+		int videoHeight,
+		int videoBitDepth,
+		String videoHdrFormatInRendererFormat,
+		String videoHdrFormatCompatibilityInRendererFormat,
+		Map<String, String> extras,
+		String subsFormat,
+		boolean isExternalSubs,
+		RendererConfiguration renderer,
+		boolean isTsMuxeRActive
+	) {
+		return new Signature(
+			container,
+			videoCodec,
+			audioCodec,
+			bucket(nbAudioChannels, nbChannelsLimits),
+			bucket(frequency, frequencyLimits),
+			bucket(bitrate, bitrateLimits),
+			bucket(framerate, framerateLimits),
+			bucket(videoWidth, videoWidthLimits),
+			bucket(videoHeight, videoHeightLimits),
+			videoBitDepth,
+			videoHdrFormatInRendererFormat,
+			videoHdrFormatCompatibilityInRendererFormat,
+			extras == null || extras.isEmpty() ? null : Collections.unmodifiableMap(new HashMap<>(extras)),
+			subsFormat,
+			isExternalSubs,
+			renderer,
+			isTsMuxeRActive
+		);
+	}
+
+	/**
+	 * @param signature the media signature.
+	 * @return {@code null} if the signature is unknown, an empty string if it
+	 *         is known not to match, the matched MIME type otherwise.
+	 */
+	String get(Signature signature) {
+		String decision = decisions.get(signature);
+		if (decision == null) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		logStatistics(false);
+		return decision;
+	}
+
+	void put(Signature signature, String mimeType) {
+		if (decisions.size() >= MAX_ENTRIES) {
+			// Only a very unusual library gets here, start over
+			decisions.clear();
+		}
+		decisions.put(signature, mimeType == null ? NO_MATCH : mimeType);
+	}
+
+	static boolean isNoMatch(String decision) {
+		return NO_MATCH.equals(decision);
+	}
+
+	long getHits() {
+		return hits.get();
+	}
+
+	long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Logs the hit rate every {@link #LOG_INTERVAL} lookups, or now if
+	 * {@code force} is set and the cache was used.
+	 */
+	void logStatistics(boolean force) {
+		if (!LOGGER.isDebugEnabled()) {
+			return;
+		}
+		long hitCount = hits.get();
+		long total = hitCount + misses.get();
+		if (total == 0 || (!force && total % LOG_INTERVAL != 0)) {
+			return;
+		}
+		LOGGER.debug(
+			"Format match cache: {} lookups, {} hits ({}%), {} entries",
+			total,
+			hitCount,
+			hitCount * 100 / total,
+			decisions.size()
+		);
+	}
+
+	/**
+	 * @return the index of the bucket holding {@code value}: 0 when the value
+	 *         is unset and skipped by the matching, otherwise 1 plus the
+	 *         number of limits it exceeds.
+	 */
+	static int bucket(int value, int[] sortedLimits) {
+		if (value <= 0) {
+			return 0;
+		}
+		int index = Arrays.binarySearch(sortedLimits, value);
+		// An exact hit does not exceed that limit
+		return 1 + (index >= 0 ? index : -index - 1);
+	}
+
+	private static int[] toSortedLimits(int[] limits) {
+		return Arrays.stream(limits).filter(limit -> limit > 0 && limit < Integer.MAX_VALUE).sorted().distinct().toArray();
+	}
+
+	record Signature(
+		String container,
+		String videoCodec,
+		String audioCodec,
+		int nbAudioChannelsBucket,
+		int frequencyBucket,
+		int bitrateBucket,
+		int framerateBucket,
+		int videoWidthBucket,
+		int videoHeightBucket,
+		int videoBitDepth,
+		String videoHdrFormatInRendererFormat,
+		String videoHdrFormatCompatibilityInRendererFormat,
+		Map<String, String> extras,
+		String subsFormat,
+		boolean isExternalSubs,
+		RendererConfiguration renderer,
+		boolean isTsMuxeRActive
+	) {
+	}
+
+}
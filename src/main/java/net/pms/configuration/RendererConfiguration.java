@@ -378,6 +378,10 @@ public class RendererConfiguration extends BaseConfiguration {
 			configuration.addProperty(KEY_SUPPORTED, "f:.+");
 		}
 
+		if (formatConfiguration != null) {
+			// The match cache goes with the old configuration
+			formatConfiguration.logMatchStatistics();
+		}
 		formatConfiguration = new FormatConfiguration(configuration.getList(KEY_SUPPORTED));
 	}
 
@@ -223,6 +223,7 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_ALTERNATE_THUMB_FOLDER = "alternate_thumb_folder";
 	private static final String KEY_ANONYMOUS_DEVICES_WRITE = "anonymous_devices_write";
 	private static final String KEY_APPEND_PROFILE_NAME = "append_profile_name";
+	private static final String KEY_ARCHIVE_EXTRACTION_CACHE_SIZE = "archive_extraction_cache_size";
 	private static final String KEY_ATZ_LIMIT = "atz_limit";
 	private static final String KEY_AUTOMATIC_DISCOVER = "automatic_discover";
 	private static final String KEY_AUTOMATIC_MAXIMUM_BITRATE = "automatic_maximum_bitrate";
@@ -300,6 +301,7 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_FFMPEG_MULTITHREADING = "ffmpeg_multithreading";
 	private static final String KEY_FFMPEG_MUX_TSMUXER_COMPATIBLE = "ffmpeg_mux_tsmuxer_compatible";
 	private static final String KEY_FFMPEG_SOX = "ffmpeg_sox";
+	private static final String KEY_FFPROBE_PARSER = "ffprobe_parser";
 	private static final String KEY_FIX_25FPS_AV_MISMATCH = "fix_25fps_av_mismatch";
 	private static final String KEY_FOLDER_LIMIT = "folder_limit";
 	private static final String KEY_FOLDER_NAMES_IGNORED = "folder_names_ignored";
@@ -317,7 +319,13 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_HIDE_EMPTY_FOLDERS = "hide_empty_folders";
 	private static final String KEY_HIDE_ENGINENAMES = "hide_enginenames";
 	private static final String KEY_HIDE_EXTENSIONS = "hide_extensions";
+	private static final String KEY_HLS_SEGMENT_CACHE_SIZE = "hls_segment_cache_size";
+	private static final String KEY_HLS_SEGMENTER = "hls_segmenter";
+	private static final String KEY_HTTP_CACHE_SIZE = "http_cache_size";
+	private static final String KEY_HTTP_MAX_CONNECTIONS_PER_HOST = "http_max_connections_per_host";
+	private static final String KEY_HTTP_MAX_REQUESTS_PER_SECOND = "http_max_requests_per_second";
 	private static final String KEY_IGNORE_THE_WORD_A_AND_THE = "ignore_the_word_a_and_the";
+	private static final String KEY_IMAGE_RENDITION_CACHE_SIZE = "image_rendition_cache_size";
 	private static final String KEY_IMAGE_THUMBNAILS_ENABLED = "image_thumbnails";
 	private static final String KEY_INFO_DB_RETRY = "infodb_retry";
 	private static final String KEY_JWT_SIGNER_SECRET = "jwt_secret";
@@ -338,6 +346,7 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_MAX_AUDIO_BUFFER = "maximum_audio_buffer_size";
 	private static final String KEY_MAX_BITRATE = "maximum_bitrate";
 	private static final String KEY_MAX_MEMORY_BUFFER_SIZE = "maximum_video_buffer_size";
+	private static final String KEY_MEDIAINFO_JSON_INGEST = "mediainfo_json_ingest";
 	private static final String KEY_MENCODER_ASS = "mencoder_ass";
 	private static final String KEY_MENCODER_AC3_FIXED = "mencoder_ac3_fixed";
 	private static final String KEY_MENCODER_CODEC_SPECIFIC_SCRIPT = "mencoder_codec_specific_script";
@@ -395,6 +404,7 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_ROOT_LOG_LEVEL = "log_level";
 	private static final String KEY_RUN_WIZARD = "run_wizard";
 	private static final String KEY_SCAN_SHARED_FOLDERS_ON_STARTUP = "scan_shared_folders_on_startup";
+	private static final String KEY_SCAN_THREADS = "scan_threads";
 	private static final String KEY_SCRIPT_DIR = "script_dir";
 	private static final String KEY_SEARCH_FOLDER = "search_folder";
 	private static final String KEY_SEARCH_IN_FOLDER = "search_in_folder";
@@ -428,8 +438,12 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_TEMP_FOLDER_PATH = "temp_directory";
 	private static final String KEY_THUMBNAIL_GENERATION_ENABLED = "generate_thumbnails";
 	private static final String KEY_THUMBNAIL_SEEK_POS = "thumbnail_seek_position";
+	private static final String KEY_THUMBNAIL_THREADS = "thumbnail_threads";
+	private static final String KEY_THUMBNAIL_VARIANT_CACHE_DISK_SIZE = "thumbnail_variant_cache_disk_size";
+	private static final String KEY_THUMBNAIL_VARIANT_CACHE_SIZE = "thumbnail_variant_cache_size";
 	private static final String KEY_TMDB_API_KEY = "tmdb_api_key";
 	private static final String KEY_TRANSCODE_BLOCKS_MULTIPLE_CONNECTIONS = "transcode_block_multiple_connections";
+	private static final String KEY_TRANSCODE_BUFFER_TYPE = "transcode_buffer_type";
 	private static final String KEY_TRANSCODE_FOLDER_NAME = "transcode_folder_name";
 	private static final String KEY_TRANSCODE_KEEP_FIRST_CONNECTION = "transcode_keep_first_connection";
 	private static final String KEY_TSMUXER_FORCEFPS = "tsmuxer_forcefps";
@@ -2353,6 +2367,17 @@ public class UmsConfiguration extends BaseConfiguration {
 		configuration.setProperty(KEY_OPEN_ARCHIVES, value);
 	}
 
+	/**
+	 * Returns the maximum size in megabytes of the extracted compressed
+	 * archive entries kept in the temporary folder, so that seeking in them
+	 * doesn't extract them again. 0 disables it. Default value is 0.
+	 *
+	 * @return The archive extraction cache size.
+	 */
+	public int getArchiveExtractionCacheSize() {
+		return Math.max(0, getInt(KEY_ARCHIVE_EXTRACTION_CACHE_SIZE, 0));
+	}
+
 	/**
 	 * Returns true if MEncoder should use the deinterlace filter, false
 	 * otherwise.
@@ -2602,6 +2627,48 @@ public class UmsConfiguration extends BaseConfiguration {
 		configuration.setProperty(KEY_THUMBNAIL_SEEK_POS, value);
 	}
 
+	/**
+	 * Returns the number of threads generating the video thumbnails. Default
+	 * value is 2.
+	 *
+	 * @return The number of thumbnail threads.
+	 */
+	public int getThumbnailThreads() {
+		return Math.max(1, getInt(KEY_THUMBNAIL_THREADS, 2));
+	}
+
+	/**
+	 * Returns the maximum size in megabytes of the in-memory cache holding
+	 * the transcoded thumbnail variants sent to renderers. 0 disables it.
+	 * Default value is 16.
+	 *
+	 * @return The thumbnail variant cache size.
+	 */
+	public int getThumbnailVariantCacheSize() {
+		return Math.max(0, getInt(KEY_THUMBNAIL_VARIANT_CACHE_SIZE, 16));
+	}
+
+	/**
+	 * Returns the maximum size in megabytes of the on-disk spill of the
+	 * thumbnail variant cache. 0 disables it. Default value is 0.
+	 *
+	 * @return The thumbnail variant cache disk size.
+	 */
+	public int getThumbnailVariantCacheDiskSize() {
+		return Math.max(0, getInt(KEY_THUMBNAIL_VARIANT_CACHE_DISK_SIZE, 0));
+	}
+
+	/**
+	 * Returns the maximum size in megabytes of the in-memory cache holding
+	 * the images converted for renderers and the web player. 0 disables it.
+	 * Default value is 64.
+	 *
+	 * @return The image rendition cache size.
+	 */
+	public int getImageRenditionCacheSize() {
+		return Math.max(0, getInt(KEY_IMAGE_RENDITION_CACHE_SIZE, 64));
+	}
+
 	/**
 	 * Returns true if UMS should generate thumbnails for images. Default value
 	 * is true.
@@ -2992,6 +3059,27 @@ public class UmsConfiguration extends BaseConfiguration {
 		return getString(KEY_FFMPEG_GPU_ENCODING_H265_ACCELERATION_METHOD, "libx265");
 	}
 
+	/**
+	 * Whether HLS segments should be produced by one long-lived FFmpeg
+	 * process per rendition and served from the segment cache, instead of
+	 * one FFmpeg process per segment. Default is true.
+	 *
+	 * @return whether the HLS segmenter is used.
+	 */
+	public boolean isHlsSegmenter() {
+		return getBoolean(KEY_HLS_SEGMENTER, true);
+	}
+
+	/**
+	 * Returns the maximum size of the on-disk HLS segment cache in megabytes.
+	 * Default value is 1024.
+	 *
+	 * @return The HLS segment cache size.
+	 */
+	public int getHlsSegmentCacheSize() {
+		return Math.max(64, getInt(KEY_HLS_SEGMENT_CACHE_SIZE, 1024));
+	}
+
 	public void setFFmpegGPUDecodingAccelerationMethod(String value) {
 		configuration.setProperty(KEY_FFMPEG_GPU_DECODING_ACCELERATION_METHOD, value);
 	}
@@ -3231,6 +3319,18 @@ public class UmsConfiguration extends BaseConfiguration {
 		configuration.setProperty(KEY_TRANSCODE_BLOCKS_MULTIPLE_CONNECTIONS, value);
 	}
 
+	/**
+	 * Returns where the transcoding buffer is kept: "heap" for a Java array,
+	 * "direct" for a direct buffer outside of the heap, or "mapped" for a
+	 * memory-mapped temporary file in the profile directory. Default is
+	 * "heap".
+	 *
+	 * @return The transcoding buffer type.
+	 */
+	public String getTranscodeBufferType() {
+		return getString(KEY_TRANSCODE_BUFFER_TYPE, "heap").toLowerCase(Locale.ROOT);
+	}
+
 	public boolean getTrancodeKeepFirstConnections() {
 		return getBoolean(KEY_TRANSCODE_KEEP_FIRST_CONNECTION, true);
 	}
@@ -4387,6 +4487,56 @@ public class UmsConfiguration extends BaseConfiguration {
 		this.configuration.setProperty(KEY_SCAN_SHARED_FOLDERS_ON_STARTUP, value);
 	}
 
+	/**
+	 * Returns the number of files the media scanner parses at once on each
+	 * disk. 0 means automatic: 2 on rotational disks, the number of CPU cores
+	 * otherwise. Default value is 0.
+	 *
+	 * @return The number of media scanner threads per disk.
+	 */
+	public int getScanThreads() {
+		return Math.max(0, getInt(KEY_SCAN_THREADS, 0));
+	}
+
+	/**
+	 * Whether MediaInfo results are read in one JSON report per file instead
+	 * of one library call per property. Default value is true.
+	 *
+	 * @return whether to read MediaInfo results as a JSON report.
+	 */
+	public boolean isMediaInfoJsonIngest() {
+		return getBoolean(KEY_MEDIAINFO_JSON_INGEST, true);
+	}
+
+	/**
+	 * Sets whether MediaInfo results are read in one JSON report per file.
+	 *
+	 * @param value whether to read MediaInfo results as a JSON report.
+	 */
+	public void setMediaInfoJsonIngest(boolean value) {
+		configuration.setProperty(KEY_MEDIAINFO_JSON_INGEST, value);
+	}
+
+	/**
+	 * Whether files MediaInfo can't parse are parsed with ffprobe, when it is
+	 * found next to FFmpeg, instead of reading the FFmpeg log. Default value
+	 * is false.
+	 *
+	 * @return whether to parse with ffprobe.
+	 */
+	public boolean isUseFFprobeParser() {
+		return getBoolean(KEY_FFPROBE_PARSER, false);
+	}
+
+	/**
+	 * Sets whether files MediaInfo can't parse are parsed with ffprobe.
+	 *
+	 * @param value whether to parse with ffprobe.
+	 */
+	public void setUseFFprobeParser(boolean value) {
+		configuration.setProperty(KEY_FFPROBE_PARSER, value);
+	}
+
 	/**
 	 * Whether to show the "Recently Played" folder on the renderer.
 	 *
@@ -4692,6 +4842,37 @@ public class UmsConfiguration extends BaseConfiguration {
 		configuration.setProperty(KEY_EXTERNAL_NETWORK, b);
 	}
 
+	/**
+	 * Returns the maximum size in megabytes of the responses of the external
+	 * servers kept in the temporary folder, so that they are not downloaded
+	 * again while the servers allow it. 0 disables it. Default value is 64.
+	 *
+	 * @return The HTTP cache size.
+	 */
+	public int getHttpCacheSize() {
+		return Math.max(0, getInt(KEY_HTTP_CACHE_SIZE, 64));
+	}
+
+	/**
+	 * Returns the maximum number of concurrent requests to a single external
+	 * server. Default value is 4.
+	 *
+	 * @return The maximum number of connections per host.
+	 */
+	public int getHttpMaxConnectionsPerHost() {
+		return Math.max(1, getInt(KEY_HTTP_MAX_CONNECTIONS_PER_HOST, 4));
+	}
+
+	/**
+	 * Returns the maximum number of requests per second sent to a single
+	 * external server. 0 means no limit. Default value is 10.
+	 *
+	 * @return The maximum number of requests per second per host.
+	 */
+	public int getHttpMaxRequestsPerSecond() {
+		return Math.max(0, getInt(KEY_HTTP_MAX_REQUESTS_PER_SECOND, 10));
+	}
+
 	public boolean isUseInfoFromExternalAPI() {
 		return isUseInfoFromUmsAPI() || isUseInfoFromTMDB();
 	}
@@ -218,6 +218,7 @@ public abstract class DatabaseHelper {
 	protected static final String TRUE = "TRUE";
 	protected static final String EMPTY_STRING = "''";
 	protected static final String PARAMETER = "?";
+	protected static final String ANY_PARAMETER = "ANY(" + PARAMETER + ")";
 	protected static final String STRINGENCODE_PARAMETER = "STRINGENCODE(" + PARAMETER + ")";
 	protected static final String LIKE_STARTING_WITH_PARAMETER = STRINGENCODE_PARAMETER + " || '%'";
 	protected static final String LIKE_ENDING_WITH_PARAMETER = "'%' || " + STRINGENCODE_PARAMETER;
@@ -90,6 +90,7 @@ public class MediaDatabase extends Database {
 				MediaTableVideotracks.checkTable(connection);
 				MediaTableSubtracks.checkTable(connection);
 				MediaTableChapters.checkTable(connection);
+				MediaTableSeekIndexes.checkTable(connection);
 				MediaTableRegexpRules.checkTable(connection);
 
 				MediaTableMusicBrainzReleases.checkTable(connection);
@@ -114,6 +115,9 @@ public class MediaDatabase extends Database {
 				MediaTableAudiotracks.checkTable(connection);
 				MediaTableMusicBrainzReleaseLike.checkTable(connection);
 
+				// Search index (needs the files, audio metadata and actors tables)
+				MediaTableSearchIndex.checkTable(connection);
+
 				// Container Files
 				MediaTableContainerFiles.checkTable(connection);
 
@@ -150,6 +154,7 @@ public class MediaDatabase extends Database {
 		dropTableAndConstraint(connection, MediaTableCoverArtArchive.TABLE_NAME);
 		dropTableAndConstraint(connection, MediaTableThumbnails.TABLE_NAME);
 		dropTableAndConstraint(connection, MediaTableChapters.TABLE_NAME);
+		dropTableAndConstraint(connection, MediaTableSeekIndexes.TABLE_NAME);
 
 		dropTableAndConstraint(connection, MediaTableTVSeries.TABLE_NAME);
 		dropTableAndConstraint(connection, MediaTableFailedLookups.TABLE_NAME);
@@ -166,6 +171,8 @@ public class MediaDatabase extends Database {
 		// Audio Metadata
 		dropTableAndConstraint(connection, MediaTableAudiotracks.TABLE_NAME);
 
+		dropTableAndConstraint(connection, MediaTableSearchIndex.TABLE_NAME);
+
 		//Container Files
 		dropTableAndConstraint(connection, MediaTableContainerFiles.TABLE_NAME);
 	}
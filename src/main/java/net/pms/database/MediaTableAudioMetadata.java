@@ -21,7 +21,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import net.pms.media.MediaInfo;
 import net.pms.media.audio.metadata.MediaAudioMetadata;
@@ -83,6 +86,7 @@ public class MediaTableAudioMetadata extends MediaTable {
 	public static final String TABLE_COL_ARTIST = TABLE_NAME + "." + COL_ARTIST;
 	public static final String TABLE_COL_COMPOSER = TABLE_NAME + "." + COL_COMPOSER;
 	public static final String TABLE_COL_CONDUCTOR = TABLE_NAME + "." + COL_CONDUCTOR;
+	public static final String TABLE_COL_SONGNAME = TABLE_NAME + "." + COL_SONGNAME;
 	private static final String TABLE_COL_RATING = TABLE_NAME + "." + COL_RATING;
 
 	/**
@@ -94,6 +98,7 @@ public class MediaTableAudioMetadata extends MediaTable {
 	 * SQL Queries
 	 */
 	private static final String SQL_GET_AUDIO_METADATA_BY_FILEID = SELECT_ALL + FROM + TABLE_NAME + WHERE + COL_FILEID + EQUAL + PARAMETER + LIMIT_1;
+	private static final String SQL_GET_AUDIO_METADATA_BY_FILEIDS = SELECT_ALL + FROM + TABLE_NAME + WHERE + COL_FILEID + EQUAL + ANY_PARAMETER;
 	private static final String SQL_GET_RATING_BY_MBID_TRACK = SELECT + TABLE_COL_RATING + FROM + TABLE_NAME + WHERE + COL_MBID_TRACK + EQUAL + PARAMETER + LIMIT_1;
 	private static final String SQL_UPDATE_RATING_BY_AUDIOTRACK_ID = UPDATE + TABLE_NAME + SET + COL_RATING + EQUAL + PARAMETER + WHERE + COL_AUDIOTRACK_ID + EQUAL + PARAMETER;
 	private static final String SQL_UPDATE_RATING_BY_MBID_TRACK = UPDATE + TABLE_NAME + SET + COL_RATING + EQUAL + PARAMETER + WHERE + COL_MBID_TRACK + EQUAL + PARAMETER;
@@ -238,6 +243,25 @@ public class MediaTableAudioMetadata extends MediaTable {
 		return null;
 	}
 
+	public static Map<Long, MediaAudioMetadata> getAudioMetadataByFileIds(final Connection connection, final Collection<Long> fileIds) {
+		Map<Long, MediaAudioMetadata> result = new HashMap<>();
+		if (connection == null || fileIds.isEmpty()) {
+			return result;
+		}
+		try (PreparedStatement selectStatement = connection.prepareStatement(SQL_GET_AUDIO_METADATA_BY_FILEIDS)) {
+			selectStatement.setObject(1, fileIds.toArray(Long[]::new));
+			try (ResultSet rs = selectStatement.executeQuery()) {
+				while (rs.next()) {
+					result.putIfAbsent(rs.getLong(COL_FILEID), resultSetToAudioMetadata(rs));
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for {} files: {}", fileIds.size(), e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
 	private static void updateAudioMetadata(ResultSet result, MediaAudioMetadata audioMetadata) throws SQLException {
 		//make sure mbid are uuids
 		if (StringUtils.isEmpty(audioMetadata.getMbidRecord())) {
@@ -21,7 +21,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import net.pms.dlna.DLNAThumbnail;
 import net.pms.media.MediaInfo;
 import net.pms.media.chapter.MediaChapter;
@@ -69,6 +72,7 @@ public class MediaTableChapters extends MediaTable {
 	 */
 	private static final String SQL_GET_ALL_BY_FILEID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER;
 	private static final String SQL_GET_ALL_BY_FILEID_ID_LANG = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER + AND + TABLE_COL_ID + EQUAL + PARAMETER + AND + TABLE_COL_LANG + EQUAL + PARAMETER;
+	private static final String SQL_GET_ALL_BY_FILEIDS = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + ANY_PARAMETER;
 
 	/**
 	 * Checks and creates or upgrades the table as needed.
@@ -183,13 +187,7 @@ public class MediaTableChapters extends MediaTable {
 			stmt.setLong(1, fileId);
 			try (ResultSet elements = stmt.executeQuery()) {
 				while (elements.next()) {
-					MediaChapter chapter = new MediaChapter();
-					chapter.setId(elements.getInt(COL_ID));
-					chapter.setLang(elements.getString(COL_LANG));
-					chapter.setTitle(elements.getString(COL_TITLE));
-					chapter.setStart(elements.getDouble(COL_START_TIME));
-					chapter.setEnd(elements.getDouble(COL_END_TIME));
-					chapter.setThumbnail((DLNAThumbnail) elements.getObject(COL_THUMBNAIL));
+					MediaChapter chapter = getChapter(elements);
 					LOGGER.trace("Adding chapter from the database: {}", chapter.toString());
 					result.add(chapter);
 				}
@@ -201,4 +199,35 @@ public class MediaTableChapters extends MediaTable {
 		return result;
 	}
 
+	protected static Map<Long, List<MediaChapter>> getChapters(Connection connection, Collection<Long> fileIds) {
+		Map<Long, List<MediaChapter>> result = new HashMap<>();
+		if (connection == null || fileIds.isEmpty()) {
+			return result;
+		}
+		try (PreparedStatement stmt = connection.prepareStatement(SQL_GET_ALL_BY_FILEIDS)) {
+			stmt.setObject(1, fileIds.toArray(Long[]::new));
+			try (ResultSet elements = stmt.executeQuery()) {
+				while (elements.next()) {
+					MediaChapter chapter = getChapter(elements);
+					result.computeIfAbsent(elements.getLong(COL_FILEID), k -> new ArrayList<>()).add(chapter);
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for {} files: {}", fileIds.size(), e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
+	private static MediaChapter getChapter(ResultSet elements) throws SQLException {
+		MediaChapter chapter = new MediaChapter();
+		chapter.setId(elements.getInt(COL_ID));
+		chapter.setLang(elements.getString(COL_LANG));
+		chapter.setTitle(elements.getString(COL_TITLE));
+		chapter.setStart(elements.getDouble(COL_START_TIME));
+		chapter.setEnd(elements.getDouble(COL_END_TIME));
+		chapter.setThumbnail((DLNAThumbnail) elements.getObject(COL_THUMBNAIL));
+		return chapter;
+	}
+
 }
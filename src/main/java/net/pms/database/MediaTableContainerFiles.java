@@ -21,6 +21,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,7 +43,7 @@ public class MediaTableContainerFiles extends MediaTable {
 	 *
 	 * Table upgrade SQL must also be added to {@link #upgradeTable(Connection, int)}
 	 */
-	private static final int TABLE_VERSION = 1;
+	private static final int TABLE_VERSION = 2;
 
 	/**
 	 * COLUMNS NAMES
@@ -65,6 +66,14 @@ public class MediaTableContainerFiles extends MediaTable {
 	private static final String SQL_GET_ALL_BY_ID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_CONTAINER_ID + EQUAL + PARAMETER;
 	private static final String SQL_GET_ALL_BY_FILEID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER;
 	private static final String SQL_GET_ALL_BY_ID_FILEID = SQL_GET_ALL_BY_ID + AND + TABLE_COL_FILEID + EQUAL + PARAMETER;
+	private static final String SQL_GET_FILEID_BY_IDS = SELECT + TABLE_COL_FILEID + FROM + TABLE_NAME + WHERE + TABLE_COL_CONTAINER_ID + EQUAL + ANY_PARAMETER;
+	private static final String SQL_DELETE_IDS = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_CONTAINER_ID + EQUAL + ANY_PARAMETER;
+	private static final String SQL_DELETE_FILEIDS = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + ANY_PARAMETER;
+
+	/**
+	 * Condition on the files table, true when the file is not in a container.
+	 */
+	protected static final String SQL_FILES_NOT_IN_CONTAINER = NOT + EXISTS + "(" + SELECT + TABLE_COL_FILEID + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + MediaTableFiles.TABLE_COL_ID + ")";
 
 	/**
 	 * Checks and creates or upgrades the table as needed.
@@ -97,7 +106,8 @@ public class MediaTableContainerFiles extends MediaTable {
 					COL_CONTAINER_ID  + BIGINT    + COMMA +
 					COL_FILEID        + BIGINT            +
 				")",
-				CREATE_UNIQUE_INDEX + TABLE_NAME + CONSTRAINT_SEPARATOR + COL_CONTAINER_ID + CONSTRAINT_SEPARATOR + COL_FILEID + IDX_MARKER + ON + TABLE_NAME + "(" + COL_CONTAINER_ID + COMMA + COL_FILEID + ")"
+				CREATE_UNIQUE_INDEX + TABLE_NAME + CONSTRAINT_SEPARATOR + COL_CONTAINER_ID + CONSTRAINT_SEPARATOR + COL_FILEID + IDX_MARKER + ON + TABLE_NAME + "(" + COL_CONTAINER_ID + COMMA + COL_FILEID + ")",
+				CREATE_INDEX + TABLE_NAME + CONSTRAINT_SEPARATOR + COL_FILEID + IDX_MARKER + ON + TABLE_NAME + "(" + COL_FILEID + ")"
 		);
 	}
 
@@ -106,6 +116,9 @@ public class MediaTableContainerFiles extends MediaTable {
 		for (int version = currentVersion; version < TABLE_VERSION; version++) {
 			LOGGER.trace(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, version, version + 1);
 			switch (version) {
+				case 1 -> {
+					executeUpdate(connection, CREATE_INDEX + IF_NOT_EXISTS + TABLE_NAME + CONSTRAINT_SEPARATOR + COL_FILEID + IDX_MARKER + ON + TABLE_NAME + "(" + COL_FILEID + ")");
+				}
 				default -> {
 					throw new IllegalStateException(
 							getMessage(LOG_UPGRADING_TABLE_MISSING, DATABASE_NAME, TABLE_NAME, version, TABLE_VERSION)
@@ -242,6 +255,43 @@ public class MediaTableContainerFiles extends MediaTable {
 		return result;
 	}
 
+	/**
+	 * Returns the entries of several containers.
+	 */
+	protected static List<Long> getContainerFileIds(final Connection connection, Collection<Long> containerIds) throws SQLException {
+		List<Long> result = new ArrayList<>();
+		if (containerIds.isEmpty()) {
+			return result;
+		}
+		try (PreparedStatement stmt = connection.prepareStatement(SQL_GET_FILEID_BY_IDS)) {
+			stmt.setObject(1, containerIds.toArray(Long[]::new));
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					result.add(toLong(rs, COL_FILEID));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Deletes the relations of several files, as containers and as entries.
+	 */
+	protected static void deleteContainersAndEntries(final Connection connection, Collection<Long> fileIds) throws SQLException {
+		if (fileIds.isEmpty()) {
+			return;
+		}
+		Long[] ids = fileIds.toArray(Long[]::new);
+		try (PreparedStatement stmt = connection.prepareStatement(SQL_DELETE_IDS)) {
+			stmt.setObject(1, ids);
+			stmt.executeUpdate();
+		}
+		try (PreparedStatement stmt = connection.prepareStatement(SQL_DELETE_FILEIDS)) {
+			stmt.setObject(1, ids);
+			stmt.executeUpdate();
+		}
+	}
+
 	protected static Boolean isInContainer(final Connection connection, Long fileId) {
 		if (connection == null || fileId == null) {
 			return null;
@@ -20,21 +20,39 @@ import java.io.File;
 import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import net.pms.Messages;
+import net.pms.configuration.UmsConfiguration;
 import net.pms.configuration.sharedcontent.SharedContentConfiguration;
 import net.pms.dlna.DLNAThumbnail;
-import net.pms.external.JavaHttpClient;
 import net.pms.gui.GuiManager;
 import net.pms.image.ImageInfo;
 import net.pms.media.MediaInfo;
+import net.pms.media.audio.MediaAudio;
+import net.pms.media.audio.metadata.MediaAudioMetadata;
+import net.pms.media.chapter.MediaChapter;
+import net.pms.media.subtitle.MediaSubtitle;
+import net.pms.media.video.MediaVideo;
+import net.pms.media.video.metadata.MediaVideoMetadata;
 import net.pms.store.MediaStoreIds;
+import net.pms.store.PosterLocalizationQueue;
 import net.pms.store.ThumbnailSource;
 import net.pms.store.ThumbnailStore;
 import net.pms.util.FileUtil;
+import net.pms.util.PathPrefixTrie;
+import net.pms.util.SimpleThreadFactory;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -140,6 +158,8 @@ public class MediaTableFiles extends MediaTable {
 	private static final String SQL_GET_FILENAME_MODIFIED_ID = SELECT + TABLE_COL_FILENAME + COMMA + TABLE_COL_MODIFIED + COMMA + TABLE_COL_ID + FROM + TABLE_NAME;
 	private static final String SQL_GET_ALL_BY_FILENAME = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILENAME + EQUAL + PARAMETER + LIMIT_1;
 	private static final String SQL_GET_ALL_FILENAME_MODIFIED = SELECT_ALL + FROM + TABLE_NAME + SQL_LEFT_JOIN_TABLE_THUMBNAILS + WHERE + TABLE_COL_FILENAME + EQUAL + PARAMETER + AND + TABLE_COL_MODIFIED + EQUAL + PARAMETER + LIMIT_1;
+	private static final String SQL_GET_ALL_BY_FILENAMES = SELECT_ALL + FROM + TABLE_NAME + SQL_LEFT_JOIN_TABLE_THUMBNAILS + WHERE + TABLE_COL_FILENAME + EQUAL + ANY_PARAMETER;
+	private static final String SQL_GET_PARSED_BY_FILENAMES = SELECT + TABLE_COL_FILENAME + COMMA + TABLE_COL_MODIFIED + COMMA + TABLE_NAME + "." + COL_MEDIA_SIZE + FROM + TABLE_NAME + WHERE + TABLE_COL_FILENAME + EQUAL + ANY_PARAMETER + AND + TABLE_NAME + "." + COL_PARSER + IS_NOT_NULL;
 	private static final String SQL_GET_FILENAME_BY_ID = SELECT + TABLE_COL_FILENAME + FROM + TABLE_NAME + WHERE + TABLE_COL_ID + EQUAL + PARAMETER;
 	private static final String SQL_GET_FILENAME_LIKE = SELECT + TABLE_COL_FILENAME + FROM + TABLE_NAME + WHERE + TABLE_COL_FILENAME + LIKE + LIKE_STARTING_WITH_PARAMETER;
 	private static final String SQL_GET_ID_FILENAME = SELECT + TABLE_COL_ID + FROM + TABLE_NAME + WHERE + TABLE_COL_FILENAME + EQUAL + PARAMETER + LIMIT_1;
@@ -148,6 +168,9 @@ public class MediaTableFiles extends MediaTable {
 	private static final String SQL_UPDATE_THUMBID_BY_ID = UPDATE + TABLE_NAME + SET + COL_THUMBID + EQUAL + PARAMETER + COMMA + COL_THUMB_SRC + EQUAL + PARAMETER + WHERE + TABLE_COL_ID + EQUAL + PARAMETER;
 	private static final String SQL_UPDATE_THUMB_SRC_LOC = UPDATE + TABLE_NAME + SET + COL_THUMB_SRC + EQUAL + PARAMETER + WHERE + COL_THUMB_SRC + EQUAL + PARAMETER;
 	private static final String SQL_DELETE_BY_ID = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_ID + EQUAL + PARAMETER;
+	private static final String SQL_DELETE_BY_IDS = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_ID + EQUAL + ANY_PARAMETER;
+	private static final String SQL_GET_CLEANUP_PAGE = SELECT + TABLE_COL_ID + COMMA + TABLE_COL_FILENAME + COMMA + TABLE_COL_MODIFIED + FROM + TABLE_NAME + WHERE + TABLE_COL_ID + GREATER_THAN + PARAMETER + AND + MediaTableContainerFiles.SQL_FILES_NOT_IN_CONTAINER + ORDER_BY + TABLE_COL_ID + LIMIT + PARAMETER;
+	private static final String SQL_GET_IDS_NOT_IN_CONTAINER = SELECT + TABLE_COL_ID + FROM + TABLE_NAME + WHERE + TABLE_COL_ID + EQUAL + ANY_PARAMETER + AND + MediaTableContainerFiles.SQL_FILES_NOT_IN_CONTAINER;
 	private static final String SQL_DELETE_BY_FILENAME = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_FILENAME + EQUAL + PARAMETER;
 	private static final String SQL_DELETE_BY_FILENAME_LIKE = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_FILENAME + LIKE + LIKE_STARTING_WITH_PARAMETER;
 	private static final String SQL_GET_THUMBNAIL_BY_TITLE = SELECT + TABLE_COL_THUMBID + FROM + TABLE_NAME + SQL_LEFT_JOIN_TABLE_VIDEO_METADATA + WHERE + MediaTableVideoMetadata.TABLE_COL_TITLE + EQUAL + PARAMETER + LIMIT_1;
@@ -164,6 +187,9 @@ public class MediaTableFiles extends MediaTable {
 	 */
 	private static final int SIZE_CONTAINER = 32;
 
+	private static final int CLEANUP_PAGE_SIZE = 1000;
+	private static volatile boolean cleanupCancelled;
+
 	/*
 	 * Checks and creates or upgrades the table as needed.
 	 *
@@ -691,52 +717,161 @@ public class MediaTableFiles extends MediaTable {
 				ResultSet rs = stmt.executeQuery();
 			) {
 				if (rs.next()) {
-					media = new MediaInfo();
-					long fileId = rs.getLong(COL_ID);
-					media.setFileId(fileId);
-					media.setMediaParser(rs.getString(COL_PARSER));
-					media.setSize(rs.getLong(COL_MEDIA_SIZE));
-					media.setContainer(rs.getString(COL_CONTAINER));
-					media.setMimeType(rs.getString(COL_MIMETYPE));
-					media.setTitle(rs.getString(COL_TITLECONTAINER));
-					media.setDuration(toDouble(rs, COL_DURATION));
-					media.setBitRate(rs.getInt(COL_BITRATE));
-					media.setFrameRate(toDouble(rs, COL_FRAMERATE));
-					media.setThumbnailId(toLong(rs, COL_THUMBID));
-					media.setThumbnailSource(rs.getString(COL_THUMB_SRC));
-					//not media related
-					media.setAspectRatioDvdIso(rs.getString(COL_ASPECTRATIODVD));
-					media.setImageInfo((ImageInfo) rs.getObject(COL_IMAGEINFO));
-					media.setImageCount(rs.getInt(COL_IMAGECOUNT));
-
+					media = resultSetToMediaInfo(rs);
+					long fileId = media.getFileId();
 					media.setAudioTracks(MediaTableAudiotracks.getAudioTracks(connection, fileId));
 					media.setVideoTracks(MediaTableVideotracks.getVideoTracks(connection, fileId));
 					media.setSubtitlesTracks(MediaTableSubtracks.getSubtitleTracks(connection, fileId));
 					media.setChapters(MediaTableChapters.getChapters(connection, fileId));
 					media.setAudioMetadata(MediaTableAudioMetadata.getAudioMetadataByFileId(connection, fileId));
 					media.setVideoMetadata(MediaTableVideoMetadata.getVideoMetadataByFileId(connection, fileId));
-					//get localized thumb if thumb was not localized
-					if (media.getVideoMetadata() != null &&
-						media.getVideoMetadata().getPoster() != null &&
-						!media.getThumbnailSource().equals(ThumbnailSource.TMDB_LOC)
+					localizeThumbnail(filename, media);
+				}
+			}
+		}
+		return media;
+	}
+
+	/**
+	 * Gets many rows of {@link MediaDatabase} from the database and returns
+	 * them as {@link MediaInfo} instances, along with thumbnails, status and
+	 * tracks.
+	 *
+	 * Unlike {@link #getMediaInfo(Connection, String, long)} called in a loop,
+	 * the number of queries does not depend on the number of files.
+	 *
+	 * @param connection the db connection
+	 * @param filenamesModified the current {@code lastModified} value of the
+	 *            media files by full path.
+	 * @return The {@link MediaInfo} instances by full path, files that are
+	 *         not in the database or were modified since are absent.
+	 * @throws SQLException if an SQL error occurs during the operation.
+	 */
+	public static Map<String, MediaInfo> getMediaInfos(final Connection connection, Map<String, Long> filenamesModified) throws SQLException {
+		Map<String, MediaInfo> medias = new HashMap<>();
+		if (filenamesModified.isEmpty()) {
+			return medias;
+		}
+		try (
+			PreparedStatement stmt = connection.prepareStatement(SQL_GET_ALL_BY_FILENAMES);
+		) {
+			stmt.setObject(1, filenamesModified.keySet().toArray(String[]::new));
+			try (
+				ResultSet rs = stmt.executeQuery();
+			) {
+				while (rs.next()) {
+					String filename = rs.getString(COL_FILENAME);
+					Timestamp modified = rs.getTimestamp(COL_MODIFIED);
+					if (modified != null && Objects.equals(filenamesModified.get(filename), modified.getTime())) {
+						medias.put(filename, resultSetToMediaInfo(rs));
+					}
+				}
+			}
+		}
+		if (medias.isEmpty()) {
+			return medias;
+		}
+		Set<Long> fileIds = new HashSet<>();
+		for (MediaInfo media : medias.values()) {
+			fileIds.add(media.getFileId());
+		}
+		Map<Long, List<MediaAudio>> audioTracks = MediaTableAudiotracks.getAudioTracks(connection, fileIds);
+		Map<Long, List<MediaVideo>> videoTracks = MediaTableVideotracks.getVideoTracks(connection, fileIds);
+		Map<Long, List<MediaSubtitle>> subtitlesTracks = MediaTableSubtracks.getSubtitleTracks(connection, fileIds);
+		Map<Long, List<MediaChapter>> chapters = MediaTableChapters.getChapters(connection, fileIds);
+		Map<Long, MediaAudioMetadata> audioMetadata = MediaTableAudioMetadata.getAudioMetadataByFileIds(connection, fileIds);
+		Map<Long, MediaVideoMetadata> videoMetadata = MediaTableVideoMetadata.getVideoMetadataByFileIds(connection, fileIds);
+		for (Map.Entry<String, MediaInfo> entry : medias.entrySet()) {
+			MediaInfo media = entry.getValue();
+			Long fileId = media.getFileId();
+			media.setAudioTracks(audioTracks.getOrDefault(fileId, new ArrayList<>()));
+			media.setVideoTracks(videoTracks.getOrDefault(fileId, new ArrayList<>()));
+			media.setSubtitlesTracks(subtitlesTracks.getOrDefault(fileId, new ArrayList<>()));
+			media.setChapters(chapters.getOrDefault(fileId, new ArrayList<>()));
+			media.setAudioMetadata(audioMetadata.get(fileId));
+			media.setVideoMetadata(videoMetadata.get(fileId));
+			localizeThumbnail(entry.getKey(), media);
+		}
+		return medias;
+	}
+
+	/**
+	 * Returns the files already parsed with their current size and
+	 * modification date, so that a scan can skip them.
+	 *
+	 * @param connection the db connection
+	 * @param files the files.
+	 * @return the full paths of the files that are up to date.
+	 */
+	public static Set<String> getUpToDateFilenames(final Connection connection, Collection<File> files) throws SQLException {
+		Set<String> result = new HashSet<>();
+		if (files.isEmpty()) {
+			return result;
+		}
+		Map<String, File> filesByName = new HashMap<>();
+		for (File file : files) {
+			filesByName.put(file.getAbsolutePath(), file);
+		}
+		try (
+			PreparedStatement stmt = connection.prepareStatement(SQL_GET_PARSED_BY_FILENAMES);
+		) {
+			stmt.setObject(1, filesByName.keySet().toArray(String[]::new));
+			try (
+				ResultSet rs = stmt.executeQuery();
+			) {
+				while (rs.next()) {
+					String filename = rs.getString(COL_FILENAME);
+					Timestamp modified = rs.getTimestamp(COL_MODIFIED);
+					File file = filesByName.get(filename);
+					if (file != null && modified != null &&
+						modified.getTime() == file.lastModified() &&
+						rs.getLong(COL_MEDIA_SIZE) == file.length()
 						) {
-						DLNAThumbnail thumbnail = JavaHttpClient.getThumbnail(media.getVideoMetadata().getPoster());
-						if (thumbnail != null) {
-							Long thumbnailId = ThumbnailStore.getId(thumbnail);
-							if (!Objects.equals(thumbnailId, media.getThumbnailId())) {
-								media.setThumbnailId(thumbnailId);
-								MediaStoreIds.incrementUpdateIdForFilename(connection, filename);
-							}
-							media.setThumbnailSource(ThumbnailSource.TMDB_LOC);
-							updateThumbnailId(connection, fileId, thumbnailId, ThumbnailSource.TMDB_LOC.toString());
-						}
+						result.add(filename);
 					}
 				}
 			}
 		}
+		return result;
+	}
+
+	/**
+	 * Reads the columns of this table and of the thumbnail table only, the
+	 * tracks and metadata are left to the caller.
+	 */
+	private static MediaInfo resultSetToMediaInfo(ResultSet rs) throws SQLException {
+		MediaInfo media = new MediaInfo();
+		media.setFileId(rs.getLong(COL_ID));
+		media.setMediaParser(rs.getString(COL_PARSER));
+		media.setSize(rs.getLong(COL_MEDIA_SIZE));
+		media.setContainer(rs.getString(COL_CONTAINER));
+		media.setMimeType(rs.getString(COL_MIMETYPE));
+		media.setTitle(rs.getString(COL_TITLECONTAINER));
+		media.setDuration(toDouble(rs, COL_DURATION));
+		media.setBitRate(rs.getInt(COL_BITRATE));
+		media.setFrameRate(toDouble(rs, COL_FRAMERATE));
+		media.setThumbnailId(toLong(rs, COL_THUMBID));
+		media.setThumbnailSource(rs.getString(COL_THUMB_SRC));
+		//not media related
+		media.setAspectRatioDvdIso(rs.getString(COL_ASPECTRATIODVD));
+		media.setImageInfo((ImageInfo) rs.getObject(COL_IMAGEINFO));
+		media.setImageCount(rs.getInt(COL_IMAGECOUNT));
 		return media;
 	}
 
+	/**
+	 * Queues the download of the localized thumbnail if the thumbnail was not
+	 * localized.
+	 */
+	private static void localizeThumbnail(String filename, MediaInfo media) {
+		if (media.getVideoMetadata() != null &&
+			media.getVideoMetadata().getPoster() != null &&
+			!ThumbnailSource.TMDB_LOC.equals(media.getThumbnailSource())
+			) {
+			PosterLocalizationQueue.getInstance().submit(filename, media, media.getVideoMetadata().getPoster());
+		}
+	}
+
 	/**
 	 * Stores the file in the database if it doesn't already exist.
 	 *
@@ -852,6 +987,9 @@ public class MediaTableFiles extends MediaTable {
 				MediaTableSubtracks.insertOrUpdateSubtitleTracks(connection, fileId, media);
 				MediaTableChapters.insertOrUpdateChapters(connection, fileId, media);
 			}
+			if (fileId != null) {
+				MediaTableSearchIndex.updateFile(connection, fileId);
+			}
 		} catch (SQLException se) {
 			if (se.getErrorCode() == 23505) {
 				throw new SQLException(String.format(
@@ -1088,7 +1226,15 @@ public class MediaTableFiles extends MediaTable {
 		return list;
 	}
 
+	/**
+	 * Stops a running {@link #cleanup(Connection)} after its current page.
+	 */
+	public static void cancelCleanup() {
+		cleanupCancelled = true;
+	}
+
 	public static synchronized void cleanup(final Connection connection) {
+		cleanupCancelled = false;
 		try {
 			/*
 			 * Cleanup of FILES table
@@ -1096,69 +1242,10 @@ public class MediaTableFiles extends MediaTable {
 			 * Removes entries that are not on the hard drive anymore, and
 			 * ones that are no longer shared.
 			 */
-			int dbCount = 0;
-			try (
-				PreparedStatement ps = connection.prepareStatement(SQL_GET_ROW_COUNT);
-				ResultSet rs = ps.executeQuery()) {
-				if (rs.next()) {
-					dbCount = rs.getInt(1);
-				}
-			}
-
-			if (dbCount > 0) {
-				GuiManager.setStatusLine(Messages.getString("CleaningUpDatabase") + " 0%");
-				try (
-					PreparedStatement ps = connection.prepareStatement(SQL_GET_FILENAME_MODIFIED_ID, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
-					ResultSet rs = ps.executeQuery()) {
-					List<File> sharedFolders = SharedContentConfiguration.getSharedFolders();
-					List<Long> removedIds = new ArrayList<>();
-					int oldpercent = 0;
-					int i = 0;
-					while (rs.next()) {
-						String filename = rs.getString(COL_FILENAME);
-						Long id = toLong(rs, COL_ID);
-						if (Boolean.FALSE.equals(MediaTableContainerFiles.isInContainer(connection, id))) {
-							if (!FileUtil.isUrl(filename)) {
-								//this is a real file not in container
-								long modified = rs.getTimestamp(COL_MODIFIED).getTime();
-								File file = new File(filename);
-								if (!file.exists() || file.lastModified() != modified) {
-									LOGGER.trace("Removing the file {} from our database because it is no longer on the hard drive", filename);
-									rs.deleteRow();
-									removedIds.add(id);
-								} else {
-									// the file exists on the hard drive, but now check if we are still sharing it
-									boolean isFileStillShared = false;
-									for (File folder : sharedFolders) {
-										if (filename.contains(folder.getAbsolutePath())) {
-											isFileStillShared = true;
-											break;
-										}
-									}
-
-									if (!isFileStillShared) {
-										LOGGER.trace("Removing the file {} from our database because it is no longer shared", filename);
-										rs.deleteRow();
-										removedIds.add(id);
-									}
-								}
-							} else {
-								//check for url shared content
-							}
-						}
-						i++;
-						int newpercent = i * 100 / dbCount;
-						if (newpercent > oldpercent) {
-							GuiManager.setStatusLine(Messages.getString("CleaningUpDatabase") + newpercent + "%");
-							oldpercent = newpercent;
-						}
-					}
-					//clean relations
-					for (Long id : removedIds) {
-						removeEntry(connection, id);
-					}
-				}
-				GuiManager.setStatusLine(null);
+			cleanupFiles(connection);
+			if (cleanupCancelled) {
+				LOGGER.debug("Database cleanup cancelled");
+				return;
 			}
 
 			/*
@@ -1199,6 +1286,176 @@ public class MediaTableFiles extends MediaTable {
 		}
 	}
 
+	/**
+	 * Removes the files not in a container that are no longer on the hard
+	 * drive or no longer shared.
+	 *
+	 * The rows are read by pages of {@link #CLEANUP_PAGE_SIZE}, the files of
+	 * a page are checked in parallel then the removed ones are deleted in
+	 * batch, with the dependent rows going through the foreign keys.
+	 */
+	private static void cleanupFiles(final Connection connection) throws SQLException {
+		int dbCount = 0;
+		try (
+			PreparedStatement ps = connection.prepareStatement(SQL_GET_ROW_COUNT);
+			ResultSet rs = ps.executeQuery()) {
+			if (rs.next()) {
+				dbCount = rs.getInt(1);
+			}
+		}
+		if (dbCount == 0) {
+			return;
+		}
+
+		PathPrefixTrie sharedFolders = new PathPrefixTrie();
+		for (File folder : SharedContentConfiguration.getSharedFolders()) {
+			sharedFolders.add(folder);
+		}
+		GuiManager.setStatusLine(Messages.getString("CleaningUpDatabase") + " 0%");
+		long start = System.currentTimeMillis();
+		int threads = Math.max(4, UmsConfiguration.getNumberOfSystemCpuCores());
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new SimpleThreadFactory("Database Cleanup"));
+		boolean autoCommit = connection.getAutoCommit();
+		int checked = 0;
+		int removed = 0;
+		int oldpercent = 0;
+		try {
+			connection.setAutoCommit(false);
+			long lastId = -1;
+			while (!cleanupCancelled) {
+				List<CleanupRow> rows = getCleanupPage(connection, lastId);
+				if (rows.isEmpty()) {
+					break;
+				}
+				lastId = rows.get(rows.size() - 1).id;
+				List<Long> removedIds = getRemovedIds(executor, threads, rows, sharedFolders);
+				if (!removedIds.isEmpty()) {
+					removeEntries(connection, removedIds);
+					removed += removedIds.size();
+				}
+				connection.commit();
+				checked += rows.size();
+				int newpercent = (int) Math.min(100, checked * 100L / dbCount);
+				if (newpercent > oldpercent) {
+					GuiManager.setStatusLine(Messages.getString("CleaningUpDatabase") + newpercent + "%");
+					oldpercent = newpercent;
+				}
+			}
+		} catch (InterruptedException e) {
+			cleanupCancelled = true;
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+			connection.setAutoCommit(autoCommit);
+			GuiManager.setStatusLine(null);
+		}
+		LOGGER.debug("Checked {} files and removed {} from the database in {} ms", checked, removed, System.currentTimeMillis() - start);
+	}
+
+	private static List<CleanupRow> getCleanupPage(final Connection connection, long lastId) throws SQLException {
+		List<CleanupRow> rows = new ArrayList<>();
+		try (PreparedStatement ps = connection.prepareStatement(SQL_GET_CLEANUP_PAGE)) {
+			ps.setLong(1, lastId);
+			ps.setInt(2, CLEANUP_PAGE_SIZE);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					Timestamp modified = rs.getTimestamp(COL_MODIFIED);
+					rows.add(new CleanupRow(rs.getLong(COL_ID), rs.getString(COL_FILENAME), modified == null ? 0 : modified.getTime()));
+				}
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Checks the files of a page in parallel.
+	 */
+	private static List<Long> getRemovedIds(ExecutorService executor, int threads, List<CleanupRow> rows, PathPrefixTrie sharedFolders) throws InterruptedException {
+		List<Callable<List<Long>>> tasks = new ArrayList<>();
+		int chunkSize = Math.max(1, (rows.size() + threads - 1) / threads);
+		for (int i = 0; i < rows.size(); i += chunkSize) {
+			List<CleanupRow> chunk = rows.subList(i, Math.min(i + chunkSize, rows.size()));
+			tasks.add(() -> {
+				List<Long> removedIds = new ArrayList<>();
+				for (CleanupRow row : chunk) {
+					if (FileUtil.isUrl(row.filename)) {
+						//check for url shared content
+						continue;
+					}
+					File file = new File(row.filename);
+					if (!file.exists() || file.lastModified() != row.modified) {
+						LOGGER.trace("Removing the file {} from our database because it is no longer on the hard drive", row.filename);
+						removedIds.add(row.id);
+					} else if (!sharedFolders.contains(row.filename)) {
+						LOGGER.trace("Removing the file {} from our database because it is no longer shared", row.filename);
+						removedIds.add(row.id);
+					}
+				}
+				return removedIds;
+			});
+		}
+		List<Long> result = new ArrayList<>();
+		for (Future<List<Long>> future : executor.invokeAll(tasks)) {
+			try {
+				result.addAll(future.get());
+			} catch (ExecutionException e) {
+				LOGGER.debug("Error while checking files for cleanup: {}", e.getMessage());
+				LOGGER.trace("", e);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Removes media files from the database in batch.
+	 *
+	 * It will remove all the related contained entries.
+	 * @param connection the db connection
+	 * @param fileIds the file Ids.
+	 */
+	protected static void removeEntries(final Connection connection, Collection<Long> fileIds) throws SQLException {
+		Collection<Long> ids = fileIds;
+		while (!ids.isEmpty()) {
+			//get actual contained entries before removing the relations.
+			List<Long> entries = MediaTableContainerFiles.getContainerFileIds(connection, ids);
+			MediaTableContainerFiles.deleteContainersAndEntries(connection, ids);
+			try (PreparedStatement ps = connection.prepareStatement(SQL_DELETE_BY_IDS)) {
+				ps.setObject(1, ids.toArray(Long[]::new));
+				ps.executeUpdate();
+			}
+			//delete the entries not anymore related to a container
+			ids = getIdsNotInContainer(connection, entries);
+		}
+	}
+
+	private static List<Long> getIdsNotInContainer(final Connection connection, Collection<Long> fileIds) throws SQLException {
+		List<Long> result = new ArrayList<>();
+		if (fileIds.isEmpty()) {
+			return result;
+		}
+		try (PreparedStatement ps = connection.prepareStatement(SQL_GET_IDS_NOT_IN_CONTAINER)) {
+			ps.setObject(1, fileIds.toArray(Long[]::new));
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					result.add(rs.getLong(1));
+				}
+			}
+		}
+		return result;
+	}
+
+	private static class CleanupRow {
+		private final long id;
+		private final String filename;
+		private final long modified;
+
+		private CleanupRow(long id, String filename, long modified) {
+			this.id = id;
+			this.filename = filename;
+			this.modified = modified;
+		}
+	}
+
 	public static String getFilenameById(final Connection connection, final Long id) {
 		if (id == null) {
 			return null;
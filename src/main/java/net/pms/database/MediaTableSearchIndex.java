@@ -0,0 +1,385 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An inverted index of the words found in the searchable columns of the
+ * files, audio metadata and actors tables.
+ *
+ * Words are folded to lower case without accents, so that "Beyoncé" is found
+ * by "beyonce". A UPnP {@code contains} criterion is matched against word
+ * prefixes, which the (FIELD, TOKEN) index resolves without scanning the
+ * searched tables.
+ */
+public final class MediaTableSearchIndex extends MediaTable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MediaTableSearchIndex.class);
+	public static final String TABLE_NAME = "SEARCH_INDEX";
+
+	/**
+	 * Table version must be increased every time a change is done to the table
+	 * definition. Table upgrade SQL must also be added to
+	 * {@link #upgradeTable(Connection, int)}
+	 */
+	private static final int TABLE_VERSION = 2;
+
+	/**
+	 * Indexed fields
+	 */
+	public static final String FIELD_ACTOR = "ACTOR";
+	public static final String FIELD_ALBUM = "ALBUM";
+	public static final String FIELD_ALBUMARTIST = "ALBUMARTIST";
+	public static final String FIELD_ARTIST = "ARTIST";
+	public static final String FIELD_COMPOSER = "COMPOSER";
+	public static final String FIELD_CONDUCTOR = "CONDUCTOR";
+	public static final String FIELD_FILENAME = "FILENAME";
+	public static final String FIELD_GENRE = "GENRE";
+	public static final String FIELD_TITLE = "TITLE";
+
+	/**
+	 * COLUMNS NAMES
+	 */
+	private static final String COL_FILEID = MediaTableFiles.CHILD_ID;
+	private static final String COL_FIELD = "FIELD";
+	private static final String COL_TOKEN = "TOKEN";
+
+	/**
+	 * COLUMNS with table name
+	 */
+	private static final String TABLE_COL_FILEID = TABLE_NAME + "." + COL_FILEID;
+	private static final String TABLE_COL_FIELD = TABLE_NAME + "." + COL_FIELD;
+	private static final String TABLE_COL_TOKEN = TABLE_NAME + "." + COL_TOKEN;
+
+	private static final int SIZE_TOKEN = 255;
+	private static final int BATCH_SIZE = 1000;
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+	private static final Pattern APOSTROPHES = Pattern.compile("(?<=[\\p{L}\\p{N}])['\u2019](?=[\\p{L}\\p{N}])");
+
+	/**
+	 * SQL Queries
+	 */
+	private static final String SQL_DELETE_FILEID = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER;
+	private static final String SQL_DELETE_FILEID_FIELD = SQL_DELETE_FILEID + AND + TABLE_COL_FIELD + EQUAL + PARAMETER;
+	private static final String SQL_INSERT = INSERT_INTO + TABLE_NAME + " (" + COL_FILEID + COMMA + COL_FIELD + COMMA + COL_TOKEN + ")" + VALUES + "(" + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + ")";
+	private static final String SQL_GET_SOURCES = SELECT +
+		MediaTableFiles.TABLE_COL_ID + COMMA +
+		MediaTableFiles.TABLE_COL_FILENAME + COMMA +
+		MediaTableAudioMetadata.TABLE_COL_SONGNAME + COMMA +
+		MediaTableAudioMetadata.TABLE_COL_ARTIST + COMMA +
+		MediaTableAudioMetadata.TABLE_COL_ALBUMARTIST + COMMA +
+		MediaTableAudioMetadata.TABLE_COL_COMPOSER + COMMA +
+		MediaTableAudioMetadata.TABLE_COL_CONDUCTOR + COMMA +
+		MediaTableAudioMetadata.TABLE_COL_ALBUM + COMMA +
+		MediaTableAudioMetadata.TABLE_COL_GENRE +
+		FROM + MediaTableFiles.TABLE_NAME +
+		LEFT_JOIN + MediaTableAudioMetadata.TABLE_NAME + ON + MediaTableFiles.TABLE_COL_ID + EQUAL + MediaTableAudioMetadata.TABLE_COL_FILEID;
+	private static final String SQL_GET_SOURCES_FILEID = SQL_GET_SOURCES + WHERE + MediaTableFiles.TABLE_COL_ID + EQUAL + PARAMETER;
+	private static final String SQL_GET_ACTORS = SELECT + MediaTableVideoMetadataActors.TABLE_COL_FILEID + COMMA + MediaTableVideoMetadataActors.TABLE_COL_ACTOR + FROM + MediaTableVideoMetadataActors.TABLE_NAME + WHERE + MediaTableVideoMetadataActors.TABLE_COL_FILEID + IS_NOT_NULL;
+	private static final String SQL_GET_ACTORS_FILEID = SQL_GET_ACTORS + AND + MediaTableVideoMetadataActors.TABLE_COL_FILEID + EQUAL + PARAMETER;
+	private static final String SQL_MATCH_TOKEN_PREFIX = SELECT + TABLE_COL_FILEID + FROM + TABLE_NAME + WHERE + TABLE_COL_FIELD + EQUAL + "'%s'" + AND + TABLE_COL_TOKEN + LIKE + "'%s%%'";
+
+	/**
+	 * Checks and creates or upgrades the table as needed.
+	 *
+	 * @param connection the {@link Connection} to use
+	 *
+	 * @throws SQLException
+	 */
+	protected static void checkTable(final Connection connection) throws SQLException {
+		if (tableExists(connection, TABLE_NAME)) {
+			Integer version = MediaTableTablesVersions.getTableVersion(connection, TABLE_NAME);
+			if (version != null) {
+				if (version < TABLE_VERSION) {
+					upgradeTable(connection, version);
+				} else if (version > TABLE_VERSION) {
+					LOGGER.warn(LOG_TABLE_NEWER_VERSION_DELETEDB, DATABASE_NAME, TABLE_NAME, DATABASE.getDatabaseFilename());
+				}
+			} else {
+				LOGGER.warn(LOG_TABLE_UNKNOWN_VERSION_RECREATE, DATABASE_NAME, TABLE_NAME);
+				dropTable(connection, TABLE_NAME);
+				createTable(connection);
+				MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+			}
+		} else {
+			createTable(connection);
+			MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+		}
+	}
+
+	/**
+	 * This method <strong>MUST</strong> be updated if the table definition are
+	 * altered. The changes for each version in the form of
+	 * <code>ALTER TABLE</code> must be implemented here.
+	 *
+	 * @param connection the {@link Connection} to use
+	 * @param currentVersion the version to upgrade <strong>from</strong>
+	 *
+	 * @throws SQLException
+	 */
+	private static void upgradeTable(final Connection connection, final int currentVersion) throws SQLException {
+		LOGGER.info(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, currentVersion, TABLE_VERSION);
+		for (int version = currentVersion; version < TABLE_VERSION; version++) {
+			LOGGER.trace(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, version, version + 1);
+			switch (version) {
+				case 1 -> {
+					// apostrophes no longer split words
+					rebuild(connection);
+				}
+				default -> {
+					throw new IllegalStateException(getMessage(LOG_UPGRADING_TABLE_MISSING, DATABASE_NAME, TABLE_NAME, version, TABLE_VERSION));
+				}
+			}
+		}
+		MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+	}
+
+	private static void createTable(final Connection connection) throws SQLException {
+		LOGGER.info(LOG_CREATING_TABLE, DATABASE_NAME, TABLE_NAME);
+		execute(connection,
+			CREATE_TABLE + TABLE_NAME + "(" +
+				COL_FILEID       + BIGINT             + NOT_NULL    + COMMA +
+				COL_FIELD        + VARCHAR_16         + NOT_NULL    + COMMA +
+				COL_TOKEN        + VARCHAR + "(" + SIZE_TOKEN + ")" + NOT_NULL + COMMA +
+				CONSTRAINT + TABLE_NAME + CONSTRAINT_SEPARATOR + COL_FILEID + FK_MARKER + FOREIGN_KEY + "(" + COL_FILEID + ")" + REFERENCES + MediaTableFiles.REFERENCE_TABLE_COL_ID + ON_DELETE_CASCADE +
+			")",
+			CREATE_INDEX + IF_NOT_EXISTS + TABLE_NAME + CONSTRAINT_SEPARATOR + COL_FIELD + CONSTRAINT_SEPARATOR + COL_TOKEN + IDX_MARKER + ON + TABLE_NAME + " (" + COL_FIELD + COMMA + COL_TOKEN + COMMA + COL_FILEID + ")"
+		);
+		rebuild(connection);
+	}
+
+	/**
+	 * Indexes all the files already in the database.
+	 *
+	 * @param connection the db connection
+	 * @throws SQLException if an SQL error occurs during the operation.
+	 */
+	public static void rebuild(final Connection connection) throws SQLException {
+		LOGGER.debug("Building the search index");
+		executeUpdate(connection, DELETE_FROM + TABLE_NAME);
+		try (
+			PreparedStatement insert = connection.prepareStatement(SQL_INSERT);
+			PreparedStatement select = connection.prepareStatement(SQL_GET_SOURCES);
+			ResultSet rs = select.executeQuery()
+		) {
+			int pending = 0;
+			while (rs.next()) {
+				pending += addSources(insert, rs);
+				if (pending >= BATCH_SIZE) {
+					insert.executeBatch();
+					pending = 0;
+				}
+			}
+			try (
+				PreparedStatement selectActors = connection.prepareStatement(SQL_GET_ACTORS);
+				ResultSet actors = selectActors.executeQuery()
+			) {
+				while (actors.next()) {
+					pending += addTokens(insert, actors.getLong(1), FIELD_ACTOR, actors.getString(2));
+					if (pending >= BATCH_SIZE) {
+						insert.executeBatch();
+						pending = 0;
+					}
+				}
+			}
+			if (pending > 0) {
+				insert.executeBatch();
+			}
+		}
+	}
+
+	/**
+	 * Re-indexes a file from the values stored in the files, audio metadata
+	 * and actors tables.
+	 *
+	 * @param connection the db connection
+	 * @param fileId the file id from FILES table.
+	 */
+	public static void updateFile(final Connection connection, final long fileId) {
+		try {
+			try (PreparedStatement delete = connection.prepareStatement(SQL_DELETE_FILEID)) {
+				delete.setLong(1, fileId);
+				delete.executeUpdate();
+			}
+			try (PreparedStatement insert = connection.prepareStatement(SQL_INSERT)) {
+				try (PreparedStatement select = connection.prepareStatement(SQL_GET_SOURCES_FILEID)) {
+					select.setLong(1, fileId);
+					try (ResultSet rs = select.executeQuery()) {
+						if (rs.next()) {
+							addSources(insert, rs);
+						}
+					}
+				}
+				addActors(connection, insert, fileId);
+				insert.executeBatch();
+			}
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "writing", TABLE_NAME, fileId, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+	/**
+	 * Re-indexes the actors of a file.
+	 *
+	 * @param connection the db connection
+	 * @param fileId the file id from FILES table.
+	 */
+	public static void updateActors(final Connection connection, final long fileId) {
+		try {
+			try (PreparedStatement delete = connection.prepareStatement(SQL_DELETE_FILEID_FIELD)) {
+				delete.setLong(1, fileId);
+				delete.setString(2, FIELD_ACTOR);
+				delete.executeUpdate();
+			}
+			try (PreparedStatement insert = connection.prepareStatement(SQL_INSERT)) {
+				addActors(connection, insert, fileId);
+				insert.executeBatch();
+			}
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "writing", TABLE_NAME, fileId, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+	/**
+	 * Returns an SQL condition matching the rows whose {@code field} has
+	 * words starting with every word of {@code value}.
+	 *
+	 * @param fileIdColumn the column holding the file id in the outer query.
+	 * @param field the indexed field.
+	 * @param value the searched value.
+	 * @return the SQL condition, or {@code null} if {@code value} has no word.
+	 */
+	public static String getContainsCondition(String fileIdColumn, String field, String value) {
+		Set<String> tokens = tokenize(value);
+		if (tokens.isEmpty()) {
+			return null;
+		}
+		StringBuilder sb = new StringBuilder("(");
+		for (String token : tokens) {
+			if (sb.length() > 1) {
+				sb.append(AND);
+			}
+			// tokens are letters and digits only, there is nothing to escape
+			sb.append(fileIdColumn).append(IN).append("(").append(String.format(SQL_MATCH_TOKEN_PREFIX, field, token)).append(")");
+		}
+		return sb.append(")").toString();
+	}
+
+	/**
+	 * Folds a string to lower case without diacritics.
+	 *
+	 * @param value the string.
+	 * @return the folded string.
+	 */
+	public static String fold(String value) {
+		String decomposed = Normalizer.normalize(value, Normalizer.Form.NFKD);
+		return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Splits a string into folded words.
+	 *
+	 * Apostrophes inside a word are dropped rather than splitting it, so that
+	 * "Don't" gives "dont" and not a lone "t".
+	 *
+	 * @param value the string.
+	 * @return the distinct words.
+	 */
+	public static Set<String> tokenize(String value) {
+		Set<String> tokens = new LinkedHashSet<>();
+		if (value != null) {
+			addWords(tokens, APOSTROPHES.matcher(fold(value)).replaceAll(""));
+		}
+		return tokens;
+	}
+
+	/**
+	 * Splits a string into the folded words to index.
+	 *
+	 * Besides the words of {@link #tokenize(String)}, the parts of the words
+	 * holding apostrophes are indexed, so that "amour" still finds
+	 * "L'amour".
+	 *
+	 * @param value the string.
+	 * @return the distinct words.
+	 */
+	public static Set<String> getIndexTokens(String value) {
+		Set<String> tokens = tokenize(value);
+		if (value != null) {
+			addWords(tokens, fold(value));
+		}
+		return tokens;
+	}
+
+	private static void addWords(Set<String> tokens, String value) {
+		for (String token : SEPARATORS.split(value)) {
+			if (!token.isEmpty()) {
+				tokens.add(token.length() > SIZE_TOKEN ? token.substring(0, SIZE_TOKEN) : token);
+			}
+		}
+	}
+
+	private static int addSources(PreparedStatement insert, ResultSet rs) throws SQLException {
+		long fileId = rs.getLong(1);
+		int added = 0;
+		added += addTokens(insert, fileId, FIELD_FILENAME, rs.getString(2));
+		added += addTokens(insert, fileId, FIELD_TITLE, rs.getString(3));
+		added += addTokens(insert, fileId, FIELD_ARTIST, rs.getString(4));
+		added += addTokens(insert, fileId, FIELD_ALBUMARTIST, rs.getString(5));
+		added += addTokens(insert, fileId, FIELD_COMPOSER, rs.getString(6));
+		added += addTokens(insert, fileId, FIELD_CONDUCTOR, rs.getString(7));
+		added += addTokens(insert, fileId, FIELD_ALBUM, rs.getString(8));
+		added += addTokens(insert, fileId, FIELD_GENRE, rs.getString(9));
+		return added;
+	}
+
+	private static void addActors(final Connection connection, PreparedStatement insert, final long fileId) throws SQLException {
+		try (PreparedStatement select = connection.prepareStatement(SQL_GET_ACTORS_FILEID)) {
+			select.setLong(1, fileId);
+			try (ResultSet rs = select.executeQuery()) {
+				while (rs.next()) {
+					addTokens(insert, fileId, FIELD_ACTOR, rs.getString(2));
+				}
+			}
+		}
+	}
+
+	private static int addTokens(PreparedStatement insert, long fileId, String field, String value) throws SQLException {
+		Set<String> tokens = getIndexTokens(value);
+		for (String token : tokens) {
+			insert.setLong(1, fileId);
+			insert.setString(2, field);
+			insert.setString(3, token);
+			insert.addBatch();
+		}
+		return tokens.size();
+	}
+
+}
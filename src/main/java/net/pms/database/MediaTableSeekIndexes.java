@@ -0,0 +1,203 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import net.pms.util.SeekIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class is responsible for managing the Seek Indexes table. It does
+ * everything from creating, checking and upgrading the table to performing
+ * lookups, updates and inserts. All operations involving this table shall be
+ * done with this class.
+ *
+ * A row holds the {@link SeekIndex} of a file, with the modification time and
+ * size of the file it was built from.
+ */
+public final class MediaTableSeekIndexes extends MediaTable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MediaTableSeekIndexes.class);
+	protected static final String TABLE_NAME = "SEEK_INDEXES";
+
+	/**
+	 * Table version must be increased every time a change is done to the table
+	 * definition. Table upgrade SQL must also be added to
+	 * {@link #upgradeTable(Connection, int)}
+	 */
+	private static final int TABLE_VERSION = 1;
+
+	/**
+	 * COLUMNS NAMES
+	 */
+	private static final String COL_FILEID = MediaTableFiles.CHILD_ID;
+	private static final String COL_MODIFIED = "MODIFIED";
+	private static final String COL_SIZE = "SIZE";
+	private static final String COL_SEEK_INDEX = "SEEK_INDEX";
+
+	/**
+	 * COLUMNS with table name
+	 */
+	private static final String TABLE_COL_FILEID = TABLE_NAME + "." + COL_FILEID;
+
+	/**
+	 * SQL Queries
+	 */
+	private static final String SQL_GET_ALL_BY_FILEID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER + LIMIT_1;
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private MediaTableSeekIndexes() {
+	}
+
+	/**
+	 * Checks and creates or upgrades the table as needed.
+	 *
+	 * @param connection the {@link Connection} to use
+	 *
+	 * @throws SQLException
+	 */
+	protected static void checkTable(final Connection connection) throws SQLException {
+		if (tableExists(connection, TABLE_NAME)) {
+			Integer version = MediaTableTablesVersions.getTableVersion(connection, TABLE_NAME);
+			if (version != null) {
+				if (version < TABLE_VERSION) {
+					upgradeTable(connection, version);
+				} else if (version > TABLE_VERSION) {
+					LOGGER.warn(LOG_TABLE_NEWER_VERSION_DELETEDB, DATABASE_NAME, TABLE_NAME, DATABASE.getDatabaseFilename());
+				}
+			} else {
+				LOGGER.warn(LOG_TABLE_UNKNOWN_VERSION_RECREATE, DATABASE_NAME, TABLE_NAME);
+				dropTable(connection, TABLE_NAME);
+				createTable(connection);
+				MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+			}
+		} else {
+			createTable(connection);
+			MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+		}
+	}
+
+	/**
+	 * This method <strong>MUST</strong> be updated if the table definition are
+	 * altered. The changes for each version in the form of
+	 * <code>ALTER TABLE</code> must be implemented here.
+	 *
+	 * @param connection the {@link Connection} to use
+	 * @param currentVersion the version to upgrade <strong>from</strong>
+	 *
+	 * @throws SQLException
+	 */
+	private static void upgradeTable(final Connection connection, final int currentVersion) throws SQLException {
+		LOGGER.info(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, currentVersion, TABLE_VERSION);
+		for (int version = currentVersion; version < TABLE_VERSION; version++) {
+			LOGGER.trace(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, version, version + 1);
+			switch (version) {
+				default -> {
+					throw new IllegalStateException(getMessage(LOG_UPGRADING_TABLE_MISSING, DATABASE_NAME, TABLE_NAME, version, TABLE_VERSION));
+				}
+			}
+		}
+		MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+	}
+
+	private static void createTable(final Connection connection) throws SQLException {
+		LOGGER.info(LOG_CREATING_TABLE, DATABASE_NAME, TABLE_NAME);
+		execute(connection,
+			CREATE_TABLE + TABLE_NAME + " (" +
+				COL_FILEID          + BIGINT                            + PRIMARY_KEY       + COMMA +
+				COL_MODIFIED        + TIMESTAMP                         + NOT_NULL          + COMMA +
+				COL_SIZE            + BIGINT                            + NOT_NULL          + COMMA +
+				COL_SEEK_INDEX      + BLOB                              + NOT_NULL          + COMMA +
+				CONSTRAINT + TABLE_NAME + CONSTRAINT_SEPARATOR + COL_FILEID + FK_MARKER + FOREIGN_KEY + "(" + COL_FILEID + ")" + REFERENCES + MediaTableFiles.REFERENCE_TABLE_COL_ID + ON_DELETE_CASCADE +
+			")"
+		);
+	}
+
+	/**
+	 * Gets the seek index of a file, if it was built from the current version
+	 * of the file.
+	 *
+	 * @param connection the db connection
+	 * @param fileId the file id.
+	 * @param modified the current {@code lastModified} value of the file.
+	 * @param size the current size of the file.
+	 * @return the seek index, or {@code null}.
+	 */
+	public static SeekIndex getSeekIndex(final Connection connection, long fileId, long modified, long size) {
+		if (connection == null || fileId < 0) {
+			return null;
+		}
+		try (PreparedStatement statement = connection.prepareStatement(SQL_GET_ALL_BY_FILEID)) {
+			statement.setLong(1, fileId);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				if (resultSet.next() &&
+					resultSet.getTimestamp(COL_MODIFIED).getTime() == modified &&
+					resultSet.getLong(COL_SIZE) == size
+				) {
+					return SeekIndex.fromBytes(resultSet.getBytes(COL_SEEK_INDEX));
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "reading seek index", TABLE_NAME, fileId, e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return null;
+	}
+
+	/**
+	 * Stores the seek index of a file.
+	 *
+	 * @param connection the db connection
+	 * @param fileId the file id.
+	 * @param modified the {@code lastModified} value of the indexed file.
+	 * @param size the size of the indexed file.
+	 * @param seekIndex the seek index.
+	 */
+	public static void setSeekIndex(final Connection connection, long fileId, long modified, long size, SeekIndex seekIndex) {
+		if (connection == null || fileId < 0 || seekIndex == null) {
+			return;
+		}
+		try (PreparedStatement statement = connection.prepareStatement(SQL_GET_ALL_BY_FILEID, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE)) {
+			statement.setLong(1, fileId);
+			try (ResultSet result = statement.executeQuery()) {
+				boolean isCreatingNewRecord = !result.next();
+				if (isCreatingNewRecord) {
+					result.moveToInsertRow();
+					result.updateLong(COL_FILEID, fileId);
+				}
+				result.updateTimestamp(COL_MODIFIED, new Timestamp(modified));
+				result.updateLong(COL_SIZE, size);
+				result.updateBytes(COL_SEEK_INDEX, seekIndex.toBytes());
+				if (isCreatingNewRecord) {
+					result.insertRow();
+				} else {
+					result.updateRow();
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "writing seek index", TABLE_NAME, fileId, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+}
@@ -23,6 +23,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import net.pms.store.MediaStoreId;
 import net.pms.store.StoreResource;
 import org.slf4j.Logger;
@@ -230,6 +231,32 @@ public class MediaTableStoreIds extends MediaTable {
 		}
 	}
 
+	/**
+	 * Sets the update ids of several objects in one batch.
+	 *
+	 * @param connection
+	 * @param updateIds the update id by object id.
+	 * @return {@code true} if they were stored.
+	 */
+	public static boolean setMediaStoreUpdateIds(Connection connection, Map<Long, Long> updateIds) {
+		if (connection == null) {
+			return false;
+		}
+		try (PreparedStatement stmt = connection.prepareStatement(SQL_UPDATE_UPDATEID_ID)) {
+			for (Map.Entry<Long, Long> entry : updateIds.entrySet()) {
+				stmt.setLong(1, entry.getValue());
+				stmt.setLong(2, entry.getKey());
+				stmt.addBatch();
+			}
+			stmt.executeBatch();
+			return true;
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for {} update ids: {}", updateIds.size(), e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return false;
+	}
+
 	public static String getMediaStoreNameForId(Connection connection, String id) {
 		if (connection == null) {
 			return null;
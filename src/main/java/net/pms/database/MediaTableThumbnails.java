@@ -23,8 +23,12 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
 import net.pms.dlna.DLNAThumbnail;
 import net.pms.dlna.DLNAThumbnailFixer;
+import net.pms.store.ThumbnailBlobStore;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,6 +40,9 @@ import org.slf4j.LoggerFactory;
  * performing lookups, updates and inserts. All operations involving this table
  * shall be done with this class.
  *
+ * The rows only hold the metadata of the thumbnails, the images are kept in
+ * the {@link ThumbnailBlobStore} under their MD5 hash.
+ *
  * @author SubJunk & Nadahar
  * @since 7.1.1
  */
@@ -49,15 +56,18 @@ public final class MediaTableThumbnails extends MediaTable {
 	 * definition. Table upgrade SQL must also be added to
 	 * {@link #upgradeTable()}
 	 */
-	private static final int TABLE_VERSION = 1;
+	private static final int TABLE_VERSION = 2;
 
 	/**
 	 * COLUMNS NAMES
 	 */
-	protected static final String COL_THUMBNAIL = "THUMBNAIL";
+	private static final String COL_THUMBNAIL = "THUMBNAIL";
 	private static final String COL_ID = "ID";
 	private static final String COL_MD5 = "MD5";
 	private static final String COL_MODIFIED = "MODIFIED";
+	private static final String COL_FORMAT = "FORMAT";
+	private static final String COL_WIDTH = "WIDTH";
+	private static final String COL_HEIGHT = "HEIGHT";
 
 	/**
 	 * COLUMNS with table name
@@ -68,14 +78,28 @@ public final class MediaTableThumbnails extends MediaTable {
 	/**
 	 * SQL Queries
 	 */
-	private static final String SQL_GET_ID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_ID + EQUAL + PARAMETER + LIMIT_1;
+	private static final String SQL_GET_MD5_ID = SELECT + TABLE_COL_MD5 + FROM + TABLE_NAME + WHERE + TABLE_COL_ID + EQUAL + PARAMETER + LIMIT_1;
 	private static final String SQL_GET_ID_MD5 = SELECT + TABLE_COL_ID + FROM + TABLE_NAME + WHERE + TABLE_COL_MD5 + EQUAL + PARAMETER + LIMIT_1;
-	private static final String SQL_INSERT_ID_MD5 = INSERT_INTO + TABLE_NAME + " (" + COL_THUMBNAIL + COMMA + COL_MODIFIED + COMMA + COL_MD5 + ") VALUES (" + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + ")";
+	private static final String SQL_INSERT_ID_MD5 = INSERT_INTO + TABLE_NAME + " (" + COL_MODIFIED + COMMA + COL_MD5 + COMMA + COL_FORMAT + COMMA + COL_WIDTH + COMMA + COL_HEIGHT + ") VALUES (" + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + ")";
+	private static final String SQL_GET_ALL_THUMBNAILS = SELECT + COL_ID + COMMA + COL_MD5 + COMMA + COL_THUMBNAIL + COMMA + COL_FORMAT + COMMA + COL_WIDTH + COMMA + COL_HEIGHT + FROM + TABLE_NAME;
 
-	private static final String SQL_DELETE_ID = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_ID + EQUAL + PARAMETER;
-	private static final String SQL_CLEANUP = DELETE_FROM + TABLE_NAME + WHERE +
+	private static final String SQL_UNUSED = WHERE +
 		NOT + EXISTS + "(" + SELECT + MediaTableTVSeries.TABLE_COL_THUMBID + FROM + MediaTableTVSeries.TABLE_NAME + WHERE + MediaTableTVSeries.TABLE_COL_THUMBID + EQUAL + TABLE_COL_ID + ")" +
 		AND + NOT + EXISTS + "(" + SELECT + MediaTableFiles.TABLE_COL_THUMBID + FROM + MediaTableFiles.TABLE_NAME + WHERE + MediaTableFiles.TABLE_COL_THUMBID + EQUAL + TABLE_COL_ID + ")";
+	private static final String SQL_GET_MD5_UNUSED = SELECT + TABLE_COL_MD5 + FROM + TABLE_NAME + SQL_UNUSED;
+	private static final String SQL_DELETE_MD5_UNUSED = DELETE_FROM + TABLE_NAME + SQL_UNUSED + AND + TABLE_COL_MD5 + EQUAL + PARAMETER;
+
+	/**
+	 * Locks for the rows and their blobs, striped by hash, so that a blob is
+	 * not deleted while the same image is stored again.
+	 */
+	private static final Object[] BLOB_LOCKS = new Object[64];
+
+	static {
+		for (int i = 0; i < BLOB_LOCKS.length; i++) {
+			BLOB_LOCKS[i] = new Object();
+		}
+	}
 
 	/**
 	 * Checks and creates or upgrades the table as needed.
@@ -120,6 +144,13 @@ public final class MediaTableThumbnails extends MediaTable {
 		for (int version = currentVersion; version < TABLE_VERSION; version++) {
 			LOGGER.trace(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, version, version + 1);
 			switch (version) {
+				case 1 -> {
+					executeUpdate(connection, ALTER_TABLE + TABLE_NAME + ADD + COLUMN + IF_NOT_EXISTS + COL_FORMAT + VARCHAR_16);
+					executeUpdate(connection, ALTER_TABLE + TABLE_NAME + ADD + COLUMN + IF_NOT_EXISTS + COL_WIDTH + INTEGER);
+					executeUpdate(connection, ALTER_TABLE + TABLE_NAME + ADD + COLUMN + IF_NOT_EXISTS + COL_HEIGHT + INTEGER);
+					moveThumbnailsToBlobStore(connection);
+					executeUpdate(connection, ALTER_TABLE + TABLE_NAME + DROP + COLUMN + IF_EXISTS + COL_THUMBNAIL);
+				}
 				default ->
 					throw new IllegalStateException(
 							getMessage(LOG_UPGRADING_TABLE_MISSING, DATABASE_NAME, TABLE_NAME, version, TABLE_VERSION)
@@ -131,42 +162,134 @@ public final class MediaTableThumbnails extends MediaTable {
 
 	private static void createTable(final Connection connection) throws SQLException {
 		LOGGER.info(LOG_CREATING_TABLE, DATABASE_NAME, TABLE_NAME);
+		// a new table references none of the stored images
+		ThumbnailBlobStore.getInstance().clear();
 		execute(connection,
 			CREATE_TABLE + TABLE_NAME + "(" +
 				COL_ID                + IDENTITY                       + COMMA +
-				COL_THUMBNAIL         + OTHER      + NOT_NULL          + COMMA +
 				COL_MODIFIED          + TIMESTAMP                      + COMMA +
-				COL_MD5               + VARCHAR    + UNIQUE_NOT_NULL   +
+				COL_MD5               + VARCHAR    + UNIQUE_NOT_NULL   + COMMA +
+				COL_FORMAT            + VARCHAR_16                     + COMMA +
+				COL_WIDTH             + INTEGER                        + COMMA +
+				COL_HEIGHT            + INTEGER                        +
 			")"
 		);
 	}
 
+	/**
+	 * Moves the serialized thumbnails of the table version 1 to the
+	 * {@link ThumbnailBlobStore}, keeping their ids. The thumbnails that can't
+	 * be read are removed, they will be generated again.
+	 *
+	 * @param connection the {@link Connection} to use
+	 *
+	 * @throws SQLException
+	 */
+	private static void moveThumbnailsToBlobStore(final Connection connection) throws SQLException {
+		int moved = 0;
+		int removed = 0;
+		try (
+			PreparedStatement statement = connection.prepareStatement(SQL_GET_ALL_THUMBNAILS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
+			ResultSet resultSet = statement.executeQuery()
+		) {
+			while (resultSet.next()) {
+				DLNAThumbnail thumbnail = null;
+				try {
+					thumbnail = (DLNAThumbnail) resultSet.getObject(COL_THUMBNAIL);
+				} catch (SQLException e) {
+					try {
+						thumbnail = DLNAThumbnailFixer.fixDLNAThumbnail(resultSet.getBinaryStream(COL_THUMBNAIL));
+					} catch (IOException ex) {
+						LOGGER.debug("Error in DLNAThumbnail deserialization for id \"{}\": {}", resultSet.getLong(COL_ID), ex.getMessage());
+					}
+				}
+				String md5Hash = resultSet.getString(COL_MD5);
+				try {
+					if (thumbnail == null) {
+						throw new IOException("unreadable thumbnail");
+					}
+					ThumbnailBlobStore.getInstance().put(md5Hash, thumbnail.getBytes(false));
+					resultSet.updateString(COL_FORMAT, thumbnail.getFormat() != null ? thumbnail.getFormat().toString() : null);
+					resultSet.updateInt(COL_WIDTH, thumbnail.getWidth());
+					resultSet.updateInt(COL_HEIGHT, thumbnail.getHeight());
+					resultSet.updateRow();
+					moved++;
+				} catch (IOException | IllegalArgumentException e) {
+					LOGGER.debug("Removing thumbnail {} from \"{}\": {}", resultSet.getLong(COL_ID), TABLE_NAME, e.getMessage());
+					resultSet.deleteRow();
+					removed++;
+				}
+			}
+		}
+		LOGGER.info("Moved {} thumbnails from \"{}\" to the thumbnail store, {} unreadable thumbnails removed", moved, TABLE_NAME, removed);
+	}
+
 	/**
 	 * Attempts to find a thumbnail in this table by MD5 hash.
 	 *
-	 * If not found, it writes the new thumbnail to this table. Finally, it
+	 * If not found, it writes the new thumbnail to the
+	 * {@link ThumbnailBlobStore} and its metadata to this table. Finally, it
 	 * returns the ID from this table as the THUMBID.
 	 *
+	 * The image is stored once by the blob store and the unique MD5 constraint
+	 * lets only one row in. The row and its blob are written under the lock
+	 * of their hash, which {@link #cleanup} takes to remove them, so that the
+	 * blob of a thumbnail stored again is not deleted as unused. Different
+	 * images are stored concurrently.
+	 *
 	 * @param connection the db connection
 	 * @param thumbnail
 	 */
-	public static synchronized Long setThumbnail(final Connection connection, final DLNAThumbnail thumbnail) {
-		String md5Hash = DigestUtils.md5Hex(thumbnail.getBytes(false));
+	public static Long setThumbnail(final Connection connection, final DLNAThumbnail thumbnail) {
+		byte[] bytes = thumbnail.getBytes(false);
+		String md5Hash = DigestUtils.md5Hex(bytes);
+		synchronized (getBlobLock(md5Hash)) {
+			return insertThumbnail(connection, thumbnail, bytes, md5Hash);
+		}
+	}
+
+	private static Object getBlobLock(final String md5Hash) {
+		return BLOB_LOCKS[Math.floorMod(md5Hash.hashCode(), BLOB_LOCKS.length)];
+	}
+
+	private static Long insertThumbnail(final Connection connection, final DLNAThumbnail thumbnail, final byte[] bytes, final String md5Hash) {
 		Long existingId = getThumbnailId(connection, md5Hash);
+		try {
+			ThumbnailBlobStore.getInstance().put(md5Hash, bytes);
+		} catch (IOException e) {
+			LOGGER.error("Error writing thumbnail {} to \"{}\": {}", md5Hash, ThumbnailBlobStore.getInstance().getPath(md5Hash), e.getMessage());
+			LOGGER.trace("", e);
+			return null;
+		}
 		if (existingId != null) {
 			return existingId;
 		}
 		try (PreparedStatement insertStatement = connection.prepareStatement(SQL_INSERT_ID_MD5, Statement.RETURN_GENERATED_KEYS)) {
-			insertStatement.setObject(1, thumbnail);
-			insertStatement.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
-			insertStatement.setString(3, md5Hash);
+			insertStatement.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+			insertStatement.setString(2, md5Hash);
+			if (thumbnail.getFormat() != null) {
+				insertStatement.setString(3, thumbnail.getFormat().toString());
+			} else {
+				insertStatement.setNull(3, Types.VARCHAR);
+			}
+			insertStatement.setInt(4, thumbnail.getWidth());
+			insertStatement.setInt(5, thumbnail.getHeight());
 			insertStatement.executeUpdate();
-			return getThumbnailId(connection, md5Hash);
+			try (ResultSet generatedKeys = insertStatement.getGeneratedKeys()) {
+				if (generatedKeys.next()) {
+					return generatedKeys.getLong(1);
+				}
+			}
 		} catch (SQLException e) {
+			// another writer may have inserted the same thumbnail
+			existingId = getThumbnailId(connection, md5Hash);
+			if (existingId != null) {
+				return existingId;
+			}
 			LOGGER.error(LOG_ERROR_WHILE_VAR_IN, DATABASE_NAME, "writing md5", md5Hash, TABLE_NAME, e.getMessage());
 			LOGGER.trace("", e);
 		}
-		return null;
+		return getThumbnailId(connection, md5Hash);
 	}
 
 	/**
@@ -191,33 +314,32 @@ public final class MediaTableThumbnails extends MediaTable {
 	}
 
 	public static DLNAThumbnail getThumbnail(final Connection connection, final Long id) {
-		try (PreparedStatement statement = connection.prepareStatement(SQL_GET_ID, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE)) {
+		String md5Hash = null;
+		try (PreparedStatement statement = connection.prepareStatement(SQL_GET_MD5_ID)) {
 			statement.setLong(1, id);
 			try (ResultSet resultSet = statement.executeQuery()) {
 				if (resultSet.next()) {
-					DLNAThumbnail thumbnail = null;
-					try {
-						return ((DLNAThumbnail) resultSet.getObject(COL_THUMBNAIL));
-					} catch (SQLException ex) {
-						try {
-							thumbnail = DLNAThumbnailFixer.fixDLNAThumbnail(resultSet.getBinaryStream(COL_THUMBNAIL));
-							if (thumbnail != null) {
-								//update thumbnail object
-								resultSet.updateObject(COL_THUMBNAIL, thumbnail);
-								resultSet.updateRow();
-							}
-						} catch (IOException ex1) {
-							LOGGER.error("Error in DLNAThumbnail deserialization for id \"{}\": {}", id, ex.getMessage());
-							LOGGER.info("", ex);
-						}
-					}
-					return thumbnail;
+					md5Hash = resultSet.getString(COL_MD5);
 				}
 			}
 		} catch (SQLException e) {
 			LOGGER.error("Database error in " + TABLE_NAME + " for id \"{}\": {}", id, e.getMessage());
 			LOGGER.trace("", e);
 		}
+		if (md5Hash == null) {
+			return null;
+		}
+		try {
+			byte[] bytes = ThumbnailBlobStore.getInstance().get(md5Hash);
+			if (bytes == null) {
+				LOGGER.debug("Thumbnail {} is missing from \"{}\"", id, ThumbnailBlobStore.getInstance().getPath(md5Hash));
+				return null;
+			}
+			return DLNAThumbnail.toThumbnail(bytes);
+		} catch (IOException | IllegalArgumentException e) {
+			LOGGER.error("Error reading thumbnail {}: {}", id, e.getMessage());
+			LOGGER.trace("", e);
+		}
 		return null;
 	}
 
@@ -227,13 +349,36 @@ public final class MediaTableThumbnails extends MediaTable {
 	 * @param connection
 	 */
 	public static void cleanup(final Connection connection) {
-		try (PreparedStatement statement = connection.prepareStatement(SQL_CLEANUP)) {
-			int rows = statement.executeUpdate();
-			LOGGER.trace("Removed {} entries in \"{}\"", rows, TABLE_NAME);
+		List<String> unused = new ArrayList<>();
+		try (
+			PreparedStatement unusedStatement = connection.prepareStatement(SQL_GET_MD5_UNUSED);
+			ResultSet resultSet = unusedStatement.executeQuery()
+		) {
+			while (resultSet.next()) {
+				unused.add(resultSet.getString(COL_MD5));
+			}
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN, DATABASE_NAME, "searching unused entries", TABLE_NAME, e.getMessage());
+			LOGGER.trace("", e);
+			return;
+		}
+		int rows = 0;
+		try (PreparedStatement statement = connection.prepareStatement(SQL_DELETE_MD5_UNUSED)) {
+			for (String md5Hash : unused) {
+				synchronized (getBlobLock(md5Hash)) {
+					statement.setString(1, md5Hash);
+					rows += statement.executeUpdate();
+					// the image may have been stored again and referenced meanwhile
+					if (getThumbnailId(connection, md5Hash) == null) {
+						ThumbnailBlobStore.getInstance().delete(md5Hash);
+					}
+				}
+			}
 		} catch (SQLException e) {
 			LOGGER.error(LOG_ERROR_WHILE_IN, DATABASE_NAME, "removing entries", TABLE_NAME, e.getMessage());
 			LOGGER.trace("", e);
 		}
+		LOGGER.trace("Removed {} entries in \"{}\"", rows, TABLE_NAME);
 	}
 
 }
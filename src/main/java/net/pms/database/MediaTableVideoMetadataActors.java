@@ -22,7 +22,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import net.pms.media.video.metadata.ApiStringArray;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,6 +63,7 @@ public final class MediaTableVideoMetadataActors extends MediaTable {
 	 * SQL Queries
 	 */
 	private static final String SQL_GET_ACTORS_FILEID = SELECT + TABLE_COL_ACTOR + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER;
+	private static final String SQL_GET_ACTORS_FILEIDS = SELECT + TABLE_COL_FILEID + COMMA + TABLE_COL_ACTOR + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + ANY_PARAMETER;
 	private static final String SQL_GET_ACTORS_TVSERIESID = SELECT + TABLE_COL_ACTOR + FROM + TABLE_NAME + WHERE + TABLE_COL_TVSERIESID + EQUAL + PARAMETER;
 	private static final String SQL_GET_ALL_FILEID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER;
 	private static final String SQL_GET_ALL_TVSERIESID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_TVSERIESID + EQUAL + PARAMETER;
@@ -199,6 +203,9 @@ public final class MediaTableVideoMetadataActors extends MediaTable {
 					}
 				}
 			}
+			if (tvSeriesID == null) {
+				MediaTableSearchIndex.updateActors(connection, id);
+			}
 		} catch (SQLException e) {
 			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "writing", TABLE_NAME, fileId, e.getMessage());
 			LOGGER.trace("", e);
@@ -223,6 +230,25 @@ public final class MediaTableVideoMetadataActors extends MediaTable {
 		return result;
 	}
 
+	public static Map<Long, ApiStringArray> getActorsForFiles(final Connection connection, final Collection<Long> fileIds) {
+		Map<Long, ApiStringArray> result = new HashMap<>();
+		if (fileIds.isEmpty()) {
+			return result;
+		}
+		try (PreparedStatement ps = connection.prepareStatement(SQL_GET_ACTORS_FILEIDS)) {
+			ps.setObject(1, fileIds.toArray(Long[]::new));
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					result.computeIfAbsent(rs.getLong(1), k -> new ApiStringArray()).add(rs.getString(2));
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for {} files: {}", fileIds.size(), e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
 	public static JsonArray getJsonArrayForFile(final Connection connection, final Long fileId) {
 		JsonArray result = new JsonArray();
 		try {
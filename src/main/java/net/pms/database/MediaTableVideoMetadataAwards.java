@@ -21,6 +21,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,6 +61,7 @@ public final class MediaTableVideoMetadataAwards extends MediaTable {
 	 * SQL Queries
 	 */
 	private static final String SQL_GET_AWARD_FILEID = SELECT + TABLE_COL_AWARD + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER + LIMIT_1;
+	private static final String SQL_GET_AWARD_FILEIDS = SELECT + TABLE_COL_FILEID + COMMA + TABLE_COL_AWARD + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + ANY_PARAMETER;
 	private static final String SQL_GET_AWARD_TVSERIESID = SELECT + TABLE_COL_AWARD + FROM + TABLE_NAME + WHERE + TABLE_COL_TVSERIESID + EQUAL + PARAMETER + LIMIT_1;
 	private static final String SQL_GET_TVSERIESID_EXISTS = SELECT + COL_ID + FROM + TABLE_NAME + WHERE + TABLE_COL_TVSERIESID + EQUAL + PARAMETER + AND + TABLE_COL_AWARD + EQUAL + PARAMETER + LIMIT_1;
 	private static final String SQL_GET_FILEID_EXISTS = SELECT + COL_ID + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER + AND + TABLE_COL_AWARD + EQUAL + PARAMETER + LIMIT_1;
@@ -220,6 +224,25 @@ public final class MediaTableVideoMetadataAwards extends MediaTable {
 		return null;
 	}
 
+	public static Map<Long, String> getValuesForFiles(final Connection connection, final Collection<Long> fileIds) {
+		Map<Long, String> result = new HashMap<>();
+		if (fileIds.isEmpty()) {
+			return result;
+		}
+		try (PreparedStatement ps = connection.prepareStatement(SQL_GET_AWARD_FILEIDS)) {
+			ps.setObject(1, fileIds.toArray(Long[]::new));
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					result.putIfAbsent(rs.getLong(1), rs.getString(2));
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for {} files: {}", fileIds.size(), e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
 	public static String getValueForTvSeries(final Connection connection, final Long tvSerieId) {
 		try {
 			try (PreparedStatement ps = connection.prepareStatement(SQL_GET_AWARD_TVSERIESID)) {
@@ -20,6 +20,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import net.pms.external.tmdb.TMDB;
@@ -67,6 +68,7 @@ public final class MediaTableVideoMetadataLocalized extends MediaTable {
 	 * SQL Queries
 	 */
 	private static final String SQL_GET_ALL_FILEID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER;
+	private static final String SQL_GET_ALL_FILEIDS = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + ANY_PARAMETER;
 	private static final String SQL_GET_ALL_TVSERIESID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_TVSERIESID + EQUAL + PARAMETER;
 	private static final String SQL_GET_ALL_LANGUAGE_FILEID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_LANGUAGE + EQUAL + PARAMETER + AND + TABLE_COL_FILEID + EQUAL + PARAMETER;
 	private static final String SQL_GET_ALL_LANGUAGE_TVSERIESID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_LANGUAGE + EQUAL + PARAMETER + AND + TABLE_COL_TVSERIESID + EQUAL + PARAMETER;
@@ -218,6 +220,31 @@ public final class MediaTableVideoMetadataLocalized extends MediaTable {
 		return result;
 	}
 
+	public static Map<Long, Map<String, VideoMetadataLocalized>> getAllVideoMetadataLocalizedForFiles(final Connection connection, final Collection<Long> fileIds) {
+		Map<Long, Map<String, VideoMetadataLocalized>> result = new HashMap<>();
+		if (fileIds.isEmpty()) {
+			return result;
+		}
+		try (PreparedStatement ps = connection.prepareStatement(SQL_GET_ALL_FILEIDS)) {
+			ps.setObject(1, fileIds.toArray(Long[]::new));
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					VideoMetadataLocalized metadata = new VideoMetadataLocalized();
+					metadata.setHomepage(rs.getString(COL_HOMEPAGE));
+					metadata.setOverview(rs.getString(COL_OVERVIEW));
+					metadata.setPoster(rs.getString(COL_POSTER));
+					metadata.setTagline(rs.getString(COL_TAGLINE));
+					metadata.setTitle(rs.getString(COL_TITLE));
+					result.computeIfAbsent(rs.getLong(COL_FILEID), k -> new HashMap<>()).put(rs.getString(COL_LANGUAGE), metadata);
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for {} files: {}", fileIds.size(), e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
 	public static VideoMetadataLocalized getVideoMetadataLocalized(
 		final Long id,
 		final boolean fromTvSeries,
@@ -21,7 +21,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import net.pms.media.MediaInfo;
 import net.pms.media.video.MediaVideo;
 import org.apache.commons.lang3.StringUtils;
@@ -91,6 +94,7 @@ public class MediaTableVideotracks extends MediaTable {
 	 */
 	private static final String SQL_GET_ALL_BY_FILEID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER;
 	private static final String SQL_GET_ALL_BY_FILEID_ID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER + AND + TABLE_COL_ID + EQUAL + PARAMETER;
+	private static final String SQL_GET_ALL_BY_FILEIDS = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + ANY_PARAMETER;
 	private static final String SQL_DELETE_BY_FILEID_ID_GREATER_OR_EQUAL = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER + AND + TABLE_COL_ID + GREATER_OR_EQUAL_THAN + PARAMETER;
 	public static final String SQL_GET_FILEID_BY_VIDEO4K = SELECT + TABLE_COL_FILEID + FROM + TABLE_NAME + WHERE + TABLE_COL_WIDTH + " > 3700" + OR + TABLE_COL_HEIGHT + " > 2000";
 	public static final String SQL_GET_FILEID_BY_VIDEOHD = SELECT + TABLE_COL_FILEID + FROM + TABLE_NAME + WHERE + TABLE_COL_WIDTH + " > 864" + OR + TABLE_COL_HEIGHT + " > 576";
@@ -279,6 +283,26 @@ public class MediaTableVideotracks extends MediaTable {
 		return result;
 	}
 
+	protected static Map<Long, List<MediaVideo>> getVideoTracks(Connection connection, Collection<Long> fileIds) {
+		Map<Long, List<MediaVideo>> result = new HashMap<>();
+		if (connection == null || fileIds.isEmpty()) {
+			return result;
+		}
+		try (PreparedStatement stmt = connection.prepareStatement(SQL_GET_ALL_BY_FILEIDS)) {
+			stmt.setObject(1, fileIds.toArray(Long[]::new));
+			try (ResultSet resultset = stmt.executeQuery()) {
+				while (resultset.next()) {
+					MediaVideo videoTrack = getVideoTrack(resultset);
+					result.computeIfAbsent(resultset.getLong(COL_FILEID), k -> new ArrayList<>()).add(videoTrack);
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for {} files: {}", fileIds.size(), e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
 	private static MediaVideo getVideoTrack(ResultSet resultset) throws SQLException {
 		MediaVideo result = new MediaVideo();
 		result.setId(resultset.getInt(COL_ID));
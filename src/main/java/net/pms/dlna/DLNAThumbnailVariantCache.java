@@ -0,0 +1,367 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import com.drew.imaging.ImageProcessingException;
+import com.drew.metadata.Metadata;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.image.BufferedImageFilterChain;
+import net.pms.image.ImageFormat;
+import net.pms.parsers.MetadataExtractorParser;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded cache of the thumbnail variants sent to renderers.
+ *
+ * A variant is a thumbnail transcoded to a {@link DLNAImageProfile}, with or
+ * without padding, and with a given {@link BufferedImageFilterChain} applied.
+ * The variants are kept in memory up to
+ * {@link UmsConfiguration#getThumbnailVariantCacheSize()}, the least recently
+ * used ones are then spilled to disk up to
+ * {@link UmsConfiguration#getThumbnailVariantCacheDiskSize()}.
+ *
+ * The keys embed the object update id from
+ * {@link net.pms.store.MediaStoreIds}, and all the variants of a resource are
+ * dropped as soon as a different update id is seen for it.
+ *
+ * A spilled variant is stored as its encoded image bytes behind a small
+ * header, in a {@value #FILE_EXTENSION} file of the temp "thumbnails" folder.
+ */
+public class DLNAThumbnailVariantCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DLNAThumbnailVariantCache.class);
+	private static final UmsConfiguration CONFIGURATION = PMS.getConfiguration();
+	private static final String CACHE_DIRECTORY_NAME = "thumbnails";
+	private static final String FILE_EXTENSION = ".variant";
+	private static final int FILE_MAGIC = 0x554d5356;
+	private static final int FILE_VERSION = 1;
+	private static final LinkedHashMap<String, DLNAThumbnail> MEMORY = new LinkedHashMap<>(256, 0.75f, true);
+	private static final LinkedHashMap<String, Long> DISK = new LinkedHashMap<>(256, 0.75f, true);
+	/**
+	 * The last update id seen per resource. A resource can't have more
+	 * variants than the cache has entries, so it is bounded by them.
+	 */
+	private static final Map<Long, String> UPDATE_IDS = new LinkedHashMap<>(256, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+			return size() > MEMORY.size() + DISK.size();
+		}
+	};
+	private static long memoryBytes;
+	private static long diskBytes;
+	private static boolean cacheDirectoryCleared;
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private DLNAThumbnailVariantCache() {
+	}
+
+	/**
+	 * Returns the cache key of a thumbnail variant.
+	 *
+	 * @param resourceId the store resource id.
+	 * @param updateId the store resource update id.
+	 * @param profile the output profile.
+	 * @param padToSize whether the thumbnail is padded.
+	 * @param filterChain the filters applied, or {@code null}.
+	 * @param generic whether this is the generic thumbnail of the resource.
+	 * @return The cache key.
+	 */
+	public static String getKey(
+		long resourceId,
+		String updateId,
+		DLNAImageProfile profile,
+		boolean padToSize,
+		BufferedImageFilterChain filterChain,
+		boolean generic
+	) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(resourceId).append('|').append(updateId).append('|');
+		sb.append(profile).append(':').append(profile.getH()).append('x').append(profile.getV()).append('|');
+		sb.append(padToSize ? "padded" : "unpadded").append('|');
+		sb.append(generic ? "generic" : "own").append('|');
+		if (filterChain != null && !filterChain.isEmpty()) {
+			sb.append(filterChain);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the entity tag of a thumbnail variant. It is derived from the
+	 * key only, so it can be checked without the thumbnail itself.
+	 *
+	 * @param updateId the store resource update id.
+	 * @param key the variant key.
+	 * @return The entity tag.
+	 */
+	public static String getETag(String updateId, String key) {
+		return updateId + "-" + Integer.toHexString(key.hashCode());
+	}
+
+	/**
+	 * Returns a cached thumbnail variant.
+	 *
+	 * @param resourceId the store resource id.
+	 * @param updateId the store resource update id.
+	 * @param key the variant key.
+	 * @return The cached {@link DLNAThumbnail} or {@code null}.
+	 */
+	public static DLNAThumbnail get(long resourceId, String updateId, String key) {
+		File file;
+		synchronized (MEMORY) {
+			if (UPDATE_IDS.containsKey(resourceId)) {
+				checkUpdateId(resourceId, updateId);
+			}
+			DLNAThumbnail thumbnail = MEMORY.get(key);
+			if (thumbnail != null) {
+				return thumbnail;
+			}
+			Long size = DISK.remove(key);
+			if (size == null) {
+				return null;
+			}
+			diskBytes -= size;
+			file = getFile(key);
+		}
+		DLNAThumbnail thumbnail = readFile(file);
+		if (thumbnail != null) {
+			put(resourceId, updateId, key, thumbnail);
+		}
+		return thumbnail;
+	}
+
+	/**
+	 * Adds a thumbnail variant to the cache.
+	 *
+	 * @param resourceId the store resource id.
+	 * @param updateId the store resource update id.
+	 * @param key the variant key.
+	 * @param thumbnail the transcoded thumbnail.
+	 */
+	public static void put(long resourceId, String updateId, String key, DLNAThumbnail thumbnail) {
+		long quota = CONFIGURATION.getThumbnailVariantCacheSize() * 1024L * 1024L;
+		if (thumbnail == null || quota == 0) {
+			return;
+		}
+		Map<String, DLNAThumbnail> evicted = new LinkedHashMap<>();
+		synchronized (MEMORY) {
+			DLNAThumbnail previous = MEMORY.put(key, thumbnail);
+			if (previous != null) {
+				memoryBytes -= previous.getBytes(false).length;
+			}
+			memoryBytes += thumbnail.getBytes(false).length;
+			checkUpdateId(resourceId, updateId);
+			Iterator<Map.Entry<String, DLNAThumbnail>> iterator = MEMORY.entrySet().iterator();
+			while (memoryBytes > quota && iterator.hasNext()) {
+				Map.Entry<String, DLNAThumbnail> entry = iterator.next();
+				if (entry.getKey().equals(key)) {
+					continue;
+				}
+				iterator.remove();
+				memoryBytes -= entry.getValue().getBytes(false).length;
+				evicted.put(entry.getKey(), entry.getValue());
+			}
+		}
+		if (!evicted.isEmpty() && CONFIGURATION.getThumbnailVariantCacheDiskSize() > 0) {
+			spill(evicted);
+		}
+	}
+
+	/**
+	 * Drops all the cached thumbnail variants.
+	 */
+	public static void clear() {
+		synchronized (MEMORY) {
+			MEMORY.clear();
+			DISK.clear();
+			UPDATE_IDS.clear();
+			memoryBytes = 0;
+			diskBytes = 0;
+		}
+		deleteFiles();
+	}
+
+	/**
+	 * Drops the variants of a resource cached under another update id.
+	 */
+	private static void checkUpdateId(long resourceId, String updateId) {
+		String previous = UPDATE_IDS.put(resourceId, updateId);
+		if (previous == null || previous.equals(updateId)) {
+			return;
+		}
+		String prefix = resourceId + "|" + previous + "|";
+		Iterator<Map.Entry<String, DLNAThumbnail>> memoryIterator = MEMORY.entrySet().iterator();
+		while (memoryIterator.hasNext()) {
+			Map.Entry<String, DLNAThumbnail> entry = memoryIterator.next();
+			if (entry.getKey().startsWith(prefix)) {
+				memoryIterator.remove();
+				memoryBytes -= entry.getValue().getBytes(false).length;
+			}
+		}
+		Iterator<Map.Entry<String, Long>> diskIterator = DISK.entrySet().iterator();
+		while (diskIterator.hasNext()) {
+			Map.Entry<String, Long> entry = diskIterator.next();
+			if (entry.getKey().startsWith(prefix)) {
+				diskIterator.remove();
+				diskBytes -= entry.getValue();
+				FileUtils.deleteQuietly(getFile(entry.getKey()));
+			}
+		}
+	}
+
+	private static void spill(Map<String, DLNAThumbnail> evicted) {
+		File cacheDirectory = getCacheDirectory();
+		if (cacheDirectory == null) {
+			return;
+		}
+		synchronized (DLNAThumbnailVariantCache.class) {
+			if (!cacheDirectoryCleared) {
+				// leftovers from a previous run are not indexed
+				cacheDirectoryCleared = true;
+				deleteFiles();
+			}
+		}
+		if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+			LOGGER.debug("Cannot create the thumbnail variant cache directory {}", cacheDirectory);
+			return;
+		}
+		long quota = CONFIGURATION.getThumbnailVariantCacheDiskSize() * 1024L * 1024L;
+		for (Map.Entry<String, DLNAThumbnail> entry : evicted.entrySet()) {
+			File file = getFile(entry.getKey());
+			try {
+				writeFile(file, entry.getValue());
+			} catch (IOException e) {
+				LOGGER.debug("Cannot spill thumbnail variant to {}: {}", file, e.getMessage());
+				FileUtils.deleteQuietly(file);
+				continue;
+			}
+			List<File> dropped = new ArrayList<>();
+			synchronized (MEMORY) {
+				Long previous = DISK.put(entry.getKey(), file.length());
+				if (previous != null) {
+					diskBytes -= previous;
+				}
+				diskBytes += file.length();
+				Iterator<Map.Entry<String, Long>> iterator = DISK.entrySet().iterator();
+				while (diskBytes > quota && iterator.hasNext()) {
+					Map.Entry<String, Long> diskEntry = iterator.next();
+					iterator.remove();
+					diskBytes -= diskEntry.getValue();
+					dropped.add(getFile(diskEntry.getKey()));
+				}
+			}
+			for (File droppedFile : dropped) {
+				FileUtils.deleteQuietly(droppedFile);
+			}
+		}
+	}
+
+	/**
+	 * Writes the encoded image behind a header holding what can't be parsed
+	 * back from the image itself.
+	 */
+	private static void writeFile(File file, DLNAThumbnail thumbnail) throws IOException {
+		DLNAImageProfile profile = thumbnail.getDLNAImageProfile();
+		byte[] bytes = thumbnail.getBytes(false);
+		try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			dos.writeInt(FILE_MAGIC);
+			dos.writeInt(FILE_VERSION);
+			dos.writeInt(profile.toInt());
+			dos.writeInt(profile.getH());
+			dos.writeInt(profile.getV());
+			dos.writeUTF(thumbnail.getFormat().name());
+			dos.writeInt(thumbnail.getWidth());
+			dos.writeInt(thumbnail.getHeight());
+			dos.writeInt(bytes.length);
+			dos.write(bytes);
+		}
+	}
+
+	private static DLNAThumbnail readFile(File file) {
+		try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (dis.readInt() != FILE_MAGIC || dis.readInt() != FILE_VERSION) {
+				LOGGER.debug("Ignoring unknown spilled thumbnail variant {}", file);
+				return null;
+			}
+			int profileValue = dis.readInt();
+			int horizontal = dis.readInt();
+			int vertical = dis.readInt();
+			DLNAImageProfile profile = profileValue == DLNAImageProfile.JPEG_RES_H_V_INT ?
+				DLNAImageProfile.createJPEG_RES_H_V(horizontal, vertical) :
+				DLNAImageProfile.toDLNAImageProfile(profileValue);
+			ImageFormat format = ImageFormat.valueOf(dis.readUTF());
+			int width = dis.readInt();
+			int height = dis.readInt();
+			byte[] bytes = new byte[dis.readInt()];
+			dis.readFully(bytes);
+			Metadata metadata = MetadataExtractorParser.getMetadata(new ByteArrayInputStream(bytes), format, null);
+			return new DLNAThumbnail(bytes, width, height, format, null, metadata, profile, false);
+		} catch (IOException | ImageProcessingException | IllegalArgumentException e) {
+			LOGGER.debug("Cannot read spilled thumbnail variant {}: {}", file, e.getMessage());
+			return null;
+		} finally {
+			FileUtils.deleteQuietly(file);
+		}
+	}
+
+	/**
+	 * Deletes the files spilled by this cache, and only them.
+	 */
+	private static void deleteFiles() {
+		File cacheDirectory = getCacheDirectory();
+		File[] files = cacheDirectory != null ? cacheDirectory.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION)) : null;
+		if (files != null) {
+			for (File file : files) {
+				FileUtils.deleteQuietly(file);
+			}
+		}
+	}
+
+	private static File getFile(String key) {
+		return new File(getCacheDirectory(), DigestUtils.md5Hex(key) + FILE_EXTENSION);
+	}
+
+	private static File getCacheDirectory() {
+		try {
+			return new File(CONFIGURATION.getTempFolder(), CACHE_DIRECTORY_NAME);
+		} catch (IOException e) {
+			LOGGER.debug("Cannot get the temp folder: {}", e.getMessage());
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import java.util.Arrays;
+
+/**
+ * The DIDL-Lite written for an item, with what it was written from.
+ *
+ * An item belongs to a single renderer, so the fragment can be reused as long
+ * as the item update id and state are the same.
+ */
+public class DidlFragment {
+
+	private final String updateId;
+	private final Object[] state;
+	private final String xml;
+
+	public DidlFragment(String updateId, Object[] state, String xml) {
+		this.updateId = updateId;
+		this.state = state;
+		this.xml = xml;
+	}
+
+	/**
+	 * @param updateId the current update id of the item.
+	 * @param state the current state of the item.
+	 * @return whether the fragment is up to date.
+	 */
+	public boolean isValid(String updateId, Object[] state) {
+		return this.updateId.equals(updateId) && Arrays.equals(this.state, state);
+	}
+
+	public String getXml() {
+		return xml;
+	}
+
+}
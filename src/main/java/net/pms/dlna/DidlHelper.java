@@ -38,6 +38,7 @@ import net.pms.network.mediaserver.HTTPXMLHelper;
 import net.pms.network.mediaserver.MediaServer;
 import net.pms.renderers.Renderer;
 import net.pms.store.MediaStoreIds;
+import net.pms.store.ResumeObj;
 import net.pms.store.StoreContainer;
 import net.pms.store.StoreItem;
 import net.pms.store.StoreResource;
@@ -56,6 +57,10 @@ public class DidlHelper extends DlnaHelper {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(DidlHelper.class);
 	private static final SimpleDateFormat DIDL_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+	private static final String DIDL_HEADER = StringEscapeUtils.unescapeXml(HTTPXMLHelper.DIDL_HEADER);
+	private static final String DIDL_FOOTER = StringEscapeUtils.unescapeXml(HTTPXMLHelper.DIDL_FOOTER);
+	private static final int MAX_BUFFER_CAPACITY = 1024 * 1024;
+	private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(64 * 1024));
 
 	/**
 	 * This class is not meant to be instantiated.
@@ -64,13 +69,68 @@ public class DidlHelper extends DlnaHelper {
 	}
 
 	public static final String getDidlResults(List<StoreResource> resultResources) {
-		StringBuilder filesData = new StringBuilder();
-		filesData.append(HTTPXMLHelper.DIDL_HEADER);
+		StringBuilder buffer = BUFFER.get();
+		buffer.setLength(0);
+		DidlWriter writer = new DidlWriter(buffer, false);
+		writer.append(DIDL_HEADER);
 		for (StoreResource resource : resultResources) {
-			filesData.append(getDidlString(resource));
+			appendCachedDidl(resource, writer);
 		}
-		filesData.append(HTTPXMLHelper.DIDL_FOOTER);
-		return StringEscapeUtils.unescapeXml(filesData.toString());
+		writer.append(DIDL_FOOTER);
+		String result = buffer.toString();
+		if (buffer.capacity() > MAX_BUFFER_CAPACITY) {
+			BUFFER.remove();
+		}
+		return result;
+	}
+
+	/**
+	 * Appends the DIDL of a resource, reusing the one written for a previous
+	 * browse when nothing changed.
+	 */
+	private static void appendCachedDidl(StoreResource resource, DidlWriter writer) {
+		if (resource instanceof StoreItem item) {
+			String updateId = MediaStoreIds.getObjectUpdateIdAsString(item.getLongId());
+			Object[] state = getDidlState(item);
+			DidlFragment fragment = item.getDidlFragment();
+			if (fragment != null && fragment.isValid(updateId, state)) {
+				writer.append(fragment.getXml());
+				return;
+			}
+			int start = writer.length();
+			appendDidl(resource, writer);
+			item.setDidlFragment(new DidlFragment(updateId, state, writer.substring(start)));
+		} else {
+			// the children count may change at any time
+			appendDidl(resource, writer);
+		}
+	}
+
+	/**
+	 * Returns what the DIDL of an item depends on, besides its update id and
+	 * its renderer.
+	 *
+	 * Objects which are changed in place are compared by their values.
+	 */
+	private static Object[] getDidlState(StoreItem item) {
+		MediaInfo mediaInfo = item.getMediaInfo();
+		MediaStatus mediaStatus = item.getMediaStatus();
+		ResumeObj resume = item.getResume();
+		return new Object[] {
+			MediaServer.getURL(),
+			mediaInfo,
+			mediaInfo != null ? mediaInfo.getThumbnailId() : null,
+			mediaStatus != null ? mediaStatus.isFullyPlayed() : null,
+			mediaStatus != null ? mediaStatus.getPlaybackCount() : null,
+			mediaStatus != null ? mediaStatus.getLastPlaybackTime() : null,
+			mediaStatus != null ? mediaStatus.getLastPlaybackPosition() : null,
+			mediaStatus != null ? mediaStatus.getBookmark() : null,
+			item.getMediaSubtitle(),
+			resume != null ? resume.getTimeOffset() : null,
+			item.getTranscodingSettings(),
+			item.getThumbnailImageInfo(),
+			item.getLastModified()
+		};
 	}
 
 	/**
@@ -83,6 +143,12 @@ public class DidlHelper extends DlnaHelper {
 	 *         ="1">}
 	 */
 	public static final String getDidlString(StoreResource resource) {
+		StringBuilder sb = new StringBuilder();
+		appendDidl(resource, new DidlWriter(sb, true));
+		return sb.toString();
+	}
+
+	private static void appendDidl(StoreResource resource, DidlWriter sb) {
 		final Renderer renderer = resource.getDefaultRenderer();
 		final MediaInfo mediaInfo = resource.getMediaInfo();
 		final MediaStatus mediaStatus = resource.getMediaStatus();
@@ -92,7 +158,6 @@ public class DidlHelper extends DlnaHelper {
 		final Format format = item != null ? item.getFormat() : null;
 		final MediaSubtitle mediaSubtitle = item != null ? item.getMediaSubtitle() : null;
 
-		StringBuilder sb = new StringBuilder();
 		boolean subsAreValidForStreaming = false;
 		boolean xbox360 = renderer.isXbox360();
 		if (item != null) {
@@ -122,9 +187,9 @@ public class DidlHelper extends DlnaHelper {
 				}
 			}
 
-			openTag(sb, "item");
+			sb.openTag("item");
 		} else {
-			openTag(sb, "container");
+			sb.openTag("container");
 		}
 
 		String resourceId = resource.getResourceId();
@@ -141,7 +206,7 @@ public class DidlHelper extends DlnaHelper {
 			}
 		}
 
-		addAttribute(sb, "id", resourceId);
+		sb.addAttribute("id", resourceId);
 		if (container != null) {
 			if (!container.isDiscovered() && container.childrenCount() == 0) {
 				// When a folder has not been scanned for resources, it will
@@ -153,9 +218,9 @@ public class DidlHelper extends DlnaHelper {
 				// the folder. When it is opened, its children will be
 				// discovered and childrenCount() will be
 				// set to the right value.
-				addAttribute(sb, "childCount", 1);
+				sb.addAttribute("childCount", 1);
 			} else {
-				addAttribute(sb, "childCount", container.childrenCount());
+				sb.addAttribute("childCount", container.childrenCount());
 			}
 		}
 
@@ -166,9 +231,9 @@ public class DidlHelper extends DlnaHelper {
 			resourceId += "$";
 		}
 
-		addAttribute(sb, "parentID", resourceId);
-		addAttribute(sb, "restricted", "1");
-		endTag(sb);
+		sb.addAttribute("parentID", resourceId);
+		sb.addAttribute("restricted", "1");
+		sb.endTag();
 		final MediaVideo defaultVideoTrack = mediaInfo != null ? mediaInfo.getDefaultVideoTrack() : null;
 		final MediaAudio defaultAudioTrack = mediaInfo != null ? mediaInfo.getDefaultAudioTrack() : null;
 		final MediaAudioMetadata audioMetadata = mediaInfo != null ? mediaInfo.getAudioMetadata() : null;
@@ -201,54 +266,54 @@ public class DidlHelper extends DlnaHelper {
 		if (item != null) {
 			title = item.resumeStr(title);
 		}
-		addXMLTagAndAttribute(sb, "dc:title",
-			encodeXML(renderer.getDcTitle(title, resource.getDisplayNameSuffix(), resource)));
+		sb.addXMLTagAndAttribute("dc:title",
+			sb.encodeXML(renderer.getDcTitle(title, resource.getDisplayNameSuffix(), resource)));
 
 		if (renderer.isSamsung() && resource instanceof RealFile) {
 			addBookmark(resource, sb, renderer.getDcTitle(title, resource.getDisplayNameSuffix(), resource));
 		}
 
 		if (audioMetadata != null && renderer.isSendDateMetadataYearForAudioTags() && audioMetadata.getYear() > 1000) {
-			addXMLTagAndAttribute(sb, "dc:date", Integer.toString(audioMetadata.getYear()));
+			sb.addXMLTagAndAttribute("dc:date", Integer.toString(audioMetadata.getYear()));
 		} else if (resource.getLastModified() > 0 && renderer.isSendDateMetadata()) {
-			addXMLTagAndAttribute(sb, "dc:date", formatDate(new Date(resource.getLastModified())));
+			sb.addXMLTagAndAttribute("dc:date", formatDate(new Date(resource.getLastModified())));
 		}
 
 		if (mediaInfo != null && audioMetadata != null) {
 			if (StringUtils.isNotBlank(audioMetadata.getAlbum())) {
-				addXMLTagAndAttribute(sb, "upnp:album", encodeXML(audioMetadata.getAlbum()));
+				sb.addXMLTagAndAttribute("upnp:album", sb.encodeXML(audioMetadata.getAlbum()));
 			}
 
 			// TODO maciekberry: check whether it makes sense to use Album
 			// Artist
 			if (StringUtils.isNotBlank(audioMetadata.getArtist())) {
-				addXMLTagAndAttribute(sb, "upnp:artist", encodeXML(audioMetadata.getArtist()));
-				addXMLTagAndAttribute(sb, "dc:creator", encodeXML(audioMetadata.getArtist()));
+				sb.addXMLTagAndAttribute("upnp:artist", sb.encodeXML(audioMetadata.getArtist()));
+				sb.addXMLTagAndAttribute("dc:creator", sb.encodeXML(audioMetadata.getArtist()));
 			}
 
 			if (StringUtils.isNotBlank(audioMetadata.getComposer())) {
-				addXMLTagAndAttributeWithRole(sb, "upnp:artist role=\"Composer\"", encodeXML(audioMetadata.getComposer()));
-				addXMLTagAndAttributeWithRole(sb, "upnp:author role=\"Composer\"", encodeXML(audioMetadata.getComposer()));
+				sb.addXMLTagAndAttributeWithRole("upnp:artist role=\"Composer\"", sb.encodeXML(audioMetadata.getComposer()));
+				sb.addXMLTagAndAttributeWithRole("upnp:author role=\"Composer\"", sb.encodeXML(audioMetadata.getComposer()));
 				//FIXME : it break upnp standard (non existant)
-				addXMLTagAndAttribute(sb, "upnp:composer", encodeXML(audioMetadata.getComposer()));
+				sb.addXMLTagAndAttribute("upnp:composer", sb.encodeXML(audioMetadata.getComposer()));
 			}
 
 			if (StringUtils.isNotBlank(audioMetadata.getConductor())) {
-				addXMLTagAndAttributeWithRole(sb, "upnp:artist role=\"Conductor\"", encodeXML(audioMetadata.getConductor()));
+				sb.addXMLTagAndAttributeWithRole("upnp:artist role=\"Conductor\"", sb.encodeXML(audioMetadata.getConductor()));
 				//FIXME : it break upnp standard (non existant)
-				addXMLTagAndAttribute(sb, "upnp:conductor", encodeXML(audioMetadata.getConductor()));
+				sb.addXMLTagAndAttribute("upnp:conductor", sb.encodeXML(audioMetadata.getConductor()));
 			}
 
 			if (StringUtils.isNotBlank(audioMetadata.getGenre())) {
-				addXMLTagAndAttribute(sb, "upnp:genre", encodeXML(audioMetadata.getGenre()));
+				sb.addXMLTagAndAttribute("upnp:genre", sb.encodeXML(audioMetadata.getGenre()));
 			}
 
 			if (audioMetadata.getTrack() > 0) {
-				addXMLTagAndAttribute(sb, "upnp:originalTrackNumber", "" + audioMetadata.getTrack());
+				sb.addXMLTagAndAttribute("upnp:originalTrackNumber", "" + audioMetadata.getTrack());
 			}
 
 			if (audioMetadata.getRating() != null) {
-				addXMLTagAndAttribute(sb, "upnp:rating", "" + audioMetadata.getRating());
+				sb.addXMLTagAndAttribute("upnp:rating", "" + audioMetadata.getRating());
 			}
 		}
 
@@ -256,25 +321,25 @@ public class DidlHelper extends DlnaHelper {
 			MediaVideoMetadata videoMetadata = mediaInfo.getVideoMetadata();
 			if (videoMetadata.isTvEpisode()) {
 				if (videoMetadata.getTvSeason() != null) {
-					addXMLTagAndAttribute(sb, "upnp:episodeSeason", videoMetadata.getTvSeason());
+					sb.addXMLTagAndAttribute("upnp:episodeSeason", videoMetadata.getTvSeason());
 				}
 				if (StringUtils.isNotBlank(videoMetadata.getTvEpisodeNumber())) {
-					addXMLTagAndAttribute(sb, "upnp:episodeNumber", videoMetadata.getTvEpisodeNumberUnpadded());
+					sb.addXMLTagAndAttribute("upnp:episodeNumber", videoMetadata.getTvEpisodeNumberUnpadded());
 				}
 				if (StringUtils.isNotBlank(videoMetadata.getTvSeriesTitle())) {
-					addXMLTagAndAttribute(sb, "upnp:seriesTitle", encodeXML(videoMetadata.getTvSeriesTitle(null)));
+					sb.addXMLTagAndAttribute("upnp:seriesTitle", sb.encodeXML(videoMetadata.getTvSeriesTitle(null)));
 				}
 				if (StringUtils.isNotBlank(videoMetadata.getTvEpisodeName())) {
-					addXMLTagAndAttribute(sb, "upnp:programTitle", encodeXML(videoMetadata.getTvEpisodeName(null)));
+					sb.addXMLTagAndAttribute("upnp:programTitle", sb.encodeXML(videoMetadata.getTvEpisodeName(null)));
 				}
 			}
 			if (mediaStatus != null) {
-				addXMLTagAndAttribute(sb, "upnp:playbackCount", mediaStatus.getPlaybackCount());
+				sb.addXMLTagAndAttribute("upnp:playbackCount", mediaStatus.getPlaybackCount());
 				if (StringUtils.isNotBlank(mediaStatus.getLastPlaybackTime())) {
-					addXMLTagAndAttribute(sb, "upnp:lastPlaybackTime", encodeXML(mediaStatus.getLastPlaybackTime()));
+					sb.addXMLTagAndAttribute("upnp:lastPlaybackTime", sb.encodeXML(mediaStatus.getLastPlaybackTime()));
 				}
 				if (StringUtils.isNotBlank(mediaStatus.getLastPlaybackPositionForUPnP())) {
-					addXMLTagAndAttribute(sb, "upnp:lastPlaybackPosition", encodeXML(mediaStatus.getLastPlaybackPositionForUPnP()));
+					sb.addXMLTagAndAttribute("upnp:lastPlaybackPosition", sb.encodeXML(mediaStatus.getLastPlaybackPositionForUPnP()));
 				}
 			}
 		}
@@ -289,91 +354,91 @@ public class DidlHelper extends DlnaHelper {
 			}
 
 			for (int c = 0; c < indexCount; c++) {
-				openTag(sb, "res");
-				addAttribute(sb, "xmlns:dlna", "urn:schemas-dlna-org:metadata-1-0/");
+				sb.openTag("res");
+				sb.addAttribute("xmlns:dlna", "urn:schemas-dlna-org:metadata-1-0/");
 				String dlnaOrgPnFlags = getDlnaOrgPnFlags(item, c);
 				String dlnaOrgFlags = "*";
 				if (renderer.isSendDLNAOrgFlags()) {
 					dlnaOrgFlags = (dlnaOrgPnFlags != null ? (dlnaOrgPnFlags + ";") : "") + getDlnaOrgOpFlags(item);
 				}
 				String tempString = "http-get:*:" + item.getRendererMimeType() + ":" + dlnaOrgFlags;
-				addAttribute(sb, "protocolInfo", tempString);
+				sb.addAttribute("protocolInfo", tempString);
 				if (subsAreValidForStreaming && mediaSubtitle != null && renderer.offerSubtitlesByProtocolInfo() && !renderer.useClosedCaption()) {
-					addAttribute(sb, "pv:subtitleFileType", mediaSubtitle.getType().getExtension().toUpperCase());
-					addAttribute(sb, "pv:subtitleFileUri", resource.getSubsURL(mediaSubtitle));
+					sb.addAttribute("pv:subtitleFileType", mediaSubtitle.getType().getExtension().toUpperCase());
+					sb.addAttribute("pv:subtitleFileUri", resource.getSubsURL(mediaSubtitle));
 				}
 				if (renderer.getUmsConfiguration().isUpnpCdsWrite() &&
 						renderer.getUmsConfiguration().isAnonymousDevicesWrite() &&
 						(item.getRendererMimeType().toLowerCase().startsWith("audio") || item.getRendererMimeType().toLowerCase().startsWith("video"))) {
-					addAttribute(sb, "importUri", new StringBuilder(MediaServer.getURL()).append("/import?id=").append(item.getId()).toString());
+					sb.addAttribute("importUri", new StringBuilder(MediaServer.getURL()).append("/import?id=").append(item.getId()).toString());
 				}
 
 				if (format != null && format.isVideo() && mediaInfo != null && mediaInfo.isMediaParsed()) {
 					long transcodedSize = renderer.getTranscodedSize();
 					if (!item.isTranscoded()) {
-						addAttribute(sb, "size", mediaInfo.getSize());
+						sb.addAttribute("size", mediaInfo.getSize());
 					} else if (transcodedSize != 0) {
-						addAttribute(sb, "size", transcodedSize);
+						sb.addAttribute("size", transcodedSize);
 					}
 
 					if (mediaInfo.getDuration() != null) {
 						if (item.isResume()) {
 							long offset = item.getResume().getTimeOffset() / 1000;
 							double duration = mediaInfo.getDuration() - offset;
-							addAttribute(sb, "duration", StringUtil.formatDLNADuration(duration));
+							sb.addAttribute("duration", StringUtil.formatDLNADuration(duration));
 						} else if (item.getSplitRange().isEndLimitAvailable()) {
-							addAttribute(sb, "duration", StringUtil.formatDLNADuration(item.getSplitRange().getDuration()));
+							sb.addAttribute("duration", StringUtil.formatDLNADuration(item.getSplitRange().getDuration()));
 						} else {
-							addAttribute(sb, "duration", mediaInfo.getDurationString());
+							sb.addAttribute("duration", mediaInfo.getDurationString());
 						}
 					}
 
 					if (defaultVideoTrack != null && defaultVideoTrack.getResolution() != null) {
 						if (item.isTranscoded() && (renderer.isKeepAspectRatio() || renderer.isKeepAspectRatioTranscoding())) {
-							addAttribute(sb, "resolution", item.getResolutionForKeepAR(defaultVideoTrack.getWidth(), defaultVideoTrack.getHeight()));
+							sb.addAttribute("resolution", item.getResolutionForKeepAR(defaultVideoTrack.getWidth(), defaultVideoTrack.getHeight()));
 						} else {
-							addAttribute(sb, "resolution", defaultVideoTrack.getResolution());
+							sb.addAttribute("resolution", defaultVideoTrack.getResolution());
 						}
 					}
 
 					if (mediaInfo.getFrameRate() != null) {
-						addAttribute(sb, "framerate", mediaInfo.getFrameRate());
+						sb.addAttribute("framerate", mediaInfo.getFrameRate());
 					}
 
-					addAttribute(sb, "bitrate", mediaInfo.getRealVideoBitrate());
+					sb.addAttribute("bitrate", mediaInfo.getRealVideoBitrate());
 
 					if (defaultAudioTrack != null) {
 						if (defaultAudioTrack.getNumberOfChannels() > 0) {
 							if (!item.isTranscoded()) {
-								addAttribute(sb, "nrAudioChannels", defaultAudioTrack.getNumberOfChannels());
+								sb.addAttribute("nrAudioChannels", defaultAudioTrack.getNumberOfChannels());
 							} else {
-								addAttribute(sb, "nrAudioChannels", renderer.getUmsConfiguration().getAudioChannelCount());
+								sb.addAttribute("nrAudioChannels", renderer.getUmsConfiguration().getAudioChannelCount());
 							}
 						}
 
 						if (defaultAudioTrack.getSampleRate() > 1) {
-							addAttribute(sb, "sampleFrequency", defaultAudioTrack.getSampleRate());
+							sb.addAttribute("sampleFrequency", defaultAudioTrack.getSampleRate());
 						}
 					}
 					if (defaultVideoTrack != null && defaultVideoTrack.getBitDepth() > 0) {
-						addAttribute(sb, "colorDepth", defaultVideoTrack.getBitDepth());
+						sb.addAttribute("colorDepth", defaultVideoTrack.getBitDepth());
 					}
 				} else if (format != null && format.isImage()) {
 					if (mediaInfo != null && mediaInfo.isMediaParsed()) {
-						addAttribute(sb, "size", mediaInfo.getSize());
+						sb.addAttribute("size", mediaInfo.getSize());
 						if (mediaInfo.getImageInfo() != null && mediaInfo.getImageInfo().getResolution() != null) {
-							addAttribute(sb, "resolution", mediaInfo.getImageInfo().getResolution());
+							sb.addAttribute("resolution", mediaInfo.getImageInfo().getResolution());
 						}
 					} else {
-						addAttribute(sb, "size", resource.length());
+						sb.addAttribute("size", resource.length());
 					}
 				} else if (format != null && format.isAudio()) {
 					if (mediaInfo != null && mediaInfo.isMediaParsed()) {
 						if (mediaInfo.getBitRate() > 0) {
-							addAttribute(sb, "bitrate", mediaInfo.getBitRate());
+							sb.addAttribute("bitrate", mediaInfo.getBitRate());
 						}
 						if (mediaInfo.getDuration() != null && mediaInfo.getDuration() != 0.0) {
-							addAttribute(sb, "duration", StringUtil.formatDLNADuration(mediaInfo.getDuration()));
+							sb.addAttribute("duration", StringUtil.formatDLNADuration(mediaInfo.getDuration()));
 						}
 
 						int transcodeFrequency = -1;
@@ -381,10 +446,10 @@ public class DidlHelper extends DlnaHelper {
 						if (defaultAudioTrack != null) {
 							if (!item.isTranscoded()) {
 								if (defaultAudioTrack.getSampleRate() > 1) {
-									addAttribute(sb, "sampleFrequency", defaultAudioTrack.getSampleRate());
+									sb.addAttribute("sampleFrequency", defaultAudioTrack.getSampleRate());
 								}
 								if (defaultAudioTrack.getNumberOfChannels() > 0) {
-									addAttribute(sb, "nrAudioChannels", defaultAudioTrack.getNumberOfChannels());
+									sb.addAttribute("nrAudioChannels", defaultAudioTrack.getNumberOfChannels());
 								}
 							} else {
 								if (renderer.getUmsConfiguration().isAudioResample()) {
@@ -395,18 +460,18 @@ public class DidlHelper extends DlnaHelper {
 									transcodeNumberOfChannels = defaultAudioTrack.getNumberOfChannels();
 								}
 								if (transcodeFrequency > 0) {
-									addAttribute(sb, "sampleFrequency", transcodeFrequency);
+									sb.addAttribute("sampleFrequency", transcodeFrequency);
 								}
 								if (transcodeNumberOfChannels > 0) {
-									addAttribute(sb, "nrAudioChannels", transcodeNumberOfChannels);
+									sb.addAttribute("nrAudioChannels", transcodeNumberOfChannels);
 								}
 							}
-							addAttribute(sb, "bitsPerSample", defaultAudioTrack.getBitDepth());
+							sb.addAttribute("bitsPerSample", defaultAudioTrack.getBitDepth());
 						}
 
 						if (!item.isTranscoded()) {
 							if (mediaInfo.getSize() != 0) {
-								addAttribute(sb, "size", mediaInfo.getSize());
+								sb.addAttribute("size", mediaInfo.getSize());
 							}
 						} else {
 							// Calculate WAV size
@@ -414,23 +479,23 @@ public class DidlHelper extends DlnaHelper {
 								transcodeNumberOfChannels > 0) {
 								int finalSize = (int) (mediaInfo.getDurationInSeconds() * transcodeFrequency * 2 * transcodeNumberOfChannels);
 								LOGGER.trace("Calculated transcoded size for {}: {}", resource.getFileName(), finalSize);
-								addAttribute(sb, "size", finalSize);
+								sb.addAttribute("size", finalSize);
 							} else if (mediaInfo.getSize() > 0) {
 								LOGGER.trace("Could not calculate transcoded size for {}, using file size: {}", resource.getFileName(),
 									mediaInfo.getSize());
-								addAttribute(sb, "size", mediaInfo.getSize());
+								sb.addAttribute("size", mediaInfo.getSize());
 							}
 						}
 					} else {
-						addAttribute(sb, "size", resource.length());
+						sb.addAttribute("size", resource.length());
 					}
 				} else {
-					addAttribute(sb, "size", StoreResource.TRANS_SIZE);
-					addAttribute(sb, "duration", "09:59:59");
-					addAttribute(sb, "bitrate", "1000000");
+					sb.addAttribute("size", StoreResource.TRANS_SIZE);
+					sb.addAttribute("duration", "09:59:59");
+					sb.addAttribute("bitrate", "1000000");
 				}
 
-				endTag(sb);
+				sb.endTag();
 				// Add transcoded format extension to the output stream URL.
 				String transcodedExtension = "";
 				if (encodingFormat != null && mediaInfo != null) {
@@ -476,50 +541,50 @@ public class DidlHelper extends DlnaHelper {
 				}
 
 				sb.append(item.getMediaURL()).append(transcodedExtension);
-				closeTag(sb, "res");
+				sb.closeTag("res");
 			}
 
 			// DESC Metadata support: add ability for control point to identify
 			// songs by MusicBrainz TrackID or audiotrack-id
 			if (mediaInfo != null && audioMetadata != null && mediaInfo.isAudio()) {
-				openTag(sb, "desc");
-				addAttribute(sb, "id", "2");
+				sb.openTag("desc");
+				sb.addAttribute("id", "2");
 				// TODO add real namespace
-				addAttribute(sb, "nameSpace", "http://ums/tags");
-				addAttribute(sb, "type", "ums-tags");
-				endTag(sb);
-				addXMLTagAndAttribute(sb, "musicbrainztrackid", audioMetadata.getMbidTrack());
-				addXMLTagAndAttribute(sb, "musicbrainzreleaseid", audioMetadata.getMbidRecord());
-				addXMLTagAndAttribute(sb, "audiotrackid", Integer.toString(audioMetadata.getAudiotrackId()));
+				sb.addAttribute("nameSpace", "http://ums/tags");
+				sb.addAttribute("type", "ums-tags");
+				sb.endTag();
+				sb.addXMLTagAndAttribute("musicbrainztrackid", audioMetadata.getMbidTrack());
+				sb.addXMLTagAndAttribute("musicbrainzreleaseid", audioMetadata.getMbidRecord());
+				sb.addXMLTagAndAttribute("audiotrackid", Integer.toString(audioMetadata.getAudiotrackId()));
 				if (audioMetadata.getDisc() > 0) {
-					addXMLTagAndAttribute(sb, "numberOfThisDisc", Integer.toString(audioMetadata.getDisc()));
+					sb.addXMLTagAndAttribute("numberOfThisDisc", Integer.toString(audioMetadata.getDisc()));
 				}
 				if (audioMetadata.getRating() != null) {
-					addXMLTagAndAttribute(sb, "rating", Integer.toString(audioMetadata.getRating()));
+					sb.addXMLTagAndAttribute("rating", Integer.toString(audioMetadata.getRating()));
 				}
-				closeTag(sb, "desc");
+				sb.closeTag("desc");
 			}
 
 			if (subsAreValidForStreaming && mediaSubtitle != null) {
 				String subsURL = resource.getSubsURL(mediaSubtitle);
 				if (renderer.useClosedCaption()) {
-					openTag(sb, "sec:CaptionInfoEx");
-					addAttribute(sb, "sec:type", "srt");
-					endTag(sb);
+					sb.openTag("sec:CaptionInfoEx");
+					sb.addAttribute("sec:type", "srt");
+					sb.endTag();
 					sb.append(subsURL);
-					closeTag(sb, "sec:CaptionInfoEx");
+					sb.closeTag("sec:CaptionInfoEx");
 					LOGGER.trace("Network debugger: sec:CaptionInfoEx: sec:type=srt " + subsURL);
 				} else if (renderer.offerSubtitlesAsResource()) {
-					openTag(sb, "res");
+					sb.openTag("res");
 					String subtitlesFormat = mediaSubtitle.getType().getExtension();
 					if (StringUtils.isBlank(subtitlesFormat)) {
 						subtitlesFormat = "plain";
 					}
 
-					addAttribute(sb, "protocolInfo", "http-get:*:text/" + subtitlesFormat + ":*");
-					endTag(sb);
+					sb.addAttribute("protocolInfo", "http-get:*:text/" + subtitlesFormat + ":*");
+					sb.endTag();
 					sb.append(subsURL);
-					closeTag(sb, "res");
+					sb.closeTag("res");
 					LOGGER.trace("Network debugger: http-get:*:text/" + subtitlesFormat + ":*" + subsURL);
 				}
 			}
@@ -570,23 +635,21 @@ public class DidlHelper extends DlnaHelper {
 			appendThumbnail(resource, sb, mediaType, uclass.startsWith("object.container.album"));
 		}
 
-		addXMLTagAndAttribute(sb, "upnp:class", uclass);
+		sb.addXMLTagAndAttribute("upnp:class", uclass);
 		if (item != null) {
-			closeTag(sb, "item");
+			sb.closeTag("item");
 		} else {
-			closeTag(sb, "container");
+			sb.closeTag("container");
 		}
-
-		return sb.toString();
 	}
 
 	/**
 	 * Generate and append image and thumbnail {@code res} and
 	 * {@code upnp:albumArtURI} entries for the image.
 	 *
-	 * @param sb The {@link StringBuilder} to append the elements to.
+	 * @param sb The {@link DidlWriter} to append the elements to.
 	 */
-	private static void appendImage(StoreItem item, StringBuilder sb) {
+	private static void appendImage(StoreItem item, DidlWriter sb) {
 		/*
 		 * There's no technical difference between the image itself and the
 		 * thumbnail for an object.item.imageItem, they are all simply listed as
@@ -698,10 +761,10 @@ public class DidlHelper extends DlnaHelper {
 	 * Generate and append the thumbnail {@code res} and
 	 * {@code upnp:albumArtURI} entries for the thumbnail.
 	 *
-	 * @param sb the {@link StringBuilder} to append the response to.
+	 * @param sb the {@link DidlWriter} to append the response to.
 	 * @param mediaType the {@link MediaType} of this {@link StoreResource}.
 	 */
-	private static void appendThumbnail(StoreResource resource, StringBuilder sb, MediaType mediaType, boolean isAlbum) {
+	private static void appendThumbnail(StoreResource resource, DidlWriter sb, MediaType mediaType, boolean isAlbum) {
 
 		/*
 		 * JPEG_TN = Max 160 x 160; EXIF Ver.1.x or later or JFIF 1.02; SRGB or
@@ -831,7 +894,7 @@ public class DidlHelper extends DlnaHelper {
 		}
 	}
 
-	private static void addImageResource(StoreResource resource, StringBuilder sb, DLNAImageResElement resElement) {
+	private static void addImageResource(StoreResource resource, DidlWriter sb, DLNAImageResElement resElement) {
 		if (resource == null) {
 			throw new NullPointerException("resource cannot be null");
 		}
@@ -862,18 +925,18 @@ public class DidlHelper extends DlnaHelper {
 			} else {
 				ciFlag = ";DLNA.ORG_CI=" + resElement.getCiFlag().toString();
 			}
-			openTag(sb, "res");
+			sb.openTag("res");
 			if (resElement.getSize() != null && resElement.getSize() > 0) {
-				addAttribute(sb, "size", resElement.getSize());
+				sb.addAttribute("size", resElement.getSize());
 			}
 			if (resElement.isResolutionKnown()) {
-				addAttribute(sb, "resolution", Integer.toString(resElement.getWidth()) + "x" + Integer.toString(resElement.getHeight()));
+				sb.addAttribute("resolution", Integer.toString(resElement.getWidth()) + "x" + Integer.toString(resElement.getHeight()));
 			}
 
-			addAttribute(sb, "xmlns:dlna", "urn:schemas-dlna-org:metadata-1-0/");
-			addAttribute(sb, "protocolInfo", "http-get:*:" + resElement.getProfile().getMimeType() + ":DLNA.ORG_PN=" +
+			sb.addAttribute("xmlns:dlna", "urn:schemas-dlna-org:metadata-1-0/");
+			sb.addAttribute("protocolInfo", "http-get:*:" + resElement.getProfile().getMimeType() + ":DLNA.ORG_PN=" +
 				resElement.getProfile() + ciFlag + ";DLNA.ORG_FLAGS=00900000000000000000000000000000");
-			endTag(sb);
+			sb.endTag();
 			String updateId = MediaStoreIds.getObjectUpdateIdAsString(resource.getLongId());
 			if (updateId != null && url != null) {
 				if (url.contains("?")) {
@@ -883,11 +946,11 @@ public class DidlHelper extends DlnaHelper {
 				}
 			}
 			sb.append(url);
-			closeTag(sb, "res");
+			sb.closeTag("res");
 		}
 	}
 
-	private static void addAlbumArt(StoreResource resource, StringBuilder sb, DLNAImageProfile thumbnailProfile) {
+	private static void addAlbumArt(StoreResource resource, DidlWriter sb, DLNAImageProfile thumbnailProfile) {
 		String rendererProfile = resource.getDefaultRenderer().getAlbumArtProfile();
 		if (StringUtils.isNotBlank(rendererProfile) && !rendererProfile.equalsIgnoreCase(thumbnailProfile.toString())) {
 			return;
@@ -902,19 +965,19 @@ public class DidlHelper extends DlnaHelper {
 					albumArtURL += "?update=" + updateId;
 				}
 			}
-			openTag(sb, "upnp:albumArtURI");
-			addAttribute(sb, "dlna:profileID", thumbnailProfile);
-			addAttribute(sb, "xmlns:dlna", "urn:schemas-dlna-org:metadata-1-0/");
-			endTag(sb);
+			sb.openTag("upnp:albumArtURI");
+			sb.addAttribute("dlna:profileID", thumbnailProfile);
+			sb.addAttribute("xmlns:dlna", "urn:schemas-dlna-org:metadata-1-0/");
+			sb.endTag();
 			sb.append(albumArtURL);
-			closeTag(sb, "upnp:albumArtURI");
+			sb.closeTag("upnp:albumArtURI");
 		}
 	}
 
-	private static void addBookmark(StoreResource resource, StringBuilder sb, String title) {
+	private static void addBookmark(StoreResource resource, DidlWriter sb, String title) {
 		if (resource.getMediaStatus() != null) {
 			LOGGER.debug("Setting bookmark for {} => {}", title, resource.getMediaStatus().getBookmark());
-			addXMLTagAndAttribute(sb, "sec:dcmInfo", encodeXML(String.format("CREATIONDATE=0,FOLDER=%s,BM=%d", title, resource.getMediaStatus().getBookmark())));
+			sb.addXMLTagAndAttribute("sec:dcmInfo", sb.encodeXML(String.format("CREATIONDATE=0,FOLDER=%s,BM=%d", title, resource.getMediaStatus().getBookmark())));
 		}
 	}
 
@@ -924,92 +987,4 @@ public class DidlHelper extends DlnaHelper {
 		}
 	}
 
-	/**
-	 * Appends "&lt;<u>tag</u> " to the StringBuilder. This is a typical
-	 * HTML/DIDL/XML tag opening.
-	 *
-	 * @param sb String to append the tag beginning to.
-	 * @param tag String that represents the tag
-	 */
-	private static void openTag(StringBuilder sb, String tag) {
-		sb.append("&lt;");
-		sb.append(tag);
-	}
-
-	/**
-	 * Appends the closing symbol &gt; to the StringBuilder. This is a typical
-	 * HTML/DIDL/XML tag closing.
-	 *
-	 * @param sb String to append the ending character of a tag.
-	 */
-	private static void endTag(StringBuilder sb) {
-		sb.append("&gt;");
-	}
-
-	/**
-	 * Appends "&lt;/<u>tag</u>&gt;" to the StringBuilder. This is a typical
-	 * closing HTML/DIDL/XML tag.
-	 *
-	 * @param sb
-	 * @param tag
-	 */
-	private static void closeTag(StringBuilder sb, String tag) {
-		sb.append("&lt;/");
-		sb.append(tag);
-		sb.append("&gt;");
-	}
-
-	private static void addAttribute(StringBuilder sb, String attribute, Object value) {
-		sb.append(' ');
-		sb.append(attribute);
-		sb.append("=\"");
-		sb.append(value);
-		sb.append("\"");
-	}
-
-	private static void addXMLTagAndAttribute(StringBuilder sb, String tag, Object value) {
-		sb.append("&lt;");
-		sb.append(tag);
-		sb.append("&gt;");
-		sb.append(value);
-		sb.append("&lt;/");
-		sb.append(tag);
-		sb.append("&gt;");
-	}
-
-	private static void addXMLTagAndAttributeWithRole(StringBuilder sb, String tag, Object value) {
-		String myTagWithoutRole = tag.split(" ")[0];
-		sb.append("&lt;");
-		sb.append(tag);
-		sb.append("&gt;");
-		sb.append(value);
-		sb.append("&lt;/");
-		sb.append(myTagWithoutRole);
-		sb.append("&gt;");
-	}
-
-	/**
-	 * Does double transformations between &<> characters and their XML
-	 * representation with ampersands.
-	 *
-	 * @param s String to be encoded
-	 * @return Encoded String
-	 */
-	private static String encodeXML(String s) {
-		s = s.replace("&", "&amp;");
-		s = s.replace("<", "&lt;");
-		s = s.replace(">", "&gt;");
-		/*
-		 * Skip encoding/escaping ' and " for compatibility with some renderers
-		 * This might need to be made into a renderer option if some renderers
-		 * require them to be encoded s = s.replace("\"", "&quot;"); s =
-		 * s.replace("'", "&apos;");
-		 */
-
-		// The second encoding/escaping of & is not a bug, it's what effectively
-		// adds the second layer of encoding/escaping
-		s = s.replace("&", "&amp;");
-		return s;
-	}
-
 }
@@ -0,0 +1,154 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+/**
+ * Writes DIDL-Lite markup into a {@link StringBuilder}.
+ *
+ * The markup is written either as XML, or escaped once more to be embedded
+ * as text in another XML document, like a SOAP response or a playlist
+ * metadata.
+ */
+public class DidlWriter {
+
+	private final StringBuilder sb;
+	private final boolean escaped;
+	private final String lt;
+	private final String gt;
+
+	/**
+	 * @param sb the {@link StringBuilder} to write to.
+	 * @param escaped whether to escape the markup once more.
+	 */
+	public DidlWriter(StringBuilder sb, boolean escaped) {
+		this.sb = sb;
+		this.escaped = escaped;
+		lt = escaped ? "&lt;" : "<";
+		gt = escaped ? "&gt;" : ">";
+	}
+
+	public DidlWriter append(Object value) {
+		sb.append(value);
+		return this;
+	}
+
+	public DidlWriter append(String value) {
+		sb.append(value);
+		return this;
+	}
+
+	/**
+	 * @return the number of characters written to the underlying
+	 *         {@link StringBuilder}.
+	 */
+	public int length() {
+		return sb.length();
+	}
+
+	/**
+	 * Appends "&lt;<u>tag</u>". This is a typical HTML/DIDL/XML tag opening.
+	 *
+	 * @param tag String that represents the tag
+	 */
+	public void openTag(String tag) {
+		sb.append(lt);
+		sb.append(tag);
+	}
+
+	/**
+	 * Appends the closing symbol &gt;. This is a typical HTML/DIDL/XML tag
+	 * closing.
+	 */
+	public void endTag() {
+		sb.append(gt);
+	}
+
+	/**
+	 * Appends "&lt;/<u>tag</u>&gt;". This is a typical closing HTML/DIDL/XML
+	 * tag.
+	 *
+	 * @param tag String that represents the tag
+	 */
+	public void closeTag(String tag) {
+		sb.append(lt);
+		sb.append('/');
+		sb.append(tag);
+		sb.append(gt);
+	}
+
+	public void addAttribute(String attribute, Object value) {
+		sb.append(' ');
+		sb.append(attribute);
+		sb.append("=\"");
+		sb.append(value);
+		sb.append('"');
+	}
+
+	public void addXMLTagAndAttribute(String tag, Object value) {
+		openTag(tag);
+		endTag();
+		sb.append(value);
+		closeTag(tag);
+	}
+
+	public void addXMLTagAndAttributeWithRole(String tag, Object value) {
+		openTag(tag);
+		endTag();
+		sb.append(value);
+		closeTag(tag.substring(0, tag.indexOf(' ')));
+	}
+
+	/**
+	 * Encodes the &amp;&lt;&gt; characters to their XML representation with
+	 * ampersands, twice if the markup is escaped.
+	 *
+	 * @param s String to be encoded
+	 * @return Encoded String
+	 */
+	public String encodeXML(String s) {
+		s = s.replace("&", "&amp;");
+		s = s.replace("<", "&lt;");
+		s = s.replace(">", "&gt;");
+		/*
+		 * Skip encoding/escaping ' and " for compatibility with some renderers
+		 * This might need to be made into a renderer option if some renderers
+		 * require them to be encoded s = s.replace("\"", "&quot;"); s =
+		 * s.replace("'", "&apos;");
+		 */
+
+		if (escaped) {
+			// The second encoding/escaping of & is not a bug, it's what
+			// effectively adds the second layer of encoding/escaping
+			s = s.replace("&", "&amp;");
+		}
+		return s;
+	}
+
+	/**
+	 * @param start the index of the first character.
+	 * @return the characters written since {@code start}.
+	 */
+	public String substring(int start) {
+		return sb.substring(start);
+	}
+
+	@Override
+	public String toString() {
+		return sb.toString();
+	}
+
+}
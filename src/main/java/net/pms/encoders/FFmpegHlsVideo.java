@@ -16,6 +16,7 @@
  */
 package net.pms.encoders;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -23,6 +24,7 @@ import net.pms.configuration.FormatConfiguration;
 import net.pms.configuration.UmsConfiguration;
 import net.pms.io.OutputParams;
 import net.pms.io.ProcessWrapper;
+import net.pms.io.ProcessWrapperImpl;
 import net.pms.media.MediaInfo;
 import net.pms.network.HTTPResource;
 import net.pms.store.StoreItem;
@@ -58,6 +60,103 @@ public class FFmpegHlsVideo extends FFMpegVideo {
 		params.setMinBufferSize(params.getMinFileSize());
 		params.setSecondReadMinSize(100000);
 		params.setWaitBeforeStart(0);
+		List<String> cmdList = getHlsCmdList(resource, media, params, false);
+		if (cmdList == null) {
+			return null;
+		}
+		HlsHelper.HlsConfiguration hlsConfiguration = params.getHlsConfiguration();
+		boolean needVideo = hlsConfiguration.video.resolutionWidth > -1;
+		boolean needAudio = hlsConfiguration.audioStream > -1;
+		boolean needSubtitle = hlsConfiguration.subtitle > -1;
+
+		cmdList.add("-f");
+		if (needSubtitle && !needAudio && !needVideo) {
+			cmdList.add("webvtt");
+		} else {
+			cmdList.add(FormatConfiguration.MPEGTS);
+			cmdList.add("-skip_estimate_duration_from_pts");
+			cmdList.add("1");
+			cmdList.add("-use_wallclock_as_timestamps");
+			cmdList.add("1");
+			//transcodeOptions.add("-mpegts_flags");
+			//transcodeOptions.add("latm");
+			cmdList.add("-movflags");
+			cmdList.add("frag_keyframe"); //frag_keyframe
+		}
+
+		return runHlsTranscodeProcess(params, cmdList);
+	}
+
+	/**
+	 * Launches a long-lived FFmpeg process that writes the HLS segments of the
+	 * given rendition to a directory, starting at the given segment index.
+	 *
+	 * Segments are named {@code <index>.ts} and are only renamed to their final
+	 * name once they are complete.
+	 *
+	 * @param resource the item to segment.
+	 * @param media the media info of the item.
+	 * @param params the output params, holding the HLS configuration.
+	 * @param directory the directory where segments are written.
+	 * @param startSegment the index of the first segment to write.
+	 * @return the process wrapper, or {@code null} if it can't be launched.
+	 */
+	public ProcessWrapperImpl launchSegmenter(
+			StoreItem resource,
+			MediaInfo media,
+			OutputParams params,
+			File directory,
+			int startSegment
+	) {
+		if (!params.isHlsConfigured() || params.getHlsConfiguration().isSubtitle()) {
+			LOGGER.error("No Hls configuration to segment.");
+			return null;
+		}
+		params.setTimeSeek(startSegment * HlsHelper.DEFAULT_TARGETDURATION);
+		params.setTimeEnd(0);
+		List<String> cmdList = getHlsCmdList(resource, media, params, true);
+		if (cmdList == null) {
+			return null;
+		}
+		cmdList.add("-f");
+		cmdList.add("hls");
+		cmdList.add("-hls_time");
+		cmdList.add(String.valueOf((int) HlsHelper.DEFAULT_TARGETDURATION));
+		cmdList.add("-hls_list_size");
+		cmdList.add("0");
+		cmdList.add("-hls_segment_type");
+		cmdList.add(FormatConfiguration.MPEGTS);
+		cmdList.add("-hls_flags");
+		cmdList.add("temp_file+independent_segments");
+		cmdList.add("-start_number");
+		cmdList.add(String.valueOf(startSegment));
+		cmdList.add("-hls_segment_filename");
+		cmdList.add(new File(directory, "%d.ts").getAbsolutePath());
+		cmdList.add(new File(directory, "index.m3u8").getAbsolutePath());
+
+		params.setLog(true);
+		params.setNoExitCheck(true);
+		String[] cmdArray = new String[cmdList.size()];
+		cmdList.toArray(cmdArray);
+		ProcessWrapperImpl pw = new ProcessWrapperImpl(cmdArray, params);
+		pw.runInNewThread();
+		return pw;
+	}
+
+	/**
+	 * Builds the input, mapping and encoding part of the HLS command line.
+	 *
+	 * @param segmenter whether the command is for a long-lived segmenter
+	 *            rather than a single segment transcode.
+	 * @return the command list, or {@code null} if the configuration is not
+	 *         handled.
+	 */
+	private List<String> getHlsCmdList(
+			StoreItem resource,
+			MediaInfo media,
+			OutputParams params,
+			boolean segmenter
+	) {
 		// Use device-specific conf
 		UmsConfiguration configuration = params.getMediaRenderer().getUmsConfiguration();
 		HlsHelper.HlsConfiguration hlsConfiguration = params.getHlsConfiguration();
@@ -89,7 +188,7 @@ public class FFmpegHlsVideo extends FFMpegVideo {
 			cmdList.add("" + (int) params.getTimeSeek());
 		}
 
-		if (params.getTimeEnd() > 0 && !needSubtitle) {
+		if (params.getTimeEnd() > 0 && !needSubtitle && !segmenter) {
 			cmdList.add("-t");
 			cmdList.add(String.valueOf(params.getTimeEnd() - params.getTimeSeek()));
 		}
@@ -134,7 +233,13 @@ public class FFmpegHlsVideo extends FFMpegVideo {
 		}
 		//remove data
 		cmdList.add("-dn");
-		cmdList.add("-copyts");
+		if (segmenter) {
+			// keep timestamps continuous between segmenter restarts
+			cmdList.add("-output_ts_offset");
+			cmdList.add(String.valueOf((int) params.getTimeSeek()));
+		} else {
+			cmdList.add("-copyts");
+		}
 
 		//setup video
 		if (needVideo) {
@@ -152,6 +257,11 @@ public class FFmpegHlsVideo extends FFMpegVideo {
 			cmdList.add(selectedTranscodeAccelerationMethod);
 			cmdList.add("-keyint_min");
 			cmdList.add("25");
+			if (segmenter) {
+				// segments must start on a keyframe at each target duration
+				cmdList.add("-force_key_frames");
+				cmdList.add("expr:gte(t,n_forced*" + (int) HlsHelper.DEFAULT_TARGETDURATION + ")");
+			}
 
 			if (selectedTranscodeAccelerationMethod.startsWith("libx264")) {
 				// Let x264 optimize the bitrate more for lower resolutions
@@ -233,22 +343,7 @@ public class FFmpegHlsVideo extends FFMpegVideo {
 		// Encoder threads
 		setEncodingThreads(cmdList, configuration);
 
-		cmdList.add("-f");
-		if (needSubtitle && !needAudio && !needVideo) {
-			cmdList.add("webvtt");
-		} else {
-			cmdList.add(FormatConfiguration.MPEGTS);
-			cmdList.add("-skip_estimate_duration_from_pts");
-			cmdList.add("1");
-			cmdList.add("-use_wallclock_as_timestamps");
-			cmdList.add("1");
-			//transcodeOptions.add("-mpegts_flags");
-			//transcodeOptions.add("latm");
-			cmdList.add("-movflags");
-			cmdList.add("frag_keyframe"); //frag_keyframe
-		}
-
-		return runHlsTranscodeProcess(params, cmdList);
+		return cmdList;
 	}
 
 	@Override
@@ -41,6 +41,8 @@ import net.pms.store.StoreItem;
 import net.pms.util.Range;
 import net.pms.util.TimeRange;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * HlsConfiguration Helper.
@@ -53,6 +55,7 @@ import org.apache.commons.lang3.StringUtils;
  * You SHOULD NOT use HE-AAC if your audio bit rate is above 64 kbit/s.
  */
 public class HlsHelper {
+	private static final Logger LOGGER = LoggerFactory.getLogger(HlsHelper.class);
 	private static final UmsConfiguration CONFIGURATION = PMS.getConfiguration();
 	private static final String NONE_CONF_NAME = "NONE";
 	private static final String COPY_CONF_NAME = "COPY";
@@ -319,19 +322,24 @@ public class HlsHelper {
 		return null;
 	}
 
-	private static TimeRange getTimeRange(String url) {
+	private static int getSegmentIndex(String url) {
 		if (!url.contains("/")) {
-			return null;
+			return -1;
 		}
 		String positionStr = url.substring(url.lastIndexOf("/") + 1);
 		if (!positionStr.contains(".")) {
-			return null;
+			return -1;
 		}
 		positionStr = positionStr.substring(0, positionStr.indexOf("."));
-		int position;
 		try {
-			position = Integer.parseInt(positionStr);
+			return Integer.parseInt(positionStr);
 		} catch (NumberFormatException es) {
+			return -1;
+		}
+	}
+
+	private static TimeRange getTimeRange(int position) {
+		if (position < 0) {
 			return null;
 		}
 		double askedStart =  Double.valueOf(position) * HlsHelper.DEFAULT_TARGETDURATION;
@@ -346,7 +354,15 @@ public class HlsHelper {
 		rendition = rendition.substring(0, rendition.indexOf("/"));
 		//here we need to set rendition to renderer
 		HlsHelper.HlsConfiguration hlsConfiguration = getByKey(rendition);
-		Range timeRange = getTimeRange(url);
+		int segment = getSegmentIndex(url);
+		if (hlsConfiguration != null && HlsSegmentCache.isSegmentable(resource, hlsConfiguration)) {
+			InputStream segmentStream = HlsSegmentCache.getSegmentInputStream(resource, rendition, hlsConfiguration, segment);
+			if (segmentStream != null) {
+				return segmentStream;
+			}
+			LOGGER.debug("HLS segment {} of {} not available from the segment cache, transcoding it alone", segment, rendition);
+		}
+		Range timeRange = getTimeRange(segment);
 		if (hlsConfiguration != null && timeRange != null) {
 			return resource.getInputStream(timeRange, hlsConfiguration);
 		}
@@ -0,0 +1,255 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.encoders;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.store.StoreItem;
+import net.pms.store.item.RealFile;
+import net.pms.util.SimpleThreadFactory;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The on-disk HLS segment cache.
+ *
+ * It holds one {@link HlsSegmenter} per (file, rendition) pair, shared by all
+ * the clients requesting that rendition, and keeps the total size of the
+ * written segments under the configured quota by evicting the least recently
+ * used segments.
+ */
+public class HlsSegmentCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(HlsSegmentCache.class);
+	private static final UmsConfiguration CONFIGURATION = PMS.getConfiguration();
+	private static final String CACHE_DIRECTORY_NAME = "hls";
+	private static final long SEGMENT_TIMEOUT = 30000;
+	private static final long SESSION_IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+	private static final Map<String, HlsSegmenter> SEGMENTERS = new ConcurrentHashMap<>();
+	/**
+	 * The access ordered segment files with their size.
+	 */
+	private static final LinkedHashMap<File, Long> SEGMENTS = new LinkedHashMap<>(256, 0.75f, true);
+	private static final ScheduledExecutorService HOUSEKEEPER = Executors.newSingleThreadScheduledExecutor(
+		new SimpleThreadFactory("HLS segment cache housekeeper")
+	);
+	private static long totalBytes;
+	private static boolean housekeeperStarted;
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread("HLS Segment Cache Shutdown Hook") {
+			@Override
+			public void run() {
+				HOUSEKEEPER.shutdownNow();
+				clear();
+			}
+		});
+	}
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private HlsSegmentCache() {
+	}
+
+	/**
+	 * Whether a segment request can be served by the segment cache.
+	 *
+	 * @param item the item.
+	 * @param hlsConfiguration the requested rendition.
+	 * @return {@code true} if the segmenter handles it, {@code false} if the
+	 *         segment should be transcoded on its own.
+	 */
+	public static boolean isSegmentable(StoreItem item, HlsHelper.HlsConfiguration hlsConfiguration) {
+		return CONFIGURATION.isHlsSegmenter() &&
+			hlsConfiguration != null &&
+			!hlsConfiguration.isSubtitle() &&
+			item instanceof RealFile &&
+			item.getMediaInfo() != null &&
+			item.getMediaInfo().getDurationInSeconds() > 0 &&
+			item.isTranscoded() &&
+			item.getTranscodingSettings().getEngine() instanceof FFmpegHlsVideo;
+	}
+
+	/**
+	 * Returns an {@link InputStream} on a cached segment, producing it if
+	 * needed.
+	 *
+	 * @param item the item.
+	 * @param rendition the rendition label.
+	 * @param hlsConfiguration the rendition configuration.
+	 * @param segment the segment index.
+	 * @return the segment stream, or {@code null} if it could not be produced.
+	 * @throws IOException if the segment file can't be opened.
+	 */
+	public static InputStream getSegmentInputStream(
+		StoreItem item,
+		String rendition,
+		HlsHelper.HlsConfiguration hlsConfiguration,
+		int segment
+	) throws IOException {
+		String key = item.getFileName() + "|" + rendition;
+		HlsSegmenter segmenter = SEGMENTERS.computeIfAbsent(key, k -> {
+			int segmentCount = (int) Math.ceil(item.getMediaInfo().getDurationInSeconds() / HlsHelper.DEFAULT_TARGETDURATION);
+			return new HlsSegmenter(k, getSessionDirectory(k), hlsConfiguration, segmentCount);
+		});
+		startHousekeeper();
+		File file = segmenter.getSegment(item, segment, SEGMENT_TIMEOUT);
+		if (file == null) {
+			return null;
+		}
+		try {
+			return new FileInputStream(file);
+		} catch (IOException e) {
+			// it may have been evicted meanwhile
+			LOGGER.debug("HLS segment {} is no more available: {}", file, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Stops all segmenters and deletes all cached segments.
+	 */
+	public static void clear() {
+		for (HlsSegmenter segmenter : SEGMENTERS.values()) {
+			segmenter.close();
+		}
+		SEGMENTERS.clear();
+		synchronized (SEGMENTS) {
+			SEGMENTS.clear();
+			totalBytes = 0;
+		}
+		File cacheDirectory = getCacheDirectory();
+		if (cacheDirectory != null) {
+			FileUtils.deleteQuietly(cacheDirectory);
+		}
+	}
+
+	/**
+	 * Records a newly written segment and evicts the least recently used
+	 * segments if the quota is exceeded.
+	 */
+	static void register(File file) {
+		long size = file.length();
+		synchronized (SEGMENTS) {
+			Long previous = SEGMENTS.put(file, size);
+			if (previous != null) {
+				totalBytes -= previous;
+			}
+			totalBytes += size;
+		}
+		evict(file);
+	}
+
+	/**
+	 * Marks a segment as recently used.
+	 */
+	static void touch(File file) {
+		synchronized (SEGMENTS) {
+			SEGMENTS.get(file);
+		}
+	}
+
+	private static void evict(File keep) {
+		long quota = CONFIGURATION.getHlsSegmentCacheSize() * 1024L * 1024L;
+		synchronized (SEGMENTS) {
+			Iterator<Map.Entry<File, Long>> iterator = SEGMENTS.entrySet().iterator();
+			while (totalBytes > quota && iterator.hasNext()) {
+				Map.Entry<File, Long> entry = iterator.next();
+				if (entry.getKey().equals(keep)) {
+					continue;
+				}
+				if (!entry.getKey().delete() && entry.getKey().exists()) {
+					// still on disk, it keeps counting
+					LOGGER.trace("Could not delete evicted HLS segment {}", entry.getKey());
+					continue;
+				}
+				iterator.remove();
+				totalBytes -= entry.getValue();
+			}
+		}
+	}
+
+	private static synchronized void startHousekeeper() {
+		if (!housekeeperStarted) {
+			housekeeperStarted = true;
+			HOUSEKEEPER.scheduleWithFixedDelay(HlsSegmentCache::housekeeping, 5, 5, TimeUnit.SECONDS);
+		}
+	}
+
+	private static void housekeeping() {
+		try {
+			long now = System.currentTimeMillis();
+			Iterator<HlsSegmenter> iterator = SEGMENTERS.values().iterator();
+			while (iterator.hasNext()) {
+				HlsSegmenter segmenter = iterator.next();
+				if (now - segmenter.getLastAccess() > SESSION_IDLE_TIMEOUT) {
+					LOGGER.debug("Closing idle HLS segmenter for {}", segmenter.getKey());
+					iterator.remove();
+					forget(segmenter.getDirectory());
+					segmenter.close();
+				} else {
+					segmenter.update();
+				}
+			}
+		} catch (RuntimeException e) {
+			LOGGER.debug("Error during HLS segment cache housekeeping: {}", e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+	private static void forget(File directory) {
+		synchronized (SEGMENTS) {
+			Iterator<Map.Entry<File, Long>> iterator = SEGMENTS.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<File, Long> entry = iterator.next();
+				if (directory.equals(entry.getKey().getParentFile())) {
+					iterator.remove();
+					totalBytes -= entry.getValue();
+				}
+			}
+		}
+	}
+
+	private static File getCacheDirectory() {
+		try {
+			return new File(CONFIGURATION.getTempFolder(), CACHE_DIRECTORY_NAME);
+		} catch (IOException e) {
+			LOGGER.debug("Cannot get the temp folder: {}", e.getMessage());
+			return null;
+		}
+	}
+
+	private static File getSessionDirectory(String key) {
+		File cacheDirectory = getCacheDirectory();
+		String name = DigestUtils.md5Hex(key);
+		return cacheDirectory != null ? new File(cacheDirectory, name) : new File(System.getProperty("java.io.tmpdir"), name);
+	}
+
+}
@@ -0,0 +1,210 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.encoders;
+
+import java.io.File;
+import net.pms.io.OutputParams;
+import net.pms.io.ProcessWrapperImpl;
+import net.pms.store.StoreItem;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A segmenter session for one (item, rendition) pair.
+ *
+ * It runs a single FFmpeg process that writes the rendition segments ahead of
+ * the playhead into its own directory. Segment requests are served from that
+ * directory. The process is restarted only when a client asks for a segment
+ * that is far away from what has been produced, and it is stopped when it
+ * gets too far ahead of the last requested segment.
+ */
+public class HlsSegmenter {
+	private static final Logger LOGGER = LoggerFactory.getLogger(HlsSegmenter.class);
+
+	/**
+	 * The maximum number of segments the segmenter may write ahead of the
+	 * last requested one before it is paused.
+	 */
+	public static final int MAX_SEGMENTS_AHEAD = 20;
+
+	/**
+	 * A requested segment at most this far after the last produced one is
+	 * waited for instead of restarting the process.
+	 */
+	private static final int RESTART_THRESHOLD = 3;
+
+	private final String key;
+	private final File directory;
+	private final HlsHelper.HlsConfiguration hlsConfiguration;
+	private final int segmentCount;
+	private ProcessWrapperImpl process;
+	private int nextSegment = -1;
+	private int lastRequestedSegment = -1;
+	private volatile long lastAccess;
+	private boolean closed;
+
+	HlsSegmenter(String key, File directory, HlsHelper.HlsConfiguration hlsConfiguration, int segmentCount) {
+		this.key = key;
+		this.directory = directory;
+		this.hlsConfiguration = hlsConfiguration;
+		this.segmentCount = segmentCount;
+		this.lastAccess = System.currentTimeMillis();
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public long getLastAccess() {
+		return lastAccess;
+	}
+
+	/**
+	 * Returns the file holding the given segment, starting or restarting the
+	 * FFmpeg process if needed and waiting for the segment to be written.
+	 *
+	 * @param item the item to segment.
+	 * @param segment the segment index.
+	 * @param timeout the maximum time to wait in milliseconds.
+	 * @return the segment file, or {@code null} if it was not produced in
+	 *         time.
+	 */
+	public synchronized File getSegment(StoreItem item, int segment, long timeout) {
+		if (closed || segment < 0 || segment >= segmentCount) {
+			return null;
+		}
+		lastAccess = System.currentTimeMillis();
+		lastRequestedSegment = segment;
+		File file = getSegmentFile(segment);
+		if (file.isFile()) {
+			HlsSegmentCache.touch(file);
+			resumeIfNeeded(item);
+			return file;
+		}
+		// a segment before the next one was produced, then evicted
+		if (!isRunning() || segment < nextSegment || segment > nextSegment + RESTART_THRESHOLD) {
+			if (!start(item, segment)) {
+				return null;
+			}
+		}
+		long deadline = System.currentTimeMillis() + timeout;
+		while (!file.isFile()) {
+			long remaining = deadline - System.currentTimeMillis();
+			if (closed || remaining <= 0 || !isRunning()) {
+				break;
+			}
+			try {
+				wait(Math.min(remaining, 100));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+			update();
+		}
+		update();
+		if (file.isFile()) {
+			HlsSegmentCache.touch(file);
+			return file;
+		}
+		LOGGER.debug("HLS segment {} of {} was not produced in time", segment, key);
+		return null;
+	}
+
+	/**
+	 * Registers newly completed segments with the cache and pauses the
+	 * process when it is too far ahead of the playhead.
+	 */
+	synchronized void update() {
+		if (nextSegment < 0) {
+			return;
+		}
+		File file = getSegmentFile(nextSegment);
+		while (nextSegment < segmentCount && file.isFile()) {
+			HlsSegmentCache.register(file);
+			nextSegment++;
+			file = getSegmentFile(nextSegment);
+		}
+		if (isRunning() && nextSegment - lastRequestedSegment > MAX_SEGMENTS_AHEAD) {
+			LOGGER.trace("HLS segmenter for {} is {} segments ahead, pausing", key, MAX_SEGMENTS_AHEAD);
+			stopProcess();
+		}
+	}
+
+	/**
+	 * Stops the process and deletes the segments of this session.
+	 */
+	synchronized void close() {
+		closed = true;
+		stopProcess();
+		FileUtils.deleteQuietly(directory);
+		notifyAll();
+	}
+
+	private void resumeIfNeeded(StoreItem item) {
+		if (!isRunning() && nextSegment < segmentCount && nextSegment - lastRequestedSegment < MAX_SEGMENTS_AHEAD / 2) {
+			int firstMissing = lastRequestedSegment + 1;
+			while (firstMissing < segmentCount && getSegmentFile(firstMissing).isFile()) {
+				firstMissing++;
+			}
+			if (firstMissing < segmentCount) {
+				start(item, firstMissing);
+			}
+		}
+	}
+
+	private boolean start(StoreItem item, int segment) {
+		stopProcess();
+		if (!(item.getTranscodingSettings().getEngine() instanceof FFmpegHlsVideo engine)) {
+			return false;
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			LOGGER.warn("Cannot create HLS segment directory {}", directory);
+			return false;
+		}
+		LOGGER.debug("Starting HLS segmenter for {} at segment {}", key, segment);
+		OutputParams params = new OutputParams(item.getDefaultRenderer().getUmsConfiguration());
+		params.setMediaRenderer(item.getDefaultRenderer());
+		params.setHlsConfiguration(hlsConfiguration);
+		process = engine.launchSegmenter(item, item.getMediaInfo(), params, directory, segment);
+		if (process == null) {
+			return false;
+		}
+		nextSegment = segment;
+		return true;
+	}
+
+	private boolean isRunning() {
+		return process != null && !process.isDestroyed() && process.isAlive();
+	}
+
+	private void stopProcess() {
+		if (process != null) {
+			process.stopProcess();
+			process = null;
+		}
+	}
+
+	private File getSegmentFile(int segment) {
+		return new File(directory, segment + ".ts");
+	}
+
+}
@@ -0,0 +1,488 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.external;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import javax.net.ssl.SSLSession;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded on-disk cache of the GET responses of the external servers.
+ *
+ * A response is stored when the server allows it, and is reused while it is
+ * fresh according to its {@code Cache-Control} or {@code Expires} headers.
+ * Once stale, it is revalidated with its {@code ETag} or
+ * {@code Last-Modified} validators. The least recently used responses are
+ * deleted to keep the cache under {@link UmsConfiguration#getHttpCacheSize()}.
+ */
+public class HttpResponseCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(HttpResponseCache.class);
+	private static final UmsConfiguration CONFIGURATION = PMS.getConfiguration();
+	private static final String CACHE_DIRECTORY_NAME = "http";
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * The longest freshness lifetime given to a response without explicit
+	 * expiration, from its {@code Last-Modified} header.
+	 */
+	private static final long MAX_HEURISTIC_LIFETIME = 24 * 60 * 60 * 1000L;
+
+	/**
+	 * The response headers stored with the body.
+	 */
+	private static final List<String> STORED_HEADERS = Arrays.asList(
+		"cache-control",
+		"content-type",
+		"etag",
+		"expires",
+		"last-modified"
+	);
+
+	/**
+	 * The cached responses sizes, by file name, in access order.
+	 */
+	private static final LinkedHashMap<String, Long> ENTRIES = new LinkedHashMap<>(16, 0.75f, true);
+	private static long cachedBytes;
+	private static boolean indexed;
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private HttpResponseCache() {
+	}
+
+	/**
+	 * Gets the cached response of a URI.
+	 *
+	 * @param uri the URI.
+	 * @return the cached response, fresh or not, or {@code null}.
+	 */
+	public static Entry get(URI uri) {
+		String name = getName(uri);
+		synchronized (ENTRIES) {
+			File cacheDirectory = getCacheDirectory();
+			if (cacheDirectory == null || ENTRIES.get(name) == null) {
+				return null;
+			}
+		}
+		File file = getFile(name);
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (input.readInt() != FORMAT_VERSION || !uri.toString().equals(input.readUTF())) {
+				return null;
+			}
+			long expires = input.readLong();
+			int count = input.readInt();
+			Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+			for (int i = 0; i < count; i++) {
+				headers.computeIfAbsent(input.readUTF(), key -> new ArrayList<>()).add(input.readUTF());
+			}
+			byte[] body = new byte[input.readInt()];
+			input.readFully(body);
+			return new Entry(uri, expires, HttpHeaders.of(headers, (key, value) -> true), body);
+		} catch (IOException e) {
+			LOGGER.debug("Cannot read the cached response of {}: {}", uri, e.getMessage());
+			LOGGER.trace("", e);
+			remove(name);
+			return null;
+		}
+	}
+
+	/**
+	 * Stores a response, if it is cacheable.
+	 *
+	 * @param uri the URI of the request.
+	 * @param response the response.
+	 */
+	public static void put(URI uri, HttpResponse<byte[]> response) {
+		if (response.statusCode() != 200 || response.body() == null) {
+			return;
+		}
+		HttpHeaders headers = response.headers();
+		if (headers.allValues("vary").contains("*")) {
+			return;
+		}
+		long expires = getExpires(headers, System.currentTimeMillis());
+		if (expires < 0) {
+			return;
+		}
+		boolean hasValidator = headers.firstValue("etag").isPresent() || headers.firstValue("last-modified").isPresent();
+		if (expires <= System.currentTimeMillis() && !hasValidator) {
+			return;
+		}
+		store(uri, expires, headers, response.body());
+	}
+
+	/**
+	 * Updates a cached response revalidated by the server.
+	 *
+	 * @param entry the cached response.
+	 * @param notModified the headers of the {@code 304 Not Modified}
+	 *            response.
+	 */
+	public static void revalidated(Entry entry, HttpHeaders notModified) {
+		Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		headers.putAll(entry.headers.map());
+		for (Map.Entry<String, List<String>> header : notModified.map().entrySet()) {
+			if (STORED_HEADERS.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+				headers.put(header.getKey(), header.getValue());
+			}
+		}
+		HttpHeaders updated = HttpHeaders.of(headers, (key, value) -> true);
+		long expires = getExpires(updated, System.currentTimeMillis());
+		if (expires < 0) {
+			remove(getName(entry.uri));
+		} else {
+			store(entry.uri, expires, updated, entry.body);
+		}
+	}
+
+	/**
+	 * Drops all the cached responses.
+	 */
+	public static void clear() {
+		List<String> names;
+		synchronized (ENTRIES) {
+			names = new ArrayList<>(ENTRIES.keySet());
+		}
+		for (String name : names) {
+			remove(name);
+		}
+	}
+
+	/**
+	 * Computes until when a response is fresh.
+	 *
+	 * @return the expiration time, or -1 if the response must not be stored.
+	 */
+	static long getExpires(HttpHeaders headers, long now) {
+		Long maxAge = null;
+		for (String value : headers.allValues("cache-control")) {
+			for (String directive : value.split(",")) {
+				directive = directive.trim().toLowerCase(Locale.ROOT);
+				if (directive.equals("no-store")) {
+					return -1;
+				} else if (directive.equals("no-cache")) {
+					maxAge = 0L;
+				} else if (directive.startsWith("max-age=") && maxAge == null) {
+					try {
+						maxAge = Long.valueOf(directive.substring(8).replace("\"", ""));
+					} catch (NumberFormatException e) {
+						maxAge = 0L;
+					}
+				}
+			}
+		}
+		if (maxAge != null) {
+			return now + Math.max(0, maxAge) * 1000;
+		}
+		Long date = getDate(headers, "date");
+		Optional<String> expiresValue = headers.firstValue("expires");
+		if (expiresValue.isPresent()) {
+			Long expires = getDate(headers, "expires");
+			if (expires == null) {
+				// an invalid date means already expired
+				return now;
+			}
+			return date == null ? expires : now + expires - date;
+		}
+		Long lastModified = getDate(headers, "last-modified");
+		if (lastModified != null) {
+			long age = (date == null ? now : date) - lastModified;
+			return now + Math.min(MAX_HEURISTIC_LIFETIME, Math.max(0, age / 10));
+		}
+		return now;
+	}
+
+	private static Long getDate(HttpHeaders headers, String name) {
+		Optional<String> value = headers.firstValue(name);
+		if (value.isPresent()) {
+			try {
+				return ZonedDateTime.parse(value.get().trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+			} catch (DateTimeParseException e) {
+				LOGGER.trace("Invalid {} header \"{}\"", name, value.get());
+			}
+		}
+		return null;
+	}
+
+	private static void store(URI uri, long expires, HttpHeaders headers, byte[] body) {
+		long quota = CONFIGURATION.getHttpCacheSize() * 1024L * 1024L;
+		if (body.length > quota / 10) {
+			return;
+		}
+		String name = getName(uri);
+		File file;
+		synchronized (ENTRIES) {
+			if (getCacheDirectory() == null) {
+				return;
+			}
+			file = getFile(name);
+		}
+		long size;
+		try {
+			File temp = File.createTempFile(name, ".tmp", file.getParentFile());
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+				output.writeInt(FORMAT_VERSION);
+				output.writeUTF(uri.toString());
+				output.writeLong(expires);
+				List<String[]> storedHeaders = new ArrayList<>();
+				for (Map.Entry<String, List<String>> header : headers.map().entrySet()) {
+					if (STORED_HEADERS.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+						for (String value : header.getValue()) {
+							storedHeaders.add(new String[] {header.getKey(), value});
+						}
+					}
+				}
+				output.writeInt(storedHeaders.size());
+				for (String[] header : storedHeaders) {
+					output.writeUTF(header[0]);
+					output.writeUTF(header[1]);
+				}
+				output.writeInt(body.length);
+				output.write(body);
+			}
+			size = temp.length();
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			LOGGER.debug("Cannot cache the response of {}: {}", uri, e.getMessage());
+			LOGGER.trace("", e);
+			remove(name);
+			return;
+		}
+
+		List<String> evicted = new ArrayList<>();
+		synchronized (ENTRIES) {
+			Long previous = ENTRIES.put(name, size);
+			cachedBytes += size - (previous == null ? 0 : previous);
+			Iterator<Map.Entry<String, Long>> iterator = ENTRIES.entrySet().iterator();
+			while (cachedBytes > quota && iterator.hasNext()) {
+				Map.Entry<String, Long> entry = iterator.next();
+				if (!entry.getKey().equals(name)) {
+					iterator.remove();
+					cachedBytes -= entry.getValue();
+					evicted.add(entry.getKey());
+				}
+			}
+		}
+		for (String evictedName : evicted) {
+			deleteFile(evictedName);
+		}
+	}
+
+	private static void remove(String name) {
+		synchronized (ENTRIES) {
+			Long size = ENTRIES.remove(name);
+			if (size != null) {
+				cachedBytes -= size;
+			}
+		}
+		deleteFile(name);
+	}
+
+	private static void deleteFile(String name) {
+		File file = getFile(name);
+		if (file != null && file.exists() && !file.delete()) {
+			LOGGER.trace("Cannot delete the cached response {}", file);
+		}
+	}
+
+	private static String getName(URI uri) {
+		return DigestUtils.md5Hex(uri.toString());
+	}
+
+	private static File getFile(String name) {
+		try {
+			return new File(new File(CONFIGURATION.getTempFolder(), CACHE_DIRECTORY_NAME), name);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the cache directory, indexing the responses cached by a previous
+	 * run on first use. Must be called while holding the lock on
+	 * {@link #ENTRIES}.
+	 *
+	 * @return the cache directory, or {@code null} if the cache is disabled or
+	 *         the directory is not available.
+	 */
+	private static File getCacheDirectory() {
+		if (CONFIGURATION.getHttpCacheSize() == 0) {
+			return null;
+		}
+		File cacheDirectory;
+		try {
+			cacheDirectory = new File(CONFIGURATION.getTempFolder(), CACHE_DIRECTORY_NAME);
+		} catch (IOException e) {
+			LOGGER.debug("Cannot get the temp folder: {}", e.getMessage());
+			return null;
+		}
+		if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+			LOGGER.debug("Cannot create the HTTP cache directory {}", cacheDirectory);
+			return null;
+		}
+		if (!indexed) {
+			indexed = true;
+			File[] files = cacheDirectory.listFiles();
+			if (files != null) {
+				// the oldest first, as the least recently used
+				Arrays.sort(files, (file1, file2) -> Long.compare(file1.lastModified(), file2.lastModified()));
+				for (File file : files) {
+					if (file.getName().endsWith(".tmp")) {
+						file.delete();
+					} else if (ENTRIES.put(file.getName(), file.length()) == null) {
+						cachedBytes += file.length();
+					}
+				}
+			}
+		}
+		return cacheDirectory;
+	}
+
+	/**
+	 * A cached response.
+	 */
+	public static final class Entry {
+		private final URI uri;
+		private final long expires;
+		private final HttpHeaders headers;
+		private final byte[] body;
+
+		private Entry(URI uri, long expires, HttpHeaders headers, byte[] body) {
+			this.uri = uri;
+			this.expires = expires;
+			this.headers = headers;
+			this.body = body;
+		}
+
+		/**
+		 * @return whether the response can be used without revalidation.
+		 */
+		public boolean isFresh() {
+			return expires > System.currentTimeMillis();
+		}
+
+		/**
+		 * @return the {@code ETag} of the response, or {@code null}.
+		 */
+		public String getETag() {
+			return headers.firstValue("etag").orElse(null);
+		}
+
+		/**
+		 * @return the {@code Last-Modified} date of the response, or
+		 *         {@code null}.
+		 */
+		public String getLastModified() {
+			return headers.firstValue("last-modified").orElse(null);
+		}
+
+		/**
+		 * @param request the request answered by this response.
+		 * @return the cached response as a {@link HttpResponse}.
+		 */
+		public HttpResponse<byte[]> toResponse(HttpRequest request) {
+			return new CachedHttpResponse(request, headers, body);
+		}
+	}
+
+	/**
+	 * A {@code 200 OK} response read from the cache.
+	 */
+	private static final class CachedHttpResponse implements HttpResponse<byte[]> {
+		private final HttpRequest request;
+		private final HttpHeaders headers;
+		private final byte[] body;
+
+		private CachedHttpResponse(HttpRequest request, HttpHeaders headers, byte[] body) {
+			this.request = request;
+			this.headers = headers;
+			this.body = body;
+		}
+
+		@Override
+		public int statusCode() {
+			return 200;
+		}
+
+		@Override
+		public HttpRequest request() {
+			return request;
+		}
+
+		@Override
+		public Optional<HttpResponse<byte[]>> previousResponse() {
+			return Optional.empty();
+		}
+
+		@Override
+		public HttpHeaders headers() {
+			return headers;
+		}
+
+		@Override
+		public byte[] body() {
+			return body;
+		}
+
+		@Override
+		public Optional<SSLSession> sslSession() {
+			return Optional.empty();
+		}
+
+		@Override
+		public URI uri() {
+			return request.uri();
+		}
+
+		@Override
+		public HttpClient.Version version() {
+			return HttpClient.Version.HTTP_1_1;
+		}
+	}
+
+}
@@ -20,27 +20,53 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.net.http.HttpClient;
 import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
 import net.pms.dlna.DLNAThumbnail;
 import net.pms.image.ImageFormat;
 import net.pms.image.ImagesUtil.ScaleType;
 import net.pms.util.UnknownFormatException;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * The HTTP client of the external servers.
+ *
+ * All the requests share one {@link HttpClient}, so connections and TLS
+ * sessions are reused, and HTTP/2 is used when the server supports it. The
+ * requests to a host are limited by
+ * {@link UmsConfiguration#getHttpMaxConnectionsPerHost()} and
+ * {@link UmsConfiguration#getHttpMaxRequestsPerSecond()}, and the GET
+ * responses are cached by {@link HttpResponseCache}.
+ *
  * @author Surf@ceS
  */
 public class JavaHttpClient {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(JavaHttpClient.class);
+	private static final UmsConfiguration CONFIGURATION = PMS.getConfiguration();
+	private static final String USER_AGENT = PMS.NAME + " " + PMS.getVersion();
+	private static final Duration TIMEOUT = Duration.ofSeconds(30);
+	private static final HttpClient CLIENT = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_2)
+			.followRedirects(HttpClient.Redirect.ALWAYS)
+			.connectTimeout(TIMEOUT)
+			.build();
+	private static final Map<String, HostLimiter> HOST_LIMITERS = new ConcurrentHashMap<>();
 
 	/**
 	 * This class is not meant to be instantiated.
@@ -59,97 +85,119 @@ public class JavaHttpClient {
 	 * @throws IOException
 	 */
 	public static byte[] getBytes(String uri) throws IOException {
-		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					.uri(new URI(uri))
-					.GET()
-					.build();
-			HttpResponse<byte[]> response = HttpClient.newBuilder()
-					.followRedirects(HttpClient.Redirect.ALWAYS)
-					.build()
-					.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
-					.join();
-			int statusCode = response.statusCode();
-			if (statusCode != 200) {
-				String contentType = response.headers().firstValue("content-type").orElse(null);
-				Long contentLength = response.headers().firstValueAsLong("content-length").orElse(0);
-				if (contentType != null && contentType.startsWith("text") && contentLength != 0) {
-					String body = new String(response.body(), StandardCharsets.UTF_8);
-					throw new IOException("HTTP response not OK (" + statusCode + ") for " + uri + ":\n" + body);
-				}
-				throw new IOException("HTTP response not OK (" + statusCode + ") for " + uri);
+		HttpResponse<byte[]> response = getResponse(uri);
+		int statusCode = response.statusCode();
+		if (statusCode != 200) {
+			String contentType = response.headers().firstValue("content-type").orElse(null);
+			Long contentLength = response.headers().firstValueAsLong("content-length").orElse(0);
+			if (contentType != null && contentType.startsWith("text") && contentLength != 0) {
+				String body = new String(response.body(), getCharset(response.headers()));
+				throw new IOException("HTTP response not OK (" + statusCode + ") for " + uri + ":\n" + body);
 			}
-			return response.body();
-		} catch (URISyntaxException ex) {
-			throw new IOException("Unable to download by HTTP" + ex.getMessage());
+			throw new IOException("HTTP response not OK (" + statusCode + ") for " + uri);
 		}
+		return response.body();
 	}
 
-	public static void getFile(File file, String uri, ProgressCallback callback) throws IOException {
-		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					.uri(new URI(uri))
-					.GET()
-					.build();
-			FileBodyHandler responseBodyHandler = new FileBodyHandler(file, uri, callback);
-			HttpResponse<Void> response = HttpClient.newBuilder()
-					.followRedirects(HttpClient.Redirect.ALWAYS)
-					.build()
-					.sendAsync(request, responseBodyHandler)
-					.join();
-			int statusCode = response.statusCode();
-			if (statusCode != 200) {
-				throw new IOException("HTTP response not OK (" + statusCode + ") for " + uri);
+	/**
+	 * Sends a GET request through the response cache.
+	 *
+	 * A fresh cached response is returned without contacting the server, a
+	 * stale one is revalidated with a conditional request.
+	 *
+	 * @param uri The URI.
+	 * @param headers The request headers, as name value pairs.
+	 * @return The response, of any status.
+	 * @throws IOException if the request fails.
+	 */
+	public static HttpResponse<byte[]> getResponse(String uri, String... headers) throws IOException {
+		HttpRequest.Builder builder = newRequestBuilder(uri, headers).GET();
+		URI requestUri = builder.copy().build().uri();
+		HttpResponseCache.Entry cached = HttpResponseCache.get(requestUri);
+		if (cached != null) {
+			if (cached.isFresh()) {
+				LOGGER.trace("Using the cached response of {}", uri);
+				return cached.toResponse(builder.build());
 			}
-		} catch (URISyntaxException ex) {
-			throw new IOException("Unable to download by HTTP" + ex.getMessage());
+			if (cached.getETag() != null) {
+				builder.setHeader("If-None-Match", cached.getETag());
+			}
+			if (cached.getLastModified() != null) {
+				builder.setHeader("If-Modified-Since", cached.getLastModified());
+			}
+		}
+		HttpRequest request = builder.build();
+		HttpResponse<byte[]> response = send(request, HttpResponse.BodyHandlers.ofByteArray());
+		if (cached != null && response.statusCode() == 304) {
+			LOGGER.trace("The cached response of {} is still valid", uri);
+			HttpResponseCache.revalidated(cached, response.headers());
+			return cached.toResponse(request);
+		}
+		HttpResponseCache.put(requestUri, response);
+		return response;
+	}
+
+	public static void getFile(File file, String uri, ProgressCallback callback) throws IOException {
+		HttpRequest request = newRequestBuilder(uri)
+				.GET()
+				.build();
+		FileBodyHandler responseBodyHandler = new FileBodyHandler(file, uri, callback);
+		HttpResponse<Void> response = send(request, responseBodyHandler);
+		int statusCode = response.statusCode();
+		if (statusCode != 200) {
+			throw new IOException("HTTP response not OK (" + statusCode + ") for " + uri);
 		}
 	}
 
 	/**
-	 * Request http body from uri. Result should be UTF-8.
+	 * Request http body from uri, decoded with the charset of its
+	 * Content-Type, or UTF-8.
 	 *
 	 * @param uri
 	 * @return
 	 * @throws IOException
 	 */
 	public static String getStringBody(String uri) throws IOException {
-		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					.uri(URI.create(uri))
-					.headers("Content-Type", "text/plain;charset=UTF-8")
-					.GET()
-					.build();
-			HttpResponse<String> response = HttpClient.newBuilder()
-					.followRedirects(HttpClient.Redirect.ALWAYS)
-					.build()
-					.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-					.join();
-			int statusCode = response.statusCode();
-			if (statusCode != 200) {
-				throw new IOException("HTTP response not OK (" + statusCode + ") for " + uri);
+		HttpResponse<byte[]> response = getResponse(uri, "Content-Type", "text/plain;charset=UTF-8");
+		int statusCode = response.statusCode();
+		if (statusCode != 200) {
+			throw new IOException("HTTP response not OK (" + statusCode + ") for " + uri);
+		}
+		return new String(response.body(), getCharset(response.headers()));
+	}
+
+	/**
+	 * @return the charset of the Content-Type, or UTF-8 if it has none or an
+	 *         unsupported one.
+	 */
+	private static Charset getCharset(HttpHeaders headers) {
+		String contentType = headers.firstValue("Content-Type").orElse(null);
+		if (contentType != null) {
+			for (String parameter : contentType.split(";")) {
+				String[] nameValue = parameter.split("=", 2);
+				if (nameValue.length == 2 && "charset".equalsIgnoreCase(nameValue[0].trim())) {
+					String charset = StringUtils.strip(nameValue[1].trim(), "\"");
+					try {
+						return Charset.forName(charset);
+					} catch (IllegalArgumentException e) {
+						LOGGER.debug("Unsupported charset \"{}\", using UTF-8", charset);
+					}
+				}
 			}
-			return response.body();
-		} catch (IllegalArgumentException ex) {
-			throw new IOException("Unable to get string by HTTP:" + ex.getMessage());
 		}
+		return StandardCharsets.UTF_8;
 	}
 
 	public static HttpHeaders getHeaders(String uri) {
 		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					.uri(URI.create(uri))
+			HttpRequest request = newRequestBuilder(uri)
 					.method("HEAD", HttpRequest.BodyPublishers.noBody())
 					.build();
-			HttpResponse<Void> response = HttpClient.newBuilder()
-					.followRedirects(HttpClient.Redirect.ALWAYS)
-					.build()
-					.sendAsync(request, HttpResponse.BodyHandlers.discarding())
-					.join();
+			HttpResponse<Void> response = send(request, HttpResponse.BodyHandlers.discarding());
 			return response.headers();
-		} catch (IllegalArgumentException ex) {
+		} catch (IOException ex) {
 			LOGGER.error("Unable to read headers for " + uri);
-			return HttpHeaders.of(Map.of(), null);
+			return HttpHeaders.of(Map.of(), (name, value) -> true);
 		}
 	}
 
@@ -158,33 +206,67 @@ public class JavaHttpClient {
 			HttpResponse<InputStream> response = getHttpResponseInputStream(uri);
 			response.body().close();
 			return response.headers();
-		} catch (IOException | IllegalArgumentException ex) {
+		} catch (IOException ex) {
 			LOGGER.error("Unable to read headers for request (InputStream) " + uri);
-			return HttpHeaders.of(Map.of(), null);
+			return HttpHeaders.of(Map.of(), (name, value) -> true);
 		}
 	}
 
 	public static HttpResponse<InputStream> getHttpResponseInputStream(String uri) throws IOException {
+		HttpRequest request = newRequestBuilder(uri)
+				.GET()
+				.build();
+		return send(request, HttpResponse.BodyHandlers.ofInputStream());
+	}
+
+	/**
+	 * Creates a request with the UMS user agent, unless it is given in the
+	 * headers, which times out if the response headers are not received
+	 * within {@link #TIMEOUT}.
+	 */
+	private static HttpRequest.Builder newRequestBuilder(String uri, String... headers) throws IOException {
+		if (headers.length % 2 != 0) {
+			throw new IllegalArgumentException("Headers must be name value pairs");
+		}
 		try {
-			HttpRequest request = HttpRequest.newBuilder()
+			HttpRequest.Builder builder = HttpRequest.newBuilder()
 					.uri(URI.create(uri))
-					.GET()
-					.build();
-			return HttpClient.newBuilder()
-					.followRedirects(HttpClient.Redirect.ALWAYS)
-					.build()
-					.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
-					.join();
+					.timeout(TIMEOUT)
+					.setHeader("User-Agent", USER_AGENT);
+			for (int i = 0; i < headers.length; i += 2) {
+				builder.setHeader(headers[i], headers[i + 1]);
+			}
+			return builder;
 		} catch (IllegalArgumentException ex) {
-			throw new IOException("Unable to GET InputStream for request " + uri + ":" + ex.getMessage());
+			throw new IOException("Invalid HTTP request for " + uri + ": " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Sends a request with the shared client, within the limits of its host.
+	 *
+	 * The host connection is released once the response headers are received,
+	 * so that streamed responses do not hold it.
+	 */
+	private static <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException {
+		String host = request.uri().getHost();
+		HostLimiter limiter = HOST_LIMITERS.computeIfAbsent(host == null ? "" : host.toLowerCase(), key -> new HostLimiter());
+		try {
+			limiter.acquire();
+			try {
+				return CLIENT.send(request, bodyHandler);
+			} finally {
+				limiter.release();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while requesting " + request.uri());
 		}
 	}
 
 	public static DLNAThumbnail getThumbnail(String uri) {
 		try {
-			LOGGER.trace("Downloading image from {}", uri);
-			byte[] image = getBytes(uri);
-			return DLNAThumbnail.toThumbnail(image, 640, 480, ScaleType.MAX, ImageFormat.JPEG, false);
+			return downloadThumbnail(uri);
 		} catch (EOFException e) {
 			LOGGER.debug(
 					"Error reading thumbnail from uri \"{}\": Unexpected end of stream, probably corrupt or read error.",
@@ -199,4 +281,56 @@ public class JavaHttpClient {
 		return null;
 	}
 
+	/**
+	 * Downloads an image and converts it to a {@link DLNAThumbnail}.
+	 *
+	 * Unlike {@link #getThumbnail(String)}, failures are reported to the
+	 * caller, which can then tell a transient network error from an
+	 * {@link UnknownFormatException}.
+	 *
+	 * @param uri The URI of the image.
+	 * @return The {@link DLNAThumbnail}.
+	 * @throws IOException if the image can't be downloaded or converted.
+	 */
+	public static DLNAThumbnail downloadThumbnail(String uri) throws IOException {
+		LOGGER.trace("Downloading image from {}", uri);
+		byte[] image = getBytes(uri);
+		return DLNAThumbnail.toThumbnail(image, 640, 480, ScaleType.MAX, ImageFormat.JPEG, false);
+	}
+
+	/**
+	 * Limits the concurrent requests and the request rate to a host.
+	 */
+	private static final class HostLimiter {
+		private final Semaphore connections = new Semaphore(CONFIGURATION.getHttpMaxConnectionsPerHost(), true);
+		private long nextRequestTime = System.nanoTime();
+
+		private void acquire() throws InterruptedException {
+			connections.acquire();
+			int maxRequestsPerSecond = CONFIGURATION.getHttpMaxRequestsPerSecond();
+			if (maxRequestsPerSecond == 0) {
+				return;
+			}
+			long delay;
+			synchronized (this) {
+				long now = System.nanoTime();
+				long requestTime = Math.max(now, nextRequestTime);
+				nextRequestTime = requestTime + TimeUnit.SECONDS.toNanos(1) / maxRequestsPerSecond;
+				delay = requestTime - now;
+			}
+			if (delay > 0) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(delay);
+				} catch (InterruptedException e) {
+					connections.release();
+					throw e;
+				}
+			}
+		}
+
+		private void release() {
+			connections.release();
+		}
+	}
+
 }
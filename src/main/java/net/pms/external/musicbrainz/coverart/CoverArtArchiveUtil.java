@@ -16,15 +16,15 @@
  */
 package net.pms.external.musicbrainz.coverart;
 
-import com.universalmediaserver.coverartarchive.api.CoverArtArchiveClient;
-import com.universalmediaserver.coverartarchive.api.endpoint.ThumbnailSize;
-import com.universalmediaserver.coverartarchive.api.schema.ResultSchema;
+import java.io.IOException;
+import java.net.http.HttpResponse;
 import java.sql.Connection;
 import java.util.HashMap;
 import java.util.Map;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableCoverArtArchive;
 import net.pms.database.MediaTableCoverArtArchive.CoverArtArchiveResult;
+import net.pms.external.JavaHttpClient;
 import net.pms.external.musicbrainz.api.MusicBrainzUtil;
 import org.jaudiotagger.tag.Tag;
 import org.slf4j.Logger;
@@ -39,6 +39,7 @@ public class CoverArtArchiveUtil extends CoverUtil {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(CoverArtArchiveUtil.class);
 	private static final long EXPIRATION_TIME = 24 * 60 * 60 * 1000L; // 24 hours
+	private static final String FRONT_IMAGE_URL = "https://coverartarchive.org/release/";
 	private static final Map<String, Object> LOCKS = new HashMap<>();
 
 	/**
@@ -92,21 +93,25 @@ public class CoverArtArchiveUtil extends CoverUtil {
 						return null;
 					}
 
-					CoverArtArchiveClient client = new CoverArtArchiveClient();
-
-					ResultSchema result = client.release(mBID).getDetails();
-					if (result == null) {
-						LOGGER.debug("Cover for MBID \"{}\" was not found at CoverArtArchive", mBID);
-						MediaTableCoverArtArchive.writeMBID(mBID, null);
+					HttpResponse<byte[]> response;
+					try {
+						response = JavaHttpClient.getResponse(FRONT_IMAGE_URL + mBID + "/front-500");
+					} catch (IOException e) {
+						LOGGER.debug("Error while getting cover for MBID \"{}\" from CoverArtArchive: {}", mBID, e.getMessage());
+						LOGGER.trace("", e);
 						return null;
-					} else if (result.getImages() == null || result.getImages().isEmpty()) {
+					}
+					if (response.statusCode() == 404) {
 						LOGGER.debug("MBID \"{}\" has no cover at CoverArtArchive", mBID);
 						if (connection != null) {
 							MediaTableCoverArtArchive.writeMBID(mBID, null);
 						}
 						return null;
+					} else if (response.statusCode() != 200) {
+						LOGGER.debug("CoverArtArchive responded {} for MBID \"{}\"", response.statusCode(), mBID);
+						return null;
 					}
-					byte[] cover = client.release(mBID).getFrontImageBytes(ThumbnailSize.LARGE);
+					byte[] cover = response.body();
 					if (cover != null && cover.length > 0 && connection != null) {
 						MediaTableCoverArtArchive.writeMBID(mBID, null);
 					}
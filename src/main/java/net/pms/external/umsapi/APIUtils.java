@@ -20,13 +20,11 @@ import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.sql.Connection;
@@ -959,73 +957,45 @@ public class APIUtils {
 	}
 
 	private static String getJson(URL url) throws IOException {
-		HttpURLConnection connection = null;
 		try {
-			connection = (HttpURLConnection) url.openConnection();
-			connection.setAllowUserInteraction(false);
-			connection.setRequestProperty("Content-Type", "application/json");
-			connection.setRequestProperty("Content-length", "0");
-			connection.setRequestProperty("User-Agent", VERBOSE_UA);
-			connection.setConnectTimeout(30000);
-			connection.setReadTimeout(30000);
-			connection.connect();
-
-			int status = connection.getResponseCode();
+			HttpResponse<byte[]> httpResponse = JavaHttpClient.getResponse(
+				url.toString(),
+				"Content-Type", "application/json",
+				"User-Agent", VERBOSE_UA
+			);
+			int status = httpResponse.statusCode();
 			String response;
 
 			switch (status) {
 				case 200, 201 -> {
-					StringBuilder sb = new StringBuilder();
-					try (
-							InputStreamReader instream = new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8);
-							BufferedReader br = new BufferedReader(instream)
-							) {
-						String line;
-						while ((line = br.readLine()) != null) {
-							sb.append(line.trim()).append("\n");
-						}
-					} catch (Exception e) {
-						LOGGER.info("API lookup error for {}, {}", connection.getURL(), e.getMessage());
-					}
-					LOGGER.debug("API URL was {}", connection.getURL());
-					response = sb.toString().trim();
+					LOGGER.debug("API URL was {}", url);
+					response = getTrimmedLines(httpResponse.body());
 				}
 				default -> {
-					StringBuilder errorMessage = new StringBuilder();
-					if (connection.getErrorStream() != null) {
-						try (
-								InputStreamReader instream = new InputStreamReader(connection.getErrorStream(), StandardCharsets.UTF_8);
-								BufferedReader br = new BufferedReader(instream)
-								) {
-							String line;
-							while ((line = br.readLine()) != null) {
-								errorMessage.append(line.trim()).append("\n");
-							}
-						} catch (Exception e) {
-							LOGGER.info("API lookup error for {}, {}", connection.getURL(), e.getMessage());
-						}
-					}
-
-					LOGGER.debug("API status was {} for {}, {}", status, errorMessage, connection.getURL());
+					String errorMessage = getTrimmedLines(httpResponse.body());
+					LOGGER.debug("API status was {} for {}, {}", status, errorMessage, url);
 					response = "{ statusCode: \"" + status + "\", serverResponse: " + GSON.toJson(errorMessage) + " }";
 				}
 			}
 
 			return response;
 		} catch (IOException e) {
-			LOGGER.debug("Error with HttpURLConnection: {}", e);
-		} finally {
-			if (connection != null) {
-				try {
-					connection.disconnect();
-				} catch (Exception ex) {
-					LOGGER.debug("Error while disconnecting connection: {}", ex);
-				}
-			}
+			LOGGER.debug("Error with HTTP request: {}", e);
 		}
 		return null;
 	}
 
+	private static String getTrimmedLines(byte[] body) {
+		if (body == null) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder();
+		for (String line : new String(body, StandardCharsets.UTF_8).split("\\R")) {
+			sb.append(line.trim()).append("\n");
+		}
+		return sb.toString().trim();
+	}
+
 	/**
 	 * @param posterFromApi a full URL of a poster from OMDb
 	 * @param posterRelativePathFromApi this is either a "poster_path" or "still_path" from TMDB
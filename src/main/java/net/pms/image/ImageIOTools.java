@@ -24,10 +24,12 @@ import java.io.OutputStream;
 import java.util.Iterator;
 import javax.imageio.IIOException;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
 import javax.imageio.ImageReader;
 import javax.imageio.spi.IIORegistry;
 import javax.imageio.spi.ImageInputStreamSpi;
 import javax.imageio.stream.ImageInputStream;
+import net.pms.image.ImagesUtil.ScaleType;
 import net.pms.util.UnknownFormatException;
 
 /**
@@ -61,13 +63,39 @@ public class ImageIOTools {
 	 * @see ImageIO#read(InputStream)
 	 */
 	public static ImageReaderResult read(InputStream inputStream) throws IOException {
+		return read(inputStream, 0, 0, null);
+	}
+
+	/**
+	 * Reads an image like {@link #read(InputStream)}, decoding only every
+	 * n<sup>th</sup> pixel of the source when the image is to be scaled down
+	 * to {@code width} x {@code height} anyway. The decoded image is never
+	 * smaller than the scaled image.
+	 *
+	 * <p><b>
+	 * This method consumes and closes {@code inputStream}.
+	 * </b>
+	 *
+	 * @param inputStream an {@link InputStream} to read from.
+	 * @param width the width the image will be scaled to or 0 to decode the
+	 *            full image.
+	 * @param height the height the image will be scaled to or 0 to decode the
+	 *            full image.
+	 * @param scaleType the {@link ScaleType} the image will be scaled with.
+	 */
+	public static ImageReaderResult read(
+		InputStream inputStream,
+		int width,
+		int height,
+		ScaleType scaleType
+	) throws IOException {
 		if (inputStream == null) {
 			throw new IllegalArgumentException("input == null!");
 		}
 
 		ImageInputStream stream = createImageInputStream(inputStream);
 		try {
-			ImageReaderResult result = read(stream);
+			ImageReaderResult result = read(stream, width, height, scaleType);
 			if (result == null) {
 				inputStream.close();
 			}
@@ -100,6 +128,31 @@ public class ImageIOTools {
 	 * @see ImageIO#read(ImageInputStream)
 	 */
 	public static ImageReaderResult read(ImageInputStream stream) throws IOException {
+		return read(stream, 0, 0, null);
+	}
+
+	/**
+	 * Reads an image like {@link #read(ImageInputStream)}, decoding only every
+	 * n<sup>th</sup> pixel of the source when the image is to be scaled down
+	 * to {@code width} x {@code height} anyway.
+	 *
+	 * <b>
+	 * This method consumes and closes {@code stream}.
+	 * </b>
+	 *
+	 * @param stream an {@link ImageInputStream} to read from.
+	 * @param width the width the image will be scaled to or 0 to decode the
+	 *            full image.
+	 * @param height the height the image will be scaled to or 0 to decode the
+	 *            full image.
+	 * @param scaleType the {@link ScaleType} the image will be scaled with.
+	 */
+	public static ImageReaderResult read(
+		ImageInputStream stream,
+		int width,
+		int height,
+		ScaleType scaleType
+	) throws IOException {
 		if (stream == null) {
 			throw new IllegalArgumentException("stream == null!");
 		}
@@ -112,22 +165,65 @@ public class ImageIOTools {
 
 			ImageFormat inputFormat = null;
 			BufferedImage bufferedImage = null;
+			boolean subsampled = false;
 			ImageReader reader = (ImageReader) iter.next();
 			try {
 				// Store the parsing result
 				inputFormat = ImageFormat.toImageFormat(reader.getFormatName());
 
 				reader.setInput(stream, true, true);
-				bufferedImage = reader.read(0, reader.getDefaultReadParam());
+				ImageReadParam param = reader.getDefaultReadParam();
+				int sourceWidth = -1;
+				if (width > 0 && height > 0) {
+					sourceWidth = reader.getWidth(0);
+					int subsampling = getSubsampling(sourceWidth, reader.getHeight(0), width, height, scaleType);
+					if (subsampling > 1) {
+						param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+					}
+				}
+				bufferedImage = reader.read(0, param);
+				subsampled = bufferedImage != null && sourceWidth > 0 && bufferedImage.getWidth() < sourceWidth;
 			} finally {
 				reader.dispose();
 			}
-			return bufferedImage != null ? new ImageReaderResult(bufferedImage, inputFormat) : null;
+			return bufferedImage != null ? new ImageReaderResult(bufferedImage, inputFormat, subsampled) : null;
 		} catch (RuntimeException e) {
 			throw new ImageIORuntimeException("An error occurred while trying to read image: " + e.getMessage(), e);
 		}
 	}
 
+	/**
+	 * Calculates the largest source subsampling that still decodes at least
+	 * as many pixels as the scaled image has on each axis.
+	 * <p>
+	 * The Exif orientation isn't known when the image is decoded, so the
+	 * result is valid whether the axes end up swapped or not.
+	 *
+	 * @param sourceWidth the source image width.
+	 * @param sourceHeight the source image height.
+	 * @param width the target width.
+	 * @param height the target height.
+	 * @param scaleType the {@link ScaleType} used to scale the image.
+	 * @return The subsampling, 1 for none.
+	 */
+	public static int getSubsampling(int sourceWidth, int sourceHeight, int width, int height, ScaleType scaleType) {
+		if (sourceWidth < 1 || sourceHeight < 1 || width < 1 || height < 1) {
+			return 1;
+		}
+		double ratio = Math.min(
+			getScaleRatio(sourceWidth, sourceHeight, width, height, scaleType),
+			getScaleRatio(sourceHeight, sourceWidth, width, height, scaleType)
+		);
+		return Math.max(1, (int) Math.floor(ratio));
+	}
+
+	private static double getScaleRatio(int sourceWidth, int sourceHeight, int width, int height, ScaleType scaleType) {
+		double widthRatio = (double) sourceWidth / width;
+		double heightRatio = (double) sourceHeight / height;
+		// MAX fits the image in the box, EXACT may also stretch it to fill the box
+		return scaleType == ScaleType.EXACT ? Math.min(widthRatio, heightRatio) : Math.max(widthRatio, heightRatio);
+	}
+
 	/**
 	 * Tries to detect the input image file format using {@link ImageIO} and
 	 * returns the result.
@@ -222,12 +318,18 @@ public class ImageIOTools {
 		public final ImageFormat imageFormat;
 		public final int width;
 		public final int height;
+		public final boolean subsampled;
 
 		public ImageReaderResult(BufferedImage bufferedImage, ImageFormat imageFormat) {
+			this(bufferedImage, imageFormat, false);
+		}
+
+		public ImageReaderResult(BufferedImage bufferedImage, ImageFormat imageFormat, boolean subsampled) {
 			this.bufferedImage = bufferedImage;
 			this.imageFormat = imageFormat;
 			this.width = bufferedImage == null ? -1 : bufferedImage.getWidth();
 			this.height = bufferedImage == null ? -1 : bufferedImage.getHeight();
+			this.subsampled = subsampled;
 		}
 	}
 }
@@ -1087,7 +1087,8 @@ public class ImagesUtil {
 
 		ImageReaderResult inputResult;
 		try {
-			inputResult = ImageIOTools.read(new ByteArrayInputStream(inputByteArray));
+			// Large sources are decoded subsampled, close to the target size
+			inputResult = ImageIOTools.read(new ByteArrayInputStream(inputByteArray), width, height, scaleType);
 		} catch (IIOException e) {
 			throw new UnknownFormatException("Unable to read image format", e);
 		}
@@ -1101,7 +1102,8 @@ public class ImagesUtil {
 		}
 
 		BufferedImage bufferedImage = inputResult.bufferedImage;
-		boolean reencode = filterChain != null && !filterChain.isEmpty();
+		// A subsampled image no longer matches the source bytes
+		boolean reencode = inputResult.subsampled || filterChain != null && !filterChain.isEmpty();
 
 		if (outputProfile == null && dlnaCompliant) {
 			// Override output format to one valid for DLNA, defaulting to PNG
@@ -18,6 +18,8 @@ package net.pms.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import net.pms.PMS;
+import org.slf4j.LoggerFactory;
 
 /**
  * Interface to easily subclass different implementations while keeping most of
@@ -50,4 +52,68 @@ public interface BufferedOutputFile {
 	public abstract void detachInputStream();
 
 	public abstract void write(byte[] byteArray) throws IOException;
+
+	/**
+	 * Tells whether a read at {@code readCount} would return without waiting
+	 * for the writer.
+	 *
+	 * @param firstRead whether this is the first read of the input stream.
+	 * @param readCount the read position.
+	 * @return {@code true} if the read doesn't wait, or if it is unknown.
+	 */
+	public default boolean isReadReady(boolean firstRead, long readCount) {
+		return true;
+	}
+
+	/**
+	 * @return the number of bytes written but not yet read by the current
+	 *         input stream, or -1 if unknown.
+	 */
+	public default long getBufferedBytes() {
+		return -1;
+	}
+
+	/**
+	 * @return the size of the buffer in bytes, or -1 if unknown.
+	 */
+	public default long getBufferCapacity() {
+		return -1;
+	}
+
+	/**
+	 * @return the total time in milliseconds the writer was blocked because
+	 *         the buffer was full.
+	 */
+	public default long getWriterWaitTime() {
+		return 0;
+	}
+
+	/**
+	 * @return the total time in milliseconds the readers were blocked because
+	 *         the buffer was empty.
+	 */
+	public default long getReaderWaitTime() {
+		return 0;
+	}
+
+	/**
+	 * Creates the transcoding buffer selected by the renderer configuration.
+	 *
+	 * Falls back to the heap buffer when an off-heap buffer can't be
+	 * allocated.
+	 *
+	 * @param params the output params.
+	 * @return the buffer.
+	 */
+	public static BufferedOutputFile newInstance(OutputParams params) {
+		String type = PMS.getConfiguration(params).getTranscodeBufferType();
+		if ("direct".equals(type) || "mapped".equals(type)) {
+			try {
+				return new ByteBufferOutputFileImpl(params, "mapped".equals(type));
+			} catch (IOException e) {
+				LoggerFactory.getLogger(BufferedOutputFile.class).debug("Falling back to the heap buffer: {}", e.getMessage());
+			}
+		}
+		return new BufferedOutputFileImpl(params);
+	}
 }
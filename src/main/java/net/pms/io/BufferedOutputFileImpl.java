@@ -88,6 +88,8 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 	private Timer timer;
 	private boolean buffered = false;
 	private long packetpos = 0;
+	private volatile long writerWaitTime;
+	private volatile long readerWaitTime;
 
 	/**
 	 * Try to increase the size of a memory buffer, while retaining its
@@ -309,10 +311,17 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 
 		//LOGGER.trace("write(" + b.length + ", " + off + ", " + len + "), writeCount = " + writeCount + ", readCount = " + (input != null ? input.getReadCount() : "null"));
 
+		long waitStart = 0;
 		while ((input != null && (writeCount - input.getReadCount() > bufferOverflowWarning)) || (input == null && writeCount > bufferOverflowWarning)) {
+			if (waitStart == 0) {
+				waitStart = System.currentTimeMillis();
+			}
 			UMSUtils.sleep(CHECK_INTERVAL);
 			input = getCurrentInputStream();
 		}
+		if (waitStart > 0) {
+			writerWaitTime += System.currentTimeMillis() - waitStart;
+		}
 
 		if (buffer != null) {
 			int mb = (int) (writeCount % maxMemorySize);
@@ -653,6 +662,11 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		buffer[m0] = (byte) (ptsLeftLow & 255);
 	}
 
+	@Override
+	public boolean isReadReady(boolean firstRead, long readCount) {
+		return eof || buffer == null || writeCount - readCount > (firstRead ? minMemorySize : secondReadMinSize);
+	}
+
 	@Override
 	public int read(boolean firstRead, long readCount, byte[] buf, int off, int len) {
 		if (readCount > INITIAL_BUFFER_SIZE && readCount < maxMemorySize) {
@@ -670,9 +684,11 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 
 		int c = 0;
 		int minBufferS = firstRead ? minMemorySize : secondReadMinSize;
+		long waitStart = 0;
 		while (writeCount - readCount <= minBufferS && !eof && c < 15) {
 			if (c == 0) {
 				LOGGER.trace("Suspend Read: readCount=" + readCount + " / writeCount=" + writeCount);
+				waitStart = System.currentTimeMillis();
 			}
 
 			c++;
@@ -685,6 +701,7 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		}
 
 		if (c > 0) {
+			readerWaitTime += System.currentTimeMillis() - waitStart;
 			LOGGER.trace("Resume Read: readCount=" + readCount + " / writeCount=" + writeCount);
 		}
 
@@ -753,9 +770,11 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		int c = 0;
 		int minBufferS = firstRead ? minMemorySize : secondReadMinSize;
 
+		long waitStart = 0;
 		while (writeCount - readCount <= minBufferS && !eof && c < 15) {
 			if (c == 0) {
 				LOGGER.trace("Suspend Read: readCount=" + readCount + " / writeCount=" + writeCount);
+				waitStart = System.currentTimeMillis();
 			}
 
 			c++;
@@ -768,6 +787,7 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		}
 
 		if (c > 0) {
+			readerWaitTime += System.currentTimeMillis() - waitStart;
 			LOGGER.trace("Resume Read: readCount=" + readCount + " / writeCount=" + writeCount);
 		}
 
@@ -810,7 +830,8 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 					}
 
 					long space = (writeCount - rc);
-					LOGGER.trace("buffered: " + FORMATTER.format(space) + " bytes / inputs: " + inputStreams.size());
+					LOGGER.trace("buffered: " + FORMATTER.format(space) + " bytes / inputs: " + inputStreams.size() +
+						" / writer waited: " + writerWaitTime + " ms / readers waited: " + readerWaitTime + " ms");
 
 					// There are 1048576 bytes in a megabyte
 					long bufferInMBs = space / 1048576;
@@ -884,4 +905,25 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			GuiManager.updateBuffer();
 		}
 	}
+
+	@Override
+	public long getBufferedBytes() {
+		WaitBufferedInputStream input = getCurrentInputStream();
+		return writeCount - (input != null ? input.getReadCount() : 0);
+	}
+
+	@Override
+	public long getBufferCapacity() {
+		return maxMemorySize;
+	}
+
+	@Override
+	public long getWriterWaitTime() {
+		return writerWaitTime;
+	}
+
+	@Override
+	public long getReaderWaitTime() {
+		return readerWaitTime;
+	}
 }
@@ -0,0 +1,715 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.NumberFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.gui.GuiManager;
+import net.pms.renderers.Renderer;
+import net.pms.util.UMSUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circular buffer kept outside of the Java heap, either in a direct
+ * {@link ByteBuffer} or in a memory-mapped temporary file under the profile
+ * directory.
+ *
+ * It behaves like {@link BufferedOutputFileImpl}: the transcoding process
+ * writes in it, and one or more {@link WaitBufferedInputStream} read from it,
+ * the writer waiting when the buffer is full and the readers waiting when it
+ * is empty.
+ *
+ * The buffer is made of chunks of {@link #CHUNK_SIZE} bytes, so it never has
+ * to be grown or copied. Direct chunks are allocated when the writer first
+ * reaches them, and are handed to a small shared pool when the buffer is
+ * reset after the end of the stream, instead of waiting for the garbage
+ * collector to free their native memory.
+ */
+public class ByteBufferOutputFileImpl extends OutputStream implements BufferedOutputFile {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ByteBufferOutputFileImpl.class);
+	private static final NumberFormat FORMATTER = NumberFormat.getInstance(Locale.US);
+	private static final String BUFFER_DIRECTORY_NAME = "buffers";
+	private static final int CHUNK_SIZE = 4 * 1048576;
+	private static final BlockingQueue<ByteBuffer> CHUNK_POOL = new ArrayBlockingQueue<>(16);
+
+	/**
+	 * Amount of bytes kept free at the end of the buffer.
+	 */
+	private static final int MARGIN_LARGE = 20000000;
+	private static final int MARGIN_MEDIUM = 2000000;
+	private static final int MARGIN_SMALL = 600000;
+	private static final int CHECK_INTERVAL = 500;
+	private static final int CHECK_END_OF_PROCESS = 2500; // must be superior to CHECK_INTERVAL
+
+	private final UmsConfiguration configuration;
+	private final Renderer renderer;
+	private final int minMemorySize;
+	private final int capacity;
+	private final boolean forcefirst;
+	private final double timeseek;
+	private final double timeend;
+	private final boolean hidebuffer;
+	private final boolean cleanup;
+	private final boolean shiftScr;
+	private final int secondReadMinSize;
+	private final int bufferOverflowWarning;
+	private final List<WaitBufferedInputStream> inputStreams = new CopyOnWriteArrayList<>();
+
+	private volatile boolean eof;
+	private volatile long writeCount;
+	private volatile ByteBuffer[] chunks;
+	private File mappedFile;
+	private ProcessWrapper attachedThread;
+	private Timer timer;
+	private long packetpos = 0;
+	private volatile long writerWaitTime;
+	private volatile long readerWaitTime;
+
+	/**
+	 * Creates a buffer based on the given settings.
+	 *
+	 * @param params {@link OutputParams} object that contains preferences
+	 * for the buffers dimensions and behavior.
+	 * @param mapped whether to use a memory-mapped temporary file instead of
+	 * a direct buffer.
+	 * @throws IOException if the buffer cannot be allocated.
+	 */
+	public ByteBufferOutputFileImpl(OutputParams params, boolean mapped) throws IOException {
+		// Use device-specific pms conf
+		configuration = PMS.getConfiguration(params);
+		this.renderer = params.getMediaRenderer();
+		this.forcefirst = (configuration.getTrancodeBlocksMultipleConnections() && configuration.getTrancodeKeepFirstConnections());
+		this.minMemorySize = (int) (1048576 * params.getMinBufferSize());
+		this.capacity = Math.max(1048576, (int) (1048576 * params.getMaxBufferSize()));
+
+		int margin = MARGIN_LARGE;
+		if (capacity < margin) { // for thumbnails / small buffer usage
+			margin = MARGIN_MEDIUM;
+			if (capacity < margin) {
+				margin = MARGIN_SMALL;
+			}
+		}
+		this.bufferOverflowWarning = capacity - margin;
+		this.secondReadMinSize = params.getSecondReadMinSize();
+		this.timeseek = params.getTimeSeek();
+		this.timeend = params.getTimeEnd();
+		this.shiftScr = params.isShiftSscr();
+		this.hidebuffer = params.isHideBuffer();
+		this.cleanup = params.isCleanup();
+		ByteBuffer[] chunks = new ByteBuffer[(capacity + CHUNK_SIZE - 1) / CHUNK_SIZE];
+		if (mapped) {
+			ByteBuffer mapping = map();
+			for (int i = 0; i < chunks.length; i++) {
+				chunks[i] = mapping.slice(i * CHUNK_SIZE, getChunkSize(i));
+			}
+		}
+		this.chunks = chunks;
+		LOGGER.trace("Initialized {} buffer of {} bytes", mapped ? "memory-mapped" : "direct", FORMATTER.format(capacity));
+	}
+
+	private int getChunkSize(int index) {
+		return Math.min(CHUNK_SIZE, capacity - index * CHUNK_SIZE);
+	}
+
+	/**
+	 * Returns a chunk for the writer, allocating it if needed.
+	 */
+	private ByteBuffer getWriteChunk(ByteBuffer[] buf, int index) throws IOException {
+		ByteBuffer chunk = buf[index];
+		if (chunk == null) {
+			int size = getChunkSize(index);
+			chunk = size == CHUNK_SIZE ? CHUNK_POOL.poll() : null;
+			if (chunk == null) {
+				try {
+					chunk = ByteBuffer.allocateDirect(size);
+				} catch (OutOfMemoryError e) {
+					throw new IOException("Cannot allocate a direct buffer of " + FORMATTER.format(size) + " bytes", e);
+				}
+			}
+			// published to the readers by the write count
+			buf[index] = chunk;
+		}
+		return chunk;
+	}
+
+	/**
+	 * @return the number of bytes allocated for this buffer.
+	 */
+	long getAllocatedBytes() {
+		ByteBuffer[] buf = chunks;
+		long allocated = 0;
+		if (buf != null) {
+			for (ByteBuffer chunk : buf) {
+				if (chunk != null) {
+					allocated += chunk.capacity();
+				}
+			}
+		}
+		return allocated;
+	}
+
+	private ByteBuffer map() throws IOException {
+		File directory = new File(configuration.getDataFile(BUFFER_DIRECTORY_NAME));
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create the buffer directory " + directory);
+		}
+		mappedFile = File.createTempFile("transcode", ".buf", directory);
+		mappedFile.deleteOnExit();
+		try (RandomAccessFile file = new RandomAccessFile(mappedFile, "rw")) {
+			file.setLength(capacity);
+			// the mapping stays valid after the channel is closed
+			return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		} catch (IOException e) {
+			deleteMappedFile();
+			throw e;
+		}
+	}
+
+	private void deleteMappedFile() {
+		if (mappedFile != null && !mappedFile.delete()) {
+			// Windows won't delete a file that is still mapped, deleteOnExit will
+			LOGGER.trace("Buffer file {} will be deleted on exit", mappedFile);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		LOGGER.trace("EOF");
+		eof = true;
+		if (cleanup) {
+			detachInputStream();
+		}
+	}
+
+	@Override
+	public WaitBufferedInputStream getCurrentInputStream() {
+		if (inputStreams.isEmpty()) {
+			return null;
+		}
+		try {
+			return forcefirst ? inputStreams.get(0) : inputStreams.get(inputStreams.size() - 1);
+		} catch (IndexOutOfBoundsException e) {
+			// the stream was removed meanwhile
+			return null;
+		}
+	}
+
+	@Override
+	public InputStream getInputStream(long newReadPosition) {
+		if (attachedThread != null) {
+			attachedThread.setReadyToStop(false);
+		}
+
+		WaitBufferedInputStream atominputStream;
+
+		if (!configuration.getTrancodeBlocksMultipleConnections() || getCurrentInputStream() == null) {
+			atominputStream = new WaitBufferedInputStream(this);
+			inputStreams.add(atominputStream);
+		} else {
+			if (configuration.getTrancodeKeepFirstConnections()) {
+				LOGGER.debug("BufferedOutputFile is already attached to an InputStream: " + getCurrentInputStream());
+			} else {
+				while (!inputStreams.isEmpty()) {
+					try {
+						inputStreams.get(0).close();
+					} catch (IOException e) {
+						LOGGER.error("Error: ", e);
+					}
+				}
+
+				inputStreams.clear();
+				atominputStream = new WaitBufferedInputStream(this);
+				inputStreams.add(atominputStream);
+				LOGGER.debug("Reassign inputstream: " + getCurrentInputStream());
+			}
+
+			return null;
+		}
+
+		if (newReadPosition > 0) {
+			LOGGER.debug("Setting InputStream new position to: " + FORMATTER.format(newReadPosition));
+			atominputStream.setReadCount(newReadPosition);
+		}
+
+		return atominputStream;
+	}
+
+	@Override
+	public long getWriteCount() {
+		return writeCount;
+	}
+
+	@Override
+	public void write(byte[] b) throws IOException {
+		write(b, 0, b.length);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		waitForSpace();
+		ByteBuffer[] buf = chunks;
+		if (buf == null) {
+			return;
+		}
+		int mb = position(writeCount);
+		int done = 0;
+		while (done < len) {
+			int index = position(writeCount + done);
+			ByteBuffer chunk = getWriteChunk(buf, index / CHUNK_SIZE);
+			int offset = index % CHUNK_SIZE;
+			int length = Math.min(len - done, chunk.capacity() - offset);
+			chunk.put(offset, b, off + done, length);
+			done += length;
+		}
+
+		// Ditlew - WDTV Live - update any SCR headers
+		if (timeseek > 0 && writeCount > 10 && shiftScr) {
+			for (int i = 0; i < len; i++) {
+				shiftSCRByTimeSeek(buf, mb + i, (int) timeseek);
+			}
+		}
+
+		writeCount += len;
+		if (timeseek > 0 && timeend == 0) {
+			shiftPackets(buf);
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		waitForSpace();
+		ByteBuffer[] buf = chunks;
+		if (buf == null) {
+			return;
+		}
+		int mb = position(writeCount);
+		getWriteChunk(buf, mb / CHUNK_SIZE).put(mb % CHUNK_SIZE, (byte) b);
+		writeCount++;
+
+		if (timeseek > 0 && writeCount > 19) {
+			shiftVideo(buf, mb);
+			shiftAudio(buf, mb);
+		}
+
+		// Ditlew - WDTV Live - update any SCR headers
+		if (timeseek > 0 && writeCount > 10) {
+			shiftSCRByTimeSeek(buf, mb, (int) timeseek);
+		}
+	}
+
+	/**
+	 * Blocks the writer while the current reader is too far behind.
+	 */
+	private void waitForSpace() {
+		long start = 0;
+		WaitBufferedInputStream input = getCurrentInputStream();
+		while (chunks != null && ((input != null && (writeCount - input.getReadCount() > bufferOverflowWarning)) || (input == null && writeCount > bufferOverflowWarning))) {
+			if (start == 0) {
+				start = System.currentTimeMillis();
+			}
+			UMSUtils.sleep(CHECK_INTERVAL);
+			input = getCurrentInputStream();
+		}
+		if (start > 0) {
+			writerWaitTime += System.currentTimeMillis() - start;
+		}
+	}
+
+	private void shiftPackets(ByteBuffer[] buf) {
+		int packetLength = 6; // minimum to get packet size
+		while (packetpos + packetLength < writeCount) {
+			int packetposMB = position(packetpos);
+			int streamPos = 0;
+			if (get(buf, packetposMB) == 71) { // TS
+				packetLength = 188;
+				streamPos = 4;
+
+				// adaptation field
+				if ((get(buf, packetposMB + 3) & 0x20) == 0x20) {
+					streamPos += 1 + (get(buf, packetposMB + 4) & 0xff);
+				}
+
+				if (streamPos == 188) {
+					streamPos = -1;
+				}
+			} else if (get(buf, packetposMB + 3) == -70) { // BA
+				packetLength = 14;
+				streamPos = -1;
+			} else {
+				packetLength = 6 + (get(buf, packetposMB + 4) & 0xff) * 256 + (get(buf, packetposMB + 5) & 0xff);
+			}
+			if (streamPos != -1) {
+				int mb = packetposMB + streamPos + 18;
+				if (!shiftVideo(buf, mb)) {
+					shiftAudio(buf, mb - 5);
+				}
+			}
+			packetpos += packetLength;
+		}
+	}
+
+	private int position(long count) {
+		return (int) (count % capacity);
+	}
+
+	private int index(int bufferIndex) {
+		return Math.floorMod(bufferIndex, capacity);
+	}
+
+	private byte get(ByteBuffer[] buf, int bufferIndex) {
+		int i = index(bufferIndex);
+		ByteBuffer chunk = buf[i / CHUNK_SIZE];
+		return chunk == null ? 0 : chunk.get(i % CHUNK_SIZE);
+	}
+
+	private void set(ByteBuffer[] buf, int bufferIndex, byte value) {
+		int i = index(bufferIndex);
+		ByteBuffer chunk = buf[i / CHUNK_SIZE];
+		if (chunk != null) {
+			chunk.put(i % CHUNK_SIZE, value);
+		}
+	}
+
+	// Ditlew - Modify SCR
+	private void shiftSCRByTimeSeek(ByteBuffer[] buf, int bufferIndex, int offsetSec) {
+		// SCR
+		if (get(buf, bufferIndex - 9) == 0 &&
+			get(buf, bufferIndex - 8) == 0 &&
+			get(buf, bufferIndex - 7) == 1 &&
+			get(buf, bufferIndex - 6) == -70 && // 0xBA - Java/UMS wants -70
+			// control bits
+			((get(buf, bufferIndex - 5) & 128) != 128) &&
+			((get(buf, bufferIndex - 5) & 64) == 64) &&
+			((get(buf, bufferIndex - 5) & 4) == 4) &&
+			((get(buf, bufferIndex - 3) & 4) == 4) &&
+			((get(buf, bufferIndex - 1) & 4) == 4) &&
+			((get(buf, bufferIndex) & 1) == 1)) {
+			byte b5 = get(buf, bufferIndex - 5);
+			byte b4 = get(buf, bufferIndex - 4);
+			byte b3 = get(buf, bufferIndex - 3);
+			byte b2 = get(buf, bufferIndex - 2);
+			byte b1 = get(buf, bufferIndex - 1);
+			long scr3230 = ((b5 & 56) >> 3);
+			long scr2915 = ((b5 & 3) << 13) + (b4 << 5) + ((b3 & 248) >> 3);
+			long scr1400 = ((b3 & 3) << 13) + (b2 << 5) + ((b1 & 248) >> 3);
+
+			long scr = (scr3230 << 30) + (scr2915 << 15) + scr1400;
+			long scrNew = scr + (90000L * offsetSec);
+
+			long scr3230New = (scrNew & 7516192768L) >> 30;  // 111000000000000000000000000000000
+			long scr2915New = (scrNew & 1073709056L) >> 15;  // 000111111111111111000000000000000
+			long scr1400New = (scrNew & 32767L);             // 000000000000000000111111111111111
+
+			// scr_32_30_new
+			b5 = (byte) ((b5 & 199) + ((scr3230New << 3) & 56)); // 11000111
+			// scr_29_15_new
+			b5 = (byte) ((b5 & 252) + ((scr2915New >> 13) & 3)); // 00000011
+			b4 = (byte) (scr2915New >> 5);                       // 11111111
+			b3 = (byte) ((b3 & 7) + ((scr2915New << 3) & 248));  // 11111000
+			// scr_14_00_new
+			b3 = (byte) ((b3 & 252) + ((scr1400New >> 13) & 3)); // 00000011
+			b2 = (byte) (scr1400New >> 5);                       // 11111111
+			b1 = (byte) ((b1 & 7) + ((scr1400New << 3) & 248));  // 11111000
+
+			set(buf, bufferIndex - 5, b5);
+			set(buf, bufferIndex - 4, b4);
+			set(buf, bufferIndex - 3, b3);
+			set(buf, bufferIndex - 2, b2);
+			set(buf, bufferIndex - 1, b1);
+		}
+	}
+
+	private boolean shiftAudio(ByteBuffer[] buf, int mb) {
+		boolean bb = (get(buf, mb - 10) == -67 || get(buf, mb - 10) == -64) &&
+			get(buf, mb - 11) == 1 &&
+			get(buf, mb - 12) == 0 &&
+			get(buf, mb - 13) == 0 &&
+			(get(buf, mb - 6) & 128) == 128;
+		if (bb) {
+			int pts = getTS(buf, mb);
+			pts += (int) (timeseek * 90000);
+			setTS(buf, pts, mb);
+			return true;
+		}
+		return false;
+	}
+
+	private boolean shiftVideo(ByteBuffer[] buf, int mb) {
+		boolean bb = (get(buf, mb - 15) == -32 || get(buf, mb - 15) == -3) &&
+			get(buf, mb - 16) == 1 &&
+			get(buf, mb - 17) == 0 &&
+			get(buf, mb - 18) == 0 &&
+			(get(buf, mb - 11) & 128) == 128 &&
+			(get(buf, mb - 9) & 32) == 32;
+
+		if (bb) { // check EO or FD (tsMuxeR)
+			int pts = getTS(buf, mb - 5);
+			int dts = 0;
+			boolean dtsPresent = (get(buf, mb - 11) & 64) == 64;
+			if (dtsPresent) {
+				if ((get(buf, mb - 4) & 15) == 15) {
+					dts = (((((255 - (get(buf, mb - 3) & 0xff)) << 8) + (255 - (get(buf, mb - 2) & 0xff))) >> 1) << 15) + ((((255 - (get(buf, mb - 1) & 0xff)) << 8) + (255 - (get(buf, mb) & 0xff))) >> 1);
+					dts = -dts;
+				} else {
+					dts = getTS(buf, mb);
+				}
+			}
+
+			int ts = (int) (timeseek * 90000);
+			if (mb == 50 && writeCount < capacity) {
+				dts--;
+			}
+			pts += ts;
+
+			setTS(buf, pts, mb - 5);
+			if (dtsPresent) {
+				if (dts < 0) {
+					set(buf, mb - 4, (byte) 17);
+				}
+				dts += ts;
+				setTS(buf, dts, mb);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private int getTS(ByteBuffer[] buf, int mb) {
+		return (((((get(buf, mb - 3) & 0xff) << 8) + (get(buf, mb - 2) & 0xff)) >> 1) << 15) +
+			((((get(buf, mb - 1) & 0xff) << 8) + (get(buf, mb) & 0xff)) >> 1);
+	}
+
+	private void setTS(ByteBuffer[] buf, int ts, int mb) {
+		int ptsLow = ts & 32767;
+		int ptsHigh = (ts >> 15) & 32767;
+		int ptsLeftLow = 1 + (ptsLow << 1);
+		int ptsLeftHigh = 1 + (ptsHigh << 1);
+		set(buf, mb - 3, (byte) ((ptsLeftHigh & 65280) >> 8));
+		set(buf, mb - 2, (byte) (ptsLeftHigh & 255));
+		set(buf, mb - 1, (byte) ((ptsLeftLow & 65280) >> 8));
+		set(buf, mb, (byte) (ptsLeftLow & 255));
+	}
+
+	/**
+	 * Waits until enough data is available for the reader.
+	 *
+	 * @return the number of bytes available, or -1 at end of stream.
+	 */
+	private long waitForData(boolean firstRead, long readCount) {
+		if (eof && readCount >= writeCount) {
+			return -1;
+		}
+
+		long start = 0;
+		int c = 0;
+		int minBufferS = firstRead ? minMemorySize : secondReadMinSize;
+		while (((writeCount - readCount <= minBufferS && c < 15) || writeCount <= readCount) && !eof && chunks != null) {
+			if (c == 0) {
+				LOGGER.trace("Suspend Read: readCount=" + readCount + " / writeCount=" + writeCount);
+				start = System.currentTimeMillis();
+			}
+			c++;
+			UMSUtils.sleep(CHECK_INTERVAL);
+		}
+
+		if (attachedThread != null) {
+			attachedThread.setReadyToStop(false);
+		}
+
+		if (c > 0) {
+			readerWaitTime += System.currentTimeMillis() - start;
+			LOGGER.trace("Resume Read: readCount=" + readCount + " / writeCount=" + writeCount);
+		}
+
+		long available = writeCount - readCount;
+		if (chunks == null || available <= 0) {
+			return -1;
+		}
+		return available;
+	}
+
+	@Override
+	public boolean isReadReady(boolean firstRead, long readCount) {
+		return eof || chunks == null || writeCount - readCount > (firstRead ? minMemorySize : secondReadMinSize);
+	}
+
+	@Override
+	public int read(boolean firstRead, long readCount, byte[] b, int off, int len) {
+		long available = waitForData(firstRead, readCount);
+		ByteBuffer[] buf = chunks;
+		if (available < 0 || buf == null) {
+			return -1;
+		}
+		int mb = position(readCount);
+		ByteBuffer chunk = buf[mb / CHUNK_SIZE];
+		int offset = mb % CHUNK_SIZE;
+		int length = (int) Math.min(Math.min(len, available), chunk.capacity() - offset);
+		chunk.get(offset, b, off, length);
+		return length;
+	}
+
+	@Override
+	public int read(boolean firstRead, long readCount) {
+		long available = waitForData(firstRead, readCount);
+		ByteBuffer[] buf = chunks;
+		if (available < 0 || buf == null) {
+			return -1;
+		}
+		return 0xff & get(buf, position(readCount));
+	}
+
+	@Override
+	public synchronized void attachThread(ProcessWrapper thread) {
+		if (attachedThread != null) {
+			throw new RuntimeException("BufferedOutputFile is already attached to a Thread: " + attachedThread);
+		}
+
+		LOGGER.debug("Attaching thread: " + thread);
+		attachedThread = thread;
+		startTimer();
+	}
+
+	private void startTimer() {
+		if (!hidebuffer && capacity > (15 * 1048576)) {
+			timer = new Timer(attachedThread + "-Timer");
+			timer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					long rc = 0;
+
+					if (getCurrentInputStream() != null) {
+						rc = getCurrentInputStream().getReadCount();
+						GuiManager.setReadValue(rc);
+					}
+
+					long space = (writeCount - rc);
+					LOGGER.trace("buffered: " + FORMATTER.format(space) + " bytes / inputs: " + inputStreams.size() +
+						" / writer waited: " + writerWaitTime + " ms / readers waited: " + readerWaitTime + " ms");
+
+					// There are 1048576 bytes in a megabyte
+					long bufferInMBs = space / 1048576;
+					if (renderer != null) {
+						renderer.setBuffer(bufferInMBs);
+					}
+					GuiManager.updateBuffer();
+				}
+			}, 0, 2000);
+		}
+	}
+
+	@Override
+	public void removeInputStream(WaitBufferedInputStream inputStream) {
+		inputStreams.remove(inputStream);
+	}
+
+	@Override
+	public void detachInputStream() {
+		if (!hidebuffer) {
+			GuiManager.setReadValue(0);
+		}
+
+		if (attachedThread != null) {
+			attachedThread.setReadyToStop(true);
+		}
+
+		Runnable checkEnd = () -> {
+			try {
+				Thread.sleep(CHECK_END_OF_PROCESS);
+			} catch (InterruptedException e) {
+				LOGGER.error(null, e);
+			}
+
+			if (attachedThread != null && attachedThread.isReadyToStop()) {
+				if (!attachedThread.isDestroyed()) {
+					attachedThread.stopProcess();
+				}
+
+				reset();
+			}
+		};
+		new Thread(checkEnd, attachedThread + "-Cleanup").start();
+	}
+
+	@Override
+	public synchronized void reset() {
+		if (timer != null) {
+			timer.cancel();
+		}
+
+		ByteBuffer[] buf = chunks;
+		if (buf != null) {
+			LOGGER.trace("Destroying buffer");
+			chunks = null;
+			if (mappedFile != null) {
+				// the mapping is released when it is garbage collected
+				deleteMappedFile();
+			} else if (eof) {
+				// the writer is done, the chunks can be reused
+				for (ByteBuffer chunk : buf) {
+					if (chunk != null && chunk.capacity() == CHUNK_SIZE && !CHUNK_POOL.offer(chunk)) {
+						break;
+					}
+				}
+			}
+		}
+
+		if (renderer != null) {
+			renderer.setBuffer(0);
+		}
+		if (!hidebuffer && capacity != 1048576) {
+			GuiManager.updateBuffer();
+		}
+	}
+
+	@Override
+	public long getBufferedBytes() {
+		WaitBufferedInputStream input = getCurrentInputStream();
+		return writeCount - (input != null ? input.getReadCount() : 0);
+	}
+
+	@Override
+	public long getBufferCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public long getWriterWaitTime() {
+		return writerWaitTime;
+	}
+
+	@Override
+	public long getReaderWaitTime() {
+		return readerWaitTime;
+	}
+
+}
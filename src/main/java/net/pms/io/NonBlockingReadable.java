@@ -0,0 +1,31 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+/**
+ * An input stream fed by another thread, which can tell whether a read would
+ * have to wait for that thread.
+ */
+public interface NonBlockingReadable {
+
+	/**
+	 * @return {@code true} if the next read returns without waiting, with
+	 *         data or at the end of the stream.
+	 */
+	boolean isReadReady();
+
+}
@@ -41,7 +41,7 @@ public class OutputBufferConsumer extends OutputConsumer {
 
 	public OutputBufferConsumer(InputStream inputStream, OutputParams params) {
 		super(inputStream);
-		outputBuffer = new BufferedOutputFileImpl(params);
+		outputBuffer = BufferedOutputFile.newInstance(params);
 	}
 
 	@Override
@@ -27,7 +27,7 @@ import java.io.InputStream;
  *         http://ostermiller.org/contact.pl?regarding=Java+Utilities
  * @since ostermillerutils 1.04.00
  */
-public class SizeLimitInputStream extends InputStream {
+public class SizeLimitInputStream extends InputStream implements NonBlockingReadable {
 
 	/**
 	 * The input stream that is being protected. All methods should be forwarded
@@ -190,6 +190,11 @@ public class SizeLimitInputStream extends InputStream {
 		return in.skip(n);
 	}
 
+	@Override
+	public boolean isReadReady() {
+		return bytesRead >= maxBytesToRead || !(in instanceof NonBlockingReadable readable) || readable.isReadReady();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
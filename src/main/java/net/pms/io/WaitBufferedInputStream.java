@@ -19,7 +19,7 @@ package net.pms.io;
 import java.io.IOException;
 import java.io.InputStream;
 
-public class WaitBufferedInputStream extends InputStream {
+public class WaitBufferedInputStream extends InputStream implements NonBlockingReadable {
 	private final BufferedOutputFile outputStream;
 	private long readCount;
 	private boolean firstRead;
@@ -62,6 +62,11 @@ public class WaitBufferedInputStream extends InputStream {
 		return read(b, 0, b.length);
 	}
 
+	@Override
+	public boolean isReadReady() {
+		return outputStream.isReadReady(firstRead, getReadCount());
+	}
+
 	@Override
 	public int available() throws IOException {
 		return (int) outputStream.getWriteCount();
@@ -0,0 +1,173 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.network;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link ReadableByteChannel} over one or more byte ranges of a local file,
+ * optionally interleaved with raw bytes (like multipart headers).
+ *
+ * The file ranges are read with positional {@link FileChannel} reads straight
+ * into the buffer handed by the caller, so when the caller is the HTTP server
+ * with its pooled direct buffers, the content never goes through a heap array.
+ */
+public class FileRangesChannel implements ReadableByteChannel {
+
+	private final FileChannel fileChannel;
+	private final List<Part> parts = new ArrayList<>();
+	private int current;
+	private long length;
+	private long position;
+	private boolean open = true;
+
+	/**
+	 * Opens the given file for reading.
+	 *
+	 * @param file the file to read.
+	 * @throws IOException if the file can't be opened.
+	 */
+	public FileRangesChannel(File file) throws IOException {
+		fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+	}
+
+	/**
+	 * Appends the given text, encoded as ISO-8859-1 like HTTP headers.
+	 *
+	 * @param text the text to append.
+	 * @return this channel.
+	 */
+	public FileRangesChannel addText(String text) {
+		byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+		parts.add(new Part(ByteBuffer.wrap(bytes), 0, bytes.length));
+		length += bytes.length;
+		return this;
+	}
+
+	/**
+	 * Appends a range of the file.
+	 *
+	 * @param start the first byte of the range.
+	 * @param end the last byte of the range (inclusive).
+	 * @return this channel.
+	 */
+	public FileRangesChannel addRange(long start, long end) {
+		if (end >= start) {
+			parts.add(new Part(null, start, end + 1));
+			length += end - start + 1;
+		}
+		return this;
+	}
+
+	/**
+	 * @return the total number of bytes this channel will produce.
+	 */
+	public long length() {
+		return length;
+	}
+
+	/**
+	 * @return the number of bytes read so far.
+	 */
+	public long position() {
+		return position;
+	}
+
+	@Override
+	public synchronized int read(ByteBuffer dst) throws IOException {
+		if (!open) {
+			throw new ClosedChannelException();
+		}
+		int read = 0;
+		while (dst.hasRemaining() && current < parts.size()) {
+			Part part = parts.get(current);
+			int count;
+			if (part.bytes != null) {
+				ByteBuffer src = part.bytes;
+				count = Math.min(src.remaining(), dst.remaining());
+				ByteBuffer slice = src.slice();
+				slice.limit(count);
+				dst.put(slice);
+				src.position(src.position() + count);
+				part.position += count;
+			} else {
+				int limit = dst.limit();
+				long left = part.end - part.position;
+				if (dst.remaining() > left) {
+					dst.limit(dst.position() + (int) left);
+				}
+				try {
+					count = fileChannel.read(dst, part.position);
+				} finally {
+					dst.limit(limit);
+				}
+				if (count < 0) {
+					// the file was truncated while being sent
+					return read > 0 ? read : -1;
+				}
+				part.position += count;
+			}
+			read += count;
+			position += count;
+			if (part.position >= part.end) {
+				current++;
+			}
+			if (count == 0) {
+				break;
+			}
+		}
+		if (read == 0 && current >= parts.size()) {
+			return -1;
+		}
+		return read;
+	}
+
+	@Override
+	public synchronized boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (open) {
+			open = false;
+			fileChannel.close();
+		}
+	}
+
+	private static class Part {
+		private final ByteBuffer bytes;
+		private final long end;
+		private long position;
+
+		private Part(ByteBuffer bytes, long start, long end) {
+			this.bytes = bytes;
+			this.position = start;
+			this.end = end;
+		}
+	}
+
+}
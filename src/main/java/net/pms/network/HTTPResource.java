@@ -30,6 +30,7 @@ import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
 import net.pms.PMS;
+import net.pms.external.JavaHttpClient;
 import net.pms.formats.Format;
 import net.pms.util.PropertiesUtil;
 import net.pms.util.StringUtil;
@@ -209,6 +210,23 @@ public abstract class HTTPResource {
 		}
 		URL url = URI.create(u).toURL();
 
+		CookieManager cookieManager = (CookieManager) CookieHandler.getDefault();
+		boolean hasCookies = cookieManager != null &&
+			cookieManager.getCookieStore() != null &&
+			cookieManager.getCookieStore().getCookies() != null &&
+			!cookieManager.getCookieStore().getCookies().isEmpty();
+		if (url.getUserInfo() == null && !hasCookies && url.getProtocol().startsWith("http")) {
+			// Use the shared client and its response cache
+			LOGGER.debug("Retrieving " + url.toString());
+			byte[] content = JavaHttpClient.getBytes(u);
+			if (saveOnDisk && f != null) {
+				try (FileOutputStream fOUT = new FileOutputStream(f)) {
+					fOUT.write(content);
+				}
+			}
+			return content;
+		}
+
 		// The URL may contain user authentication information
 		Authenticator.setDefault(new HTTPResourceAuthenticator());
 		HTTPResourceAuthenticator.addURL(url);
@@ -220,13 +238,7 @@ public abstract class HTTPResource {
 		// GameTrailers blocks user-agents that identify themselves as "Java"
 		conn.setRequestProperty("User-agent", PropertiesUtil.getProjectProperties().get("project.name") + " " + PMS.getVersion());
 
-		CookieManager cookieManager = (CookieManager) CookieHandler.getDefault();
-		if (
-			cookieManager != null &&
-			cookieManager.getCookieStore() != null &&
-			cookieManager.getCookieStore().getCookies() != null &&
-			!cookieManager.getCookieStore().getCookies().isEmpty()
-		) {
+		if (hasCookies) {
 			// While joining the Cookies, use ',' or ';' as needed. Most of the servers are using ';'
 			conn.setRequestProperty("Cookie", StringUtils.join(cookieManager.getCookieStore().getCookies(), ";"));
 		}
@@ -20,6 +20,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
 import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
@@ -31,6 +32,8 @@ import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
 import java.util.Locale;
@@ -44,6 +47,8 @@ import net.pms.network.mediaserver.servlets.StartStopListener;
 import net.pms.util.StringUtil;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jetty.ee10.servlet.HttpOutput;
+import org.eclipse.jetty.util.Callback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
@@ -295,6 +300,13 @@ public abstract class HttpServletHelper extends HttpServlet {
 		context.complete();
 	}
 
+	/**
+	 * Sends an input stream as the response body.
+	 *
+	 * When {@code os} is the response {@link ServletOutputStream}, the copy
+	 * is non-blocking, see {@link NonBlockingStreamCopier}. Otherwise, a
+	 * container thread copies the stream until its end.
+	 */
 	protected static void copyStreamAsync(final InputStream in, final OutputStream os, final AsyncContext context, final StartStopListener startStopListener) {
 		UmsAsyncListener umsAsyncListener = new UmsAsyncListener(System.currentTimeMillis(), 0);
 		context.addListener(umsAsyncListener);
@@ -302,6 +314,10 @@ public abstract class HttpServletHelper extends HttpServlet {
 			context.setTimeout(0);
 			context.addListener(startStopListener);
 		}
+		if (os instanceof ServletOutputStream servletOutputStream) {
+			NonBlockingStreamCopier.copy(in, servletOutputStream, context, umsAsyncListener, startStopListener);
+			return;
+		}
 		Runnable r = () -> copyStream(in, os, context, umsAsyncListener, startStopListener);
 		context.start(r);
 	}
@@ -310,6 +326,64 @@ public abstract class HttpServletHelper extends HttpServlet {
 		copyStreamAsync(in, os, context, null);
 	}
 
+	/**
+	 * Sends a channel content as the response body.
+	 *
+	 * When the response is handled by Jetty, the channel is handed to the
+	 * server, which reads it into its own pooled direct buffers and writes
+	 * them asynchronously, without a heap copy and without holding a thread
+	 * while the client is slow. Otherwise, it falls back to
+	 * {@link #copyStreamAsync}.
+	 */
+	protected static void sendChannelAsync(final ReadableByteChannel channel, final OutputStream os, final AsyncContext context, final StartStopListener startStopListener) {
+		if (!(os instanceof HttpOutput httpOutput)) {
+			copyStreamAsync(Channels.newInputStream(channel), os, context, startStopListener);
+			return;
+		}
+		UmsAsyncListener umsAsyncListener = new UmsAsyncListener(System.currentTimeMillis(), 0);
+		context.addListener(umsAsyncListener);
+		if (startStopListener != null) {
+			context.setTimeout(0);
+			context.addListener(startStopListener);
+			startStopListener.start();
+		}
+		httpOutput.sendContent(channel, new Callback() {
+			@Override
+			public void succeeded() {
+				long sendBytes = httpOutput.getWritten();
+				umsAsyncListener.setBytesSent(sendBytes);
+				LOGGER.trace("Sending channel finished after: " + sendBytes + " bytes.");
+				closeChannel();
+				context.complete();
+			}
+
+			@Override
+			public void failed(Throwable x) {
+				long sendBytes = httpOutput.getWritten();
+				umsAsyncListener.setBytesSent(sendBytes);
+				String reason = x.getMessage();
+				if (reason == null && x.getCause() != null) {
+					reason = x.getCause().getMessage();
+				}
+				LOGGER.debug("Sending channel with premature end: " + sendBytes + " bytes. Reason: " + reason);
+				umsAsyncListener.onPrematureEnd(reason);
+				if (startStopListener != null) {
+					startStopListener.stop();
+				}
+				closeChannel();
+				context.complete();
+			}
+
+			private void closeChannel() {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					//do not care
+				}
+			}
+		});
+	}
+
 	protected static void respond(HttpServletRequest req, HttpServletResponse resp, String response, int status, String mime) {
 		respond(req, resp, response, status, mime, true);
 	}
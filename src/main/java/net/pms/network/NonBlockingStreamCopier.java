@@ -0,0 +1,237 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.network;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.pms.io.NonBlockingReadable;
+import net.pms.network.mediaserver.servlets.StartStopListener;
+import net.pms.util.SimpleThreadFactory;
+import org.eclipse.jetty.ee10.servlet.HttpOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copies an input stream to a servlet response without holding a thread
+ * while the client or the source is slow.
+ *
+ * The copy runs from {@link WriteListener#onWritePossible()}, and returns
+ * as soon as the response can't take more data. A source that implements
+ * {@link NonBlockingReadable}, like the transcoding buffers, is only read
+ * once it has data, and is otherwise polled again a bit later. File sources
+ * are read through their {@link FileChannel}.
+ *
+ * The data goes through direct buffers taken from a shared pool. With Jetty,
+ * they are written as is, without a copy to the heap.
+ */
+public class NonBlockingStreamCopier implements WriteListener {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(NonBlockingStreamCopier.class);
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int MAX_POOLED_BUFFERS = 256;
+	private static final long POLL_INTERVAL = 50;
+	private static final Queue<ByteBuffer> BUFFER_POOL = new ConcurrentLinkedQueue<>();
+	private static final AtomicInteger POOLED_BUFFERS = new AtomicInteger();
+	private static final ScheduledExecutorService POLLER = Executors.newSingleThreadScheduledExecutor(new SimpleThreadFactory("Stream Copy Poller"));
+
+	private final InputStream in;
+	private final FileChannel channel;
+	private final ServletOutputStream os;
+	private final AsyncContext context;
+	private final UmsAsyncListener umsAsyncListener;
+	private final StartStopListener startStopListener;
+	private ByteBuffer buffer;
+	private byte[] heapBuffer;
+	private long sendBytes;
+	private boolean finished;
+
+	private NonBlockingStreamCopier(InputStream in, ServletOutputStream os, AsyncContext context, UmsAsyncListener umsAsyncListener, StartStopListener startStopListener) {
+		this.in = in;
+		this.channel = in instanceof FileInputStream fileInputStream ? fileInputStream.getChannel() : null;
+		this.os = os;
+		this.context = context;
+		this.umsAsyncListener = umsAsyncListener;
+		this.startStopListener = startStopListener;
+	}
+
+	/**
+	 * Starts copying {@code in} to the response. The stream is closed and the
+	 * {@link AsyncContext} is completed when the copy ends.
+	 *
+	 * @param in the source.
+	 * @param os the response output stream.
+	 * @param context the started asynchronous context.
+	 * @param umsAsyncListener the listener to report the bytes sent to.
+	 * @param startStopListener the listener of the media playback, or
+	 *            {@code null}.
+	 */
+	public static void copy(InputStream in, ServletOutputStream os, AsyncContext context, UmsAsyncListener umsAsyncListener, StartStopListener startStopListener) {
+		if (startStopListener != null) {
+			startStopListener.start();
+		}
+		os.setWriteListener(new NonBlockingStreamCopier(in, os, context, umsAsyncListener, startStopListener));
+	}
+
+	@Override
+	public synchronized void onWritePossible() throws IOException {
+		if (finished) {
+			return;
+		}
+		if (buffer == null) {
+			buffer = getBuffer();
+			buffer.flip();
+		}
+		while (os.isReady()) {
+			if (!buffer.hasRemaining()) {
+				if (in instanceof NonBlockingReadable readable && !readable.isReadReady()) {
+					// wait for the writer without holding the thread
+					POLLER.schedule(this::resume, POLL_INTERVAL, TimeUnit.MILLISECONDS);
+					return;
+				}
+				buffer.clear();
+				int bytes = read();
+				buffer.flip();
+				if (bytes == -1) {
+					LOGGER.trace("Sending stream finished after: " + sendBytes + " bytes.");
+					finish(true);
+					return;
+				}
+				continue;
+			}
+			sendBytes += write();
+			if (umsAsyncListener != null) {
+				umsAsyncListener.setBytesSent(sendBytes);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void onError(Throwable t) {
+		if (finished) {
+			return;
+		}
+		String reason = t.getMessage();
+		if (reason == null && t.getCause() != null) {
+			reason = t.getCause().getMessage();
+		}
+		LOGGER.debug("Sending stream with premature end: " + sendBytes + " bytes. Reason: " + reason);
+		if (umsAsyncListener != null) {
+			umsAsyncListener.onPrematureEnd(reason);
+		}
+		if (startStopListener != null) {
+			startStopListener.stop();
+		}
+		// a pending write may still use the buffer, it is not pooled again
+		buffer = null;
+		finish(false);
+	}
+
+	private void resume() {
+		try {
+			onWritePossible();
+		} catch (IOException | RuntimeException e) {
+			onError(e);
+		}
+	}
+
+	/**
+	 * Reads the next chunk of the source into the buffer.
+	 *
+	 * @return the number of bytes read, or -1 at the end of the stream.
+	 */
+	private int read() throws IOException {
+		if (channel != null) {
+			return channel.read(buffer);
+		}
+		if (heapBuffer == null) {
+			heapBuffer = new byte[16 * 1024];
+		}
+		int bytes = in.read(heapBuffer, 0, Math.min(heapBuffer.length, buffer.remaining()));
+		if (bytes > 0) {
+			buffer.put(heapBuffer, 0, bytes);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Hands the buffer content to the response. The buffer must not be
+	 * refilled before the response is ready again.
+	 *
+	 * @return the number of bytes written.
+	 */
+	private int write() throws IOException {
+		if (os instanceof HttpOutput httpOutput) {
+			int bytes = buffer.remaining();
+			httpOutput.write(buffer.slice());
+			buffer.position(buffer.limit());
+			return bytes;
+		}
+		if (heapBuffer == null) {
+			heapBuffer = new byte[16 * 1024];
+		}
+		// without Jetty, the data goes through the heap
+		int bytes = Math.min(heapBuffer.length, buffer.remaining());
+		buffer.get(heapBuffer, 0, bytes);
+		os.write(heapBuffer, 0, bytes);
+		return bytes;
+	}
+
+	private void finish(boolean releaseBuffer) {
+		finished = true;
+		try {
+			in.close();
+		} catch (IOException e) {
+			//do not care
+		}
+		if (releaseBuffer && buffer != null) {
+			releaseBuffer(buffer);
+		}
+		buffer = null;
+		context.complete();
+	}
+
+	private static ByteBuffer getBuffer() {
+		ByteBuffer pooled = BUFFER_POOL.poll();
+		if (pooled != null) {
+			POOLED_BUFFERS.decrementAndGet();
+			pooled.clear();
+			return pooled;
+		}
+		return ByteBuffer.allocateDirect(BUFFER_SIZE);
+	}
+
+	private static void releaseBuffer(ByteBuffer buffer) {
+		if (POOLED_BUFFERS.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+			BUFFER_POOL.offer(buffer);
+		} else {
+			POOLED_BUFFERS.decrementAndGet();
+		}
+	}
+
+}
@@ -28,6 +28,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableAudioMetadata;
+import net.pms.database.MediaTableSearchIndex;
 import net.pms.dlna.DidlHelper;
 import net.pms.formats.Format;
 import net.pms.media.audio.metadata.MusicBrainzAlbum;
@@ -337,13 +338,66 @@ public class SearchRequestHandler {
 		if ("=".equals(op)) {
 			sb.append(String.format(" %s = '%s' ", getField(property, requestType), val));
 		} else if ("contains".equals(op)) {
-			sb.append(String.format("LOWER(%s) LIKE '%%%s%%'", getField(property, requestType), escapeH2dbSql(val).toLowerCase()));
+			String condition = getIndexedContainsCondition(property, val, requestType);
+			if (condition != null) {
+				sb.append(condition);
+			} else {
+				sb.append(String.format("LOWER(%s) LIKE '%%%s%%'", getField(property, requestType), escapeH2dbSql(val).toLowerCase()));
+			}
 		} else {
 			throw new RuntimeException("unknown or unimplemented operator : " + op);
 		}
 		sb.append("");
 	}
 
+	/**
+	 * Matches a {@code contains} criterion against the words of the search
+	 * index instead of scanning the searched column.
+	 *
+	 * @return the SQL condition, or {@code null} if the property is not
+	 *         indexed for this request type.
+	 */
+	private static String getIndexedContainsCondition(String property, String val, DbIdMediaType requestType) {
+		String fileIdColumn = getFileIdColumn(requestType);
+		String indexField = getIndexField(property, requestType);
+		if (fileIdColumn == null || indexField == null) {
+			return null;
+		}
+		return MediaTableSearchIndex.getContainsCondition(fileIdColumn, indexField, val);
+	}
+
+	private static String getFileIdColumn(DbIdMediaType requestType) {
+		switch (requestType) {
+			case TYPE_AUDIO, TYPE_PLAYLIST, TYPE_VIDEO, TYPE_IMAGE -> {
+				return "F.ID";
+			}
+			case TYPE_ALBUM, TYPE_PERSON, TYPE_PERSON_COMPOSER, TYPE_PERSON_CONDUCTOR, TYPE_PERSON_ALBUMARTIST -> {
+				return "A.FILEID";
+			}
+			default -> {
+				return null;
+			}
+		}
+	}
+
+	private static String getIndexField(String prop, DbIdMediaType requestType) {
+		if ("upnp:actor".equalsIgnoreCase(prop)) {
+			// actors are only known by the search index
+			return MediaTableSearchIndex.FIELD_ACTOR;
+		}
+		return switch (getField(prop, requestType).trim().toUpperCase()) {
+			case "A.SONGNAME" -> MediaTableSearchIndex.FIELD_TITLE;
+			case "A.ARTIST" -> MediaTableSearchIndex.FIELD_ARTIST;
+			case "A.ALBUMARTIST" -> MediaTableSearchIndex.FIELD_ALBUMARTIST;
+			case "A.COMPOSER" -> MediaTableSearchIndex.FIELD_COMPOSER;
+			case "A.CONDUCTOR" -> MediaTableSearchIndex.FIELD_CONDUCTOR;
+			case "A.ALBUM" -> MediaTableSearchIndex.FIELD_ALBUM;
+			case "A.GENRE" -> MediaTableSearchIndex.FIELD_GENRE;
+			case "F.FILENAME" -> MediaTableSearchIndex.FIELD_FILENAME;
+			default -> null;
+		};
+	}
+
 	private static String escapeH2dbSql(String val) {
 		val = val.replaceAll("'", "''");
 
@@ -44,6 +44,7 @@ import net.pms.store.MediaScanner;
 import net.pms.store.MediaStatusStore;
 import net.pms.store.MediaStoreIds;
 import net.pms.store.PlaylistManager;
+import net.pms.store.StoreChildrenIndex;
 import net.pms.store.StoreContainer;
 import net.pms.store.StoreItem;
 import net.pms.store.StoreResource;
@@ -757,6 +758,13 @@ public class UmsContentDirectoryService {
 
 		boolean browseDirectChildren = browseFlag == BrowseFlag.DIRECT_CHILDREN;
 
+		if (browseDirectChildren) {
+			StoreChildrenIndex childrenIndex = renderer.getMediaStore().getChildrenIndex(objectID, sortCriteria);
+			if (childrenIndex != null) {
+				return browseChildrenWindow(renderer, childrenIndex, filter, startingIndex, requestedCount);
+			}
+		}
+
 		List<StoreResource> resources = renderer.getMediaStore().getResources(
 				objectID,
 				browseDirectChildren
@@ -850,6 +858,50 @@ public class UmsContentDirectoryService {
 		return new BrowseResult(result, count, totalMatches, containerUpdateID);
 	}
 
+	/**
+	 * Browses a page of the direct children of a container from its sorted
+	 * index, only the requested page is validated and serialized.
+	 */
+	private BrowseResult browseChildrenWindow(
+			Renderer renderer,
+			StoreChildrenIndex childrenIndex,
+			String filter,
+			long startingIndex,
+			long requestedCount
+	) {
+		long totalMatches = childrenIndex.size();
+		List<StoreResource> resultResources = childrenIndex.getWindow(
+				(int) Math.min(startingIndex, Integer.MAX_VALUE),
+				(int) Math.min(requestedCount, Integer.MAX_VALUE)
+		);
+		if (resultResources.isEmpty() && startingIndex > 0) {
+			LOGGER.debug("requested objects out of range.");
+		}
+		for (StoreResource resource : resultResources) {
+			if (resource instanceof PlaylistFolder playlistFolder) {
+				File f = new File(resource.getFileName());
+				if (resource.getLastModified() < f.lastModified()) {
+					playlistFolder.resolve();
+				}
+			}
+		}
+
+		long containerUpdateID = MediaStoreIds.getSystemUpdateId().getValue();
+		LOGGER.trace("Creating DIDL result");
+		String result;
+		if (renderer.getUmsConfiguration().isUpnpJupnpDidl()) {
+			result = getJUPnPDidlResults(resultResources, filter);
+		} else {
+			result = DidlHelper.getDidlResults(resultResources);
+		}
+		LOGGER.trace("DIDL result created");
+		if (renderer.getUmsConfiguration().isUpnpDebugMediaServer()) {
+			logDidlLiteResult(result);
+		}
+		LOGGER.trace("Returning browse result");
+		return new BrowseResult(result, resultResources.size(), totalMatches, containerUpdateID);
+	}
+
 	private SearchResult search(
 			String containerId,
 			String searchCriteria,
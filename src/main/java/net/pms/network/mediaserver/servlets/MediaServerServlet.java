@@ -20,7 +20,7 @@ import jakarta.servlet.AsyncContext;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -32,9 +32,15 @@ import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import net.pms.dlna.DLNAImage;
 import net.pms.dlna.DLNAImageInputStream;
 import net.pms.dlna.DLNAImageProfile;
+import net.pms.dlna.DLNAProfileException;
+import net.pms.dlna.DLNAThumbnail;
 import net.pms.dlna.DLNAThumbnailInputStream;
+import net.pms.dlna.DLNAThumbnailVariantCache;
 import net.pms.dlna.protocolinfo.PanasonicDmpProfiles;
 import net.pms.encoders.HlsHelper;
 import net.pms.encoders.ImageEngine;
@@ -47,6 +53,7 @@ import net.pms.io.ProcessWrapper;
 import net.pms.media.MediaInfo;
 import net.pms.media.MediaType;
 import net.pms.media.subtitle.MediaSubtitle;
+import net.pms.network.FileRangesChannel;
 import net.pms.network.HTTPResource;
 import net.pms.network.mediaserver.MediaServer;
 import net.pms.network.mediaserver.MediaServerRequest;
@@ -55,6 +62,7 @@ import net.pms.renderers.ConnectedRenderers;
 import net.pms.renderers.Renderer;
 import net.pms.service.Services;
 import net.pms.service.sleep.SleepManager;
+import net.pms.store.ImageRenditionCache;
 import net.pms.store.MediaStoreIds;
 import net.pms.store.StoreItem;
 import net.pms.store.StoreResource;
@@ -80,8 +88,8 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 	private static final SimpleDateFormat SDF = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss", Locale.US);
 	private static final String GET = "GET";
 	private static final String HEAD = "HEAD";
-	private static final int BUFFER_SIZE = 8 * 1024;
 	private static final String HTTP_HEADER_RANGE_PREFIX = "bytes=";
+	private static final Pattern BYTE_RANGE_PATTERN = Pattern.compile("(\\d+)-(\\d*)|-(\\d+)");
 
 	@Override
 	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
@@ -268,7 +276,7 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 		// send only if no HEAD method is being used.
 		if (writeStream && !HEAD.equalsIgnoreCase(req.getMethod())) {
 			// Send the response body to the client in chunks.
-			OutputStream os = new BufferedOutputStream(resp.getOutputStream(), BUFFER_SIZE);
+			OutputStream os = resp.getOutputStream();
 			copyStreamAsync(inputStream, os, async, startStopListener);
 		} else {
 			if (HEAD.equalsIgnoreCase(req.getMethod()) && contentLength < 1) {
@@ -283,6 +291,63 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 		}
 	}
 
+	/**
+	 * Sends a regular file as is, with a single or multipart byte ranges
+	 * response when ranges were requested.
+	 *
+	 * The body is sent from the file channel by the server itself, see
+	 * {@link #sendChannelAsync}. A 416 code is answered without body.
+	 */
+	private static void sendFileResponse(HttpServletRequest req, HttpServletResponse resp, final Renderer renderer, int code, File file, List<ByteRange> ranges, StartStopListener startStopListener) throws IOException {
+		resp.setHeader("Server", MediaServer.getServerName());
+		long totalsize = file.length();
+		if (code == 416) {
+			resp.setHeader("Content-Range", "bytes */" + totalsize);
+			resp.setContentLength(0);
+			resp.setStatus(code);
+			if (LOGGER.isTraceEnabled()) {
+				logHttpServletResponse(req, resp, null, true, getRendererName(req, renderer));
+			}
+			return;
+		}
+		AsyncContext async = req.startAsync();
+		FileRangesChannel channel = new FileRangesChannel(file);
+		if (ranges.isEmpty()) {
+			channel.addRange(0, totalsize - 1);
+		} else if (ranges.size() == 1) {
+			ByteRange range = ranges.get(0);
+			channel.addRange(range.getStart(), range.getEnd());
+			resp.setHeader("Content-Range", "bytes " + range.getStart() + "-" + range.getEnd() + "/" + totalsize);
+		} else {
+			String boundary = Long.toHexString(System.nanoTime()) + Integer.toHexString(file.hashCode());
+			String partContentType = resp.getContentType();
+			for (ByteRange range : ranges) {
+				StringBuilder partHeader = new StringBuilder();
+				partHeader.append("\r\n--").append(boundary).append("\r\n");
+				if (partContentType != null) {
+					partHeader.append("Content-Type: ").append(partContentType).append("\r\n");
+				}
+				partHeader.append("Content-Range: bytes ").append(range.getStart()).append("-").append(range.getEnd()).append("/").append(totalsize).append("\r\n\r\n");
+				channel.addText(partHeader.toString());
+				channel.addRange(range.getStart(), range.getEnd());
+			}
+			channel.addText("\r\n--" + boundary + "--\r\n");
+			resp.setContentType("multipart/byteranges; boundary=" + boundary);
+		}
+		LOGGER.trace("Sending {} bytes of {} from {} range(s).", channel.length(), file, ranges.size());
+		resp.setContentLengthLong(channel.length());
+		resp.setStatus(code);
+		if (LOGGER.isTraceEnabled()) {
+			logHttpServletResponse(req, resp, null, true, getRendererName(req, renderer));
+		}
+		if (HEAD.equalsIgnoreCase(req.getMethod())) {
+			channel.close();
+			async.complete();
+			return;
+		}
+		sendChannelAsync(channel, resp.getOutputStream(), async, startStopListener);
+	}
+
 	private static void sendMediaResponse(HttpServletRequest req, HttpServletResponse resp, final Renderer renderer, StoreResource resource, String filename) throws IOException {
 		// Request to retrieve a file
 		if (resource instanceof StoreItem item) {
@@ -291,6 +356,8 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 			int status = (range.getStart() != 0 || range.getEnd() != 0) ? 206 : 200;
 			StartStopListener startStopListener = null;
 			InputStream inputStream = null;
+			File directPlayFile = null;
+			List<ByteRange> directPlayRanges = null;
 			long cLoverride = -2; // 0 and above are valid Content-Length values, -1 means omit
 
 			if (req.getHeader("transfermode.dlna.org") != null) {
@@ -395,20 +462,31 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 					resp.setHeader("Cache-Control", "max-age=86400");
 				}
 				try {
-					InputStream imageInputStream;
-					if (item.isTranscoded() && item.getTranscodingSettings().getEngine() instanceof ImageEngine) {
-						ProcessWrapper transcodeProcess = item.getTranscodingSettings().getEngine().launchTranscode(item,
-								item.getMediaInfo(),
-								new OutputParams(CONFIGURATION)
-						);
-						imageInputStream = transcodeProcess != null ? transcodeProcess.getInputStream(0) : null;
-					} else {
-						imageInputStream = item.getInputStream();
+					String renditionKey = ImageRenditionCache.getKey(
+						item,
+						"dlna:" + imageProfile + ":" + imageProfile.getH() + "x" + imageProfile.getV()
+					);
+					InputStream imageInputStream = null;
+					DLNAImage image = ImageRenditionCache.get(renditionKey) instanceof DLNAImage cached ? cached : null;
+					if (image == null) {
+						if (item.isTranscoded() && item.getTranscodingSettings().getEngine() instanceof ImageEngine) {
+							ProcessWrapper transcodeProcess = item.getTranscodingSettings().getEngine().launchTranscode(item,
+									item.getMediaInfo(),
+									new OutputParams(CONFIGURATION)
+							);
+							imageInputStream = transcodeProcess != null ? transcodeProcess.getInputStream(0) : null;
+						} else {
+							imageInputStream = item.getInputStream();
+						}
 					}
-					if (imageInputStream == null) {
+					if (image == null && imageInputStream == null) {
 						LOGGER.warn("Input stream returned for \"{}\" was null, no image will be sent to renderer", filename);
 					} else {
-						inputStream = DLNAImageInputStream.toImageInputStream(imageInputStream, imageProfile, false);
+						if (image == null) {
+							image = DLNAImage.toDLNAImage(imageInputStream, imageProfile, false);
+							ImageRenditionCache.put(renditionKey, image);
+						}
+						inputStream = DLNAImageInputStream.toImageInputStream(image);
 						if (contentFeatures != null) {
 							resp.setHeader("ContentFeatures.DLNA.ORG", DlnaHelper.getDlnaImageContentFeatures(item, imageProfile, false));
 						}
@@ -459,7 +537,14 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 						range.setStart(0L);
 						range.setEnd(0L);
 					}
-					inputStream = item.getInputStream(Range.create(range.getStart(), range.getEnd(), timeseekrange.getStart(), timeseekrange.getEnd()));
+					if (timeseekrange.getStart() == null && timeseekrange.getEnd() == null) {
+						directPlayFile = item.getDirectPlayFile();
+					}
+					if (directPlayFile != null) {
+						item.setDirectPlayStart(range.getStart());
+					} else {
+						inputStream = item.getInputStream(Range.create(range.getStart(), range.getEnd(), timeseekrange.getStart(), timeseekrange.getEnd()));
+					}
 
 					if (item.isResume()) {
 						// Update range to possibly adjusted resume time
@@ -524,7 +609,7 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 					name = item.getName() + " " + item.getDisplayName();
 				}
 
-				if (inputStream == null) {
+				if (inputStream == null && directPlayFile == null) {
 					if (!ignoreTranscodeByteRangeRequests) {
 						// No inputStream indicates that transcoding / remuxing probably crashed.
 						LOGGER.error("There is no inputstream to return for " + name);
@@ -541,50 +626,60 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 						resp.setContentType(rendererMimeType);
 					}
 
-					// Response generation:
-					// We use -1 for arithmetic convenience but don't send it as a value.
-					// If Content-Length < 0 we omit it, for Content-Range we use '*' to signify unspecified.
-					boolean chunked = renderer.isChunkedTransfer();
-
-					// Determine the total size. Note: when transcoding the length is
-					// not known in advance, so MediaInfo.TRANS_SIZE will be returned instead.
-					if (chunked && totalsize == StoreResource.TRANS_SIZE) {
-						// In chunked mode we try to avoid arbitrary values.
-						totalsize = -1;
-					}
+					if (directPlayFile != null) {
+						// The ranges are sent from the file itself, see sendFileResponse.
+						directPlayRanges = parseRanges(req.getHeader("Range"), directPlayFile.length());
+						if (isRangeNotSatisfiable(req.getHeader("Range"), directPlayFile.length())) {
+							status = 416;
+						} else {
+							status = directPlayRanges.isEmpty() ? 200 : 206;
+						}
+					} else {
+						// Response generation:
+						// We use -1 for arithmetic convenience but don't send it as a value.
+						// If Content-Length < 0 we omit it, for Content-Range we use '*' to signify unspecified.
+						boolean chunked = renderer.isChunkedTransfer();
+
+						// Determine the total size. Note: when transcoding the length is
+						// not known in advance, so MediaInfo.TRANS_SIZE will be returned instead.
+						if (chunked && totalsize == StoreResource.TRANS_SIZE) {
+							// In chunked mode we try to avoid arbitrary values.
+							totalsize = -1;
+						}
 
-					long remaining = totalsize - range.getStart();
-					long requested = range.getEnd() - range.getStart();
+						long remaining = totalsize - range.getStart();
+						long requested = range.getEnd() - range.getStart();
 
-					if (requested != 0) {
-						// Determine the range (i.e. smaller of known or requested bytes)
-						long bytes = remaining > -1 ? remaining : inputStream.available();
+						if (requested != 0) {
+							// Determine the range (i.e. smaller of known or requested bytes)
+							long bytes = remaining > -1 ? remaining : inputStream.available();
 
-						if (requested > 0 && bytes > requested) {
-							bytes = requested + 1;
-						}
+							if (requested > 0 && bytes > requested) {
+								bytes = requested + 1;
+							}
 
-						// Calculate the corresponding highRange (this is usually redundant).
-						range.setEnd(range.getStart() + bytes - (bytes > 0 ? 1 : 0));
+							// Calculate the corresponding highRange (this is usually redundant).
+							range.setEnd(range.getStart() + bytes - (bytes > 0 ? 1 : 0));
 
-						LOGGER.trace((chunked ? "Using chunked response. " : "") + "Sending " + bytes + " bytes.");
+							LOGGER.trace((chunked ? "Using chunked response. " : "") + "Sending " + bytes + " bytes.");
 
-						resp.setHeader("Content-Range", "bytes " + range.getStart() + "-" + (range.getEnd() > -1 ? range.getEnd() : "*") + "/" + (totalsize > -1 ? totalsize : "*"));
+							resp.setHeader("Content-Range", "bytes " + range.getStart() + "-" + (range.getEnd() > -1 ? range.getEnd() : "*") + "/" + (totalsize > -1 ? totalsize : "*"));
 
-						// Content-Length refers to the current chunk size here, though in chunked
-						// mode if the request is open-ended and totalsize is unknown we omit it.
-						if (chunked && requested < 0 && totalsize < 0) {
-							cLoverride = -1;
+							// Content-Length refers to the current chunk size here, though in chunked
+							// mode if the request is open-ended and totalsize is unknown we omit it.
+							if (chunked && requested < 0 && totalsize < 0) {
+								cLoverride = -1;
+							} else {
+								cLoverride = bytes;
+							}
 						} else {
-							cLoverride = bytes;
+							// Content-Length refers to the total remaining size of the stream here.
+							cLoverride = remaining;
 						}
-					} else {
-						// Content-Length refers to the total remaining size of the stream here.
-						cLoverride = remaining;
-					}
 
-					// Calculate the corresponding highRange (this is usually redundant).
-					range.setEnd(range.getStart() + cLoverride - (cLoverride > 0 ? 1 : 0));
+						// Calculate the corresponding highRange (this is usually redundant).
+						range.setEnd(range.getStart() + cLoverride - (cLoverride > 0 ? 1 : 0));
+					}
 
 					if (contentFeatures != null) {
 						resp.setHeader("ContentFeatures.DLNA.ORG", DlnaHelper.getDlnaContentFeatures(item));
@@ -612,7 +707,11 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 				resp.setHeader("X-Seek-Range", "npt=" + timeseekValue + "-" + timeEndValue + "/" + timetotalValue);
 			}
 
-			sendResponse(req, resp, renderer, status, inputStream, cLoverride, (range.getStart() != MediaInfo.ENDFILE_POS), startStopListener);
+			if (directPlayFile != null) {
+				sendFileResponse(req, resp, renderer, status, directPlayFile, directPlayRanges, startStopListener);
+			} else {
+				sendResponse(req, resp, renderer, status, inputStream, cLoverride, (range.getStart() != MediaInfo.ENDFILE_POS), startStopListener);
+			}
 		} else {
 			respondBadRequest(req, resp);
 		}
@@ -627,6 +726,36 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 		}
 	}
 
+	/**
+	 * Whether a well formed Range header has no range overlapping the
+	 * content, which must be answered with a 416 status (RFC 9110 15.5.17).
+	 * A malformed header is ignored instead.
+	 */
+	private static boolean isRangeNotSatisfiable(String rangesStr, long streamLength) {
+		if (StringUtils.isBlank(rangesStr) || !parseRanges(rangesStr, streamLength).isEmpty()) {
+			return false;
+		}
+		rangesStr = rangesStr.toLowerCase().trim();
+		if (!rangesStr.startsWith(HTTP_HEADER_RANGE_PREFIX)) {
+			return false;
+		}
+		try {
+			for (String rangeStr : rangesStr.substring(HTTP_HEADER_RANGE_PREFIX.length()).split(",")) {
+				Matcher matcher = BYTE_RANGE_PATTERN.matcher(rangeStr.trim());
+				if (!matcher.matches()) {
+					return false;
+				}
+				if (matcher.group(1) != null && !matcher.group(2).isEmpty() &&
+					Long.parseLong(matcher.group(2)) < Long.parseLong(matcher.group(1))) {
+					return false;
+				}
+			}
+		} catch (NumberFormatException e) {
+			return false;
+		}
+		return true;
+	}
+
 	private static List<ByteRange> parseRanges(String rangesStr, long streamLength) {
 		List<ByteRange> ranges = new ArrayList<>();
 		if (rangesStr == null || StringUtils.isEmpty(rangesStr)) {
@@ -704,14 +833,31 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 
 	private static void sendThumbnailResponse(HttpServletRequest req, HttpServletResponse resp, final Renderer renderer, StoreResource resource, String filename) throws IOException {
 		// Request to retrieve a thumbnail
-		String updateId = MediaStoreIds.getObjectUpdateIdAsString(resource.getLongId());
-		String etag = req.getHeader("If-None-Match");
-		if (etag != null && etag.equals(updateId)) {
+		DLNAImageProfile imageProfile = ImagesUtil.parseImageRequest(filename, DLNAImageProfile.JPEG_TN);
+		boolean generic = !CONFIGURATION.isShowCodeThumbs() && !resource.isCodeValid(resource);
+		BufferedImageFilterChain filterChain = null;
+		if (renderer.isThumbnails() && resource.isFullyPlayedMark()) {
+			filterChain = new BufferedImageFilterChain(FullyPlayed.getOverlayFilter());
+		}
+		filterChain = resource.addFlagFilters(filterChain);
+
+		// The variant key and its etag are known before any image is decoded
+		Long resourceId = resource.getLongId();
+		String updateId = MediaStoreIds.getObjectUpdateIdAsString(resourceId);
+		String cacheKey = null;
+		String etag;
+		if (updateId != null && resourceId != null) {
+			cacheKey = DLNAThumbnailVariantCache.getKey(resourceId, updateId, imageProfile, renderer.isThumbnailPadding(), filterChain, generic);
+			etag = DLNAThumbnailVariantCache.getETag(updateId, cacheKey);
+		} else {
+			etag = updateId;
+		}
+		if (etag != null && etag.equals(req.getHeader("If-None-Match"))) {
 			respondNotModified(req, resp);
 			return;
 		}
-		if (updateId != null) {
-			resp.setHeader("etag", updateId);
+		if (etag != null) {
+			resp.setHeader("etag", etag);
 		}
 
 		InputStream inputStream;
@@ -722,7 +868,6 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 		String contentFeatures = req.getHeader("getcontentfeatures.dlna.org");
 
 		// This is a request for a thumbnail file.
-		DLNAImageProfile imageProfile = ImagesUtil.parseImageRequest(filename, DLNAImageProfile.JPEG_TN);
 		resp.setContentType(imageProfile.getMimeType().toString());
 		resp.setHeader("Accept-Ranges", "bytes");
 		if (isHttp10(req)) {
@@ -731,24 +876,32 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 			resp.setHeader("Cache-Control", "max-age=86400");
 		}
 
-		DLNAThumbnailInputStream thumbInputStream;
-		if (!CONFIGURATION.isShowCodeThumbs() && !resource.isCodeValid(resource)) {
-			thumbInputStream = resource.getGenericThumbnailInputStream(null);
+		DLNAThumbnail thumbnail = cacheKey != null ? DLNAThumbnailVariantCache.get(resourceId, updateId, cacheKey) : null;
+		if (thumbnail != null) {
+			inputStream = new DLNAThumbnailInputStream(thumbnail);
 		} else {
-			resource.checkThumbnail();
-			thumbInputStream = resource.fetchThumbnailInputStream();
-		}
+			DLNAThumbnailInputStream thumbInputStream;
+			if (generic) {
+				thumbInputStream = resource.getGenericThumbnailInputStream(null);
+			} else {
+				resource.checkThumbnail();
+				thumbInputStream = resource.fetchThumbnailInputStream();
+			}
 
-		BufferedImageFilterChain filterChain = null;
-		if (renderer.isThumbnails() && resource.isFullyPlayedMark()) {
-			filterChain = new BufferedImageFilterChain(FullyPlayed.getOverlayFilter());
+			DLNAThumbnailInputStream transcodedInputStream = thumbInputStream.transcode(
+					imageProfile,
+					renderer.isThumbnailPadding(),
+					filterChain
+			);
+			if (transcodedInputStream != null && cacheKey != null) {
+				try {
+					DLNAThumbnailVariantCache.put(resourceId, updateId, cacheKey, transcodedInputStream.getThumbnail());
+				} catch (DLNAProfileException e) {
+					LOGGER.trace("Not caching thumbnail variant {}: {}", cacheKey, e.getMessage());
+				}
+			}
+			inputStream = transcodedInputStream;
 		}
-		filterChain = resource.addFlagFilters(filterChain);
-		inputStream = thumbInputStream.transcode(
-				imageProfile,
-				renderer.isThumbnailPadding(),
-				filterChain
-		);
 		if (contentFeatures != null) {
 			resp.setHeader("ContentFeatures.DLNA.ORG", DlnaHelper.getDlnaImageContentFeatures(resource, imageProfile, true));
 		}
@@ -23,7 +23,6 @@ import jakarta.servlet.AsyncContext;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
@@ -61,6 +60,7 @@ import net.pms.renderers.ConnectedRenderers;
 import net.pms.renderers.Renderer;
 import net.pms.renderers.devices.WebGuiRenderer;
 import net.pms.renderers.devices.players.WebGuiPlayer;
+import net.pms.store.ImageRenditionCache;
 import net.pms.store.MediaStoreIds;
 import net.pms.store.StoreContainer;
 import net.pms.store.StoreItem;
@@ -1004,7 +1004,7 @@ public class PlayerApiServlet extends GuiHttpServlet {
 				if (LOGGER.isTraceEnabled()) {
 					logHttpServletResponse(req, resp, null, true);
 				}
-				OutputStream os = new BufferedOutputStream(resp.getOutputStream(), 512 * 1024);
+				OutputStream os = resp.getOutputStream();
 				LOGGER.debug("start raw dump");
 				copyStreamAsync(in, os, async);
 			} else {
@@ -1101,17 +1101,22 @@ public class PlayerApiServlet extends GuiHttpServlet {
 				if (supported) {
 					in = item.getInputStream();
 				} else {
-					InputStream imageInputStream;
-					if (item.isTranscoded() && item.getTranscodingSettings().getEngine() instanceof ImageEngine) {
-						ProcessWrapper transcodeProcess = item.getTranscodingSettings().getEngine().launchTranscode(item,
-								item.getMediaInfo(),
-								new OutputParams(PMS.getConfiguration())
-						);
-						imageInputStream = transcodeProcess != null ? transcodeProcess.getInputStream(0) : null;
-					} else {
-						imageInputStream = item.getInputStream();
+					String renditionKey = ImageRenditionCache.getKey(item, "web:3840x2400:JPEG");
+					Image image = ImageRenditionCache.get(renditionKey);
+					if (image == null) {
+						InputStream imageInputStream;
+						if (item.isTranscoded() && item.getTranscodingSettings().getEngine() instanceof ImageEngine) {
+							ProcessWrapper transcodeProcess = item.getTranscodingSettings().getEngine().launchTranscode(item,
+									item.getMediaInfo(),
+									new OutputParams(PMS.getConfiguration())
+							);
+							imageInputStream = transcodeProcess != null ? transcodeProcess.getInputStream(0) : null;
+						} else {
+							imageInputStream = item.getInputStream();
+						}
+						image = Image.toImage(imageInputStream, 3840, 2400, ImagesUtil.ScaleType.MAX, ImageFormat.JPEG, false);
+						ImageRenditionCache.put(renditionKey, image);
 					}
-					Image image = Image.toImage(imageInputStream, 3840, 2400, ImagesUtil.ScaleType.MAX, ImageFormat.JPEG, false);
 					len = image == null ? 0 : image.getBytes(false).length;
 					in = image == null ? null : new ByteArrayInputStream(image.getBytes(false));
 				}
@@ -1137,7 +1142,7 @@ public class PlayerApiServlet extends GuiHttpServlet {
 				if (LOGGER.isTraceEnabled()) {
 					logHttpServletResponse(req, resp, null, true);
 				}
-				OutputStream os = new BufferedOutputStream(resp.getOutputStream(), 512 * 1024);
+				OutputStream os = resp.getOutputStream();
 				copyStreamAsync(in, os, async);
 			} else {
 				resp.setStatus(500);
@@ -1224,7 +1229,7 @@ public class PlayerApiServlet extends GuiHttpServlet {
 							if (LOGGER.isTraceEnabled()) {
 								logHttpServletResponse(req, resp, null, true);
 							}
-							OutputStream os = new BufferedOutputStream(resp.getOutputStream(), 512 * 1024);
+							OutputStream os = resp.getOutputStream();
 							copyStreamAsync(in, os, async, startStopListener);
 						} else {
 							resp.setStatus(500);
@@ -1269,7 +1274,7 @@ public class PlayerApiServlet extends GuiHttpServlet {
 						item.setMediaSubtitle(sid);
 					}
 					StartStopListener startStopListener = new StartStopListener(req.getRemoteHost(), item);
-					OutputStream os = new BufferedOutputStream(resp.getOutputStream(), 8 * 1024);
+					OutputStream os = resp.getOutputStream();
 					copyStreamAsync(in, os, async, startStopListener);
 				} else {
 					resp.setStatus(500);
@@ -19,9 +19,11 @@ package net.pms.parsers;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.StringTokenizer;
+import java.util.function.BiPredicate;
 import net.pms.PMS;
 import net.pms.configuration.FormatConfiguration;
 import net.pms.configuration.UmsConfiguration;
@@ -96,7 +98,11 @@ public class FFmpegParser {
 			}
 
 			if (ffmpegParsing) {
-				parse(media, inputFile);
+				if (file != null && PMS.getConfiguration().isUseFFprobeParser() && FFprobeParser.isValid()) {
+					parse(media, inputFile, FFprobeParser::parse);
+				} else {
+					parse(media, inputFile);
+				}
 				if (
 					file != null &&
 					"mpegts".equals(media.getContainer()) &&
@@ -119,6 +125,25 @@ public class FFmpegParser {
 		}
 	}
 
+	/**
+	 * Parses a file with ffprobe, or with FFmpeg if ffprobe fails.
+	 */
+	static void parse(MediaInfo media, InputFile inputFile, BiPredicate<MediaInfo, File> ffprobe) {
+		boolean parsed;
+		try {
+			parsed = ffprobe.test(media, inputFile.getFile());
+		} catch (RuntimeException e) {
+			LOGGER.debug("Error parsing \"{}\" with ffprobe, switching to FFmpeg: {}", inputFile.getFilename(), e.getMessage());
+			LOGGER.trace("", e);
+			parsed = false;
+		}
+		if (!parsed) {
+			// ffprobe may have filled a part of the media
+			media.resetParser();
+			parse(media, inputFile);
+		}
+	}
+
 	private static void parse(MediaInfo media, InputFile inputFile) {
 		/*
 		 * Note: The text output from FFmpeg is used by renderers that do
@@ -281,6 +306,157 @@ public class FFmpegParser {
 		return thumbnail;
 	}
 
+	/**
+	 * Extracts the frames at several seek positions of a file in one FFmpeg
+	 * invocation, instead of spawning one process per position.
+	 *
+	 * Each position is opened as its own seeked input, their first frames are
+	 * scaled like {@link #getThumbnail} and concatenated into a stream of JPEG
+	 * images, or tiled into one sprite image.
+	 *
+	 * @param media the media, used to clamp the positions to its duration.
+	 * @param file the file.
+	 * @param seekPositions the seek positions in seconds.
+	 * @param sprite whether to tile the frames into one image.
+	 * @return the thumbnails in the order of the positions, a list holding the
+	 *         sprite, or {@code null} if they could not be generated.
+	 */
+	public static List<DLNAThumbnail> getThumbnails(MediaInfo media, File file, List<Double> seekPositions, boolean sprite) {
+		String engine = EngineFactory.getEngineExecutable(StandardEngineId.FFMPEG_VIDEO);
+		if (engine == null) {
+			LOGGER.warn("Cannot generate thumbnails since the FFmpeg executable is undefined");
+			return null;
+		}
+		if (file == null || seekPositions == null || seekPositions.isEmpty()) {
+			return null;
+		}
+		String path = ProcessUtil.getSystemPathName(file.getAbsolutePath());
+		ArrayList<String> args = new ArrayList<>();
+		args.add(engine);
+		StringBuilder filter = new StringBuilder();
+		StringBuilder concat = new StringBuilder();
+		for (int i = 0; i < seekPositions.size(); i++) {
+			double seekPosition = seekPositions.get(i);
+			if (media.getDurationInSeconds() > 0) {
+				seekPosition = Math.min(seekPosition, media.getDurationInSeconds());
+			}
+			args.add("-ss");
+			args.add(Integer.toString((int) seekPosition));
+			args.add("-i");
+			args.add(path);
+			filter.append('[').append(i).append(":v:0]trim=end_frame=1,setpts=PTS-STARTPTS,scale=320:-2,setsar=1[v").append(i).append("];");
+			concat.append("[v").append(i).append(']');
+		}
+		filter.append(concat).append("concat=n=").append(seekPositions.size()).append(":v=1:a=0");
+		if (sprite) {
+			filter.append(",tile=").append(seekPositions.size()).append("x1");
+		}
+		filter.append("[out]");
+		args.add("-filter_complex");
+		args.add(filter.toString());
+		args.add("-map");
+		args.add("[out]");
+		if (sprite) {
+			args.add("-frames:v");
+			args.add("1");
+		}
+		args.add("-c:v");
+		args.add("mjpeg");
+		args.add("-f");
+		args.add("image2pipe");
+		args.add("pipe:");
+
+		OutputParams params = new OutputParams(CONFIGURATION);
+		params.setMaxBufferSize(1);
+		params.setNoExitCheck(true); // not serious if anything happens during the thumbnailer
+
+		final ProcessWrapperImpl pw = new ProcessWrapperImpl(args.toArray(String[]::new), true, params);
+
+		// FAILSAFE
+		media.waitMediaParsing(5);
+		media.setParsing(true);
+		FailSafeProcessWrapper fspw = new FailSafeProcessWrapper(pw, 3000L * seekPositions.size());
+		fspw.runInSameThread();
+		media.setParsing(false);
+
+		if (fspw.hasFail() || pw.getOutputByteArray() == null) {
+			LOGGER.info("Error generating thumbnails from the file: " + file);
+			return null;
+		}
+
+		List<byte[]> images = splitJpegImages(pw.getOutputByteArray().toByteArray());
+		if (images.size() != (sprite ? 1 : seekPositions.size())) {
+			LOGGER.debug("FFmpeg returned {} images instead of {} for \"{}\"", images.size(), sprite ? 1 : seekPositions.size(), file);
+			return null;
+		}
+		List<DLNAThumbnail> thumbnails = new ArrayList<>(images.size());
+		for (byte[] image : images) {
+			try {
+				thumbnails.add(DLNAThumbnail.toThumbnail(image));
+			} catch (IOException e) {
+				LOGGER.debug("Error while decoding thumbnail: " + e.getMessage());
+				LOGGER.trace("", e);
+				return null;
+			}
+		}
+		media.setThumbnailSource(ThumbnailSource.FFMPEG_SEEK);
+		return thumbnails;
+	}
+
+	/**
+	 * Splits the concatenated JPEG images written by the FFmpeg
+	 * {@code image2pipe} muxer, by walking the JPEG segments up to each end of
+	 * image marker.
+	 *
+	 * @param bytes the piped images.
+	 * @return the images, up to the first one that is truncated or invalid.
+	 */
+	static List<byte[]> splitJpegImages(byte[] bytes) {
+		List<byte[]> images = new ArrayList<>();
+		int start = 0;
+		while (start + 1 < bytes.length && (bytes[start] & 0xFF) == 0xFF && (bytes[start + 1] & 0xFF) == 0xD8) {
+			int end = getJpegEnd(bytes, start + 2);
+			if (end < 0) {
+				break;
+			}
+			images.add(Arrays.copyOfRange(bytes, start, end));
+			start = end;
+		}
+		return images;
+	}
+
+	private static int getJpegEnd(byte[] bytes, int offset) {
+		int i = offset;
+		boolean entropyCoded = false;
+		while (i + 1 < bytes.length) {
+			if ((bytes[i] & 0xFF) != 0xFF) {
+				if (!entropyCoded) {
+					return -1;
+				}
+				i++;
+				continue;
+			}
+			int marker = bytes[i + 1] & 0xFF;
+			if (marker == 0xD9) {
+				return i + 2;
+			} else if (marker == 0xFF) {
+				// fill byte
+				i++;
+			} else if (marker == 0x00 || marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+				// stuffed byte or standalone marker
+				i += 2;
+			} else {
+				if (i + 3 >= bytes.length) {
+					return -1;
+				}
+				int length = ((bytes[i + 2] & 0xFF) << 8) | (bytes[i + 3] & 0xFF);
+				i += 2 + length;
+				entropyCoded = marker == 0xDA;
+			}
+		}
+		return -1;
+	}
+
 	/**
 	 * Parses media info from FFmpeg's stderr output
 	 *
@@ -0,0 +1,515 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.parsers;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.sun.jna.Platform;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import net.pms.configuration.FormatConfiguration;
+import net.pms.encoders.EngineFactory;
+import net.pms.encoders.StandardEngineId;
+import net.pms.formats.v2.SubtitleType;
+import net.pms.media.MediaInfo;
+import net.pms.media.MediaLang;
+import net.pms.media.audio.MediaAudio;
+import net.pms.media.chapter.MediaChapter;
+import net.pms.media.subtitle.MediaSubtitle;
+import net.pms.media.video.MediaVideo;
+import net.pms.util.ProcessUtil;
+import net.pms.util.SimpleThreadFactory;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parses media with the ffprobe executable found next to FFmpeg, reading its
+ * JSON output as it comes instead of scraping the FFmpeg log.
+ */
+public class FFprobeParser {
+	private static final Logger LOGGER = LoggerFactory.getLogger(FFprobeParser.class);
+	public static final String PARSER_NAME = "FFprobe";
+	private static final long TIMEOUT_MS = 10000;
+	private static final ScheduledThreadPoolExecutor WATCHDOG = new ScheduledThreadPoolExecutor(1, new SimpleThreadFactory("FFprobe Watchdog"));
+
+	static {
+		WATCHDOG.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private FFprobeParser() {
+	}
+
+	/**
+	 * @return the ffprobe executable next to the FFmpeg one, or {@code null}
+	 *         if there is none.
+	 */
+	public static String getExecutable() {
+		String ffmpeg = EngineFactory.getEngineExecutable(StandardEngineId.FFMPEG_VIDEO);
+		if (ffmpeg == null) {
+			return null;
+		}
+		String name = Platform.isWindows() ? "ffprobe.exe" : "ffprobe";
+		File parent = new File(ffmpeg).getParentFile();
+		if (parent == null) {
+			// FFmpeg is looked up in the PATH, so is ffprobe
+			return name;
+		}
+		File ffprobe = new File(parent, name);
+		return ffprobe.isFile() ? ffprobe.getAbsolutePath() : null;
+	}
+
+	public static boolean isValid() {
+		return FFmpegParser.isValid() && getExecutable() != null;
+	}
+
+	/**
+	 * Parses a file with ffprobe.
+	 *
+	 * @return {@code true} if ffprobe gave a complete result, {@code false}
+	 *         if it failed, in which case the media may be partly filled.
+	 */
+	public static boolean parse(MediaInfo media, File file) {
+		String executable = getExecutable();
+		if (executable == null || file == null) {
+			return false;
+		}
+
+		String input = ProcessUtil.getSystemPathName(file.getAbsolutePath());
+		ProcessBuilder pb = getProcessBuilder(executable, input);
+
+		media.setParsing(true);
+		ScheduledFuture<?> watchdog = null;
+		try {
+			Process process = pb.start();
+			watchdog = WATCHDOG.schedule(() -> {
+				if (process.isAlive()) {
+					LOGGER.debug("ffprobe took too long on \"{}\", stopping it", input);
+					process.destroyForcibly();
+				}
+			}, TIMEOUT_MS, TimeUnit.MILLISECONDS);
+			try (Reader reader = new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)) {
+				parseJson(media, reader, file.getName());
+			}
+			if (!process.waitFor(TIMEOUT_MS, TimeUnit.MILLISECONDS) || process.exitValue() != 0) {
+				LOGGER.info("Error parsing information from the file: " + input);
+				return false;
+			}
+			return true;
+		} catch (IOException | IllegalStateException e) {
+			LOGGER.info("Error parsing information from the file {}: {}", input, e.getMessage());
+			LOGGER.trace("", e);
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			if (watchdog != null) {
+				watchdog.cancel(false);
+			}
+			media.setParsing(false);
+		}
+	}
+
+	/**
+	 * Builds the ffprobe process of a file, its standard input and error are
+	 * not used.
+	 */
+	static ProcessBuilder getProcessBuilder(String executable, String input) {
+		ProcessBuilder pb = new ProcessBuilder(
+			executable,
+			"-v", "error",
+			"-show_streams",
+			"-show_format",
+			"-show_chapters",
+			"-of", "json",
+			input
+		);
+		pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+		return pb;
+	}
+
+	/**
+	 * Fills the media from ffprobe JSON output, one stream at a time.
+	 *
+	 * @param media the media to fill.
+	 * @param reader the ffprobe output.
+	 * @param fileName the file name, used to refine the containers ffprobe
+	 *            doesn't tell apart.
+	 */
+	public static void parseJson(MediaInfo media, Reader reader, String fileName) throws IOException {
+		JsonReader json = new JsonReader(reader);
+		String container = null;
+		int videoId = 0;
+		int audioId = 0;
+		int subtitleId = 0;
+		List<MediaChapter> chapters = new ArrayList<>();
+
+		json.beginObject();
+		while (json.hasNext()) {
+			String name = json.nextName();
+			if ("streams".equals(name) && json.peek() == JsonToken.BEGIN_ARRAY) {
+				json.beginArray();
+				while (json.hasNext()) {
+					Map<String, String> stream = readObject(json);
+					switch (stream.getOrDefault("codec_type", "")) {
+						case "video" -> {
+							if (!"1".equals(stream.get("disposition.attached_pic"))) {
+								media.addVideoTrack(toVideo(stream, videoId++));
+							}
+						}
+						case "audio" -> media.addAudioTrack(toAudio(stream, audioId++));
+						case "subtitle" -> media.addSubtitlesTrack(toSubtitle(stream, subtitleId++));
+						default -> {
+							// data and attachment streams are not used
+						}
+					}
+				}
+				json.endArray();
+			} else if ("chapters".equals(name) && json.peek() == JsonToken.BEGIN_ARRAY) {
+				json.beginArray();
+				while (json.hasNext()) {
+					chapters.add(toChapter(readObject(json), chapters.size()));
+				}
+				json.endArray();
+			} else if ("format".equals(name) && json.peek() == JsonToken.BEGIN_OBJECT) {
+				Map<String, String> format = readObject(json);
+				container = getContainer(format.get("format_name"), fileName);
+				Double duration = getDouble(format.get("duration"));
+				if (duration != null) {
+					media.setDuration(duration);
+				}
+				media.setBitRate(getInt(format.get("bit_rate"), 0));
+				String title = format.get("tags.title");
+				if (StringUtils.isNotBlank(title)) {
+					media.setTitle(title);
+				}
+			} else {
+				json.skipValue();
+			}
+		}
+		json.endObject();
+
+		if (container != null) {
+			media.setContainer(container);
+		}
+		if (!chapters.isEmpty()) {
+			media.setChapters(chapters);
+		}
+		media.setMediaParser(PARSER_NAME);
+	}
+
+	/**
+	 * Reads a JSON object, flattening nested objects and arrays into dotted
+	 * keys, e.g. "tags.language" or "side_data_list.0.dv_profile".
+	 */
+	private static Map<String, String> readObject(JsonReader json) throws IOException {
+		Map<String, String> values = new HashMap<>();
+		readObject(json, "", values);
+		return values;
+	}
+
+	private static void readObject(JsonReader json, String prefix, Map<String, String> values) throws IOException {
+		json.beginObject();
+		while (json.hasNext()) {
+			readValue(json, prefix + json.nextName(), values);
+		}
+		json.endObject();
+	}
+
+	private static void readValue(JsonReader json, String key, Map<String, String> values) throws IOException {
+		switch (json.peek()) {
+			case BEGIN_OBJECT -> readObject(json, key + ".", values);
+			case BEGIN_ARRAY -> {
+				json.beginArray();
+				for (int i = 0; json.hasNext(); i++) {
+					readValue(json, key + "." + i, values);
+				}
+				json.endArray();
+			}
+			case STRING, NUMBER -> values.put(key, json.nextString());
+			case BOOLEAN -> values.put(key, Boolean.toString(json.nextBoolean()));
+			default -> json.skipValue();
+		}
+	}
+
+	/**
+	 * FFmpeg reports MP4 and its relatives as "mov", and WebM as "matroska",
+	 * so the file extension is used for those, as {@link FFmpegParser} does.
+	 */
+	private static String getContainer(String formatName, String fileName) {
+		if (StringUtils.isBlank(formatName)) {
+			return null;
+		}
+		int comma = formatName.indexOf(',');
+		String container = comma > -1 ? formatName.substring(0, comma) : formatName;
+		if ("mov".equals(container) || "matroska".equals(container) || "asf".equals(container)) {
+			int dot = fileName.lastIndexOf('.');
+			if (dot > -1 && dot < fileName.length() - 1) {
+				return fileName.substring(dot + 1).toLowerCase();
+			}
+			if ("matroska".equals(container)) {
+				return FormatConfiguration.MKV;
+			}
+		}
+		return container;
+	}
+
+	private static MediaVideo toVideo(Map<String, String> stream, int id) {
+		MediaVideo video = new MediaVideo();
+		video.setId(id);
+		setCommon(stream, video::setStreamOrder, video::setDefault, video::setForced);
+		video.setLang(getLanguage(stream));
+		video.setTitle(stream.get("tags.title"));
+
+		String codec = stream.getOrDefault("codec_name", "");
+		String profile = stream.get("profile");
+		if (profile != null) {
+			String formatProfile = profile.toLowerCase();
+			video.setFormatProfile(formatProfile);
+			// Attempt to parse the bit depth from the profile name, e.g. "main 10"
+			if (formatProfile.endsWith(" 10")) {
+				video.setBitDepth(10);
+			} else if (formatProfile.endsWith(" 12")) {
+				video.setBitDepth(12);
+			}
+		}
+		if (codec.equalsIgnoreCase("flv1")) {
+			codec = FormatConfiguration.SORENSON;
+		} else if (codec.equalsIgnoreCase("hevc")) {
+			codec = FormatConfiguration.H265;
+		} else if (codec.equalsIgnoreCase("mpeg4") || codec.equalsIgnoreCase("msmpeg4v2")) {
+			if ("Advanced Simple Profile".equals(profile) && "XVID".equalsIgnoreCase(stream.get("codec_tag_string"))) {
+				codec = FormatConfiguration.DIVX;
+			} else {
+				codec = FormatConfiguration.MP4;
+			}
+		} else if (codec.equalsIgnoreCase("wmv2")) {
+			codec = FormatConfiguration.WMV;
+		}
+		video.setCodec(codec);
+		video.setWidth(getInt(stream.get("width"), 0));
+		video.setHeight(getInt(stream.get("height"), 0));
+		video.setBitRate(getInt(stream.get("bit_rate"), 0));
+		Double frameRate = getRational(stream.get("r_frame_rate"));
+		if (frameRate == null) {
+			frameRate = getRational(stream.get("avg_frame_rate"));
+		}
+		video.setFrameRate(frameRate);
+
+		if ("smpte2084".equals(stream.get("color_transfer"))) {
+			video.setHDRFormat("HDR10");
+			video.setHDRFormatCompatibility("HDR10");
+		}
+		for (int i = 0; stream.containsKey("side_data_list." + i + ".side_data_type"); i++) {
+			if ("DOVI configuration record".equals(stream.get("side_data_list." + i + ".side_data_type"))) {
+				String compatibilityId = stream.get("side_data_list." + i + ".dv_bl_signal_compatibility_id");
+				String hdrFormat = "Dolby Vision";
+				if ("2".equals(compatibilityId)) {
+					video.setHDRFormatCompatibility("SDR");
+				} else if ("4".equals(compatibilityId)) {
+					video.setHDRFormatCompatibility("HLG");
+				} else if ("6".equals(compatibilityId)) {
+					video.setHDRFormatCompatibility("Blu-ray / HDR10");
+					hdrFormat += " / SMPTE ST 2086";
+				} else if ("HDR10".equals(video.getHDRFormatCompatibility())) {
+					hdrFormat += " / SMPTE ST 2086";
+				}
+				video.setHDRFormat(hdrFormat);
+				break;
+			}
+		}
+		return video;
+	}
+
+	private static MediaAudio toAudio(Map<String, String> stream, int id) {
+		MediaAudio audio = new MediaAudio();
+		audio.setId(id);
+		setCommon(stream, audio::setStreamOrder, audio::setDefault, audio::setForced);
+		audio.setLang(getLanguage(stream));
+		audio.setOptionalId(getTsId(stream));
+		audio.setTitle(stream.get("tags.title"));
+
+		String codec = stream.getOrDefault("codec_name", "");
+		String profile = stream.getOrDefault("profile", "");
+		if (codec.equals("aac")) {
+			codec = profile.equals("HE-AAC") ? FormatConfiguration.HE_AAC : FormatConfiguration.AAC_LC;
+		} else if (codec.startsWith("adpcm_ms")) {
+			codec = FormatConfiguration.ADPCM;
+		} else if (codec.startsWith("wma")) {
+			codec = FormatConfiguration.WMA;
+		} else if (profile.startsWith("DTS-HD")) {
+			codec = FormatConfiguration.DTSHD;
+		}
+		audio.setCodec(codec);
+
+		int sampleRate = getInt(stream.get("sample_rate"), 0);
+		if (sampleRate > 0) {
+			audio.setSampleRate(sampleRate);
+		}
+		int channels = getInt(stream.get("channels"), 0);
+		if (channels > 0) {
+			audio.setNumberOfChannels(channels);
+		}
+		switch (stream.getOrDefault("sample_fmt", "")) {
+			case "s32" -> audio.setBitDepth(32);
+			case "s16" -> audio.setBitDepth(16);
+			default -> {
+				// planar and floating point formats don't tell the source bit depth
+			}
+		}
+		int bitRate = getInt(stream.get("bit_rate"), 0);
+		if (bitRate > 0) {
+			audio.setBitRate(bitRate);
+		}
+		return audio;
+	}
+
+	private static MediaSubtitle toSubtitle(Map<String, String> stream, int id) {
+		MediaSubtitle subtitle = new MediaSubtitle();
+		subtitle.setId(id);
+		setCommon(stream, subtitle::setStreamOrder, subtitle::setDefault, subtitle::setForced);
+		subtitle.setLang(getLanguage(stream));
+		subtitle.setOptionalId(getTsId(stream));
+		subtitle.setTitle(stream.get("tags.title"));
+		subtitle.setType(switch (stream.getOrDefault("codec_name", "")) {
+			case "srt", "subrip" -> SubtitleType.SUBRIP;
+			case "text" -> SubtitleType.TEXT;
+			case "microdvd" -> SubtitleType.MICRODVD;
+			case "sami" -> SubtitleType.SAMI;
+			case "ass", "ssa" -> SubtitleType.ASS;
+			case "dvd_subtitle" -> SubtitleType.VOBSUB;
+			case "xsub" -> SubtitleType.DIVX;
+			case "mov_text" -> SubtitleType.TX3G;
+			case "webvtt" -> SubtitleType.WEBVTT;
+			case "eia_608" -> SubtitleType.EIA608;
+			case "dvb_subtitle" -> SubtitleType.DVBSUB;
+			case "hdmv_pgs_subtitle" -> SubtitleType.PGS;
+			case "hdmv_text_subtitle" -> SubtitleType.TEXTST;
+			default -> SubtitleType.UNKNOWN;
+		});
+		return subtitle;
+	}
+
+	private static MediaChapter toChapter(Map<String, String> values, int id) {
+		MediaChapter chapter = new MediaChapter();
+		chapter.setId(id);
+		chapter.setLang(MediaLang.UND);
+		Double start = getDouble(values.get("start_time"));
+		if (start != null) {
+			chapter.setStart(start);
+		}
+		Double end = getDouble(values.get("end_time"));
+		if (end != null) {
+			chapter.setEnd(end);
+		}
+		String title = values.get("tags.title");
+		//do not set title if it is default, it will be filled automatically later
+		if (title != null && !MediaChapter.isTitleDefault(title)) {
+			chapter.setTitle(title);
+		}
+		return chapter;
+	}
+
+	private static void setCommon(
+		Map<String, String> stream,
+		Consumer<Integer> streamOrder,
+		Consumer<Boolean> defaultFlag,
+		Consumer<Boolean> forcedFlag
+	) {
+		streamOrder.accept(getInt(stream.get("index"), 0));
+		defaultFlag.accept("1".equals(stream.get("disposition.default")));
+		forcedFlag.accept("1".equals(stream.get("disposition.forced")));
+	}
+
+	private static String getLanguage(Map<String, String> stream) {
+		String language = stream.get("tags.language");
+		return StringUtils.isBlank(language) ? MediaLang.UND : language;
+	}
+
+	/**
+	 * @return the MPEG-TS stream id, e.g. "0x1100", or {@code null}.
+	 */
+	private static Long getTsId(Map<String, String> stream) {
+		String id = stream.get("id");
+		if (id != null && id.startsWith("0x")) {
+			try {
+				return Long.valueOf(id.substring(2), 16);
+			} catch (NumberFormatException nfe) {
+				LOGGER.debug("Error parsing Stream ID: " + id);
+			}
+		}
+		return null;
+	}
+
+	private static int getInt(String value, int defaultValue) {
+		if (value != null) {
+			try {
+				return (int) Long.parseLong(value);
+			} catch (NumberFormatException nfe) {
+				LOGGER.debug("Could not parse \"{}\" as an integer", value);
+			}
+		}
+		return defaultValue;
+	}
+
+	private static Double getDouble(String value) {
+		if (value != null) {
+			try {
+				return Double.valueOf(value);
+			} catch (NumberFormatException nfe) {
+				LOGGER.debug("Could not parse \"{}\" as a number", value);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the value of a rational like "24000/1001", or {@code null} if
+	 *         it is unknown ("0/0").
+	 */
+	private static Double getRational(String value) {
+		if (value == null) {
+			return null;
+		}
+		int slash = value.indexOf('/');
+		if (slash < 0) {
+			return getDouble(value);
+		}
+		Double numerator = getDouble(value.substring(0, slash));
+		Double denominator = getDouble(value.substring(slash + 1));
+		if (numerator == null || denominator == null || numerator == 0 || denominator == 0) {
+			return null;
+		}
+		return numerator / denominator;
+	}
+
+}
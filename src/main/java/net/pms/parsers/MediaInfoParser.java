@@ -29,7 +29,9 @@ import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
+import net.pms.PMS;
 import net.pms.configuration.FormatConfiguration;
+import net.pms.configuration.UmsConfiguration;
 import net.pms.dlna.DLNAThumbnail;
 import net.pms.formats.Format;
 import net.pms.formats.v2.SubtitleType;
@@ -158,6 +160,10 @@ public class MediaInfoParser {
 		MediaInfoParseLogger parseLogger = LOGGER.isTraceEnabled() ? new MediaInfoParseLogger(mediaInfoHelper) : null;
 		boolean fileOpened = mediaInfoHelper.openFile(file.getAbsolutePath()) > 0;
 		if (fileOpened) {
+			UmsConfiguration configuration = PMS.getConfiguration();
+			if (configuration == null || configuration.isMediaInfoJsonIngest()) {
+				mediaInfoHelper.readJsonReport();
+			}
 			MediaAudio currentAudioTrack = new MediaAudio();
 			MediaVideo currentVideoTrack = new MediaVideo();
 			MediaSubtitle currentSubTrack;
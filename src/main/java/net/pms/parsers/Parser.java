@@ -20,6 +20,8 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import net.pms.PMS;
 import net.pms.configuration.FormatConfiguration;
 import net.pms.configuration.UmsConfiguration;
@@ -291,4 +293,53 @@ public class Parser {
 		return null;
 	}
 
+	/**
+	 * Gets the thumbnails of a file at several seek positions.
+	 *
+	 * The video frames seeked with FFmpeg are extracted in one invocation,
+	 * the other thumbnails are generated one by one like
+	 * {@link #getThumbnail(MediaInfo, InputFile, Format, int, Double)}.
+	 *
+	 * @param media the media.
+	 * @param inputFile the file.
+	 * @param ext the format.
+	 * @param type the format type.
+	 * @param seekPositions the seek positions, {@code null} for the default
+	 *            thumbnail.
+	 * @return the thumbnails in the order of the positions, a thumbnail that
+	 *         could not be generated is {@code null}.
+	 */
+	public static List<DLNAThumbnail> getThumbnails(MediaInfo media, InputFile inputFile, Format ext, int type, List<Double> seekPositions) {
+		List<DLNAThumbnail> thumbnails = new ArrayList<>(seekPositions.size());
+		List<Integer> batched = new ArrayList<>();
+		List<Double> batchedPositions = new ArrayList<>();
+		boolean canBatch = seekPositions.size() > 1 &&
+			type == Format.VIDEO &&
+			!(ext instanceof AudioAsVideo) &&
+			inputFile != null &&
+			inputFile.getFile() != null &&
+			!CONFIGURATION.isUseMplayerForVideoThumbs();
+		boolean hasPoster = media.hasVideoMetadata() && media.getVideoMetadata().getPoster() != null;
+		for (int i = 0; i < seekPositions.size(); i++) {
+			Double seekPosition = seekPositions.get(i);
+			thumbnails.add(null);
+			if (canBatch && (seekPosition != null || !hasPoster)) {
+				batched.add(i);
+				batchedPositions.add(seekPosition != null ? seekPosition : CONFIGURATION.getThumbnailSeekPos());
+			}
+		}
+		List<DLNAThumbnail> extracted = batched.size() > 1 ? FFmpegParser.getThumbnails(media, inputFile.getFile(), batchedPositions, false) : null;
+		if (extracted != null) {
+			for (int i = 0; i < batched.size(); i++) {
+				thumbnails.set(batched.get(i), extracted.get(i));
+			}
+		}
+		for (int i = 0; i < seekPositions.size(); i++) {
+			if (thumbnails.get(i) == null) {
+				thumbnails.set(i, getThumbnail(media, inputFile, ext, type, seekPositions.get(i)));
+			}
+		}
+		return thumbnails;
+	}
+
 }
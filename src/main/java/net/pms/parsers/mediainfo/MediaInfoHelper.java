@@ -19,6 +19,7 @@ package net.pms.parsers.mediainfo;
 import com.sun.jna.Platform;
 import com.sun.jna.Pointer;
 import com.sun.jna.WString;
+import java.io.IOException;
 import net.pms.util.ProcessUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,6 +32,7 @@ public class MediaInfoHelper implements AutoCloseable {
 	private static final Logger LOGGER = LoggerFactory.getLogger(MediaInfoHelper.class);
 
 	private Pointer handle;
+	private MediaInfoJsonReport report;
 
 	// Constructor/Destructor
 	public MediaInfoHelper(boolean log) {
@@ -95,9 +97,32 @@ public class MediaInfoHelper implements AutoCloseable {
 	 *
 	 */
 	public void closeFile() {
+		report = null;
 		MediaInfoLibrary.INSTANCE.Close(handle);
 	}
 
+	/**
+	 * Reads all the properties of the opened file in one JSON report, so
+	 * that the following {@link #get(StreamKind, int, String)} calls are
+	 * answered from it when possible instead of calling the library.
+	 *
+	 * @return {@code true} if the report was read, {@code false} if the
+	 *         properties will be asked to the library one by one.
+	 */
+	public boolean readJsonReport() {
+		report = null;
+		try {
+			option("Output", "JSON");
+			report = MediaInfoJsonReport.parse(inform());
+		} catch (IOException | RuntimeException e) {
+			LOGGER.debug("Could not read the MediaInfo JSON report: {}", e.getMessage());
+			LOGGER.trace("", e);
+		} finally {
+			option("Output", "");
+		}
+		return report != null;
+	}
+
 	// Information
 	/**
 	 * Get all details about a file.
@@ -149,6 +174,12 @@ public class MediaInfoHelper implements AutoCloseable {
 	 * @return a string about information you search, an empty string if there is a problem
 	 */
 	public String get(StreamKind streamType, int streamNumber, String parameter, InfoKind infoType, InfoKind searchType) {
+		if (report != null && infoType == InfoKind.TEXT && searchType == InfoKind.NAME) {
+			String value = report.get(streamType, streamNumber, parameter);
+			if (value != null) {
+				return value;
+			}
+		}
 		return MediaInfoLibrary.INSTANCE.Get(handle,
 			streamType.getValue(),
 			streamNumber,
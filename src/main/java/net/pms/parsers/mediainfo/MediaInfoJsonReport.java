@@ -0,0 +1,207 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.parsers.mediainfo;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The properties of an opened file, read from one MediaInfo JSON report
+ * ({@code Output=JSON}) instead of one library call per property.
+ *
+ * The report only holds raw values. Human readable variants
+ * ({@code /String}, {@code /Info}...), durations and delays (reported in
+ * seconds instead of milliseconds) and internal counters are not answered,
+ * and must still be asked to the library.
+ */
+public class MediaInfoJsonReport {
+
+	private static final Pattern NOT_REPORTED = Pattern.compile(".*(/String\\d*|/Info|/Url|Duration.*|Delay.*)$");
+	private static final Set<String> INTERNAL = Set.of(
+		"Count",
+		"Status",
+		"StreamKind",
+		"StreamKindID",
+		"StreamKindPos",
+		"Inform",
+		"Cover_Data",
+		"Chapters_Pos_Begin",
+		"Chapters_Pos_End"
+	);
+
+	private final Map<StreamKind, List<Map<String, String>>> tracks = new EnumMap<>(StreamKind.class);
+
+	private MediaInfoJsonReport() {
+	}
+
+	/**
+	 * Gets a raw property from the report.
+	 *
+	 * @param streamKind the kind of stream.
+	 * @param streamNumber the stream number within its kind.
+	 * @param parameter the MediaInfo parameter name, as passed to
+	 *            {@link MediaInfoHelper#get(StreamKind, int, String)}.
+	 * @return the value, an empty string if the stream has no such value, or
+	 *         {@code null} if the report can't answer and the library must be
+	 *         asked.
+	 */
+	public String get(StreamKind streamKind, int streamNumber, String parameter) {
+		List<Map<String, String>> kindTracks = tracks.get(streamKind);
+		if ("StreamCount".equals(parameter)) {
+			return kindTracks == null ? "" : Integer.toString(kindTracks.size());
+		}
+		if (INTERNAL.contains(parameter) || NOT_REPORTED.matcher(parameter).matches()) {
+			return null;
+		}
+		if (kindTracks == null || streamNumber < 0 || streamNumber >= kindTracks.size()) {
+			return "";
+		}
+		String value = kindTracks.get(streamNumber).get(toReportKey(parameter));
+		return value == null ? "" : value;
+	}
+
+	/**
+	 * MediaInfo names the report fields after the parameters, without
+	 * parentheses and with slashes replaced, e.g. "Channel(s)" is reported as
+	 * "Channels" and "Track/Position" as "Track_Position".
+	 */
+	static String toReportKey(String parameter) {
+		if (parameter.indexOf('/') < 0 && parameter.indexOf('(') < 0) {
+			return parameter;
+		}
+		return parameter.replace("(", "").replace(")", "").replace('/', '_');
+	}
+
+	/**
+	 * Reads a MediaInfo JSON report.
+	 *
+	 * @param json the output of {@link MediaInfoHelper#inform()} with
+	 *            {@code Output=JSON}.
+	 * @return the report, or {@code null} if it has no media.
+	 * @throws IOException if the report is not valid JSON.
+	 */
+	public static MediaInfoJsonReport parse(String json) throws IOException {
+		if (json == null || json.isBlank()) {
+			return null;
+		}
+		MediaInfoJsonReport report = null;
+		try (JsonReader reader = new JsonReader(new StringReader(json))) {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if ("media".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+					report = new MediaInfoJsonReport();
+					report.readMedia(reader);
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		}
+		return report;
+	}
+
+	private void readMedia(JsonReader reader) throws IOException {
+		reader.beginObject();
+		while (reader.hasNext()) {
+			if (!"track".equals(reader.nextName())) {
+				reader.skipValue();
+			} else if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+				reader.beginArray();
+				while (reader.hasNext()) {
+					readTrack(reader);
+				}
+				reader.endArray();
+			} else if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+				readTrack(reader);
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+	}
+
+	private void readTrack(JsonReader reader) throws IOException {
+		if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+			reader.skipValue();
+			return;
+		}
+		Map<String, String> values = new HashMap<>();
+		String type = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if ("@type".equals(name) && reader.peek() == JsonToken.STRING) {
+				type = reader.nextString();
+			} else if ("extra".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+				// Tags MediaInfo does not know, like "ALBUM_ARTISTS"
+				reader.beginObject();
+				while (reader.hasNext()) {
+					readValue(reader, reader.nextName(), values, false);
+				}
+				reader.endObject();
+			} else {
+				readValue(reader, name, values, true);
+			}
+		}
+		reader.endObject();
+
+		StreamKind streamKind = toStreamKind(type);
+		if (streamKind != null) {
+			tracks.computeIfAbsent(streamKind, kind -> new ArrayList<>()).add(values);
+		}
+	}
+
+	private static void readValue(JsonReader reader, String name, Map<String, String> values, boolean replace) throws IOException {
+		JsonToken token = reader.peek();
+		if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+			String value = reader.nextString();
+			if (replace) {
+				values.put(name, value);
+			} else {
+				values.putIfAbsent(name, value);
+			}
+		} else {
+			reader.skipValue();
+		}
+	}
+
+	private static StreamKind toStreamKind(String type) {
+		if (type == null) {
+			return null;
+		}
+		return switch (type) {
+			case "General" -> StreamKind.GENERAL;
+			case "Video" -> StreamKind.VIDEO;
+			case "Audio" -> StreamKind.AUDIO;
+			case "Text" -> StreamKind.TEXT;
+			case "Other" -> StreamKind.OTHER;
+			case "Image" -> StreamKind.IMAGE;
+			case "Menu" -> StreamKind.MENU;
+			default -> null;
+		};
+	}
+
+}
@@ -0,0 +1,152 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import net.pms.util.FileUtil;
+import net.pms.util.SimpleThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Waits for created or modified files to be fully written before handing them
+ * over.
+ *
+ * A single thread checks all the pending files at a fixed interval. A file is
+ * settled when its size and modification date did not change since the
+ * previous check and it is not locked by another process. A new event for a
+ * pending file only restarts its wait.
+ */
+public class FileSettleTracker {
+	private static final Logger LOGGER = LoggerFactory.getLogger(FileSettleTracker.class);
+
+	private final ScheduledThreadPoolExecutor executor;
+	private final Map<String, PendingFile> pending = new LinkedHashMap<>();
+	private final BiConsumer<File, Boolean> listener;
+
+	/**
+	 * @param interval the interval between two checks, in milliseconds.
+	 * @param listener called from the tracker thread with each settled file
+	 *            and whether it was tracked as a new file, it should not do
+	 *            long running work.
+	 */
+	public FileSettleTracker(long interval, BiConsumer<File, Boolean> listener) {
+		this.listener = listener;
+		executor = new ScheduledThreadPoolExecutor(1, new SimpleThreadFactory("File Settle Tracker"));
+		executor.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Tracks a file until it is settled.
+	 *
+	 * @param file the file.
+	 * @param created whether the file is new, kept if the file is already
+	 *            tracked.
+	 */
+	public void track(File file, boolean created) {
+		String filename = file.getAbsolutePath();
+		synchronized (pending) {
+			PendingFile pendingFile = pending.get(filename);
+			if (pendingFile == null) {
+				pending.put(filename, new PendingFile(file, created));
+			} else {
+				pendingFile.created |= created;
+				pendingFile.update();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of files waiting to be settled.
+	 */
+	public int getPendingCount() {
+		synchronized (pending) {
+			return pending.size();
+		}
+	}
+
+	/**
+	 * Stops the tracker, the pending files are dropped.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+		synchronized (pending) {
+			pending.clear();
+		}
+	}
+
+	private void check() {
+		Map<File, Boolean> settled = new LinkedHashMap<>();
+		synchronized (pending) {
+			Iterator<PendingFile> iterator = pending.values().iterator();
+			while (iterator.hasNext()) {
+				PendingFile pendingFile = iterator.next();
+				File file = pendingFile.file;
+				if (!file.exists()) {
+					LOGGER.debug("File {} does not more exists", file);
+					iterator.remove();
+					continue;
+				}
+				if (!pendingFile.update() && !FileUtil.isLocked(file)) {
+					iterator.remove();
+					settled.put(file, pendingFile.created);
+				} else {
+					LOGGER.trace("Waiting file {} is fully written", file);
+				}
+			}
+		}
+		for (Map.Entry<File, Boolean> entry : settled.entrySet()) {
+			try {
+				listener.accept(entry.getKey(), entry.getValue());
+			} catch (RuntimeException e) {
+				LOGGER.debug("Error handling settled file {}: {}", entry.getKey(), e.getMessage());
+				LOGGER.trace("", e);
+			}
+		}
+	}
+
+	private static class PendingFile {
+		private final File file;
+		private boolean created;
+		private long length;
+		private long lastModified;
+
+		private PendingFile(File file, boolean created) {
+			this.file = file;
+			this.created = created;
+			update();
+		}
+
+		/**
+		 * @return whether the size or the modification date changed.
+		 */
+		private boolean update() {
+			long previousLength = length;
+			long previousLastModified = lastModified;
+			length = file.length();
+			lastModified = file.lastModified();
+			return length != previousLength || lastModified != previousLastModified;
+		}
+	}
+
+}
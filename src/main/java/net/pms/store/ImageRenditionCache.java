@@ -0,0 +1,126 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.image.Image;
+import net.pms.store.item.RealFile;
+
+/**
+ * A bounded in-memory cache of the images converted for renderers and the web
+ * player.
+ *
+ * A rendition is an image file decoded, resized and re-encoded for a target,
+ * like a {@link net.pms.dlna.DLNAImageProfile}. The keys embed the file path,
+ * size and modification time, so a rendition is never served for a file that
+ * has changed since. The least recently used renditions are dropped to keep
+ * the cache under {@link UmsConfiguration#getImageRenditionCacheSize()}.
+ */
+public class ImageRenditionCache {
+	private static final UmsConfiguration CONFIGURATION = PMS.getConfiguration();
+	private static final LinkedHashMap<String, Image> RENDITIONS = new LinkedHashMap<>(64, 0.75f, true);
+	private static long cachedBytes;
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private ImageRenditionCache() {
+	}
+
+	/**
+	 * Returns the cache key of a rendition of an item.
+	 *
+	 * @param item the image item.
+	 * @param rendition the description of the conversion target.
+	 * @return The cache key, or {@code null} if the renditions of this item
+	 *         can't be cached.
+	 */
+	public static String getKey(StoreItem item, String rendition) {
+		if (!(item instanceof RealFile realFile) || CONFIGURATION.getImageRenditionCacheSize() == 0) {
+			return null;
+		}
+		File file = realFile.getFile();
+		if (file == null || !file.isFile()) {
+			return null;
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append(file.getAbsolutePath()).append('|');
+		sb.append(file.length()).append('|').append(file.lastModified()).append('|');
+		sb.append(item.isTranscoded() ? "transcoded" : "direct").append('|');
+		sb.append(rendition);
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a cached rendition.
+	 *
+	 * @param key the rendition key, or {@code null}.
+	 * @return The cached {@link Image} or {@code null}.
+	 */
+	public static Image get(String key) {
+		if (key == null) {
+			return null;
+		}
+		synchronized (RENDITIONS) {
+			return RENDITIONS.get(key);
+		}
+	}
+
+	/**
+	 * Adds a rendition to the cache.
+	 *
+	 * @param key the rendition key, or {@code null}.
+	 * @param image the converted image.
+	 */
+	public static void put(String key, Image image) {
+		long quota = CONFIGURATION.getImageRenditionCacheSize() * 1024L * 1024L;
+		if (key == null || image == null || image.getBytes(false).length > quota / 4) {
+			return;
+		}
+		synchronized (RENDITIONS) {
+			Image previous = RENDITIONS.put(key, image);
+			if (previous != null) {
+				cachedBytes -= previous.getBytes(false).length;
+			}
+			cachedBytes += image.getBytes(false).length;
+			Iterator<Map.Entry<String, Image>> iterator = RENDITIONS.entrySet().iterator();
+			while (cachedBytes > quota && iterator.hasNext()) {
+				Map.Entry<String, Image> entry = iterator.next();
+				if (!entry.getKey().equals(key)) {
+					iterator.remove();
+					cachedBytes -= entry.getValue().getBytes(false).length;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Drops all the cached renditions.
+	 */
+	public static void clear() {
+		synchronized (RENDITIONS) {
+			RENDITIONS.clear();
+			cachedBytes = 0;
+		}
+	}
+
+}
@@ -0,0 +1,256 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.pms.formats.Format;
+import net.pms.formats.FormatFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The shared folders content, common to all renderers.
+ *
+ * Each renderer has its own store containers, which only apply its own
+ * choices to the content. Listing a folder on the disk and sorting out its
+ * media files, thumbnails and covers is done once for all of them, and again
+ * only when the folder is modified. The parsed media are shared in the same
+ * way by {@link MediaInfoStore}.
+ *
+ * Only the most recently used listings are kept, the others are listed again
+ * when a renderer browses them.
+ */
+public class LibraryTree {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LibraryTree.class);
+	static final int MAX_DIRECTORIES = 1024;
+	private static final Map<String, Directory> DIRECTORIES = new LinkedHashMap<>(MAX_DIRECTORIES, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Directory> eldest) {
+			return size() > MAX_DIRECTORIES;
+		}
+	};
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private LibraryTree() {
+	}
+
+	/**
+	 * Returns the content of a directory, listing it only if it was modified
+	 * since the last time.
+	 *
+	 * @param directory the directory.
+	 * @param ignoredFolderNames the names of the sub directories to ignore.
+	 * @return the directory content, or {@code null} if it is not a readable
+	 *         directory.
+	 */
+	public static Directory getDirectory(File directory, List<String> ignoredFolderNames) {
+		if (directory == null) {
+			return null;
+		}
+		String path = directory.getAbsolutePath();
+		long lastModified = directory.lastModified();
+		synchronized (DIRECTORIES) {
+			Directory cached = DIRECTORIES.get(path);
+			if (cached != null && cached.lastModified == lastModified && lastModified != 0 &&
+					cached.ignoredFolderNames.equals(ignoredFolderNames)) {
+				return cached;
+			}
+		}
+		if (!directory.isDirectory()) {
+			LOGGER.trace("Ignoring {} because it is not a valid directory", directory.getName());
+			invalidate(directory);
+			return null;
+		}
+		if (!directory.canRead()) {
+			LOGGER.warn("Can't read directory: {}", path);
+			return null;
+		}
+		Directory listed = list(directory, lastModified, ignoredFolderNames);
+		if (listed != null) {
+			synchronized (DIRECTORIES) {
+				DIRECTORIES.put(path, listed);
+			}
+		}
+		return listed;
+	}
+
+	/**
+	 * Forgets the content of a directory, it will be listed again on the next
+	 * request.
+	 *
+	 * @param directory the directory.
+	 */
+	public static void invalidate(File directory) {
+		if (directory != null) {
+			synchronized (DIRECTORIES) {
+				DIRECTORIES.remove(directory.getAbsolutePath());
+			}
+		}
+	}
+
+	/**
+	 * Forgets the content of a directory and of its sub directories.
+	 *
+	 * @param directory the directory.
+	 */
+	public static void invalidateTree(File directory) {
+		if (directory == null) {
+			return;
+		}
+		String path = directory.getAbsolutePath();
+		String prefix = path.endsWith(File.separator) ? path : path + File.separator;
+		synchronized (DIRECTORIES) {
+			DIRECTORIES.keySet().removeIf(key -> key.equals(path) || key.startsWith(prefix));
+		}
+	}
+
+	/**
+	 * Forgets the content of all the directories.
+	 */
+	public static void clear() {
+		synchronized (DIRECTORIES) {
+			DIRECTORIES.clear();
+		}
+	}
+
+	/**
+	 * @return the number of directories known.
+	 */
+	public static int size() {
+		synchronized (DIRECTORIES) {
+			return DIRECTORIES.size();
+		}
+	}
+
+	private static Directory list(File directory, long lastModified, List<String> ignoredFolderNames) {
+		File[] entries = directory.listFiles();
+		if (entries == null) {
+			LOGGER.warn("Can't read files from directory: {}", directory.getAbsolutePath());
+			return null;
+		}
+		List<File> folders = new ArrayList<>();
+		List<File> files = new ArrayList<>();
+		File potentialCover = null;
+		Set<File> images = new HashSet<>();
+		Set<File> audioVideo = new HashSet<>();
+		for (File entry : entries) {
+			if (!entry.canRead()) {
+				continue;
+			}
+			if (entry.isDirectory()) {
+				// Skip if ignored
+				if (!ignoredFolderNames.isEmpty() && ignoredFolderNames.contains(entry.getName())) {
+					LOGGER.debug("Ignoring {} because it is in the ignored directories list", entry.getName());
+				} else {
+					folders.add(entry);
+				}
+				continue;
+			}
+			// We want to find only media files
+			if (!SystemFilesHelper.isPotentialMediaFile(entry.getName())) {
+				continue;
+			}
+			if (!entry.isFile()) {
+				continue;
+			}
+			if (SystemFilesHelper.isPotentialThumbnail(entry.getName())) {
+				if (SystemFilesHelper.isFolderThumbnail(entry, false)) {
+					potentialCover = entry;
+					continue;
+				}
+				images.add(entry);
+			} else {
+				Format format = FormatFactory.getAssociatedFormat(entry.getAbsolutePath());
+				if (format != null && (format.isAudio() || format.isVideo())) {
+					audioVideo.add(entry);
+				}
+			}
+			files.add(entry);
+		}
+
+		// Remove cover/thumbnails from file list
+		if (!images.isEmpty() && !audioVideo.isEmpty()) {
+			for (File audioVideoFile : audioVideo) {
+				Set<File> potentialMatches = SystemFilesHelper.getPotentialFileThumbnails(audioVideoFile, false);
+				Iterator<File> iterator = images.iterator();
+				while (iterator.hasNext()) {
+					File imageFile = iterator.next();
+					if (potentialMatches.contains(imageFile)) {
+						iterator.remove();
+						files.remove(imageFile);
+					}
+				}
+			}
+		}
+		return new Directory(lastModified, List.copyOf(ignoredFolderNames), folders, files, potentialCover);
+	}
+
+	/**
+	 * The content of a directory at the time it was listed.
+	 */
+	public static class Directory {
+		private final long lastModified;
+		private final List<String> ignoredFolderNames;
+		private final List<File> folders;
+		private final List<File> files;
+		private final File potentialCover;
+
+		private Directory(long lastModified, List<String> ignoredFolderNames, List<File> folders, List<File> files, File potentialCover) {
+			this.lastModified = lastModified;
+			this.ignoredFolderNames = ignoredFolderNames;
+			this.folders = Collections.unmodifiableList(folders);
+			this.files = Collections.unmodifiableList(files);
+			this.potentialCover = potentialCover;
+		}
+
+		/**
+		 * @return the readable sub directories not ignored.
+		 */
+		public List<File> getFolders() {
+			return folders;
+		}
+
+		/**
+		 * @return the potential media files, without the cover and the
+		 *         thumbnails of the other files.
+		 */
+		public List<File> getFiles() {
+			return files;
+		}
+
+		/**
+		 * @return the folder thumbnail, if any.
+		 */
+		public File getPotentialCover() {
+			return potentialCover;
+		}
+	}
+
+}
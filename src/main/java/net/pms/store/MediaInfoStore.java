@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -111,6 +112,56 @@ public class MediaInfoStore {
 		return null;
 	}
 
+	/**
+	 * Loads in a fixed number of queries the stored {@link MediaInfo} of
+	 * files about to be resolved, so that resolving them does not query the
+	 * database file by file.
+	 *
+	 * The store only keeps weak references, the caller should hold the
+	 * returned map until the files are resolved.
+	 *
+	 * @param files the files.
+	 * @return the {@link MediaInfo} loaded by full path.
+	 */
+	public static Map<String, MediaInfo> preloadMediaInfos(Collection<File> files) {
+		Map<String, MediaInfo> result = new HashMap<>();
+		Map<String, Long> filenamesModified = new HashMap<>();
+		for (File file : files) {
+			if (file.isFile()) {
+				String filename = file.getAbsolutePath();
+				if (getMediaInfoStored(filename) == null) {
+					filenamesModified.put(filename, file.lastModified());
+				}
+			}
+		}
+		if (filenamesModified.size() < 2) {
+			return result;
+		}
+		Connection connection = null;
+		try {
+			connection = MediaDatabase.getConnectionIfAvailable();
+			if (connection != null) {
+				for (Map.Entry<String, MediaInfo> entry : MediaTableFiles.getMediaInfos(connection, filenamesModified).entrySet()) {
+					MediaInfo mediaInfo = entry.getValue();
+					if (mediaInfo.isMediaParsed() && mediaInfo.getMimeType() != null) {
+						synchronized (getLock(entry.getKey())) {
+							if (getMediaInfoStored(entry.getKey()) == null) {
+								storeMediaInfo(entry.getKey(), mediaInfo);
+								result.put(entry.getKey(), mediaInfo);
+							}
+						}
+					}
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.debug("Error while preloading cached information about {} files: {}", filenamesModified.size(), e.getMessage());
+			LOGGER.trace("", e);
+		} finally {
+			MediaDatabase.close(connection);
+		}
+		return result;
+	}
+
 	public static MediaInfo getMediaInfo(String filename, File file, Format format, int type) {
 		Object lock = getLock(filename);
 		synchronized (lock) {
@@ -0,0 +1,364 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.database.MediaDatabase;
+import net.pms.database.MediaTableFiles;
+import net.pms.formats.Format;
+import net.pms.formats.FormatFactory;
+import net.pms.util.FileUtil;
+import net.pms.util.SimpleThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parses the media files of the shared folders in parallel.
+ *
+ * The directories are walked by a fork/join pool, and the audio and video
+ * files are parsed on one bounded pool per disk: a few threads on rotational
+ * disks to limit seeking, one per core on the others. The files already
+ * parsed with the same size and modification date are skipped.
+ *
+ * This runs before the media store tree is built, which then finds every
+ * file already parsed in the database.
+ */
+public class MediaScanEngine {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MediaScanEngine.class);
+	private static final UmsConfiguration CONFIGURATION = PMS.getConfiguration();
+	private static final int ROTATIONAL_DISK_THREADS = 2;
+	private static final int QUEUED_FILES_PER_THREAD = 16;
+
+	private final BooleanSupplier running;
+	private final Function<Collection<File>, Set<String>> upToDateFilter;
+	private final Consumer<File> parser;
+	private final Map<Object, ThreadPoolExecutor> executors = new ConcurrentHashMap<>();
+	private final Set<Path> visited = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger parsedCount = new AtomicInteger();
+	private final AtomicInteger skippedCount = new AtomicInteger();
+
+	/**
+	 * @param running checked between files, the scan stops once it returns
+	 *            {@code false}.
+	 */
+	public MediaScanEngine(BooleanSupplier running) {
+		this(running, MediaScanEngine::getUpToDateFilenames, MediaScanEngine::parse);
+	}
+
+	MediaScanEngine(BooleanSupplier running, Function<Collection<File>, Set<String>> upToDateFilter, Consumer<File> parser) {
+		this.running = running;
+		this.upToDateFilter = upToDateFilter;
+		this.parser = parser;
+	}
+
+	/**
+	 * Parses the media files in the given folders and their sub folders.
+	 *
+	 * Returns when all the files are parsed or the scan was stopped.
+	 *
+	 * @param folders the folders.
+	 */
+	public void scan(List<File> folders) {
+		long start = System.currentTimeMillis();
+		ForkJoinPool walker = new ForkJoinPool(Math.min(UmsConfiguration.getNumberOfSystemCpuCores(), 4));
+		try {
+			List<DirectoryTask> tasks = new ArrayList<>();
+			for (File folder : folders) {
+				if (folder != null && folder.isDirectory()) {
+					tasks.add(new DirectoryTask(folder));
+				}
+			}
+			walker.invoke(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		} finally {
+			walker.shutdown();
+			awaitExecutors();
+		}
+		LOGGER.debug("Parsed {} files and skipped {} up to date files in {} ms", parsedCount.get(), skippedCount.get(),
+				System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * @return the number of files parsed.
+	 */
+	public int getParsedCount() {
+		return parsedCount.get();
+	}
+
+	/**
+	 * @return the number of files skipped because already parsed.
+	 */
+	public int getSkippedCount() {
+		return skippedCount.get();
+	}
+
+	private void awaitExecutors() {
+		for (ThreadPoolExecutor executor : executors.values()) {
+			executor.shutdown();
+		}
+		for (ThreadPoolExecutor executor : executors.values()) {
+			try {
+				while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+					if (!running.getAsBoolean()) {
+						executor.shutdownNow();
+					}
+				}
+			} catch (InterruptedException e) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void submit(File file) {
+		getExecutor(file).execute(() -> {
+			if (!running.getAsBoolean()) {
+				return;
+			}
+			try {
+				// let the renderers browse first
+				MediaStore.waitWorkers();
+				parser.accept(file);
+				parsedCount.incrementAndGet();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (RuntimeException e) {
+				LOGGER.debug("Error while parsing \"{}\": {}", file, e.getMessage());
+				LOGGER.trace("", e);
+			}
+		});
+	}
+
+	private ThreadPoolExecutor getExecutor(File file) {
+		Object disk;
+		try {
+			disk = Files.getFileStore(file.toPath());
+		} catch (IOException e) {
+			disk = "";
+		}
+		return executors.computeIfAbsent(disk, key -> {
+			int threads = CONFIGURATION.getScanThreads();
+			if (threads == 0) {
+				threads = key instanceof FileStore fileStore && isRotational(fileStore) ?
+					ROTATIONAL_DISK_THREADS :
+					UmsConfiguration.getNumberOfSystemCpuCores();
+			}
+			LOGGER.debug("Parsing media files of {} on {} threads", key, threads);
+			return newExecutor(threads);
+		});
+	}
+
+	private boolean isCandidate(File file) {
+		if (!SystemFilesHelper.isPotentialMediaFile(file.getName()) || !file.isFile()) {
+			return false;
+		}
+		if (CONFIGURATION.isUseSymlinksTargetFile() && FileUtil.isSymbolicLink(file)) {
+			// stored under the target name, left to the store
+			return false;
+		}
+		Format format = FormatFactory.getAssociatedFormat(file.getAbsolutePath());
+		return format != null && (format.getType() == Format.AUDIO || format.getType() == Format.VIDEO);
+	}
+
+	/**
+	 * Returns a bounded executor, the submitting thread parses the file itself
+	 * when the queue is full.
+	 *
+	 * @param threads the number of threads.
+	 * @return the executor.
+	 */
+	static ThreadPoolExecutor newExecutor(int threads) {
+		return newExecutor(threads, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * Returns a bounded executor, the submitting thread waits for room in the
+	 * queue when it is full. For submitters that must not parse files
+	 * themselves.
+	 *
+	 * @param threads the number of threads.
+	 * @return the executor.
+	 */
+	static ThreadPoolExecutor newBlockingExecutor(int threads) {
+		return newExecutor(threads, (Runnable r, ThreadPoolExecutor executor) -> {
+			if (executor.isShutdown()) {
+				throw new RejectedExecutionException("Executor is shut down");
+			}
+			try {
+				// the queue is only full while all the threads run
+				executor.getQueue().put(r);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException(e);
+			}
+		});
+	}
+
+	private static ThreadPoolExecutor newExecutor(int threads, RejectedExecutionHandler handler) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(
+			threads,
+			threads,
+			30,
+			TimeUnit.SECONDS,
+			new ArrayBlockingQueue<>(threads * QUEUED_FILES_PER_THREAD),
+			new SimpleThreadFactory("Media Scanner Parser", "Media Scanner Parsers group", Thread.MIN_PRIORITY, true),
+			handler
+		);
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Returns whether a file store is on a rotational disk. This is only known
+	 * on Linux, other systems are reported as non rotational.
+	 *
+	 * @param fileStore the file store.
+	 * @return {@code true} if the disk is rotational.
+	 */
+	static boolean isRotational(FileStore fileStore) {
+		String name = fileStore.name();
+		if (name == null || !name.startsWith("/dev/")) {
+			return false;
+		}
+		try {
+			Path device = Paths.get("/sys/class/block", name.substring(name.lastIndexOf('/') + 1)).toRealPath();
+			Path rotational = device.resolve("queue/rotational");
+			if (!Files.exists(rotational)) {
+				// a partition, the queue belongs to the disk
+				rotational = device.getParent().resolve("queue/rotational");
+			}
+			return "1".equals(Files.readString(rotational).trim());
+		} catch (IOException | RuntimeException e) {
+			return false;
+		}
+	}
+
+	private static Set<String> getUpToDateFilenames(Collection<File> files) {
+		Connection connection = null;
+		try {
+			connection = MediaDatabase.getConnectionIfAvailable();
+			if (connection != null) {
+				return MediaTableFiles.getUpToDateFilenames(connection, files);
+			}
+		} catch (SQLException e) {
+			LOGGER.debug("Error while checking the parsed files: {}", e.getMessage());
+			LOGGER.trace("", e);
+		} finally {
+			MediaDatabase.close(connection);
+		}
+		return Collections.emptySet();
+	}
+
+	private static void parse(File file) {
+		Format format = FormatFactory.getAssociatedFormat(file.getAbsolutePath());
+		if (format != null) {
+			MediaInfoStore.getMediaInfo(file.getAbsolutePath(), file, format, format.getType());
+		}
+	}
+
+	private class DirectoryTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final transient File directory;
+
+		private DirectoryTask(File directory) {
+			this.directory = directory;
+		}
+
+		@Override
+		protected void compute() {
+			if (!running.getAsBoolean() || !markVisited()) {
+				return;
+			}
+			File[] entries = directory.listFiles();
+			if (entries == null) {
+				LOGGER.debug("Can't read files from directory: {}", directory.getAbsolutePath());
+				return;
+			}
+			List<String> ignoredFolderNames = CONFIGURATION.getIgnoredFolderNames();
+			List<DirectoryTask> subTasks = new ArrayList<>();
+			List<File> files = new ArrayList<>();
+			for (File entry : entries) {
+				if (entry.isDirectory()) {
+					if (!entry.isHidden() && entry.canRead() && !ignoredFolderNames.contains(entry.getName())) {
+						subTasks.add(new DirectoryTask(entry));
+					}
+				} else if (isCandidate(entry)) {
+					files.add(entry);
+				}
+			}
+			if (!files.isEmpty()) {
+				Set<String> upToDate = new HashSet<>(upToDateFilter.apply(files));
+				for (File file : files) {
+					if (!running.getAsBoolean()) {
+						return;
+					}
+					if (upToDate.contains(file.getAbsolutePath())) {
+						skippedCount.incrementAndGet();
+					} else {
+						submit(file);
+					}
+				}
+			}
+			invokeAll(subTasks);
+		}
+
+		/**
+		 * @return {@code false} if the directory was already walked through
+		 *         another link.
+		 */
+		private boolean markVisited() {
+			try {
+				return visited.add(directory.toPath().toRealPath());
+			} catch (IOException e) {
+				return false;
+			}
+		}
+	}
+
+}
@@ -23,6 +23,7 @@ import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.locks.ReentrantLock;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.GuardedBy;
@@ -44,6 +45,7 @@ import net.pms.store.container.PlaylistFolder;
 import net.pms.store.container.RealFolder;
 import net.pms.util.FileUtil;
 import net.pms.util.FileWatcher;
+import net.pms.util.SubtitleUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,12 +61,15 @@ public class MediaScanner implements SharedContentListener {
 	private static final List<String> SHARED_FOLDERS = new ArrayList<>();
 	private static final Renderer RENDERER = MediaScannerDevice.getRenderer();
 	private static final MediaScanner INSTANCE = new MediaScanner();
-	private static final List<String> FILES_PARSING = Collections.synchronizedList(new ArrayList<>());
+	private static final long FILE_SETTLE_INTERVAL = 500;
+	private static final int FILE_PARSER_THREADS = 2;
+	private static final ThreadPoolExecutor FILE_PARSER = MediaScanEngine.newBlockingExecutor(FILE_PARSER_THREADS);
+	private static final FileSettleTracker FILE_SETTLE_TRACKER = new FileSettleTracker(FILE_SETTLE_INTERVAL, MediaScanner::parseSettledFileEntry);
 
 	@GuardedBy("DEFAULT_FOLDERS_LOCK")
 	private static List<String> defaultFolders = null;
 	private static Thread scannerThread;
-	private static boolean running;
+	private static volatile boolean running;
 
 	private MediaScanner() {
 	}
@@ -95,6 +100,7 @@ public class MediaScanner implements SharedContentListener {
 			try {
 				connection = MediaDatabase.getConnectionIfAvailable();
 				if (connection != null) {
+					new MediaScanEngine(() -> running).scan(getScanFolders());
 					scan(RENDERER.getMediaStore());
 					// Running might have been set false during scan
 					if (running) {
@@ -156,6 +162,16 @@ public class MediaScanner implements SharedContentListener {
 		}
 	}
 
+	private static List<File> getScanFolders() {
+		List<File> folders = new ArrayList<>();
+		for (SharedContent sharedContent : SharedContentConfiguration.getSharedContentArray()) {
+			if (sharedContent instanceof FolderContent folder && folder.getFile() != null && folder.isActive()) {
+				folders.add(folder.getFile());
+			}
+		}
+		return folders;
+	}
+
 	private static void reset() {
 		RENDERER.getMediaStore().getChildren().clear();
 		RENDERER.getMediaStore().setDiscovered(false);
@@ -218,6 +234,7 @@ public class MediaScanner implements SharedContentListener {
 	}
 
 	public static void stopMediaScan() {
+		MediaTableFiles.cancelCleanup();
 		if (isMediaScanRunning()) {
 			setRunning(false);
 			GuiManager.setMediaScanStatus(false);
@@ -346,55 +363,29 @@ public class MediaScanner implements SharedContentListener {
 	}
 
 	/**
-	 * Threaded parses a file so it gets parsed and added to the database along the way.
+	 * Parses a file once it is fully written, so it gets parsed and added to
+	 * the database along the way.
 	 *
 	 * @param file the file to parse
+	 * @param advise whether to advise the renderers of the new file
 	 */
 	private static void parseFileEntry(File file, boolean advise) {
-		String filename = file.getAbsolutePath();
-		synchronized (FILES_PARSING) {
-			if (FILES_PARSING.contains(filename)) {
-				//parsing of this file is already in progress
-				return;
-			} else {
-				FILES_PARSING.add(filename);
-			}
+		if (advise) {
+			LOGGER.debug("File {} was created on the hard drive", file.getAbsolutePath());
 		}
-		Runnable r = () -> {
-			try {
-				if (advise) {
-					LOGGER.debug("File {} was created on the hard drive", filename);
-				}
-				long currentSize = file.length();
-				//wait 500 ms
-				Thread.sleep(500);
-				//Check if size changed (copying, downloading)
-				while (file.exists() && (currentSize != file.length() || FileUtil.isLocked(file))) {
-					//loop until file size is not changing anymore and file is unlocked.
-					LOGGER.trace("Waiting file {} is fully written", filename);
-					currentSize = file.length();
-					Thread.sleep(500);
-				}
-				//here the file should be fully written, deleted or moved.
-				synchronized (FILES_PARSING) {
-					FILES_PARSING.remove(filename);
-				}
-				if (file.exists()) {
-					LOGGER.debug("Analyzing file {}", filename);
-					if (parseFileEntry(file) && advise) {
-						//Advise renderers for added file.
-						for (Renderer connectedRenderer : ConnectedRenderers.getConnectedRenderers()) {
-							connectedRenderer.getMediaStore().fileAdded(file);
-						}
-					}
-				} else {
-					LOGGER.debug("File {} does not more exists", filename);
+		FILE_SETTLE_TRACKER.track(file, advise);
+	}
+
+	private static void parseSettledFileEntry(File file, boolean advise) {
+		FILE_PARSER.execute(() -> {
+			LOGGER.debug("Analyzing file {}", file.getAbsolutePath());
+			if (parseFileEntry(file) && advise) {
+				//Advise renderers for added file.
+				for (Renderer connectedRenderer : ConnectedRenderers.getConnectedRenderers()) {
+					connectedRenderer.getMediaStore().fileAdded(file);
 				}
-			} catch (InterruptedException ex) {
-				Thread.currentThread().interrupt();
 			}
-		};
-		new Thread(r, "MediaScanner File Parser").start();
+		});
 	}
 
 	/**
@@ -470,7 +461,7 @@ public class MediaScanner implements SharedContentListener {
 			for (File file : files) {
 				if (file.isFile()) {
 					LOGGER.trace("File {} found in {}", file.getName(), directory.getName());
-					parseFileEntry(file);
+					parseFileEntry(file, false);
 				}
 			}
 		} else {
@@ -507,6 +498,14 @@ public class MediaScanner implements SharedContentListener {
 	 */
 	private static final FileWatcher.Listener MEDIA_RESCANNER = (String filename, String event, FileWatcher.Watch watch, boolean isDir) -> {
 		if ((ENTRY_DELETE.equals(event) || ENTRY_CREATE.equals(event) || ENTRY_MODIFY.equals(event))) {
+			if (!ENTRY_MODIFY.equals(event)) {
+				// the folder content changed for all renderers
+				LibraryTree.invalidate(new File(filename).getParentFile());
+				SubtitleUtils.invalidateFolder(new File(filename).getParentFile());
+				if (isDir) {
+					LibraryTree.invalidateTree(new File(filename));
+				}
+			}
 			/**
 			 * If a new directory is created with files, the listener may not
 			 * give us information about those new files, as it wasn't listening
@@ -0,0 +1,142 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.pms.database.MediaDatabase;
+import net.pms.database.MediaTableFiles;
+import net.pms.database.MediaTableSeekIndexes;
+import net.pms.util.MpegUtil;
+import net.pms.util.SeekIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves the time seek requests of the files streamed without transcoding.
+ *
+ * The {@link SeekIndex} of a file is built on its first time seek and stored
+ * alongside its media row, the recently used ones are also kept in memory.
+ */
+public class MediaSeekIndexStore {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MediaSeekIndexStore.class);
+	private static final int MAX_CACHED = 32;
+	private static final Map<String, CachedSeekIndex> STORE = new LinkedHashMap<>(MAX_CACHED, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CachedSeekIndex> eldest) {
+			return size() > MAX_CACHED;
+		}
+	};
+
+	private MediaSeekIndexStore() {
+		//should not be instantiated
+	}
+
+	/**
+	 * Gets the position of the random access point at or before a given
+	 * time.
+	 *
+	 * @param file the file.
+	 * @param seconds the time in seconds from the start of the file.
+	 * @return the position in bytes.
+	 * @throws IOException
+	 */
+	public static long getPositionForTime(File file, double seconds) throws IOException {
+		SeekIndex seekIndex = getSeekIndex(file);
+		if (seekIndex != null) {
+			return seekIndex.getPosition(seconds);
+		}
+		return MpegUtil.getPositionForTimeInMpeg(file, (int) seconds);
+	}
+
+	/**
+	 * Gets the seek index of a file, building it if needed.
+	 *
+	 * @param file the file.
+	 * @return the seek index, or {@code null} if the file can't be indexed.
+	 */
+	public static SeekIndex getSeekIndex(File file) {
+		String filename = file.getAbsolutePath();
+		long modified = file.lastModified();
+		long size = file.length();
+		synchronized (STORE) {
+			CachedSeekIndex cached = STORE.get(filename);
+			if (cached != null && cached.modified == modified && cached.size == size) {
+				return cached.seekIndex;
+			}
+		}
+
+		SeekIndex seekIndex = null;
+		Connection connection = null;
+		try {
+			connection = MediaDatabase.getConnectionIfAvailable();
+			Long fileId = connection == null ? null : MediaTableFiles.getFileId(connection, filename, modified);
+			if (fileId != null) {
+				seekIndex = MediaTableSeekIndexes.getSeekIndex(connection, fileId, modified, size);
+			}
+			if (seekIndex == null) {
+				long start = System.currentTimeMillis();
+				seekIndex = SeekIndex.parse(file);
+				if (seekIndex != null) {
+					LOGGER.debug("Built the seek index of \"{}\" ({} entries) in {} ms", filename, seekIndex.size(), System.currentTimeMillis() - start);
+					if (fileId != null) {
+						MediaTableSeekIndexes.setSeekIndex(connection, fileId, modified, size, seekIndex);
+					}
+				}
+			}
+		} finally {
+			MediaDatabase.close(connection);
+		}
+
+		synchronized (STORE) {
+			STORE.put(filename, new CachedSeekIndex(seekIndex, modified, size));
+		}
+		return seekIndex;
+	}
+
+	/**
+	 * Drops the seek indexes kept in memory.
+	 */
+	public static void clear() {
+		synchronized (STORE) {
+			STORE.clear();
+		}
+	}
+
+	/**
+	 * A seek index, or {@code null} for a file that can't be indexed, with the
+	 * version of the file it was built from.
+	 */
+	private static final class CachedSeekIndex {
+		private final SeekIndex seekIndex;
+		private final long modified;
+		private final long size;
+
+		private CachedSeekIndex(SeekIndex seekIndex, long modified, long size) {
+			this.seekIndex = seekIndex;
+			this.modified = modified;
+			this.size = size;
+		}
+	}
+
+}
@@ -144,6 +144,7 @@ public class MediaStatusStore {
 			if (connection != null) {
 				MediaTableFilesStatus.setBookmark(connection, filename, userId, bookmark);
 			}
+			MediaStoreIds.incrementUpdateIdForFilename(connection, filename);
 		} finally {
 			MediaDatabase.close(connection);
 		}
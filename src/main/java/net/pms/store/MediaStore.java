@@ -69,8 +69,10 @@ import net.pms.store.item.RealFile;
 import net.pms.store.item.WebAudioStream;
 import net.pms.store.item.WebVideoStream;
 import net.pms.store.utils.IOList;
+import net.pms.store.utils.StoreResourceSorter;
 import net.pms.util.FileUtil;
 import org.apache.commons.lang3.StringUtils;
+import org.jupnp.support.model.SortCriterion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -667,7 +669,7 @@ public class MediaStore extends StoreContainer {
 							ArrayBlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(count);
 
 							if (shouldDoAudioTrackSorting(storeContainer)) {
-								sortChildrenWithAudioElements(storeContainer);
+								sortChildrenWithAudioElements(storeContainer.getChildren());
 							}
 							for (int i = 0; i < storeContainer.getChildren().size(); i++) {
 								final StoreResource child = storeContainer.getChildren().get(i);
@@ -690,6 +692,86 @@ public class MediaStore extends StoreContainer {
 		}
 	}
 
+	/**
+	 * Returns the sorted index of the compatible children of a container.
+	 *
+	 * The index is kept by the container and rebuilt only when its update id
+	 * or its children change, so that paging through a large container does
+	 * not filter and sort all the children for every page. The container is
+	 * still refreshed on every browse, as its children may change without its
+	 * update id.
+	 *
+	 * @param objectId ID of the container.
+	 * @param sortCriteria the sort criteria, may be {@code null}.
+	 * @return the index, or {@code null} if the object is not a container that
+	 *         can be browsed this way.
+	 */
+	public StoreChildrenIndex getChildrenIndex(String objectId, SortCriterion[] sortCriteria) {
+		try {
+			WORKERS.incrementAndGet();
+			if (StringUtils.isEmpty(objectId) || objectId.startsWith(TEMP_TAG)) {
+				return null;
+			}
+
+			StoreResource resource = getResource(objectId);
+			if (resource == null) {
+				String[] ids = StringUtils.substringBefore(objectId, "/").split("\\.");
+				resource = search(ids);
+			}
+
+			if (!(resource instanceof StoreContainer storeContainer) ||
+					(!(resource instanceof CodeEnter) && !isCodeValid(resource)) ||
+					!isRendererAllowed()) {
+				return null;
+			}
+
+			return indexChildren(storeContainer, sortCriteria);
+		} finally {
+			WORKERS.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Refreshes a container if needed, and returns the sorted index of its
+	 * compatible children.
+	 *
+	 * @param storeContainer the container.
+	 * @param sortCriteria the sort criteria, may be {@code null}.
+	 * @return the index.
+	 */
+	static StoreChildrenIndex indexChildren(StoreContainer storeContainer, SortCriterion[] sortCriteria) {
+		// sorting children already in order leaves them and the index as is
+		storeContainer.discover(true);
+		String updateId = MediaStoreIds.getObjectUpdateIdAsString(storeContainer.getLongId());
+		String sortKey = StoreChildrenIndex.getSortKey(sortCriteria);
+		synchronized (storeContainer) {
+			int childrenVersion = storeContainer.getChildrenVersion();
+			StoreChildrenIndex childrenIndex = storeContainer.getChildrenIndex(sortKey);
+			if (childrenIndex != null && childrenIndex.isValid(updateId, childrenVersion)) {
+				return childrenIndex;
+			}
+
+			LOGGER.trace("Indexing children of {} for sort \"{}\"", storeContainer.getSystemName(), sortKey);
+			List<StoreResource> children = new ArrayList<>(storeContainer.getChildren());
+			children.removeIf(Objects::isNull);
+			if (shouldDoAudioTrackSorting(storeContainer)) {
+				sortChildrenWithAudioElements(children);
+			}
+			List<StoreResource> resources = new ArrayList<>(children.size());
+			for (StoreResource child : children) {
+				if (child instanceof StoreContainer || (child instanceof StoreItem item && item.isCompatible())) {
+					resources.add(child);
+				}
+			}
+			if (sortCriteria != null && sortCriteria.length > 0) {
+				StoreResourceSorter.sortResources(resources, sortCriteria);
+			}
+			childrenIndex = new StoreChildrenIndex(updateId, childrenVersion, resources);
+			storeContainer.setChildrenIndex(sortKey, childrenIndex);
+			return childrenIndex;
+		}
+	}
+
 	private StoreResource search(String[] searchIds) {
 		StoreResource resource;
 		for (String searchId : searchIds) {
@@ -922,8 +1004,8 @@ public class MediaStore extends StoreContainer {
 		return audioExists && (numberOfAudioFiles > numberOfOtherFiles);
 	}
 
-	private static void sortChildrenWithAudioElements(StoreContainer resource) {
-		Collections.sort(resource.getChildren(), (StoreResource o1, StoreResource o2) -> {
+	private static void sortChildrenWithAudioElements(List<StoreResource> resources) {
+		Collections.sort(resources, (StoreResource o1, StoreResource o2) -> {
 			if (getDiscNum(o1) == null || getDiscNum(o2) == null || getDiscNum(o1).equals(getDiscNum(o2))) {
 				if (o1 instanceof StoreItem item1 && item1.getFormat() != null && item1.getFormat().isAudio()) {
 					if (o2 instanceof StoreItem item2 && item2.getFormat() != null && item2.getFormat().isAudio()) {
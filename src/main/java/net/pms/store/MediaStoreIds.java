@@ -20,10 +20,17 @@ import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableStoreIds;
+import net.pms.util.SimpleThreadFactory;
 import org.jupnp.model.types.UnsignedIntegerFourBytes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,11 +40,32 @@ import org.slf4j.LoggerFactory;
  *
  * The ContentDirectory service is recommended to ensure the persistence of
  * the object’s @id property values.
+ *
+ * The update ids are kept in memory and read without locking, the changes are
+ * written to the database in batch by a background thread.
  */
 public class MediaStoreIds {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(MediaStoreIds.class);
-	private static final Map<Long, UnsignedIntegerFourBytes> UPDATE_IDS = new HashMap<>();
+	private static final long SYSTEM_ID = -1L;
+	private static final long MAX_UPDATE_ID = 4294967295L;
+	private static final int MAX_CACHED_UPDATE_IDS = 100_000;
+	private static final long FLUSH_DELAY = 500;
+	private static final int RESOURCE_LOCKS_COUNT = 64;
+
+	private static final Map<Long, Long> UPDATE_IDS = new ConcurrentHashMap<>();
+	private static final Map<Long, Long> PENDING_UPDATE_IDS = new ConcurrentHashMap<>();
+	private static final AtomicLong SYSTEM_UPDATE_ID = new AtomicLong();
+	private static final AtomicBoolean FLUSH_SCHEDULED = new AtomicBoolean();
+	private static final Object[] RESOURCE_LOCKS = new Object[RESOURCE_LOCKS_COUNT];
+	private static final ScheduledThreadPoolExecutor FLUSHER = new ScheduledThreadPoolExecutor(1, new SimpleThreadFactory("MediaStoreIds Flusher"));
+	private static volatile boolean systemUpdateIdLoaded;
+
+	static {
+		for (int i = 0; i < RESOURCE_LOCKS_COUNT; i++) {
+			RESOURCE_LOCKS[i] = new Object();
+		}
+	}
 
 	/**
 	 * This class is not meant to be instantiated.
@@ -45,26 +73,33 @@ public class MediaStoreIds {
 	private MediaStoreIds() {
 	}
 
-	public static synchronized Long getMediaStoreResourceId(StoreResource resource) {
+	public static Long getMediaStoreResourceId(StoreResource resource) {
 		if (resource == null) {
 			return null;
 		}
+		// the same resource must not be stored twice
+		Object lock = RESOURCE_LOCKS[Math.floorMod(resource.getSystemName().hashCode(), RESOURCE_LOCKS_COUNT)];
 		//parse db
 		Connection connection = null;
 		try {
 			connection = MediaDatabase.getConnectionIfAvailable();
 			if (connection != null) {
-				//bump systemUpdateId
-				MediaStoreId mediaStoreId = MediaTableStoreIds.getResourceMediaStoreId(connection, resource);
+				MediaStoreId mediaStoreId;
+				synchronized (lock) {
+					mediaStoreId = MediaTableStoreIds.getResourceMediaStoreId(connection, resource);
+				}
 				if (mediaStoreId != null) {
 					long id = mediaStoreId.getId();
 					resource.setLongId(id);
-					if (mediaStoreId.getUpdateId() == 0) {
+					Long pending = PENDING_UPDATE_IDS.get(id);
+					if (pending != null) {
+						mediaStoreId.setUpdateId(pending);
+					} else if (mediaStoreId.getUpdateId() == 0) {
 						//brand new object : set its updateid to next systemUpdateId
 						long updateId = incrementUpdateId(id);
 						mediaStoreId.setUpdateId(updateId);
 					}
-					UPDATE_IDS.put(id, new UnsignedIntegerFourBytes(mediaStoreId.getUpdateId()));
+					cacheUpdateId(id, mediaStoreId.getUpdateId());
 					return id;
 				}
 			}
@@ -166,7 +201,7 @@ public class MediaStoreIds {
 	public static void incrementUpdateIdForFilename(Connection connection, String filename) {
 		List<Long> ids = MediaTableStoreIds.getMediaStoreIdsForName(connection, filename);
 		for (Long id : ids) {
-			incrementUpdateId(connection, id);
+			incrementUpdateId(id);
 		}
 	}
 
@@ -189,29 +224,34 @@ public class MediaStoreIds {
 	 *
 	 * @return The system updated id.
 	 */
-	public static synchronized UnsignedIntegerFourBytes getSystemUpdateId() {
-		if (!UPDATE_IDS.containsKey(-1L)) {
-			UnsignedIntegerFourBytes value = null;
-			Connection connection = null;
-			try {
-				connection = MediaDatabase.getConnectionIfAvailable();
-				if (connection != null) {
-					MediaStoreId mediaStoreId = MediaTableStoreIds.getMediaStoreId(connection, -1L);
-					if (mediaStoreId != null) {
-						value = new UnsignedIntegerFourBytes(mediaStoreId.getUpdateId());
-					} else {
-						value = new UnsignedIntegerFourBytes(0);
-					}
-				}
-				if (value == null) {
-					value = new UnsignedIntegerFourBytes(0);
+	public static UnsignedIntegerFourBytes getSystemUpdateId() {
+		return new UnsignedIntegerFourBytes(getSystemUpdateIdValue());
+	}
+
+	private static long getSystemUpdateIdValue() {
+		if (!systemUpdateIdLoaded) {
+			loadSystemUpdateId();
+		}
+		return SYSTEM_UPDATE_ID.get();
+	}
+
+	private static synchronized void loadSystemUpdateId() {
+		if (systemUpdateIdLoaded) {
+			return;
+		}
+		Connection connection = null;
+		try {
+			connection = MediaDatabase.getConnectionIfAvailable();
+			if (connection != null) {
+				MediaStoreId mediaStoreId = MediaTableStoreIds.getMediaStoreId(connection, SYSTEM_ID);
+				if (mediaStoreId != null) {
+					SYSTEM_UPDATE_ID.set(mediaStoreId.getUpdateId());
 				}
-				UPDATE_IDS.put(-1L, value);
-			} finally {
-				MediaDatabase.close(connection);
 			}
+			systemUpdateIdLoaded = true;
+		} finally {
+			MediaDatabase.close(connection);
 		}
-		return UPDATE_IDS.get(-1L);
 	}
 
 	/**
@@ -219,30 +259,34 @@ public class MediaStoreIds {
 	 *
 	 * @return The object updated id.
 	 */
-	private static synchronized UnsignedIntegerFourBytes getObjectUpdateId(Long id) {
-		if (id == null || id == -1) {
-			return getSystemUpdateId();
+	private static long getObjectUpdateId(Long id) {
+		if (id == null || id == SYSTEM_ID) {
+			return getSystemUpdateIdValue();
+		}
+		Long value = UPDATE_IDS.get(id);
+		if (value != null) {
+			return value;
 		}
-		if (!UPDATE_IDS.containsKey(id)) {
-			UnsignedIntegerFourBytes value = null;
+		value = PENDING_UPDATE_IDS.get(id);
+		if (value == null) {
 			Connection connection = null;
 			try {
 				connection = MediaDatabase.getConnectionIfAvailable();
 				if (connection != null) {
 					MediaStoreId mediaStoreId = MediaTableStoreIds.getMediaStoreId(connection, id);
 					if (mediaStoreId != null && mediaStoreId.getUpdateId() != 0) {
-						value = new UnsignedIntegerFourBytes(mediaStoreId.getUpdateId());
+						value = mediaStoreId.getUpdateId();
 					}
 				}
-				if (value == null) {
-					value = getSystemUpdateId();
-				}
-				UPDATE_IDS.put(id, value);
 			} finally {
 				MediaDatabase.close(connection);
 			}
+			if (value == null) {
+				value = getSystemUpdateIdValue();
+			}
 		}
-		return UPDATE_IDS.get(id);
+		cacheUpdateId(id, value);
+		return value;
 	}
 
 	/**
@@ -251,11 +295,7 @@ public class MediaStoreIds {
 	 * @return The object updated id as string.
 	 */
 	public static String getObjectUpdateIdAsString(Long id) {
-		UnsignedIntegerFourBytes result = getObjectUpdateId(id);
-		if (result == null) {
-			return null;
-		}
-		return result.toString();
+		return Long.toString(getObjectUpdateId(id));
 	}
 
 	/**
@@ -265,7 +305,7 @@ public class MediaStoreIds {
 	 * potentially outdated and has to be refreshed.
 	 * </p>
 	 */
-	public static synchronized void incrementSystemUpdateId() {
+	public static void incrementSystemUpdateId() {
 		incrementUpdateId(null);
 	}
 
@@ -277,35 +317,90 @@ public class MediaStoreIds {
 	 * @param id
 	 * @return
 	 */
-	public static synchronized Long incrementUpdateId(Long id) {
-		long updateId = getSystemUpdateId().increment(false).getValue();
-		if (id != null && id != -1 && UPDATE_IDS.containsKey(id)) {
-			UPDATE_IDS.put(id, new UnsignedIntegerFourBytes(updateId));
+	public static Long incrementUpdateId(Long id) {
+		getSystemUpdateIdValue();
+		long updateId = SYSTEM_UPDATE_ID.updateAndGet(value -> value >= MAX_UPDATE_ID ? 0 : value + 1);
+		PENDING_UPDATE_IDS.merge(SYSTEM_ID, updateId, MediaStoreIds::getLatestUpdateId);
+		if (id != null && id != SYSTEM_ID) {
+			UPDATE_IDS.computeIfPresent(id, (key, value) -> getLatestUpdateId(value, updateId));
+			PENDING_UPDATE_IDS.merge(id, updateId, MediaStoreIds::getLatestUpdateId);
 		}
+		scheduleFlush();
+		return updateId;
+	}
+
+	/**
+	 * Returns the most recent of two update ids.
+	 *
+	 * The update ids wrap around to 0 after {@link #MAX_UPDATE_ID}, so they
+	 * are compared with serial number arithmetic (RFC 1982): the most recent
+	 * is the one less than half the id range ahead of the other.
+	 *
+	 * @param updateId an update id.
+	 * @param otherUpdateId another update id.
+	 * @return the most recent one.
+	 */
+	static long getLatestUpdateId(long updateId, long otherUpdateId) {
+		long distance = Math.floorMod(updateId - otherUpdateId, MAX_UPDATE_ID + 1);
+		return distance <= MAX_UPDATE_ID / 2 ? updateId : otherUpdateId;
+	}
+
+	/**
+	 * Writes the pending update ids to the database.
+	 *
+	 * They are written in the background shortly after a change, this is for
+	 * when they are needed now, like before the database shutdown.
+	 */
+	public static void flush() {
+		if (PENDING_UPDATE_IDS.isEmpty()) {
+			return;
+		}
+		Map<Long, Long> updateIds = new HashMap<>(PENDING_UPDATE_IDS);
 		Connection connection = null;
 		try {
 			connection = MediaDatabase.getConnectionIfAvailable();
-			if (connection != null) {
-				MediaTableStoreIds.setMediaStoreUpdateId(connection, -1, updateId);
-				if (id != null && id != -1) {
-					MediaTableStoreIds.setMediaStoreUpdateId(connection, id, updateId);
-				}
+			if (!MediaTableStoreIds.setMediaStoreUpdateIds(connection, updateIds)) {
+				return;
 			}
 		} finally {
 			MediaDatabase.close(connection);
 		}
-		return updateId;
+		// keep the ones changed since
+		for (Map.Entry<Long, Long> entry : updateIds.entrySet()) {
+			PENDING_UPDATE_IDS.remove(entry.getKey(), entry.getValue());
+		}
+		LOGGER.trace("Stored {} update ids", updateIds.size());
 	}
 
-	private static synchronized void incrementUpdateId(Connection connection, Long id) {
-		if (id != null && id != -1) {
-			long updateId = getSystemUpdateId().increment(false).getValue();
-			if (UPDATE_IDS.containsKey(id)) {
-				UPDATE_IDS.put(id, new UnsignedIntegerFourBytes(updateId));
-			}
-			if (connection != null) {
-				MediaTableStoreIds.setMediaStoreUpdateId(connection, -1, updateId);
-				MediaTableStoreIds.setMediaStoreUpdateId(connection, id, updateId);
+	private static void scheduleFlush() {
+		if (FLUSH_SCHEDULED.compareAndSet(false, true)) {
+			FLUSHER.schedule(() -> {
+				FLUSH_SCHEDULED.set(false);
+				try {
+					flush();
+				} catch (RuntimeException e) {
+					LOGGER.debug("Error while storing the update ids: {}", e.getMessage());
+					LOGGER.trace("", e);
+				}
+				if (!PENDING_UPDATE_IDS.isEmpty()) {
+					scheduleFlush();
+				}
+			}, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Caches an update id, dropping some of the cached ones when full. They
+	 * will be read again from the database when needed.
+	 */
+	private static void cacheUpdateId(long id, long updateId) {
+		UPDATE_IDS.merge(id, updateId, MediaStoreIds::getLatestUpdateId);
+		if (UPDATE_IDS.size() > MAX_CACHED_UPDATE_IDS) {
+			int toRemove = MAX_CACHED_UPDATE_IDS / 10;
+			Iterator<Long> iterator = UPDATE_IDS.keySet().iterator();
+			while (toRemove-- > 0 && iterator.hasNext()) {
+				iterator.next();
+				iterator.remove();
 			}
 		}
 	}
@@ -0,0 +1,170 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import net.pms.database.MediaDatabase;
+import net.pms.database.MediaTableFiles;
+import net.pms.dlna.DLNAThumbnail;
+import net.pms.external.JavaHttpClient;
+import net.pms.media.MediaInfo;
+import net.pms.util.SimpleThreadFactory;
+import net.pms.util.UnknownFormatException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads the localized API posters in the background.
+ *
+ * Reading a {@link MediaInfo} from the database used to download its poster
+ * synchronously, while holding a database connection and the
+ * {@link MediaInfoStore} lock of the file. The readers now only queue the
+ * work here and return the media with its current thumbnail.
+ *
+ * At most {@link #DEFAULT_THREADS} posters are downloaded at once, a failed
+ * download is retried with an exponential backoff. When a poster is stored,
+ * the file thumbnail is updated and its update id incremented so that the
+ * renderers fetch it again.
+ */
+public class PosterLocalizationQueue {
+	private static final Logger LOGGER = LoggerFactory.getLogger(PosterLocalizationQueue.class);
+	private static final int DEFAULT_THREADS = 2;
+	private static final long DEFAULT_RETRY_DELAY = 5000;
+	private static final int DEFAULT_MAX_ATTEMPTS = 4;
+	private static PosterLocalizationQueue instance;
+
+	private final ScheduledThreadPoolExecutor executor;
+	private final Map<Long, CompletableFuture<Boolean>> pending = new ConcurrentHashMap<>();
+	private final long retryDelay;
+	private final int maxAttempts;
+
+	PosterLocalizationQueue(int threads, long retryDelay, int maxAttempts) {
+		this.retryDelay = retryDelay;
+		this.maxAttempts = maxAttempts;
+		executor = new ScheduledThreadPoolExecutor(
+			threads,
+			new SimpleThreadFactory("Poster localization worker", "Poster localization workers group", Thread.MIN_PRIORITY)
+		);
+	}
+
+	public static synchronized PosterLocalizationQueue getInstance() {
+		if (instance == null) {
+			instance = new PosterLocalizationQueue(DEFAULT_THREADS, DEFAULT_RETRY_DELAY, DEFAULT_MAX_ATTEMPTS);
+		}
+		return instance;
+	}
+
+	/**
+	 * Queues the localization of the poster of a media.
+	 *
+	 * A media already queued is not queued again.
+	 *
+	 * @param filename the full path of the media.
+	 * @param media the media, its thumbnail is updated when the poster is
+	 *            stored.
+	 * @param posterUri the URI of the localized poster.
+	 * @return a future completed with whether the poster was stored.
+	 */
+	public CompletableFuture<Boolean> submit(String filename, MediaInfo media, String posterUri) {
+		Long fileId = media.getFileId();
+		if (fileId == null || posterUri == null) {
+			return CompletableFuture.completedFuture(false);
+		}
+		CompletableFuture<Boolean> result = new CompletableFuture<>();
+		CompletableFuture<Boolean> previous = pending.putIfAbsent(fileId, result);
+		if (previous != null) {
+			return previous;
+		}
+		result.whenComplete((stored, e) -> pending.remove(fileId));
+		executor.execute(() -> run(filename, media, posterUri, 1, result));
+		return result;
+	}
+
+	/**
+	 * @return the number of media queued or being localized.
+	 */
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * Stops the download threads, queued work is dropped.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+		pending.values().forEach(future -> future.complete(false));
+	}
+
+	private void run(String filename, MediaInfo media, String posterUri, int attempt, CompletableFuture<Boolean> result) {
+		DLNAThumbnail thumbnail;
+		try {
+			thumbnail = JavaHttpClient.downloadThumbnail(posterUri);
+		} catch (UnknownFormatException e) {
+			LOGGER.debug("Could not read poster from \"{}\": {}", posterUri, e.getMessage());
+			result.complete(false);
+			return;
+		} catch (IOException e) {
+			if (attempt >= maxAttempts || executor.isShutdown()) {
+				LOGGER.debug("Giving up downloading poster from \"{}\" after {} attempts: {}", posterUri, attempt, e.getMessage());
+				result.complete(false);
+				return;
+			}
+			long delay = retryDelay << (attempt - 1);
+			LOGGER.trace("Retrying download of poster from \"{}\" in {} ms: {}", posterUri, delay, e.getMessage());
+			executor.schedule(() -> run(filename, media, posterUri, attempt + 1, result), delay, TimeUnit.MILLISECONDS);
+			return;
+		} catch (RuntimeException e) {
+			LOGGER.debug("Error downloading poster from \"{}\": {}", posterUri, e.getMessage());
+			LOGGER.trace("", e);
+			result.complete(false);
+			return;
+		}
+		result.complete(thumbnail != null && store(filename, media, thumbnail));
+	}
+
+	private static boolean store(String filename, MediaInfo media, DLNAThumbnail thumbnail) {
+		Long thumbnailId = ThumbnailStore.getId(thumbnail);
+		if (thumbnailId == null) {
+			return false;
+		}
+		Connection connection = null;
+		try {
+			connection = MediaDatabase.getConnectionIfAvailable();
+			if (connection == null) {
+				return false;
+			}
+			MediaTableFiles.updateThumbnailId(connection, media.getFileId(), thumbnailId, ThumbnailSource.TMDB_LOC.toString());
+			boolean changed = !Objects.equals(thumbnailId, media.getThumbnailId());
+			media.setThumbnailId(thumbnailId);
+			media.setThumbnailSource(ThumbnailSource.TMDB_LOC);
+			if (changed) {
+				MediaStoreIds.incrementUpdateIdForFilename(connection, filename);
+			}
+			return true;
+		} finally {
+			MediaDatabase.close(connection);
+		}
+	}
+
+}
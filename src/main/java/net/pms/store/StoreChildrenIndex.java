@@ -0,0 +1,92 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import org.jupnp.support.model.SortCriterion;
+
+/**
+ * The compatible children of a container, sorted by a sort criteria.
+ *
+ * Renderers browse large containers a page at a time. The index is built
+ * once, then every page is served from it until the container update id or
+ * its children change.
+ *
+ * @see MediaStore#getChildrenIndex(String, SortCriterion[])
+ */
+public class StoreChildrenIndex {
+
+	private final String updateId;
+	private final int childrenVersion;
+	private final List<StoreResource> resources;
+
+	StoreChildrenIndex(String updateId, int childrenVersion, List<StoreResource> resources) {
+		this.updateId = updateId;
+		this.childrenVersion = childrenVersion;
+		this.resources = resources;
+	}
+
+	boolean isValid(String updateId, int childrenVersion) {
+		return this.childrenVersion == childrenVersion && Objects.equals(this.updateId, updateId);
+	}
+
+	/**
+	 * @return the number of compatible children.
+	 */
+	public int size() {
+		return resources.size();
+	}
+
+	/**
+	 * Returns a page of the sorted children.
+	 *
+	 * @param fromIndex the index of the first child.
+	 * @param count the maximum number of children, 0 for all the remaining
+	 *            ones.
+	 * @return the children, empty if {@code fromIndex} is out of range.
+	 */
+	public List<StoreResource> getWindow(int fromIndex, int count) {
+		if (fromIndex < 0 || fromIndex >= resources.size()) {
+			return Collections.emptyList();
+		}
+		int toIndex = count == 0 ? resources.size() : (int) Math.min((long) fromIndex + count, resources.size());
+		return Collections.unmodifiableList(resources.subList(fromIndex, toIndex));
+	}
+
+	/**
+	 * Returns the key of a sort criteria.
+	 *
+	 * @param sortCriteria the sort criteria, may be {@code null}.
+	 * @return the key.
+	 */
+	static String getSortKey(SortCriterion[] sortCriteria) {
+		if (sortCriteria == null || sortCriteria.length == 0) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder();
+		for (SortCriterion sortCriterion : sortCriteria) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(sortCriterion.isAscending() ? '+' : '-').append(sortCriterion.getPropertyName());
+		}
+		return sb.toString();
+	}
+
+}
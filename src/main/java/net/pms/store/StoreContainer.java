@@ -18,9 +18,12 @@ package net.pms.store;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 import net.pms.PMS;
 import net.pms.dlna.DLNAThumbnailInputStream;
 import net.pms.encoders.TranscodingSettings;
@@ -46,6 +49,7 @@ public class StoreContainer extends StoreResource {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(StoreResource.class);
 	private static final int DEPTH_WARNING_LIMIT = 7;
+	private static final int MAX_CHILDREN_INDEXES = 4;
 
 	protected String name;
 	protected String thumbnailIcon;
@@ -59,7 +63,13 @@ public class StoreContainer extends StoreResource {
 	 *
 	 * This is only valid when the StoreResource is of the container type.
 	 */
-	private final List<StoreResource> children = new ArrayList<>();
+	private final ChildrenList children = new ChildrenList();
+
+	/**
+	 * Sorted views of the children, by sort criteria, used by the paged
+	 * browse.
+	 */
+	private final Map<String, StoreChildrenIndex> childrenIndexes = new ConcurrentHashMap<>();
 
 	/**
 	 * The numerical ID (1-based index) assigned to the last child of this
@@ -340,6 +350,28 @@ public class StoreContainer extends StoreResource {
 		return children.size();
 	}
 
+	/**
+	 * Returns a number that changes every time the children list is modified.
+	 *
+	 * Sorting the children without changing their order does not change it.
+	 *
+	 * @return the children version.
+	 */
+	int getChildrenVersion() {
+		return children.getModCount();
+	}
+
+	StoreChildrenIndex getChildrenIndex(String sortKey) {
+		return childrenIndexes.get(sortKey);
+	}
+
+	void setChildrenIndex(String sortKey, StoreChildrenIndex childrenIndex) {
+		if (childrenIndexes.size() >= MAX_CHILDREN_INDEXES && !childrenIndexes.containsKey(sortKey)) {
+			childrenIndexes.clear();
+		}
+		childrenIndexes.put(sortKey, childrenIndex);
+	}
+
 	/**
 	 * Clear all resources in children.
 	 */
@@ -825,4 +857,33 @@ public class StoreContainer extends StoreResource {
 		return result.toString();
 	}
 
+	/**
+	 * The children list, exposing its modification count.
+	 */
+	private static class ChildrenList extends ArrayList<StoreResource> {
+		private static final long serialVersionUID = 1L;
+
+		private int getModCount() {
+			return modCount;
+		}
+
+		@Override
+		public StoreResource set(int index, StoreResource element) {
+			modCount++;
+			return super.set(index, element);
+		}
+
+		@Override
+		public void sort(Comparator<? super StoreResource> c) {
+			// containers are sorted on every discover, an already sorted list
+			// is left as is (the sort is stable) and keeps its count
+			for (int i = 1; i < size(); i++) {
+				if (c.compare(get(i - 1), get(i)) > 0) {
+					super.sort(c);
+					return;
+				}
+			}
+		}
+	}
+
 }
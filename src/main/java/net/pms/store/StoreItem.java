@@ -30,6 +30,10 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import net.pms.Messages;
 import net.pms.PMS;
 import net.pms.configuration.FormatConfiguration;
@@ -38,6 +42,7 @@ import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableSubtracks;
 import net.pms.dlna.DLNAThumbnail;
 import net.pms.dlna.DLNAThumbnailInputStream;
+import net.pms.dlna.DidlFragment;
 import net.pms.encoders.Engine;
 import net.pms.encoders.HlsHelper;
 import net.pms.encoders.TranscodingSettings;
@@ -69,7 +74,6 @@ import net.pms.util.FileUtil;
 import net.pms.util.IPushOutput;
 import net.pms.util.InputFile;
 import net.pms.util.Iso639;
-import net.pms.util.MpegUtil;
 import net.pms.util.Range;
 import net.pms.util.SubtitleUtils;
 import net.pms.util.TimeRange;
@@ -87,6 +91,7 @@ public abstract class StoreItem extends StoreResource {
 	private static final Logger LOGGER = LoggerFactory.getLogger(StoreItem.class);
 	private static final int STOP_PLAYING_DELAY = 4000;
 	private static final double CONTAINER_OVERHEAD = 1.04;
+	private static final long THUMBNAIL_TIMEOUT = 10000;
 
 	/**
 	 * Represents the transformation to be used to the file.
@@ -123,6 +128,11 @@ public abstract class StoreItem extends StoreResource {
 
 	private final Map<String, Integer> requestIdToRefcount = new HashMap<>();
 
+	/**
+	 * The DIDL last written for this item.
+	 */
+	private volatile DidlFragment didlFragment;
+
 	////////////////////////////////////////////////////
 	// Resume handling
 	////////////////////////////////////////////////////
@@ -772,6 +782,18 @@ public abstract class StoreItem extends StoreResource {
 
 	public abstract InputStream getInputStream() throws IOException;
 
+	/**
+	 * Returns an InputStream of this StoreItem that starts at a given byte
+	 * offset without reading the bytes before it, if possible.
+	 *
+	 * @param offset the offset of the first byte.
+	 * @return The inputstream, or {@code null} if this item can't seek.
+	 * @throws IOException
+	 */
+	protected InputStream getSeekableInputStream(long offset) throws IOException {
+		return null;
+	}
+
 	/**
 	 * Returns an InputStream of this StoreItem that starts at a given
 	 * time, if possible. Very useful if video chapters are being used.
@@ -784,6 +806,36 @@ public abstract class StoreItem extends StoreResource {
 		return getInputStream(range, null);
 	}
 
+	/**
+	 * Returns the local file this item can be sent from as is, without going
+	 * through {@link #getInputStream(Range)}.
+	 *
+	 * @return the regular file, or {@code null} if the item content has to be
+	 *         streamed.
+	 */
+	public File getDirectPlayFile() {
+		if (isTranscoded() || isResume() || !(this instanceof RealFile realFile) || this instanceof IPushOutput) {
+			return null;
+		}
+		File file = realFile.getFile();
+		return file != null && file.isFile() ? file : null;
+	}
+
+	/**
+	 * Records the start of a direct play of {@link #getDirectPlayFile()}, as
+	 * {@link #getInputStream(Range)} does for streams.
+	 *
+	 * @param low the first byte sent.
+	 */
+	public synchronized void setDirectPlayStart(long low) {
+		if (low > 0 && mediaInfo != null && mediaInfo.getBitRate() > 0) {
+			lastStartPosition = (low * 8) / (double) mediaInfo.getBitRate();
+		} else {
+			lastStartPosition = 0;
+		}
+		setLastStartSystemTime(System.currentTimeMillis());
+	}
+
 	/**
 	 * Returns an InputStream of this StoreItem that starts at a given
 	 * time, if possible. Very useful if video chapters are being used.
@@ -839,6 +891,12 @@ public abstract class StoreItem extends StoreResource {
 		if (!isTranscoded() && !isResume()) {
 			// No transcoding
 			if (this instanceof IPushOutput iPushOutput) {
+				InputStream sis = getSeekableInputStream(low > 0 ? low : 0);
+				if (sis != null) {
+					setLastStartSystemTime(System.currentTimeMillis());
+					return wrap(sis, high, low);
+				}
+
 				PipedOutputStream out = new PipedOutputStream();
 				InputStream fis = new PipedInputStream(out);
 				iPushOutput.push(out);
@@ -860,7 +918,7 @@ public abstract class StoreItem extends StoreResource {
 
 				fis = wrap(fis, high, low);
 				if (timeRange.getStartOrZero() > 0 && this instanceof RealFile) {
-					fis.skip(MpegUtil.getPositionForTimeInMpeg(((RealFile) this).getFile(), (int) timeRange.getStartOrZero()));
+					fis.skip(MediaSeekIndexStore.getPositionForTime(((RealFile) this).getFile(), timeRange.getStartOrZero()));
 				}
 			}
 
@@ -1124,6 +1182,14 @@ public abstract class StoreItem extends StoreResource {
 		resume = r;
 	}
 
+	public DidlFragment getDidlFragment() {
+		return didlFragment;
+	}
+
+	public void setDidlFragment(DidlFragment didlFragment) {
+		this.didlFragment = didlFragment;
+	}
+
 	protected boolean isResumeable() {
 		if (format != null) {
 			// Only resume videos
@@ -1338,6 +1404,21 @@ public abstract class StoreItem extends StoreResource {
 	 * @param inputFile File to check or generate the thumbnail for.
 	 */
 	protected void checkThumbnail(InputFile inputFile) {
+		checkThumbnail(inputFile, ThumbnailQueue.Priority.BROWSE);
+	}
+
+	/**
+	 * Checks if a thumbnail exists, and, if not, generates one (if possible).
+	 *
+	 * The thumbnails of files are generated by the {@link ThumbnailQueue}.
+	 * A {@link ThumbnailQueue.Priority#BROWSE} request waits up to
+	 * {@link #THUMBNAIL_TIMEOUT} milliseconds for its thumbnail, a
+	 * {@link ThumbnailQueue.Priority#SCAN} request returns immediately.
+	 *
+	 * @param inputFile File to check or generate the thumbnail for.
+	 * @param priority the priority of the generation.
+	 */
+	protected void checkThumbnail(InputFile inputFile, ThumbnailQueue.Priority priority) {
 		// Use device-specific conf, if any
 		if (mediaInfo != null &&
 				!mediaInfo.isThumbnailReady() &&
@@ -1355,14 +1436,62 @@ public abstract class StoreItem extends StoreResource {
 				}
 			}
 
-			DLNAThumbnail thumbnail = Parser.getThumbnail(mediaInfo, inputFile, getFormat(), getType(), seekPosition);
-			if (thumbnail != null) {
-				if (!isResume && mediaInfo.getFileId() != null) {
-					mediaInfo.setThumbnailId(ThumbnailStore.getId(thumbnail, mediaInfo.getFileId(), mediaInfo.getThumbnailSource()));
-				} else {
-					mediaInfo.setThumbnailId(ThumbnailStore.getTempId(thumbnail));
+			if (inputFile.getFile() == null) {
+				// a pushed input can't be shared by the queued requests
+				storeThumbnail(mediaInfo, Parser.getThumbnail(mediaInfo, inputFile, getFormat(), getType(), seekPosition), isResume);
+				return;
+			}
+
+			Format thumbnailFormat = getFormat();
+			int thumbnailType = getType();
+			MediaInfo media = mediaInfo;
+			String filename = inputFile.getFile().getAbsolutePath();
+			CompletableFuture<Void> stored = ThumbnailQueue.getInstance().submit(
+				filename,
+				seekPosition,
+				priority,
+				seekPositions -> Parser.getThumbnails(media, inputFile, thumbnailFormat, thumbnailType, seekPositions)
+			).thenAccept(thumbnail -> {
+				// the renderers may have been answered without it
+				if (storeThumbnail(media, thumbnail, isResume)) {
+					MediaStoreIds.incrementUpdateIdForFilename(filename);
 				}
+			});
+			if (priority == ThumbnailQueue.Priority.BROWSE) {
+				try {
+					stored.get(THUMBNAIL_TIMEOUT, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException | TimeoutException e) {
+					LOGGER.debug("Thumbnail of \"{}\" not generated in time: {}", getName(), e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stores a generated thumbnail. A resume thumbnail replaces the thumbnail
+	 * of the media, a default thumbnail doesn't replace a resume one.
+	 *
+	 * @return whether the thumbnail of the media changed.
+	 */
+	private static boolean storeThumbnail(MediaInfo media, DLNAThumbnail thumbnail, boolean isResume) {
+		if (thumbnail == null) {
+			return false;
+		}
+		Long thumbnailId;
+		if (!isResume && media.getFileId() != null) {
+			thumbnailId = ThumbnailStore.getId(thumbnail, media.getFileId(), media.getThumbnailSource());
+		} else {
+			thumbnailId = ThumbnailStore.getTempId(thumbnail);
+		}
+		synchronized (media) {
+			if (thumbnailId == null || (!isResume && ThumbnailStore.isTempId(media.getThumbnailId()))) {
+				return false;
 			}
+			boolean changed = !thumbnailId.equals(media.getThumbnailId());
+			media.setThumbnailId(thumbnailId);
+			return changed;
 		}
 	}
 
@@ -23,6 +23,8 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import net.pms.PMS;
 import net.pms.configuration.UmsConfiguration;
 import net.pms.dlna.DLNAImageProfile;
@@ -37,6 +39,7 @@ import net.pms.renderers.Renderer;
 import net.pms.store.container.ChapterFileTranscodeVirtualFolder;
 import net.pms.store.container.CodeEnter;
 import net.pms.store.container.FileTranscodeVirtualFolder;
+import net.pms.store.utils.StoreResourceSortKey;
 import net.pms.util.FullyPlayedAction;
 import net.pms.util.GenericIcons;
 import net.pms.util.StringUtil;
@@ -101,6 +104,11 @@ public abstract class StoreResource implements Cloneable, Runnable {
 
 	protected HashMap<String, Object> attachments = null;
 
+	/**
+	 * The sort keys computed for this resource, by sort mode.
+	 */
+	private volatile Map<String, StoreResourceSortKey> sortKeys = null;
+
 	protected StoreResource(Renderer renderer) {
 		this.renderer = renderer;
 	}
@@ -298,6 +306,7 @@ public abstract class StoreResource implements Cloneable, Runnable {
 	 */
 	protected void notifyRefresh() {
 		lastRefreshTime = System.currentTimeMillis();
+		sortKeys = null;
 		MediaStoreIds.incrementUpdateId(getLongId());
 	}
 
@@ -715,6 +724,31 @@ public abstract class StoreResource implements Cloneable, Runnable {
 		return attachments == null ? null : attachments.get(key);
 	}
 
+	/**
+	 * @param sortMode the sort mode.
+	 * @return the sort key cached for the sort mode, or {@code null}.
+	 */
+	public StoreResourceSortKey getSortKey(String sortMode) {
+		Map<String, StoreResourceSortKey> keys = sortKeys;
+		return keys == null ? null : keys.get(sortMode);
+	}
+
+	/**
+	 * Caches a sort key until this resource is refreshed.
+	 *
+	 * @param sortMode the sort mode.
+	 * @param sortKey the sort key.
+	 */
+	public void setSortKey(String sortMode, StoreResourceSortKey sortKey) {
+		Map<String, StoreResourceSortKey> keys = sortKeys;
+		if (keys == null) {
+			// a key lost to a concurrent sort is only computed again
+			keys = new ConcurrentHashMap<>(4);
+			sortKeys = keys;
+		}
+		keys.put(sortMode, sortKey);
+	}
+
 	public boolean isURLResolved() {
 		return false;
 	}
@@ -948,4 +982,18 @@ public abstract class StoreResource implements Cloneable, Runnable {
 		return null;
 	}
 
+	public String getArtist() {
+		if (mediaInfo != null && mediaInfo.isAudio() && mediaInfo.hasAudioMetadata()) {
+			return mediaInfo.getAudioMetadata().getArtist();
+		}
+		return null;
+	}
+
+	public String getAlbum() {
+		if (mediaInfo != null && mediaInfo.isAudio() && mediaInfo.hasAudioMetadata()) {
+			return mediaInfo.getAudioMetadata().getAlbum();
+		}
+		return null;
+	}
+
 }
@@ -0,0 +1,196 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import net.pms.configuration.UmsConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the raw thumbnail images on disk, addressed by the hash of their
+ * content.
+ *
+ * A blob is stored under {@code <root>/<first 2 chars>/<next 2 chars>/<hash>}.
+ * Blobs are written to a temporary file which is then atomically moved in
+ * place, so concurrent writers of the same content need no lock: the first
+ * move wins, the others find the blob already present. Blobs are read by
+ * mapping the file in memory.
+ *
+ * The metadata of the thumbnails (id, format, resolution) are kept in the
+ * database by {@link net.pms.database.MediaTableThumbnails}.
+ */
+public class ThumbnailBlobStore {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ThumbnailBlobStore.class);
+	private static final String DIRECTORY_NAME = "thumbnails";
+	private static ThumbnailBlobStore instance;
+
+	private final Path root;
+
+	public ThumbnailBlobStore(Path root) {
+		this.root = root;
+	}
+
+	/**
+	 * @return the blob store in the profile directory.
+	 * @throws IllegalStateException if its directory could not be created.
+	 */
+	public static synchronized ThumbnailBlobStore getInstance() {
+		if (instance == null) {
+			Path directory = Path.of(UmsConfiguration.getProfileDirectory(), DIRECTORY_NAME).toAbsolutePath();
+			try {
+				Files.createDirectories(directory);
+			} catch (IOException e) {
+				LOGGER.error("Could not create the thumbnails directory \"{}\": {}", directory, e.getMessage());
+				throw new IllegalStateException("Could not create the thumbnails directory " + directory, e);
+			}
+			instance = new ThumbnailBlobStore(directory);
+		}
+		return instance;
+	}
+
+	/**
+	 * Replaces the blob store, tests use it to store the blobs in a temporary
+	 * directory.
+	 *
+	 * @param store the blob store, or {@code null} for the one in the profile
+	 *            directory.
+	 */
+	public static synchronized void setInstance(ThumbnailBlobStore store) {
+		instance = store;
+	}
+
+	/**
+	 * @param hash the hexadecimal hash of the content.
+	 * @return the path of the blob.
+	 */
+	public Path getPath(String hash) {
+		if (hash == null || hash.length() < 5 || !hash.chars().allMatch(c -> Character.digit(c, 16) >= 0)) {
+			throw new IllegalArgumentException("Invalid thumbnail hash: " + hash);
+		}
+		return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+	}
+
+	/**
+	 * @param hash the hexadecimal hash of the content.
+	 * @return whether the blob is stored.
+	 */
+	public boolean contains(String hash) {
+		return Files.isRegularFile(getPath(hash));
+	}
+
+	/**
+	 * Stores a blob, unless a blob with the same hash is already stored.
+	 *
+	 * @param hash the hexadecimal hash of {@code bytes}.
+	 * @param bytes the content.
+	 * @return {@code true} if the blob was written, {@code false} if it was
+	 *         already stored.
+	 * @throws IOException if the blob could not be written.
+	 */
+	public boolean put(String hash, byte[] bytes) throws IOException {
+		Path path = getPath(hash);
+		if (Files.isRegularFile(path)) {
+			return false;
+		}
+		Path directory = path.getParent();
+		Files.createDirectories(directory);
+		Path temp = Files.createTempFile(directory, hash, ".tmp");
+		try {
+			Files.write(temp, bytes);
+			Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		} catch (IOException e) {
+			if (Files.isRegularFile(path)) {
+				// another thread stored the same content
+				return false;
+			}
+			throw e;
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Reads a blob.
+	 *
+	 * @param hash the hexadecimal hash of the content.
+	 * @return the content, or {@code null} if the blob is not stored.
+	 * @throws IOException if the blob could not be read.
+	 */
+	public byte[] get(String hash) throws IOException {
+		try (FileChannel channel = FileChannel.open(getPath(hash), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("Thumbnail " + hash + " is too large: " + size);
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			byte[] bytes = new byte[(int) size];
+			buffer.get(bytes);
+			return bytes;
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Deletes a blob.
+	 *
+	 * @param hash the hexadecimal hash of the content.
+	 * @return whether the blob was deleted.
+	 */
+	public boolean delete(String hash) {
+		try {
+			return Files.deleteIfExists(getPath(hash));
+		} catch (IOException e) {
+			LOGGER.debug("Could not delete thumbnail {}: {}", hash, e.getMessage());
+			LOGGER.trace("", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Deletes all blobs.
+	 */
+	public void clear() {
+		if (!Files.isDirectory(root)) {
+			return;
+		}
+		try (Stream<Path> paths = Files.walk(root)) {
+			paths.sorted(Comparator.reverseOrder()).filter(path -> !path.equals(root)).forEach(path -> {
+				try {
+					Files.delete(path);
+				} catch (IOException e) {
+					LOGGER.trace("Could not delete \"{}\": {}", path, e.getMessage());
+				}
+			});
+		} catch (IOException e) {
+			LOGGER.debug("Could not clear the thumbnails in \"{}\": {}", root, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+}
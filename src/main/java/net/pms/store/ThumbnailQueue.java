@@ -0,0 +1,190 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import net.pms.PMS;
+import net.pms.dlna.DLNAThumbnail;
+import net.pms.util.SimpleThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates the video thumbnails on a bounded pool of threads.
+ *
+ * The thumbnails of the items shown by a renderer are generated before the
+ * ones queued by the scanner. Requests for a file already queued are merged
+ * into its job: the same seek position is generated once, and several seek
+ * positions are handed to the generator together so that they can be
+ * extracted by one FFmpeg invocation.
+ */
+public class ThumbnailQueue {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ThumbnailQueue.class);
+	private static ThumbnailQueue instance;
+
+	/**
+	 * The priority of a thumbnail request, in the order they are generated.
+	 */
+	public enum Priority {
+		/**
+		 * A thumbnail requested by a renderer, which waits for it.
+		 */
+		BROWSE,
+		/**
+		 * A thumbnail requested by the scanner.
+		 */
+		SCAN
+	}
+
+	private final ThreadPoolExecutor executor;
+	private final Map<String, Job> pending = new HashMap<>();
+	private final AtomicLong sequence = new AtomicLong();
+
+	ThumbnailQueue(int threads) {
+		executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(),
+			new SimpleThreadFactory("Thumbnail generator", "Thumbnail generators group", Thread.MIN_PRIORITY));
+	}
+
+	public static synchronized ThumbnailQueue getInstance() {
+		if (instance == null) {
+			instance = new ThumbnailQueue(PMS.getConfiguration().getThumbnailThreads());
+		}
+		return instance;
+	}
+
+	/**
+	 * Queues the generation of a thumbnail.
+	 *
+	 * A file already queued is not queued again: the request joins the queued
+	 * job, which is moved ahead if the request has a higher priority.
+	 *
+	 * @param key the key of the file, usually its full path.
+	 * @param seekPosition the seek position, {@code null} for the default
+	 *            thumbnail.
+	 * @param priority the priority of the request.
+	 * @param generator generates the thumbnails of the file at the given
+	 *            positions, in the same order. It is only called for the
+	 *            first request of a job.
+	 * @return a future completed with the thumbnail, or {@code null} if it
+	 *         could not be generated.
+	 */
+	public CompletableFuture<DLNAThumbnail> submit(String key, Double seekPosition, Priority priority, Function<List<Double>, List<DLNAThumbnail>> generator) {
+		synchronized (pending) {
+			if (executor.isShutdown()) {
+				return CompletableFuture.completedFuture(null);
+			}
+			Job job = pending.get(key);
+			if (job == null) {
+				job = new Job(key, priority, sequence.getAndIncrement(), generator);
+				CompletableFuture<DLNAThumbnail> result = job.add(seekPosition);
+				pending.put(key, job);
+				executor.execute(job);
+				return result;
+			}
+			CompletableFuture<DLNAThumbnail> result = job.add(seekPosition);
+			if (priority.compareTo(job.priority) < 0 && executor.getQueue().remove(job)) {
+				job.priority = priority;
+				executor.execute(job);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * @return the number of files queued.
+	 */
+	public int getPendingCount() {
+		synchronized (pending) {
+			return pending.size();
+		}
+	}
+
+	/**
+	 * Stops the generation threads, queued requests are completed with
+	 * {@code null}.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+		synchronized (pending) {
+			for (Job job : pending.values()) {
+				job.requests.values().forEach(future -> future.complete(null));
+			}
+			pending.clear();
+		}
+	}
+
+	private final class Job implements Runnable, Comparable<Job> {
+		private final String key;
+		private final long order;
+		private final Function<List<Double>, List<DLNAThumbnail>> generator;
+		private final Map<Double, CompletableFuture<DLNAThumbnail>> requests = new LinkedHashMap<>();
+		private Priority priority;
+
+		private Job(String key, Priority priority, long order, Function<List<Double>, List<DLNAThumbnail>> generator) {
+			this.key = key;
+			this.priority = priority;
+			this.order = order;
+			this.generator = generator;
+		}
+
+		private CompletableFuture<DLNAThumbnail> add(Double seekPosition) {
+			return requests.computeIfAbsent(seekPosition, position -> new CompletableFuture<>());
+		}
+
+		@Override
+		public void run() {
+			List<Double> positions;
+			List<CompletableFuture<DLNAThumbnail>> futures;
+			synchronized (pending) {
+				if (pending.get(key) != this) {
+					return;
+				}
+				pending.remove(key);
+				positions = new ArrayList<>(requests.keySet());
+				futures = new ArrayList<>(requests.values());
+			}
+			List<DLNAThumbnail> thumbnails = null;
+			try {
+				thumbnails = generator.apply(positions);
+			} catch (RuntimeException e) {
+				LOGGER.debug("Error generating the thumbnails of \"{}\": {}", key, e.getMessage());
+				LOGGER.trace("", e);
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				futures.get(i).complete(thumbnails != null && i < thumbnails.size() ? thumbnails.get(i) : null);
+			}
+		}
+
+		@Override
+		public int compareTo(Job other) {
+			int result = priority.compareTo(other.priority);
+			return result != 0 ? result : Long.compare(order, other.order);
+		}
+
+	}
+
+}
@@ -103,6 +103,18 @@ public class ThumbnailStore {
 		}
 	}
 
+	/**
+	 * @return whether the id was given by {@link #getTempId}.
+	 */
+	public static boolean isTempId(Long id) {
+		if (id == null) {
+			return false;
+		}
+		synchronized (STORE) {
+			return id > tempId;
+		}
+	}
+
 	public static DLNAThumbnail getThumbnail(Long id) {
 		if (id == null) {
 			return null;
@@ -18,11 +18,13 @@ package net.pms.store.container;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.ref.Reference;
 import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableAudioMetadata;
@@ -35,7 +37,9 @@ import net.pms.database.MediaTableVideoMetadataCountries;
 import net.pms.database.MediaTableVideoMetadataDirectors;
 import net.pms.database.MediaTableVideoMetadataGenres;
 import net.pms.dlna.DLNAThumbnailInputStream;
+import net.pms.media.MediaInfo;
 import net.pms.renderers.Renderer;
+import net.pms.store.MediaInfoStore;
 import net.pms.store.MediaStoreIds;
 import net.pms.store.StoreResource;
 import net.pms.store.item.MediaLibraryTvEpisode;
@@ -709,6 +713,7 @@ public class MediaLibraryFolder extends MediaLibraryAbstract {
 			}
 		}
 
+		Map<String, MediaInfo> preloaded = MediaInfoStore.preloadMediaInfos(newFiles);
 		List<StoreResource> newFilesResources = new ArrayList<>();
 		for (File file : newFiles) {
 			if (renderer.hasShareAccess(file)) {
@@ -730,6 +735,8 @@ public class MediaLibraryFolder extends MediaLibraryAbstract {
 		for (StoreResource newResource : newFilesResources) {
 			addChild(newResource);
 		}
+		// the store only keeps weak references
+		Reference.reachabilityFence(preloaded);
 		if (isDiscovered()) {
 			MediaStoreIds.incrementUpdateId(getLongId());
 		}
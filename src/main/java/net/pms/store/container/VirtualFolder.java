@@ -17,20 +17,18 @@
 package net.pms.store.container;
 
 import java.io.File;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.lang.ref.Reference;
 import java.util.*;
 import java.util.Map.Entry;
 import net.pms.configuration.sharedcontent.VirtualFolderContent;
-import net.pms.formats.Format;
-import net.pms.formats.FormatFactory;
+import net.pms.media.MediaInfo;
 import net.pms.renderers.Renderer;
 import net.pms.store.FileSearch;
+import net.pms.store.LibraryTree;
+import net.pms.store.MediaInfoStore;
 import net.pms.store.StoreContainer;
 import net.pms.store.StoreResource;
 import net.pms.store.SystemFileResource;
-import net.pms.store.SystemFilesHelper;
 import net.pms.store.item.RealFile;
 import net.pms.store.utils.StoreResourceSorter;
 import net.pms.util.FileUtil;
@@ -132,54 +130,22 @@ public class VirtualFolder extends StoreContainer {
 		return null;
 	}
 
-	private List<File> getFilesListForDirectories() {
-		List<File> out = new ArrayList<>();
+	private List<LibraryTree.Directory> getLibraryDirectories() {
+		List<LibraryTree.Directory> out = new ArrayList<>();
 		List<String> ignoredDirectoryNames = renderer.getUmsConfiguration().getIgnoredFolderNames();
 		String directoryName;
 		for (File directory : getFiles()) {
 			directoryName = directory == null || directory.getName() == null ? "unnamed" : directory.getName();
-			if (directory == null || !directory.isDirectory()) {
-				LOGGER.trace("Ignoring {} because it is not a valid directory", directoryName);
-				continue;
-			}
-
 			// Skip if ignored
 			if (!ignoredDirectoryNames.isEmpty() && ignoredDirectoryNames.contains(directoryName)) {
 				LOGGER.debug("Ignoring {} because it is in the ignored directories list", directoryName);
 				continue;
 			}
-
-			if (directory.canRead()) {
-				File[] listFiles = directory.listFiles((File parentDirectory, String file) -> {
-					Path path = Paths.get(parentDirectory + File.separator + file);
-					// Reject any non readable
-					if (!Files.isReadable(path)) {
-						return false;
-					}
-					// Accept any directory
-					if (Files.isDirectory(path)) {
-						// Skip if ignored
-						if (!ignoredDirectoryNames.isEmpty() && ignoredDirectoryNames.contains(file)) {
-							LOGGER.debug("Ignoring {} because it is in the ignored directories list", file);
-							return false;
-						}
-						return true;
-					}
-
-					// We want to find only media files
-					return SystemFilesHelper.isPotentialMediaFile(file);
-				});
-
-				if (listFiles == null) {
-					LOGGER.warn("Can't read files from directory: {}", directory.getAbsolutePath());
-				} else {
-					out.addAll(Arrays.asList(listFiles));
-				}
-			} else {
-				LOGGER.warn("Can't read directory: {}", directory.getAbsolutePath());
+			LibraryTree.Directory libraryDirectory = LibraryTree.getDirectory(directory, ignoredDirectoryNames);
+			if (libraryDirectory != null) {
+				out.add(libraryDirectory);
 			}
 		}
-
 		return out;
 	}
 
@@ -194,9 +160,12 @@ public class VirtualFolder extends StoreContainer {
 			StoreContainer parent = getSharedContentParent(virtualFolder.getParent());
 			parent.addChild(new VirtualFolder(renderer, virtualFolder), true, true);
 		}
+		Map<String, MediaInfo> preloaded = MediaInfoStore.preloadMediaInfos(discoverable);
 		while (!discoverable.isEmpty()) {
 			manageFile(discoverable.remove(0));
 		}
+		// the store only keeps weak references
+		Reference.reachabilityFence(preloaded);
 		if (fs != null) {
 			fs.update(searchList);
 		}
@@ -212,46 +181,17 @@ public class VirtualFolder extends StoreContainer {
 		}
 
 		getChildren().clear();
-		List<File> childrenFiles = getFilesListForDirectories();
-
-		// Build a map of all files and their corresponding formats
-		Set<File> images = new HashSet<>();
-		Set<File> audioVideo = new HashSet<>();
-		Iterator<File> iterator = childrenFiles.iterator();
-		while (iterator.hasNext()) {
-			File file = iterator.next();
-			if (file.isFile()) {
-				if (SystemFilesHelper.isPotentialThumbnail(file.getName())) {
-					if (SystemFilesHelper.isFolderThumbnail(file, false)) {
-						potentialCover = file;
-						iterator.remove();
-					} else {
-						images.add(file);
-					}
-				} else {
-					Format format = FormatFactory.getAssociatedFormat(file.getAbsolutePath());
-					if (format != null && (format.isAudio() || format.isVideo())) {
-						audioVideo.add(file);
-					}
-				}
-			}
-		}
-
-		// Remove cover/thumbnails from file list
-		if (!images.isEmpty() && !audioVideo.isEmpty()) {
-			Set<File> potentialMatches;
-			for (File audioVideoFile : audioVideo) {
-				potentialMatches = SystemFilesHelper.getPotentialFileThumbnails(audioVideoFile, false);
-				iterator = images.iterator();
-				while (iterator.hasNext()) {
-					File imageFile = iterator.next();
-					if (potentialMatches.contains(imageFile)) {
-						iterator.remove();
-						childrenFiles.remove(imageFile);
-					}
-				}
+		List<File> folders = new ArrayList<>();
+		List<File> mediaFiles = new ArrayList<>();
+		for (LibraryTree.Directory libraryDirectory : getLibraryDirectories()) {
+			folders.addAll(libraryDirectory.getFolders());
+			mediaFiles.addAll(libraryDirectory.getFiles());
+			if (libraryDirectory.getPotentialCover() != null) {
+				potentialCover = libraryDirectory.getPotentialCover();
 			}
 		}
+		List<File> childrenFiles = new ArrayList<>(folders);
+		childrenFiles.addAll(mediaFiles);
 
 		// ATZ handling
 		if (childrenFiles.size() > renderer.getUmsConfiguration().getATZLimit() && StringUtils.isEmpty(forcedName)) {
@@ -309,17 +249,8 @@ public class VirtualFolder extends StoreContainer {
 			}
 		}
 
-		for (File f : childrenFiles) {
-			if (f.isDirectory()) {
-				discoverable.add(f);
-			}
-		}
-
-		for (File f : childrenFiles) {
-			if (f.isFile()) {
-				discoverable.add(f);
-			}
-		}
+		discoverable.addAll(folders);
+		discoverable.addAll(mediaFiles);
 		setDiscovered(analyzeChildren());
 		sortChildrenIfNeeded();
 		setLastRefreshTime(System.currentTimeMillis());
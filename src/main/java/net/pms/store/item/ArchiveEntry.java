@@ -18,12 +18,14 @@ package net.pms.store.item;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import net.pms.dlna.DLNAThumbnailInputStream;
 import net.pms.formats.Format;
 import net.pms.media.MediaInfo;
 import net.pms.parsers.Parser;
 import net.pms.renderers.Renderer;
 import net.pms.store.StoreItem;
+import net.pms.util.ArchiveExtractionCache;
 import net.pms.util.IPushOutput;
 import net.pms.util.InputFile;
 
@@ -72,6 +74,32 @@ abstract class ArchiveEntry extends StoreItem implements IPushOutput {
 		return length() < MAX_ARCHIVE_SIZE_SEEK;
 	}
 
+	/**
+	 * Returns a stream of the entry data read directly from the archive, for
+	 * the entries stored uncompressed.
+	 *
+	 * @param offset the offset in the entry of the first byte.
+	 * @return the stream, or {@code null} if the entry is compressed.
+	 * @throws IOException
+	 */
+	protected InputStream getStoredInputStream(long offset) throws IOException {
+		return null;
+	}
+
+	/**
+	 * Reads stored entries directly from the archive, and compressed entries
+	 * through the {@link ArchiveExtractionCache} when it is enabled.
+	 */
+	@Override
+	protected InputStream getSeekableInputStream(long offset) throws IOException {
+		InputStream stored = getStoredInputStream(offset);
+		if (stored != null) {
+			return stored;
+		}
+		String key = getSystemName() + "|" + file.lastModified() + "|" + length;
+		return ArchiveExtractionCache.getInputStream(key, length, offset, this::getInputStream);
+	}
+
 	@Override
 	protected void resolveOnce() {
 		if (getMediaInfo() == null) {
@@ -43,6 +43,7 @@ import net.pms.store.MediaStatusStore;
 import net.pms.store.StoreItem;
 import net.pms.store.SystemFileResource;
 import net.pms.store.SystemFilesHelper;
+import net.pms.store.ThumbnailQueue;
 import net.pms.store.container.ChapterFileTranscodeVirtualFolder;
 import net.pms.store.container.VirtualFolder;
 import net.pms.util.FileUtil;
@@ -154,7 +155,7 @@ public class RealFile extends StoreItem implements SystemFileResource {
 
 			// XXX isMediaInfoThumbnailGeneration is only true for the "default renderer"
 			if (getParent().getDefaultRenderer().isMediaInfoThumbnailGeneration()) {
-				checkThumbnail();
+				checkThumbnail(ThumbnailQueue.Priority.SCAN);
 			}
 		} else if (getType() == Format.UNKNOWN) {
 			return false;
@@ -305,9 +306,13 @@ public class RealFile extends StoreItem implements SystemFileResource {
 
 	@Override
 	public void checkThumbnail() {
+		checkThumbnail(ThumbnailQueue.Priority.BROWSE);
+	}
+
+	private void checkThumbnail(ThumbnailQueue.Priority priority) {
 		InputFile input = new InputFile();
 		input.setFile(getFile());
-		checkThumbnail(input);
+		checkThumbnail(input, priority);
 	}
 
 	@Override
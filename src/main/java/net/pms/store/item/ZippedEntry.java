@@ -22,6 +22,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import net.pms.renderers.Renderer;
 import net.pms.util.ArchiveFileInputStream;
+import net.pms.util.FileRangeInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,6 +30,8 @@ public class ZippedEntry extends ArchiveEntry {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ZippedEntry.class);
 
+	private Long storedDataOffset;
+
 	public ZippedEntry(Renderer renderer, File file, String entryName, long length) {
 		super(renderer, file, entryName, length);
 	}
@@ -38,6 +41,17 @@ public class ZippedEntry extends ArchiveEntry {
 		return ArchiveFileInputStream.getZipEntryInputStream(file, entryName);
 	}
 
+	@Override
+	protected InputStream getStoredInputStream(long offset) throws IOException {
+		if (storedDataOffset == null) {
+			storedDataOffset = ArchiveFileInputStream.getStoredZipEntryOffset(file, entryName);
+		}
+		if (storedDataOffset < 0) {
+			return null;
+		}
+		return new FileRangeInputStream(file, storedDataOffset + offset, Math.max(0, length - offset));
+	}
+
 	@Override
 	public void push(final OutputStream out) throws IOException {
 		Runnable r = () -> {
@@ -0,0 +1,74 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store.utils;
+
+import java.text.Normalizer;
+import java.util.Objects;
+
+/**
+ * The sort key of a resource value, computed once and cached on the resource.
+ *
+ * The key is the value with compatibility decomposition and case folding
+ * applied, so that keys are compared with {@link String#compareTo(String)}
+ * instead of normalizing both values for every comparison.
+ */
+public final class StoreResourceSortKey {
+
+	private final String source;
+	private final String key;
+
+	StoreResourceSortKey(String source, String value) {
+		this.source = source;
+		this.key = value == null ? null : fold(Normalizer.normalize(value, Normalizer.Form.NFKD));
+	}
+
+	/**
+	 * @param value the value the key would be computed from.
+	 * @return whether this key was computed from this value.
+	 */
+	boolean isFor(String value) {
+		return Objects.equals(source, value);
+	}
+
+	/**
+	 * @return the key, or {@code null} for a {@code null} value.
+	 */
+	String getKey() {
+		return key;
+	}
+
+	/**
+	 * Maps every character the way {@link String#compareToIgnoreCase(String)}
+	 * compares them.
+	 */
+	private static String fold(String value) {
+		StringBuilder sb = null;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			char folded = Character.toLowerCase(Character.toUpperCase(c));
+			if (c != folded && sb == null) {
+				sb = new StringBuilder(value.length());
+				sb.append(value, 0, i);
+			}
+			if (sb != null) {
+				sb.append(folded);
+			}
+		}
+		return sb == null ? value : sb.toString();
+	}
+
+}
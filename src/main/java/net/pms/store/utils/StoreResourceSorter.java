@@ -17,10 +17,13 @@
 package net.pms.store.utils;
 
 import java.io.File;
-import java.text.Normalizer;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
 import net.pms.PMS;
 import net.pms.configuration.UmsConfiguration;
 import net.pms.store.StoreContainer;
@@ -38,6 +41,8 @@ public class StoreResourceSorter {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(StoreResourceSorter.class);
 	private static final UmsConfiguration CONFIGURATION = PMS.getConfiguration();
+	private static final Pattern A_AND_THE = Pattern.compile("^(?i)A[ .]|The[ .]");
+	private static final Pattern MULTIPLE_SPACES = Pattern.compile("\\s{2,}");
 
 	// Sort constants
 	// Sort by title ascending, with compatibility decomposition (all accent/special char handled).
@@ -134,31 +139,12 @@ public class StoreResourceSorter {
 	}
 
 	public static void sortResourcesByTitle(List<StoreResource> resources, boolean asc, String lang) {
-		Collections.sort(resources, (StoreResource resources1, StoreResource resources2) -> {
-			if (resources1 instanceof StoreResource && resources2 instanceof StoreResource) {
-				if (resources1 instanceof StoreItem && resources2 instanceof StoreContainer) {
-					return 1;
-				} else if (resources1 instanceof StoreContainer && resources2 instanceof StoreItem) {
-					return -1;
-				}
-				if (!resources1.isSortable()) {
-					if (!resources2.isSortable()) {
-						return 0;
-					}
-					return asc ? -1 : 1;
-				} else if (!resources2.isSortable()) {
-					return asc ? 1 : -1;
-				}
-				String str1 = resources1.getLocalizedDisplayName(lang);
-				String str2 = resources2.getLocalizedDisplayName(lang);
-				if (PMS.getConfiguration().isIgnoreTheWordAandThe()) {
-					str1 = str1 != null ? str1.replaceAll("^(?i)A[ .]|The[ .]", "").replaceAll("\\s{2,}", " ") : null;
-					str2 = str2 != null ? str2.replaceAll("^(?i)A[ .]|The[ .]", "").replaceAll("\\s{2,}", " ") : null;
-				}
-				return compareToNormalizedString(str1, str2, asc);
-			} else {
-				return 0;
+		boolean ignoreAandThe = PMS.getConfiguration().isIgnoreTheWordAandThe();
+		sortResourcesByKey(resources, asc, true, true, "title|" + lang + "|" + ignoreAandThe, resource -> resource.getLocalizedDisplayName(lang), value -> {
+			if (ignoreAandThe) {
+				return MULTIPLE_SPACES.matcher(A_AND_THE.matcher(value).replaceAll("")).replaceAll(" ");
 			}
+			return value;
 		});
 	}
 
@@ -193,34 +179,113 @@ public class StoreResourceSorter {
 	}
 
 	public static void sortResourcesByCreator(List<StoreResource> resources, boolean asc, String lang) {
-		//to implement
+		// the creator of a resource is its artist
+		sortResourcesByKey(resources, asc, false, false, "creator", StoreResource::getArtist, null);
 	}
 
 	public static void sortResourcesByArtist(List<StoreResource> resources, boolean asc, String lang) {
-		//to implement
+		sortResourcesByKey(resources, asc, false, false, "artist", StoreResource::getArtist, null);
 	}
 
 	public static void sortResourcesByAlbum(List<StoreResource> resources, boolean asc, String lang) {
-		//to implement
+		sortResourcesByKey(resources, asc, false, false, "album", StoreResource::getAlbum, null);
 	}
 
 	public static void sortResourcesByGenre(List<StoreResource> resources, boolean asc, String lang) {
 		//todo implement lang
-		Collections.sort(resources, (StoreResource resources1, StoreResource resources2) -> compareToNormalizedString(resources1.getGenre(), resources2.getGenre(), asc));
+		sortResourcesByKey(resources, asc, false, false, "genre", StoreResource::getGenre, null);
 	}
 
-	private static int compareToNormalizedString(String str1, String str2, boolean asc) {
-		if (str2 == null) {
-			return 1;
-		} else if (str1 == null) {
-			return -1;
+	/**
+	 * Sorts resources by the sort key of a value, with the {@code null} values
+	 * first. The resources which are not sortable, when
+	 * {@code checkSortable} is set, come first in ascending order and last in
+	 * descending order.
+	 *
+	 * The keys are cached on the resources, a key is only computed again when
+	 * the value changes or the resource is refreshed.
+	 *
+	 * @param resources the resources to sort.
+	 * @param asc whether to sort in ascending order.
+	 * @param containersFirst whether to put the containers before the items.
+	 * @param checkSortable whether to check {@link StoreResource#isSortable()}.
+	 * @param sortMode the sort mode the keys are cached for.
+	 * @param getter gets the value of a resource.
+	 * @param transformer transforms a value before its key is computed, may be
+	 *            {@code null}.
+	 */
+	private static void sortResourcesByKey(
+		List<StoreResource> resources,
+		boolean asc,
+		boolean containersFirst,
+		boolean checkSortable,
+		String sortMode,
+		Function<StoreResource, String> getter,
+		UnaryOperator<String> transformer
+	) {
+		if (resources.size() < 2) {
+			return;
+		}
+		SortEntry[] entries = new SortEntry[resources.size()];
+		int i = 0;
+		for (StoreResource resource : resources) {
+			boolean sortable = !checkSortable || resource.isSortable();
+			String value = sortable ? getter.apply(resource) : null;
+			StoreResourceSortKey sortKey = resource.getSortKey(sortMode);
+			if (sortKey == null || !sortKey.isFor(value)) {
+				sortKey = new StoreResourceSortKey(value, value == null || transformer == null ? value : transformer.apply(value));
+				resource.setSortKey(sortMode, sortKey);
+			}
+			int group = 0;
+			if (containersFirst) {
+				group = resource instanceof StoreItem ? 1 : resource instanceof StoreContainer ? -1 : 0;
+			}
+			entries[i++] = new SortEntry(resource, group, sortable, sortKey.getKey());
 		}
-		str1 = Normalizer.normalize(str1, Normalizer.Form.NFKD);
-		str2 = Normalizer.normalize(str2, Normalizer.Form.NFKD);
-		if (asc) {
-			return str1.compareToIgnoreCase(str2);
-		} else {
-			return str2.compareToIgnoreCase(str1);
+		Arrays.sort(entries, (SortEntry entry1, SortEntry entry2) -> {
+			if (entry1.group != entry2.group && entry1.group != 0 && entry2.group != 0) {
+				return entry1.group - entry2.group;
+			}
+			if (!entry1.sortable || !entry2.sortable) {
+				if (entry1.sortable == entry2.sortable) {
+					return 0;
+				}
+				if (!entry1.sortable) {
+					return asc ? -1 : 1;
+				}
+				return asc ? 1 : -1;
+			}
+			if (entry1.key == null || entry2.key == null) {
+				if (entry1.key == entry2.key) {
+					return 0;
+				}
+				return entry1.key == null ? -1 : 1;
+			}
+			return asc ? entry1.key.compareTo(entry2.key) : entry2.key.compareTo(entry1.key);
+		});
+		// only write the moved resources, the container children keep their
+		// version when the order is unchanged
+		for (i = 0; i < entries.length; i++) {
+			if (resources.get(i) != entries[i].resource) {
+				resources.set(i, entries[i].resource);
+			}
+		}
+	}
+
+	/**
+	 * A resource with its sort key.
+	 */
+	private static final class SortEntry {
+		private final StoreResource resource;
+		private final int group;
+		private final boolean sortable;
+		private final String key;
+
+		private SortEntry(StoreResource resource, int group, boolean sortable, String key) {
+			this.resource = resource;
+			this.group = group;
+			this.sortable = sortable;
+			this.key = key;
 		}
 	}
 
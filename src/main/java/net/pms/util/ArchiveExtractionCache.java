@@ -0,0 +1,376 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded on-disk cache of the compressed archive entries.
+ *
+ * An entry is extracted to a file in the temporary folder on demand, by the
+ * threads reading it, and only as far as they read. A range already extracted
+ * is then read from that file, so seeking back or reading the same range again
+ * doesn't extract the entry again. The least recently used entries no longer
+ * read are deleted to keep the cache under
+ * {@link UmsConfiguration#getArchiveExtractionCacheSize()}.
+ */
+public class ArchiveExtractionCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveExtractionCache.class);
+	private static final UmsConfiguration CONFIGURATION = PMS.getConfiguration();
+	private static final String CACHE_DIRECTORY_NAME = "archives";
+	private static final int EXTRACTION_CHUNK_SIZE = 256 * 1024;
+	private static final LinkedHashMap<String, Entry> ENTRIES = new LinkedHashMap<>(16, 0.75f, true);
+	private static long cachedBytes;
+	private static boolean cacheDirectoryCleared;
+
+	/**
+	 * Opens the content of an archive entry.
+	 */
+	@FunctionalInterface
+	public interface Source {
+		/**
+		 * @return the stream of the whole entry content, or {@code null}.
+		 * @throws IOException if the entry could not be opened.
+		 */
+		InputStream open() throws IOException;
+	}
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private ArchiveExtractionCache() {
+	}
+
+	/**
+	 * Returns a stream of an archive entry starting at a given offset, backed
+	 * by the cache.
+	 *
+	 * @param key the key of the entry, which must change when the archive
+	 *            changes.
+	 * @param length the uncompressed length of the entry.
+	 * @param offset the offset of the first byte to read.
+	 * @param source opens the entry when it needs to be extracted.
+	 * @return the stream, or {@code null} if the cache is disabled or the
+	 *         entry doesn't fit in it.
+	 */
+	public static InputStream getInputStream(String key, long length, long offset, Source source) {
+		long quota = CONFIGURATION.getArchiveExtractionCacheSize() * 1024L * 1024L;
+		if (length <= 0 || length > quota) {
+			return null;
+		}
+		Entry entry;
+		List<Entry> evicted = new ArrayList<>();
+		synchronized (ENTRIES) {
+			entry = ENTRIES.get(key);
+			if (entry == null) {
+				Iterator<Entry> iterator = ENTRIES.values().iterator();
+				while (cachedBytes + length > quota && iterator.hasNext()) {
+					Entry cached = iterator.next();
+					if (cached.readers == 0) {
+						iterator.remove();
+						cachedBytes -= cached.length;
+						cached.removed = true;
+						evicted.add(cached);
+					}
+				}
+				if (cachedBytes + length <= quota) {
+					File cacheDirectory = getCacheDirectory();
+					if (cacheDirectory != null) {
+						entry = new Entry(new File(cacheDirectory, DigestUtils.md5Hex(key)), length, source);
+						ENTRIES.put(key, entry);
+						cachedBytes += length;
+					}
+				}
+			}
+			if (entry != null) {
+				entry.readers++;
+			}
+		}
+		for (Entry cached : evicted) {
+			cached.delete();
+		}
+		if (entry == null) {
+			return null;
+		}
+		try {
+			return new EntryInputStream(entry, offset);
+		} catch (IOException e) {
+			LOGGER.debug("Cannot open the extraction cache file {}: {}", entry.file, e.getMessage());
+			LOGGER.trace("", e);
+			remove(entry);
+			release(entry);
+			return null;
+		}
+	}
+
+	/**
+	 * Drops all the cached entries not being read.
+	 */
+	public static void clear() {
+		List<Entry> evicted = new ArrayList<>();
+		synchronized (ENTRIES) {
+			Iterator<Entry> iterator = ENTRIES.values().iterator();
+			while (iterator.hasNext()) {
+				Entry entry = iterator.next();
+				if (entry.readers == 0) {
+					iterator.remove();
+					cachedBytes -= entry.length;
+					entry.removed = true;
+					evicted.add(entry);
+				}
+			}
+		}
+		for (Entry entry : evicted) {
+			entry.delete();
+		}
+	}
+
+	private static void release(Entry entry) {
+		boolean delete;
+		synchronized (ENTRIES) {
+			entry.readers--;
+			delete = entry.readers == 0 && entry.removed;
+		}
+		if (delete) {
+			entry.delete();
+		}
+	}
+
+	/**
+	 * Drops an entry which could not be extracted, it is deleted once its
+	 * last reader is closed.
+	 */
+	private static void remove(Entry entry) {
+		boolean delete;
+		synchronized (ENTRIES) {
+			if (entry.removed) {
+				return;
+			}
+			entry.removed = true;
+			ENTRIES.values().remove(entry);
+			cachedBytes -= entry.length;
+			delete = entry.readers == 0;
+		}
+		if (delete) {
+			entry.delete();
+		}
+	}
+
+	private static File getCacheDirectory() {
+		File cacheDirectory;
+		try {
+			cacheDirectory = new File(CONFIGURATION.getTempFolder(), CACHE_DIRECTORY_NAME);
+		} catch (IOException e) {
+			LOGGER.debug("Cannot get the temp folder: {}", e.getMessage());
+			return null;
+		}
+		if (!cacheDirectoryCleared) {
+			// leftovers from a previous run are not indexed
+			cacheDirectoryCleared = true;
+			FileUtils.deleteQuietly(cacheDirectory);
+		}
+		if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+			LOGGER.debug("Cannot create the archive extraction cache directory {}", cacheDirectory);
+			return null;
+		}
+		return cacheDirectory;
+	}
+
+	/**
+	 * An entry being extracted to a file, shared by its readers.
+	 */
+	private static final class Entry {
+		private final File file;
+		private final long length;
+		private final Source source;
+		private int readers;
+		private boolean removed;
+		private InputStream input;
+		private RandomAccessFile output;
+		private long extracted;
+		private boolean complete;
+		private boolean failed;
+
+		private Entry(File file, long length, Source source) {
+			this.file = file;
+			this.length = length;
+			this.source = source;
+		}
+
+		/**
+		 * Creates the extraction file, before the entry is read.
+		 */
+		private synchronized void createFile() throws IOException {
+			if (output == null && !complete) {
+				output = new RandomAccessFile(file, "rw");
+			}
+		}
+
+		/**
+		 * Extracts the entry up to a given position.
+		 *
+		 * @return the number of bytes extracted so far.
+		 */
+		private synchronized long extract(long target) throws IOException {
+			if (extracted >= target || complete) {
+				return extracted;
+			}
+			if (failed) {
+				throw new IOException("The extraction of " + file + " failed");
+			}
+			try {
+				if (input == null) {
+					input = source.open();
+					if (input == null) {
+						throw new IOException("Cannot open the archive entry");
+					}
+				}
+				// extract ahead so that small sequential reads don't lock for each chunk
+				long end = Math.min(length, Math.max(target, extracted + EXTRACTION_CHUNK_SIZE));
+				byte[] buffer = new byte[EXTRACTION_CHUNK_SIZE];
+				output.seek(extracted);
+				while (extracted < end) {
+					int count = input.read(buffer, 0, (int) Math.min(buffer.length, end - extracted));
+					if (count < 0) {
+						break;
+					}
+					output.write(buffer, 0, count);
+					extracted += count;
+				}
+				if (extracted < end || extracted >= length) {
+					complete = true;
+					closeSource();
+				}
+			} catch (IOException e) {
+				failed = true;
+				closeSource();
+				throw e;
+			}
+			return extracted;
+		}
+
+		private synchronized boolean isComplete() {
+			return complete;
+		}
+
+		private synchronized void closeSource() {
+			try {
+				if (input != null) {
+					input.close();
+				}
+				if (output != null) {
+					output.close();
+				}
+			} catch (IOException e) {
+				LOGGER.trace("Error closing the extraction of {}: {}", file, e.getMessage());
+			}
+			input = null;
+			output = null;
+		}
+
+		private void delete() {
+			closeSource();
+			FileUtils.deleteQuietly(file);
+		}
+	}
+
+	/**
+	 * A reader of an entry, extracting it as far as it reads.
+	 */
+	private static final class EntryInputStream extends InputStream {
+		private final Entry entry;
+		private final FileChannel channel;
+		private long position;
+		private boolean closed;
+
+		private EntryInputStream(Entry entry, long offset) throws IOException {
+			this.entry = entry;
+			this.position = offset;
+			entry.createFile();
+			this.channel = FileChannel.open(entry.file.toPath(), StandardOpenOption.READ);
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == 1 ? b[0] & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			long available;
+			try {
+				available = entry.extract(position + len) - position;
+			} catch (IOException e) {
+				remove(entry);
+				throw e;
+			}
+			if (available <= 0) {
+				if (entry.isComplete()) {
+					return -1;
+				}
+				throw new IOException("The extraction of " + entry.file + " stalled");
+			}
+			int count = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, available)), position);
+			if (count < 0) {
+				return -1;
+			}
+			position += count;
+			return count;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = Math.max(0, Math.min(n, entry.length - position));
+			position += skipped;
+			return skipped;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				channel.close();
+			} finally {
+				release(entry);
+			}
+		}
+	}
+
+}
@@ -21,6 +21,7 @@ import com.github.junrar.exception.RarException;
 import com.github.junrar.rarfile.FileHeader;
 import com.github.junrar.volume.FileVolumeManager;
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -29,6 +30,11 @@ import java.io.OutputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import net.sf.sevenzipjbinding.IInArchive;
@@ -48,6 +54,13 @@ import org.slf4j.LoggerFactory;
 public class ArchiveFileInputStream extends InputStream {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveFileInputStream.class);
+	private static final int ZIP_LOCAL_FILE_HEADER = 0x04034b50;
+	private static final int ZIP_CENTRAL_DIRECTORY_HEADER = 0x02014b50;
+	private static final int ZIP_END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+	private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+	private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR = 0x07064b50;
+	private static final int ZIP64_EXTRA_FIELD = 0x0001;
+	private static final long ZIP_MAX_CENTRAL_DIRECTORY_SIZE = 64L * 1024 * 1024;
 
 	protected final File file;
 	protected final String name;
@@ -159,6 +172,120 @@ public class ArchiveFileInputStream extends InputStream {
 		return null;
 	}
 
+	/**
+	 * Locates the data of a stored (neither compressed nor encrypted) zip
+	 * entry, so that it can be read directly from the zip file.
+	 *
+	 * @param file the zip file.
+	 * @param name the entry name.
+	 * @return the offset of the entry data in the zip file, or -1 if the entry
+	 *         is not found or is not stored.
+	 */
+	public static long getStoredZipEntryOffset(File file, String name) {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			int tailLength = (int) Math.min(size, 22 + 65535);
+			ByteBuffer tail = readZipRecord(channel, size - tailLength, tailLength);
+			int end = tailLength - 22;
+			while (end >= 0 && tail.getInt(end) != ZIP_END_OF_CENTRAL_DIRECTORY) {
+				end--;
+			}
+			if (end < 0) {
+				return -1;
+			}
+			long entries = tail.getShort(end + 10) & 0xFFFF;
+			long directorySize = tail.getInt(end + 12) & 0xFFFFFFFFL;
+			long directoryOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+			if (entries == 0xFFFF || directorySize == 0xFFFFFFFFL || directoryOffset == 0xFFFFFFFFL) {
+				long locatorOffset = size - tailLength + end - 20;
+				if (locatorOffset < 0) {
+					return -1;
+				}
+				ByteBuffer locator = readZipRecord(channel, locatorOffset, 20);
+				if (locator.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR) {
+					return -1;
+				}
+				ByteBuffer zip64End = readZipRecord(channel, locator.getLong(8), 56);
+				if (zip64End.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY) {
+					return -1;
+				}
+				directorySize = zip64End.getLong(40);
+				directoryOffset = zip64End.getLong(48);
+			}
+			if (directorySize > ZIP_MAX_CENTRAL_DIRECTORY_SIZE || directoryOffset < 0 || directoryOffset + directorySize > size) {
+				return -1;
+			}
+
+			ByteBuffer directory = readZipRecord(channel, directoryOffset, (int) directorySize);
+			int position = 0;
+			while (position + 46 <= directorySize && directory.getInt(position) == ZIP_CENTRAL_DIRECTORY_HEADER) {
+				int nameLength = directory.getShort(position + 28) & 0xFFFF;
+				int extraLength = directory.getShort(position + 30) & 0xFFFF;
+				int commentLength = directory.getShort(position + 32) & 0xFFFF;
+				int namePosition = position + 46;
+				if (namePosition + nameLength + extraLength > directorySize) {
+					return -1;
+				}
+				byte[] nameBytes = new byte[nameLength];
+				directory.get(namePosition, nameBytes);
+				if (name.equals(new String(nameBytes, StandardCharsets.UTF_8))) {
+					int flags = directory.getShort(position + 8) & 0xFFFF;
+					int method = directory.getShort(position + 10) & 0xFFFF;
+					long compressedSize = directory.getInt(position + 20) & 0xFFFFFFFFL;
+					long uncompressedSize = directory.getInt(position + 24) & 0xFFFFFFFFL;
+					long localHeaderOffset = directory.getInt(position + 42) & 0xFFFFFFFFL;
+					int extraPosition = namePosition + nameLength;
+					int extraEnd = extraPosition + extraLength;
+					while (extraPosition + 4 <= extraEnd) {
+						int id = directory.getShort(extraPosition) & 0xFFFF;
+						int fieldLength = directory.getShort(extraPosition + 2) & 0xFFFF;
+						int field = extraPosition + 4;
+						if (id == ZIP64_EXTRA_FIELD) {
+							// only the values saturated in the header are present, in this order
+							if (uncompressedSize == 0xFFFFFFFFL && field + 8 <= extraEnd) {
+								uncompressedSize = directory.getLong(field);
+								field += 8;
+							}
+							if (compressedSize == 0xFFFFFFFFL && field + 8 <= extraEnd) {
+								compressedSize = directory.getLong(field);
+								field += 8;
+							}
+							if (localHeaderOffset == 0xFFFFFFFFL && field + 8 <= extraEnd) {
+								localHeaderOffset = directory.getLong(field);
+							}
+							break;
+						}
+						extraPosition = field + fieldLength;
+					}
+					if (method != ZipEntry.STORED || (flags & 1) != 0 || compressedSize != uncompressedSize || localHeaderOffset < 0) {
+						return -1;
+					}
+					ByteBuffer localHeader = readZipRecord(channel, localHeaderOffset, 30);
+					if (localHeader.getInt(0) != ZIP_LOCAL_FILE_HEADER) {
+						return -1;
+					}
+					long dataOffset = localHeaderOffset + 30 + (localHeader.getShort(26) & 0xFFFF) + (localHeader.getShort(28) & 0xFFFF);
+					return dataOffset + compressedSize <= size ? dataOffset : -1;
+				}
+				position = namePosition + nameLength + extraLength + commentLength;
+			}
+		} catch (IOException | IndexOutOfBoundsException e) {
+			LOGGER.debug("Cannot locate zip entry '{}' in {}: {}", name, file, e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return -1;
+	}
+
+	private static ByteBuffer readZipRecord(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Unexpected end of zip file");
+			}
+		}
+		return buffer;
+	}
+
 	public static ArchiveFileInputStream getSevenZipEntryInputStream(File file, String name) {
 		IInArchive arc = null;
 		try {
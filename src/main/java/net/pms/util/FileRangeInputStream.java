@@ -0,0 +1,89 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An {@link InputStream} reading a range of bytes of a file.
+ *
+ * The range is read with positional reads, so opening the stream at any offset
+ * costs the same and reads nothing before it.
+ */
+public class FileRangeInputStream extends InputStream {
+
+	private final FileChannel channel;
+	private final long end;
+	private long position;
+
+	/**
+	 * @param file the file to read.
+	 * @param offset the offset of the first byte to read.
+	 * @param length the number of bytes to read.
+	 * @throws IOException if the file could not be opened.
+	 */
+	public FileRangeInputStream(File file, long offset, long length) throws IOException {
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		this.position = offset;
+		this.end = offset + length;
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return read(b, 0, 1) == 1 ? b[0] & 0xFF : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (position >= end) {
+			return -1;
+		}
+		int count = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+		if (count < 0) {
+			return -1;
+		}
+		position += count;
+		return count;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = Math.max(0, Math.min(n, end - position));
+		position += skipped;
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return (int) Math.min(Integer.MAX_VALUE, Math.max(0, end - position));
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of folders, tells whether a path is inside one of them in a time
+ * proportional to the depth of the path.
+ *
+ * The paths are compared by name elements, "/media/music" contains
+ * "/media/music/a.mp3" but not "/media/music2/a.mp3". Both '/' and '\' are
+ * separators.
+ */
+public class PathPrefixTrie {
+
+	private final Node root = new Node();
+
+	/**
+	 * Adds a folder.
+	 *
+	 * @param folder the folder.
+	 */
+	public void add(File folder) {
+		add(folder.getAbsolutePath());
+	}
+
+	/**
+	 * Adds a folder.
+	 *
+	 * @param path the absolute path of the folder.
+	 */
+	public void add(String path) {
+		Node node = root;
+		for (String element : split(path)) {
+			node = node.children.computeIfAbsent(element, key -> new Node());
+		}
+		node.terminal = true;
+	}
+
+	/**
+	 * Returns whether a path is one of the folders or is inside one of them.
+	 *
+	 * @param path the absolute path.
+	 * @return {@code true} if the path is in a folder.
+	 */
+	public boolean contains(String path) {
+		Node node = root;
+		if (node.terminal) {
+			return true;
+		}
+		for (String element : split(path)) {
+			node = node.children.get(element);
+			if (node == null) {
+				return false;
+			}
+			if (node.terminal) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static List<String> split(String path) {
+		List<String> elements = new ArrayList<>();
+		int start = 0;
+		for (int i = 0; i <= path.length(); i++) {
+			if (i == path.length() || path.charAt(i) == '/' || path.charAt(i) == '\\') {
+				if (i > start) {
+					elements.add(path.substring(start, i));
+				}
+				start = i + 1;
+			}
+		}
+		return elements;
+	}
+
+	private static class Node {
+		private final Map<String, Node> children = new HashMap<>();
+		private boolean terminal;
+	}
+
+}
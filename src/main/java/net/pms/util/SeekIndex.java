@@ -0,0 +1,356 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A time to byte offset index of a media file, used to serve the time seek
+ * requests of files streamed without transcoding.
+ *
+ * The index is built once from the timestamps of the video packets sampled
+ * across the file (MPEG-TS, MPEG-PS). A time is then resolved with a binary
+ * search, without reading the file.
+ *
+ * MP4 files are not indexed: they can't be played from a byte offset in
+ * their media data, so their seeks are left to {@link MpegUtil}.
+ */
+public class SeekIndex {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SeekIndex.class);
+	private static final int FORMAT_VERSION = 2;
+
+	/**
+	 * The minimum interval between two entries, in milliseconds.
+	 */
+	private static final long MIN_INTERVAL = 1000;
+	private static final int MAX_ENTRIES = 16384;
+
+	/**
+	 * The number of places where the MPEG streams are sampled, and the
+	 * minimum distance between them.
+	 */
+	private static final int MPEG_SAMPLES = 4096;
+	private static final long MPEG_MIN_STRIDE = 1024 * 1024;
+	private static final int MPEG_WINDOW_SIZE = 64 * 1024;
+	private static final long MPEG_PTS_WRAP = 1L << 33;
+
+	private final long[] times;
+	private final long[] positions;
+
+	private SeekIndex(long[] times, long[] positions) {
+		this.times = times;
+		this.positions = positions;
+	}
+
+	/**
+	 * @return the number of entries.
+	 */
+	public int size() {
+		return times.length;
+	}
+
+	/**
+	 * @return the time of the last entry in seconds.
+	 */
+	public double getLastTime() {
+		return times[times.length - 1] / 1000.0;
+	}
+
+	/**
+	 * Gets the position of the last entry at or before a given time.
+	 *
+	 * @param seconds the time in seconds from the start of the file.
+	 * @return the position in bytes.
+	 */
+	public long getPosition(double seconds) {
+		int index = Arrays.binarySearch(times, Math.round(seconds * 1000));
+		if (index < 0) {
+			index = -index - 2;
+		}
+		return index < 0 ? 0 : positions[index];
+	}
+
+	/**
+	 * @return the serialized index, as read by {@link #fromBytes(byte[])}.
+	 */
+	public byte[] toBytes() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(5 + times.length * 16);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(FORMAT_VERSION);
+			out.writeInt(times.length);
+			for (int i = 0; i < times.length; i++) {
+				out.writeLong(times[i]);
+				out.writeLong(positions[i]);
+			}
+		} catch (IOException e) {
+			// not thrown by a byte array
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @param bytes a serialized index.
+	 * @return the index, or {@code null} if {@code bytes} is not a valid index.
+	 */
+	public static SeekIndex fromBytes(byte[] bytes) {
+		if (bytes == null) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+			if (in.readByte() != FORMAT_VERSION) {
+				return null;
+			}
+			int size = in.readInt();
+			if (size <= 0 || size > MAX_ENTRIES) {
+				return null;
+			}
+			long[] times = new long[size];
+			long[] positions = new long[size];
+			for (int i = 0; i < size; i++) {
+				times[i] = in.readLong();
+				positions[i] = in.readLong();
+			}
+			return new SeekIndex(times, positions);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Builds the index of a file.
+	 *
+	 * @param file the MPEG-TS, M2TS or MPEG-PS file.
+	 * @return the index, or {@code null} if the file is not in a supported
+	 *         container or has no video timestamps.
+	 */
+	public static SeekIndex parse(File file) {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			byte[] head = new byte[(int) Math.min(raf.length(), 1024)];
+			raf.readFully(head);
+			int packetSize = getTransportPacketSize(head);
+			if (packetSize > 0) {
+				return parseMpeg(raf, packetSize);
+			}
+			if (head.length >= 4 && head[0] == 0 && head[1] == 0 && head[2] == 1 && (head[3] & 0xFF) == 0xBA) {
+				return parseMpeg(raf, 0);
+			}
+		} catch (IOException | IndexOutOfBoundsException e) {
+			LOGGER.debug("Cannot build the seek index of \"{}\": {}", file, e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return null;
+	}
+
+	/**
+	 * @return 188 for MPEG-TS, 192 for M2TS or 0.
+	 */
+	private static int getTransportPacketSize(byte[] head) {
+		for (int packetSize : new int[] {188, 192}) {
+			if (getTransportSyncOffset(head, head.length, packetSize) >= 0) {
+				return packetSize;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the offset of the first sync byte followed by two others at the
+	 *         packet interval, or -1.
+	 */
+	private static int getTransportSyncOffset(byte[] buffer, int length, int packetSize) {
+		for (int i = 0; i < packetSize + 4 && i + 2 * packetSize < length; i++) {
+			if (buffer[i] == 0x47 && buffer[i + packetSize] == 0x47 && buffer[i + 2 * packetSize] == 0x47) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Indexes a transport stream ({@code packetSize} > 0) or a program stream
+	 * by reading the first video timestamp found at regular intervals.
+	 */
+	private static SeekIndex parseMpeg(RandomAccessFile raf, int packetSize) throws IOException {
+		long length = raf.length();
+		long stride = Math.max(MPEG_MIN_STRIDE, length / MPEG_SAMPLES);
+		byte[] buffer = new byte[MPEG_WINDOW_SIZE];
+		Builder builder = new Builder();
+		int[] videoPid = {-1};
+		for (long offset = 0; offset < length; offset += stride) {
+			long limit = Math.min(length, offset + stride);
+			long windowStart = offset;
+			boolean found = false;
+			while (!found && windowStart < limit) {
+				raf.seek(windowStart);
+				int count = raf.read(buffer, 0, (int) Math.min(buffer.length, length - windowStart));
+				if (count <= 0) {
+					break;
+				}
+				long next;
+				if (packetSize > 0) {
+					int sync = getTransportSyncOffset(buffer, count, packetSize);
+					if (sync < 0) {
+						break;
+					}
+					found = findTransportPts(buffer, count, sync, packetSize, windowStart, videoPid, builder);
+					next = windowStart + sync + (count - sync) / packetSize * packetSize;
+				} else {
+					found = findProgramPts(buffer, count, windowStart, builder);
+					// start codes may straddle two windows
+					next = windowStart + Math.max(1, count - 16);
+				}
+				if (count < buffer.length) {
+					break;
+				}
+				windowStart = next;
+			}
+		}
+		return builder.build();
+	}
+
+	private static boolean findTransportPts(byte[] buffer, int count, int sync, int packetSize, long windowStart, int[] videoPid, Builder builder) {
+		for (int packet = sync; packet + 188 <= count; packet += packetSize) {
+			if (buffer[packet] != 0x47) {
+				return false;
+			}
+			boolean unitStart = (buffer[packet + 1] & 0x40) != 0;
+			int pid = ((buffer[packet + 1] & 0x1F) << 8) | (buffer[packet + 2] & 0xFF);
+			int adaptationFieldControl = (buffer[packet + 3] >> 4) & 0x03;
+			if (!unitStart || (videoPid[0] >= 0 && pid != videoPid[0]) || (adaptationFieldControl & 0x01) == 0) {
+				continue;
+			}
+			int payload = packet + 4;
+			if ((adaptationFieldControl & 0x02) != 0) {
+				payload += 1 + (buffer[packet + 4] & 0xFF);
+			}
+			long pts = getVideoPts(buffer, payload, packet + 188);
+			if (pts >= 0) {
+				videoPid[0] = pid;
+				// M2TS packets start with a 4 bytes timecode
+				builder.addPts(pts, windowStart + packet - (packetSize - 188));
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean findProgramPts(byte[] buffer, int count, long windowStart, Builder builder) {
+		int pack = -1;
+		for (int i = 0; i + 14 <= count; i++) {
+			if (buffer[i] != 0 || buffer[i + 1] != 0 || buffer[i + 2] != 1) {
+				continue;
+			}
+			if ((buffer[i + 3] & 0xFF) == 0xBA) {
+				pack = i;
+			} else if (pack >= 0) {
+				long pts = getVideoPts(buffer, i, count);
+				if (pts >= 0) {
+					builder.addPts(pts, windowStart + pack);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the PTS of the MPEG-2 video PES header at {@code offset}, or -1.
+	 */
+	private static long getVideoPts(byte[] buffer, int offset, int end) {
+		if (offset + 14 > end || buffer[offset] != 0 || buffer[offset + 1] != 0 || buffer[offset + 2] != 1) {
+			return -1;
+		}
+		int streamId = buffer[offset + 3] & 0xFF;
+		if (streamId < 0xE0 || streamId > 0xEF || (buffer[offset + 6] & 0xC0) != 0x80 || (buffer[offset + 7] & 0x80) == 0) {
+			return -1;
+		}
+		int i = offset + 9;
+		return ((long) (buffer[i] & 0x0E) << 29) |
+			((long) (buffer[i + 1] & 0xFF) << 22) |
+			((long) (buffer[i + 2] & 0xFE) << 14) |
+			((long) (buffer[i + 3] & 0xFF) << 7) |
+			((long) (buffer[i + 4] & 0xFF) >> 1);
+	}
+
+	/**
+	 * Collects the entries in increasing time and position order, at least
+	 * {@link #MIN_INTERVAL} apart.
+	 */
+	private static final class Builder {
+		private long[] times = new long[256];
+		private long[] positions = new long[256];
+		private int size;
+		private long firstPts = -1;
+		private long lastPts;
+		private long ptsOffset;
+
+		/**
+		 * Adds a MPEG timestamp in 90 kHz units, which wraps around after
+		 * 2^33.
+		 */
+		private void addPts(long pts, long position) {
+			if (firstPts < 0) {
+				firstPts = pts;
+			} else if (pts - lastPts < -MPEG_PTS_WRAP / 2) {
+				ptsOffset += MPEG_PTS_WRAP;
+			} else if (pts - lastPts > MPEG_PTS_WRAP / 2) {
+				ptsOffset -= MPEG_PTS_WRAP;
+			}
+			lastPts = pts;
+			add((pts + ptsOffset - firstPts) / 90, position);
+		}
+
+		private void add(long time, long position) {
+			if (time < 0 || (size > 0 && (time < times[size - 1] + MIN_INTERVAL || position <= positions[size - 1]))) {
+				return;
+			}
+			if (size == times.length) {
+				times = Arrays.copyOf(times, size * 2);
+				positions = Arrays.copyOf(positions, size * 2);
+			}
+			times[size] = time;
+			positions[size] = position;
+			size++;
+		}
+
+		private SeekIndex build() {
+			if (size == 0) {
+				return null;
+			}
+			int step = (size + MAX_ENTRIES - 1) / MAX_ENTRIES;
+			int count = (size + step - 1) / step;
+			long[] resultTimes = new long[count];
+			long[] resultPositions = new long[count];
+			for (int i = 0; i < count; i++) {
+				resultTimes[i] = times[i * step];
+				resultPositions[i] = positions[i * step];
+			}
+			return new SeekIndex(resultTimes, resultPositions);
+		}
+	}
+
+}
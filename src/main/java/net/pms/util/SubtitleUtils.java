@@ -43,6 +43,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import net.pms.PMS;
@@ -71,7 +73,6 @@ import org.slf4j.LoggerFactory;
 public class SubtitleUtils {
 	private static final UmsConfiguration CONFIGURATION = PMS.getConfiguration();
 	private static final Logger LOGGER = LoggerFactory.getLogger(SubtitleUtils.class);
-	private static final long FOLDER_CACHE_EXPIRATION_TIME = 300000; // Milliseconds
 	private static final char[] SUBTITLES_UPPER_CASE;
 	private static final char[] SUBTITLES_LOWER_CASE;
 	private static final File ALTERNATIVE_SUBTITLES_FOLDER;
@@ -766,67 +767,146 @@ public class SubtitleUtils {
 		}
 	}
 
-	private static final HashMap<File, CacheFolder> FOLDER_CACHE = new HashMap<>();
+	private static final int MAX_CACHED_FOLDERS = 2000;
+	private static final Map<File, FolderSnapshot> FOLDER_CACHE = new ConcurrentHashMap<>();
 
-	private static class CacheFolder {
-
-		private File[] items;
-		private final long birth;
-		private boolean populated;
-
-		public CacheFolder() {
-			birth = System.currentTimeMillis();
-		}
-
-		public boolean isPopulated() {
-			return populated;
+	/**
+	 * The subtitles files of a folder and of its subtitles subfolders, indexed
+	 * by their lower case name, as of the folder modification times.
+	 */
+	private static final class FolderSnapshot {
+
+		private final long modified;
+		private final boolean withSubtitlesFolders;
+		private final File[] subtitlesFolders;
+		private final long[] subtitlesFoldersModified;
+		private final TreeMap<String, List<File>> byName = new TreeMap<>();
+		private final Set<File> items = new HashSet<>();
+		private final List<File> languageItems = new ArrayList<>();
+
+		private FolderSnapshot(File folder, boolean withSubtitlesFolders, Set<String> supportedExtensions) {
+			this.withSubtitlesFolders = withSubtitlesFolders;
+			modified = folder.lastModified();
+			List<File> subFolders = new ArrayList<>();
+			List<Long> subFoldersModified = new ArrayList<>();
+			String[] folderContent = folder.list();
+			if (folderContent != null) {
+				for (String fileNameEntry : folderContent) {
+					File fileEntry = withSubtitlesFolders ? isSubtitlesFolder(folder, fileNameEntry) : null;
+					if (fileEntry != null) {
+						// Subtitles subfolder
+						subFolders.add(fileEntry);
+						subFoldersModified.add(fileEntry.lastModified());
+						String[] subsFolderContent = fileEntry.list();
+						if (subsFolderContent != null) {
+							for (String subsFileNameEntry : subsFolderContent) {
+								add(new File(fileEntry, subsFileNameEntry), supportedExtensions);
+							}
+						}
+						continue;
+					}
+					add(new File(folder, fileNameEntry), supportedExtensions);
+				}
+			}
+			subtitlesFolders = subFolders.toArray(File[]::new);
+			subtitlesFoldersModified = new long[subtitlesFolders.length];
+			for (int i = 0; i < subtitlesFolders.length; i++) {
+				subtitlesFoldersModified[i] = subFoldersModified.get(i);
+			}
 		}
 
-		public long getBirth() {
-			return birth;
+		private void add(File file, Set<String> supportedExtensions) {
+			if (!isSubtitlesFile(file, supportedExtensions) || !file.isFile() || file.isHidden()) {
+				return;
+			}
+			String nameLower = file.getName().toLowerCase(Locale.ROOT);
+			byName.computeIfAbsent(nameLower, key -> new ArrayList<>(1)).add(file);
+			items.add(file);
+			if (isSubtitlesFolder(file.getParentFile(), file.getName()) != null) {
+				for (String suffixPart : FileUtil.getFileNameWithoutExtension(nameLower).split("[\\s\\.-]+")) {
+					if (Iso639.isValid(suffixPart)) {
+						languageItems.add(file);
+						break;
+					}
+				}
+			}
 		}
 
-		public File[] getItems() {
-			if (!populated) {
-				throw new IllegalStateException("Instance hasn't been populated yet");
+		/**
+		 * @return whether the folder and its subtitles subfolders are
+		 *         unchanged since this snapshot was taken.
+		 */
+		private boolean isCurrent(File folder, boolean withSubtitlesFolders) {
+			if (this.withSubtitlesFolders != withSubtitlesFolders || folder.lastModified() != modified) {
+				return false;
 			}
-			return items;
+			for (int i = 0; i < subtitlesFolders.length; i++) {
+				if (subtitlesFolders[i].lastModified() != subtitlesFoldersModified[i]) {
+					return false;
+				}
+			}
+			return true;
 		}
 
-		public void setItems(List<File> items) {
-			setItems(items == null ? null : items.toArray(File[]::new));
+		/**
+		 * @return the subtitles files whose lower case name starts with a
+		 *         given prefix.
+		 */
+		private List<File> getItemsStartingWith(String prefix) {
+			List<File> result = new ArrayList<>();
+			for (Entry<String, List<File>> entry : byName.tailMap(prefix, true).entrySet()) {
+				if (!entry.getKey().startsWith(prefix)) {
+					break;
+				}
+				result.addAll(entry.getValue());
+			}
+			return result;
 		}
 
-		public void setItems(File[] items) {
-			populated = true;
-			if (items == null) {
-				this.items = new File[0];
-			} else {
-				this.items = items;
-			}
+		private boolean contains(File file) {
+			return items.contains(file);
 		}
 
 		@Override
 		public String toString() {
-			StringBuilder sb = new StringBuilder(getClass().getSimpleName());
-			sb.append(" [Age=");
-			sb.append((System.currentTimeMillis() - birth) / 1000).append(" s");
-			sb.append(", Populated=").append(populated ? "Yes" : "No");
-			if (items == null || items.length == 0) {
-				sb.append(", Empty");
-			} else {
-				sb.append(", Items: ");
-				boolean first = true;
-				for (File item : items) {
-					if (!first) {
-						sb.append(", ");
-					}
-					sb.append(item.getName());
-					first = false;
-				}
+			return getClass().getSimpleName() + " [Items=" + items.size() + "]";
+		}
+	}
+
+	/**
+	 * Gets the snapshot of a folder, taking it again when the folder changed.
+	 */
+	private static FolderSnapshot getFolderSnapshot(File folder, boolean withSubtitlesFolders, boolean forceRefresh, Set<String> supportedExtensions) {
+		FolderSnapshot snapshot = forceRefresh ? null : FOLDER_CACHE.get(folder);
+		if (snapshot != null && snapshot.isCurrent(folder, withSubtitlesFolders)) {
+			return snapshot;
+		}
+		snapshot = new FolderSnapshot(folder, withSubtitlesFolders, supportedExtensions);
+		if (FOLDER_CACHE.size() >= MAX_CACHED_FOLDERS) {
+			// drop some of the folders, they will be listed again when needed
+			int toRemove = MAX_CACHED_FOLDERS / 10;
+			Iterator<File> iterator = FOLDER_CACHE.keySet().iterator();
+			while (toRemove-- > 0 && iterator.hasNext()) {
+				iterator.next();
+				iterator.remove();
 			}
-			sb.append("]");
-			return sb.toString();
+		}
+		FOLDER_CACHE.put(folder, snapshot);
+		return snapshot;
+	}
+
+	/**
+	 * Drops the external subtitles cached for a folder whose content changed.
+	 *
+	 * @param folder the folder.
+	 */
+	public static void invalidateFolder(File folder) {
+		if (folder == null) {
+			return;
+		}
+		FOLDER_CACHE.remove(folder);
+		if (isSubtitlesFolderName(folder.getName())) {
+			FOLDER_CACHE.remove(folder.getParentFile());
 		}
 	}
 
@@ -841,23 +921,37 @@ public class SubtitleUtils {
 	 *         otherwise.
 	 */
 	private static File isSubtitlesFolder(File folder, CharSequence name) {
-		if (folder == null || name == null) {
+		if (folder == null || !isSubtitlesFolderName(name)) {
 			return null;
 		}
+		File subsFolder = new File(folder, name.toString());
+		return subsFolder.isDirectory() ? subsFolder : null;
+	}
+
+	/**
+	 * Evaluates if the given name is a subtitles subfolder name, "subs" or
+	 * "subtitles" (case insensitive).
+	 *
+	 * @param name the name of the file or folder.
+	 * @return {@code true} if the name match a subtitles subfolder.
+	 */
+	private static boolean isSubtitlesFolderName(CharSequence name) {
+		if (name == null) {
+			return false;
+		}
 		if (name.length() == 4 || name.length() == SUBTITLES_LOWER_CASE.length) {
 			int lastIdx = name.length() - 1;
 			for (int i = 0; i <= lastIdx; i++) {
 				char c = name.charAt(i);
 				if (i == lastIdx && (c == SUBTITLES_LOWER_CASE[0] || c == SUBTITLES_UPPER_CASE[0])) {
-					File subsFolder = new File(folder, name.toString());
-					return subsFolder.isDirectory() ? subsFolder : null;
+					return true;
 				}
 				if (c != SUBTITLES_LOWER_CASE[i] && c != SUBTITLES_UPPER_CASE[i]) {
-					return null;
+					return false;
 				}
 			}
 		}
-		return null;
+		return false;
 	}
 
 	/**
@@ -955,77 +1049,9 @@ public class SubtitleUtils {
 
 		final Set<String> supportedFileExtensions = SubtitleType.getSupportedFileExtensions();
 
-		boolean cleaned = false;
-		List<File> folderSubtitles = new ArrayList<>();
+		List<FolderSnapshot> snapshots = new ArrayList<>(folders.size());
 		for (File folder : folders) {
-			CacheFolder cacheFolder = null;
-			synchronized (FOLDER_CACHE) {
-				// Clean cache for expired entries and fetch or insert the entry
-				// for the folder under examination
-				if (cleaned) {
-					if (forceRefresh) {
-						FOLDER_CACHE.remove(folder);
-					}
-					cacheFolder = FOLDER_CACHE.get(folder);
-				} else {
-					long earliestBirth = System.currentTimeMillis() - FOLDER_CACHE_EXPIRATION_TIME;
-					for (Iterator<Entry<File, CacheFolder>> iterator = FOLDER_CACHE.entrySet().iterator(); iterator.hasNext();) {
-						Entry<File, CacheFolder> entry = iterator.next();
-						if (entry.getValue().getBirth() < earliestBirth) {
-							iterator.remove();
-						} else if (folder.equals(entry.getKey())) {
-							if (forceRefresh) {
-								iterator.remove();
-							} else {
-								cacheFolder = entry.getValue();
-							}
-						}
-					}
-					cleaned = true;
-				}
-				if (cacheFolder == null) {
-					cacheFolder = new CacheFolder();
-					FOLDER_CACHE.put(folder, cacheFolder);
-				}
-			}
-
-			// Populate the CacheFolder if it isn't already and get the files
-			synchronized (cacheFolder) {
-				if (!cacheFolder.isPopulated()) {
-					List<File> folderSubtitlesList = new ArrayList<>();
-					String[] folderContent = folder.list();
-					if (folderContent != null && folderContent.length > 0) {
-						for (String fileNameEntry : folderContent) {
-							File fileEntry = subFolder.equals(folder) ? isSubtitlesFolder(folder, fileNameEntry) : null;
-							if (fileEntry != null) {
-								// Subtitles subfolder
-								String[] subsFolderContent = fileEntry.list();
-								if (subsFolderContent != null && subsFolderContent.length > 0) {
-									for (String subsFileNameEntry : subsFolderContent) {
-										File subsFileEntry = new File(fileEntry, subsFileNameEntry);
-										if (
-											isSubtitlesFile(subsFileEntry, supportedFileExtensions) &&
-											subsFileEntry.isFile() &&
-											!subsFileEntry.isHidden()
-										) {
-											folderSubtitlesList.add(subsFileEntry);
-										}
-									}
-								}
-								continue;
-							}
-							fileEntry = new File(folder, fileNameEntry);
-							if (isSubtitlesFile(fileEntry, supportedFileExtensions) && fileEntry.isFile() && !fileEntry.isHidden()) {
-								folderSubtitlesList.add(fileEntry);
-							}
-						}
-					}
-					cacheFolder.setItems(folderSubtitlesList);
-					folderSubtitles.addAll(folderSubtitlesList);
-				} else {
-					folderSubtitles.addAll(Arrays.asList(cacheFolder.getItems()));
-				}
-			}
+			snapshots.add(getFolderSnapshot(folder, subFolder.equals(folder), forceRefresh, supportedFileExtensions));
 		}
 
 		// Find already parsed subtitles
@@ -1039,27 +1065,22 @@ public class SubtitleUtils {
 		boolean changed = false;
 		// Parse subtitles that are not in the existing list
 		String baseFileName = FileUtil.getFileNameWithoutExtension(file.getName()).toLowerCase(Locale.ROOT);
-		for (File subtitlesFile : folderSubtitles) {
-			if (existingSubtitles.contains(subtitlesFile)) {
-				continue;
+		for (FolderSnapshot snapshot : snapshots) {
+			for (File subtitlesFile : snapshot.getItemsStartingWith(baseFileName)) {
+				if (existingSubtitles.add(subtitlesFile)) {
+					String subtitlesNameLower = subtitlesFile.getName().toLowerCase(Locale.ROOT);
+					List<String> suffixParts = Arrays
+						.asList(FileUtil.getFileNameWithoutExtension(subtitlesNameLower).replace(baseFileName, "").split("[\\s\\.-]+"));
+					attachExternalSubtitlesFile(subtitlesFile, media, suffixParts);
+					changed = true;
+				}
 			}
-
-			String subtitlesName = subtitlesFile.getName();
-			String subtitlesNameLower = subtitlesName.toLowerCase(Locale.ROOT);
-			if (subtitlesNameLower.startsWith(baseFileName)) {
-				List<String> suffixParts = Arrays
-					.asList(FileUtil.getFileNameWithoutExtension(subtitlesNameLower).replace(baseFileName, "").split("[\\s\\.-]+"));
-				attachExternalSubtitlesFile(subtitlesFile, media, suffixParts);
-				changed = true;
-			} else if (isSubtitlesFolder(subtitlesFile.getParentFile(), subtitlesName) != null) {
-				// Subtitles subfolder that doesn't start with video file name
-				List<String> suffixParts = Arrays.asList(FileUtil.getFileNameWithoutExtension(subtitlesNameLower).split("[\\s\\.-]+"));
-				for (String suffixPart : suffixParts) {
-					if (Iso639.isValid(suffixPart)) {
-						attachExternalSubtitlesFile(subtitlesFile, media, suffixParts);
-						changed = true;
-						break;
-					}
+			// Subtitles subfolder files that don't start with video file name
+			for (File subtitlesFile : snapshot.languageItems) {
+				if (existingSubtitles.add(subtitlesFile)) {
+					List<String> suffixParts = Arrays.asList(FileUtil.getFileNameWithoutExtension(subtitlesFile.getName().toLowerCase(Locale.ROOT)).split("[\\s\\.-]+"));
+					attachExternalSubtitlesFile(subtitlesFile, media, suffixParts);
+					changed = true;
 				}
 			}
 		}
@@ -1067,10 +1088,7 @@ public class SubtitleUtils {
 		// Remove no longer existing external subtitles
 		for (Iterator<MediaSubtitle> iterator = media.getSubtitlesTracks().iterator(); iterator.hasNext();) {
 			MediaSubtitle subtitles = iterator.next();
-			if (
-				subtitles.isExternal() &&
-				!folderSubtitles.contains(subtitles.getExternalFile())
-			) {
+			if (subtitles.isExternal() && !isInSnapshots(snapshots, subtitles.getExternalFile())) {
 				changed = true;
 				iterator.remove();
 			}
@@ -1078,6 +1096,15 @@ public class SubtitleUtils {
 		return changed;
 	}
 
+	private static boolean isInSnapshots(List<FolderSnapshot> snapshots, File file) {
+		for (FolderSnapshot snapshot : snapshots) {
+			if (snapshot.contains(file)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Creates a new instance of MediaSubtitle, populates it based on the
  incoming subtitlesFile, and attaches it to the incoming MediaInfo so
@@ -0,0 +1,72 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.configuration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class FormatMatchCacheTest {
+
+	@Test
+	public void testBucket() {
+		int[] limits = {720, 1080};
+		assertEquals(0, FormatMatchCache.bucket(0, limits));
+		assertEquals(1, FormatMatchCache.bucket(480, limits));
+		assertEquals(1, FormatMatchCache.bucket(720, limits));
+		assertEquals(2, FormatMatchCache.bucket(721, limits));
+		assertEquals(2, FormatMatchCache.bucket(1080, limits));
+		assertEquals(3, FormatMatchCache.bucket(2160, limits));
+	}
+
+	@Test
+	public void testSameBucketSharesDecision() {
+		FormatMatchCache cache = new FormatMatchCache(
+			new int[] {Integer.MAX_VALUE},
+			new int[] {Integer.MAX_VALUE},
+			new int[] {Integer.MAX_VALUE},
+			new int[] {Integer.MAX_VALUE},
+			new int[] {1920},
+			new int[] {1080}
+		);
+		FormatMatchCache.Signature hd = cache.signature("mp4", "h264", "aac-lc", 2, 48000, 0, 24, 1280, 720, 8, null, null, null, null, false, null, false);
+		FormatMatchCache.Signature fullHd = cache.signature("mp4", "h264", "aac-lc", 2, 44100, 0, 30, 1920, 1080, 8, null, null, null, null, false, null, false);
+		FormatMatchCache.Signature uhd = cache.signature("mp4", "h264", "aac-lc", 2, 48000, 0, 24, 3840, 2160, 8, null, null, null, null, false, null, false);
+		assertEquals(hd, fullHd);
+		assertNotEquals(hd, uhd);
+	}
+
+	@Test
+	public void testMatchIsCached() {
+		FormatConfiguration formatConfiguration = new FormatConfiguration(List.of(
+			"f:mp4 v:h264 a:aac-lc w:1920 h:1080 m:video/mp4",
+			"f:mkv v:h264|h265 m:video/x-matroska"
+		));
+		assertEquals("video/mp4", formatConfiguration.getMatchedMIMEtype("mp4", "h264", "aac-lc"));
+		assertEquals("video/mp4", formatConfiguration.getMatchedMIMEtype("mp4", "h264", "aac-lc"));
+		assertNull(formatConfiguration.getMatchedMIMEtype("mp4", "h265", "aac-lc"));
+		assertNull(formatConfiguration.getMatchedMIMEtype("mp4", "h265", "aac-lc"));
+		assertEquals("video/x-matroska", formatConfiguration.getMatchedMIMEtype("mkv", "h265", null));
+		assertNull(formatConfiguration.getMatchedMIMEtype(
+			"mp4", "h264", "aac-lc", 2, 48000, 0, 24, 3840, 2160, 0, null, null, null, null, false, null
+		));
+		assertEquals("video/mp4", formatConfiguration.getMatchedMIMEtype(
+			"mp4", "h264", "aac-lc", 2, 48000, 0, 24, 1920, 1080, 0, null, null, null, null, false, null
+		));
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.formats.Format;
+import net.pms.media.MediaInfo;
+import net.pms.media.audio.MediaAudio;
+import org.apache.commons.configuration.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MediaTableFilesTest {
+
+	@BeforeEach
+	public final void setUp() throws ConfigurationException, InterruptedException {
+		TestHelper.SetLoggingOff();
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+	}
+
+	private static MediaInfo createMediaInfo(String codec) {
+		MediaInfo media = new MediaInfo();
+		media.setMediaParser("test");
+		media.setContainer("mkv");
+		media.setMimeType("video/x-matroska");
+		MediaAudio audio = new MediaAudio();
+		audio.setCodec(codec);
+		List<MediaAudio> audioTracks = new ArrayList<>();
+		audioTracks.add(audio);
+		media.setAudioTracks(audioTracks);
+		return media;
+	}
+
+	@Test
+	public void testGetMediaInfos() throws Exception {
+		MediaDatabase.init();
+		MediaDatabase database = MediaDatabase.get();
+		try (Connection connection = database.getConnection()) {
+			MediaTableFiles.insertOrUpdateData(connection, "/bulk/first.mkv", 1000, Format.VIDEO, createMediaInfo("ac3"));
+			MediaTableFiles.insertOrUpdateData(connection, "/bulk/second.mkv", 2000, Format.VIDEO, createMediaInfo("aac"));
+			Map<String, Long> filenamesModified = new HashMap<>();
+			filenamesModified.put("/bulk/first.mkv", 1000L);
+			// modified since it was stored
+			filenamesModified.put("/bulk/second.mkv", 3000L);
+			filenamesModified.put("/bulk/missing.mkv", 1000L);
+			Map<String, MediaInfo> medias = MediaTableFiles.getMediaInfos(connection, filenamesModified);
+			assertEquals(1, medias.size());
+			MediaInfo bulk = medias.get("/bulk/first.mkv");
+			MediaInfo single = MediaTableFiles.getMediaInfo(connection, "/bulk/first.mkv", 1000);
+			assertNotNull(bulk);
+			assertEquals(single.getFileId(), bulk.getFileId());
+			assertEquals(single.getMimeType(), bulk.getMimeType());
+			assertEquals(1, bulk.getAudioTracks().size());
+			assertEquals("ac3", bulk.getAudioTracks().get(0).getCodec());
+			assertTrue(bulk.getVideoTracks().isEmpty());
+			assertNull(bulk.getVideoMetadata());
+		}
+	}
+
+	@Test
+	public void testRemoveEntries() throws Exception {
+		MediaDatabase.init();
+		MediaDatabase database = MediaDatabase.get();
+		try (Connection connection = database.getConnection()) {
+			Long archive = MediaTableFiles.insertOrUpdateData(connection, "/cleanup/archive.zip", 1000, Format.VIDEO, createMediaInfo("ac3"));
+			Long entry = MediaTableFiles.insertOrUpdateData(connection, "/cleanup/archive.zip/entry.mkv", 1000, Format.VIDEO, createMediaInfo("ac3"));
+			Long shared = MediaTableFiles.insertOrUpdateData(connection, "/cleanup/archive.zip/shared.mkv", 1000, Format.VIDEO, createMediaInfo("aac"));
+			Long other = MediaTableFiles.insertOrUpdateData(connection, "/cleanup/other.zip", 1000, Format.VIDEO, createMediaInfo("aac"));
+			MediaTableContainerFiles.addContainerEntry(archive, entry);
+			MediaTableContainerFiles.addContainerEntry(archive, shared);
+			MediaTableContainerFiles.addContainerEntry(other, shared);
+
+			MediaTableFiles.removeEntries(connection, List.of(archive));
+			assertNull(MediaTableFiles.getFileId(connection, "/cleanup/archive.zip"));
+			assertNull(MediaTableFiles.getFileId(connection, "/cleanup/archive.zip/entry.mkv"));
+			// still in another container
+			assertEquals(shared, MediaTableFiles.getFileId(connection, "/cleanup/archive.zip/shared.mkv"));
+			assertEquals(List.of(shared), MediaTableContainerFiles.getContainerFileIds(connection, List.of(other)));
+
+			MediaTableFiles.removeEntries(connection, List.of(other));
+			assertNull(MediaTableFiles.getFileId(connection, "/cleanup/other.zip"));
+			assertNull(MediaTableFiles.getFileId(connection, "/cleanup/archive.zip/shared.mkv"));
+		}
+	}
+
+	@Test
+	public void testCleanup() throws Exception {
+		MediaDatabase.init();
+		MediaDatabase database = MediaDatabase.get();
+		try (Connection connection = database.getConnection()) {
+			MediaTableFiles.insertOrUpdateData(connection, "/cleanup/missing.mkv", 1000, Format.VIDEO, createMediaInfo("ac3"));
+			assertNotNull(MediaTableFiles.getFileId(connection, "/cleanup/missing.mkv"));
+			MediaTableFiles.cleanup(connection);
+			assertNull(MediaTableFiles.getFileId(connection, "/cleanup/missing.mkv"));
+			assertTrue(connection.getAutoCommit());
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.formats.Format;
+import net.pms.media.MediaInfo;
+import net.pms.media.audio.metadata.MediaAudioMetadata;
+import org.apache.commons.configuration.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MediaTableSearchIndexTest {
+
+	@BeforeEach
+	public final void setUp() throws ConfigurationException, InterruptedException {
+		TestHelper.SetLoggingOff();
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+	}
+
+	@Test
+	public void testTokenize() {
+		assertEquals("beyonce", MediaTableSearchIndex.fold("BEYONCÉ"));
+		assertEquals(List.of("sigur", "ros", "agust", "byrjun"), new ArrayList<>(MediaTableSearchIndex.tokenize("Sigur Rós - Ágúst byrjun")));
+		assertEquals(Set.of("love", "dont"), MediaTableSearchIndex.tokenize("Love, Don't!"));
+		assertEquals(Set.of("dont", "stop"), MediaTableSearchIndex.tokenize("Don\u2019t Stop"));
+		assertEquals(Set.of("rock", "n", "roll"), MediaTableSearchIndex.tokenize("Rock 'n' Roll"));
+		assertEquals(Set.of("lamour", "l", "amour"), MediaTableSearchIndex.getIndexTokens("L'amour"));
+		assertTrue(MediaTableSearchIndex.tokenize(" - ").isEmpty());
+		assertNull(MediaTableSearchIndex.getContainsCondition("F.ID", MediaTableSearchIndex.FIELD_TITLE, "--"));
+	}
+
+	private static List<Long> search(Connection connection, String field, String value) throws Exception {
+		List<Long> result = new ArrayList<>();
+		String sql = "SELECT F.ID FROM FILES AS F WHERE " + MediaTableSearchIndex.getContainsCondition("F.ID", field, value) + " ORDER BY F.ID";
+		try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+			while (rs.next()) {
+				result.add(rs.getLong(1));
+			}
+		}
+		return result;
+	}
+
+	@Test
+	public void testSearch() throws Exception {
+		MediaDatabase.init();
+		MediaDatabase database = MediaDatabase.get();
+		try (Connection connection = database.getConnection()) {
+			MediaInfo media = new MediaInfo();
+			media.setMediaParser("test");
+			MediaAudioMetadata audioMetadata = new MediaAudioMetadata();
+			audioMetadata.setArtist("Beyoncé");
+			audioMetadata.setSongname("Crazy in Love");
+			audioMetadata.setAlbum("Dangerously in Love");
+			audioMetadata.setGenre("Don't Care");
+			media.setAudioMetadata(audioMetadata);
+			Long fileId = MediaTableFiles.insertOrUpdateData(connection, "/search/Crazy.mp3", 1000, Format.AUDIO, media);
+			assertEquals(List.of(fileId), search(connection, MediaTableSearchIndex.FIELD_ARTIST, "beyonce"));
+			assertEquals(List.of(fileId), search(connection, MediaTableSearchIndex.FIELD_TITLE, "LOVE craz"));
+			assertEquals(List.of(fileId), search(connection, MediaTableSearchIndex.FIELD_FILENAME, "crazy"));
+			assertTrue(search(connection, MediaTableSearchIndex.FIELD_ALBUM, "crazy").isEmpty());
+			assertEquals(List.of(fileId), search(connection, MediaTableSearchIndex.FIELD_GENRE, "don't"));
+			assertEquals(List.of(fileId), search(connection, MediaTableSearchIndex.FIELD_GENRE, "care"));
+			assertEquals(List.of(fileId), search(connection, MediaTableSearchIndex.FIELD_GENRE, "dont"));
+
+			audioMetadata.setArtist("Jay-Z");
+			MediaTableFiles.insertOrUpdateData(connection, "/search/Crazy.mp3", 1000, Format.AUDIO, media);
+			assertTrue(search(connection, MediaTableSearchIndex.FIELD_ARTIST, "beyonce").isEmpty());
+			assertEquals(List.of(fileId), search(connection, MediaTableSearchIndex.FIELD_ARTIST, "jay"));
+
+			MediaTableSearchIndex.rebuild(connection);
+			assertEquals(List.of(fileId), search(connection, MediaTableSearchIndex.FIELD_ARTIST, "jay"));
+
+			MediaTableFiles.removeMediaEntry(connection, "/search/Crazy.mp3", true);
+			assertTrue(search(connection, MediaTableSearchIndex.FIELD_ARTIST, "jay").isEmpty());
+		}
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import javax.imageio.ImageIO;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.dlna.DLNAThumbnail;
+import net.pms.store.ThumbnailBlobStore;
+import org.apache.commons.codec.digest.DigestUtils;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MediaTableThumbnailsTest {
+
+	@TempDir
+	Path blobs;
+
+	@BeforeEach
+	public final void setUp() throws Exception {
+		TestHelper.SetLoggingOff();
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+		ThumbnailBlobStore.setInstance(new ThumbnailBlobStore(blobs));
+		MediaDatabase.init();
+	}
+
+	@AfterEach
+	public final void tearDown() {
+		ThumbnailBlobStore.setInstance(null);
+	}
+
+	private static DLNAThumbnail createThumbnail(int rgb) throws Exception {
+		BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+		for (int x = 0; x < 64; x++) {
+			for (int y = 0; y < 48; y++) {
+				image.setRGB(x, y, rgb + x * y);
+			}
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "jpg", out);
+		return DLNAThumbnail.toThumbnail(out.toByteArray());
+	}
+
+	@Test
+	public void testSetThumbnail() throws Exception {
+		DLNAThumbnail thumbnail = createThumbnail(0x102030);
+		String md5Hash = DigestUtils.md5Hex(thumbnail.getBytes(false));
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			Long id = MediaTableThumbnails.setThumbnail(connection, thumbnail);
+			assertNotNull(id);
+			assertEquals(id, MediaTableThumbnails.setThumbnail(connection, createThumbnail(0x102030)));
+			assertTrue(ThumbnailBlobStore.getInstance().contains(md5Hash));
+
+			DLNAThumbnail stored = MediaTableThumbnails.getThumbnail(connection, id);
+			assertNotNull(stored);
+			assertArrayEquals(thumbnail.getBytes(false), stored.getBytes(false));
+			assertEquals(64, stored.getWidth());
+			assertEquals(48, stored.getHeight());
+
+			// not referenced by any file or TV series
+			MediaTableThumbnails.cleanup(connection);
+			assertNull(MediaTableThumbnails.getThumbnail(connection, id));
+			assertFalse(ThumbnailBlobStore.getInstance().contains(md5Hash));
+		}
+	}
+
+	@Test
+	public void testUpgrade() throws Exception {
+		DLNAThumbnail thumbnail = createThumbnail(0x405060);
+		String md5Hash = DigestUtils.md5Hex(thumbnail.getBytes(false));
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			MediaDatabase.dropTableAndConstraint(connection, MediaTableThumbnails.TABLE_NAME);
+			MediaDatabase.execute(connection,
+				"CREATE TABLE " + MediaTableThumbnails.TABLE_NAME + "(" +
+					"ID            IDENTITY, " +
+					"THUMBNAIL     OTHER                NOT NULL, " +
+					"MODIFIED      TIMESTAMP, " +
+					"MD5           VARCHAR              UNIQUE NOT NULL" +
+				")"
+			);
+			MediaTableTablesVersions.setTableVersion(connection, MediaTableThumbnails.TABLE_NAME, 1);
+			long id;
+			try (PreparedStatement statement = connection.prepareStatement(
+				"INSERT INTO " + MediaTableThumbnails.TABLE_NAME + " (THUMBNAIL, MODIFIED, MD5) VALUES (?, ?, ?)",
+				Statement.RETURN_GENERATED_KEYS
+			)) {
+				statement.setObject(1, thumbnail);
+				statement.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+				statement.setString(3, md5Hash);
+				statement.executeUpdate();
+				try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+					assertTrue(generatedKeys.next());
+					id = generatedKeys.getLong(1);
+				}
+			}
+
+			MediaTableThumbnails.checkTable(connection);
+			assertEquals(2, MediaTableTablesVersions.getTableVersion(connection, MediaTableThumbnails.TABLE_NAME));
+			assertTrue(ThumbnailBlobStore.getInstance().contains(md5Hash));
+			DLNAThumbnail stored = MediaTableThumbnails.getThumbnail(connection, id);
+			assertNotNull(stored);
+			assertArrayEquals(thumbnail.getBytes(false), stored.getBytes(false));
+			assertEquals(id, MediaTableThumbnails.setThumbnail(connection, thumbnail));
+		}
+	}
+
+}
@@ -0,0 +1,154 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Random;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.formats.Format;
+import net.pms.network.mediaserver.handlers.SearchRequestHandler;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the UPnP search of a song title by a {@code LIKE '%x%'} scan and by
+ * the search index, on a library of {@link #TRACKS} tracks.
+ *
+ * This is not part of the regular test run, launch it with:
+ * {@code mvn test -Dtest=SearchIndexBenchmark -Dsurefire.failIfNoSpecifiedTests=false}
+ */
+public class SearchIndexBenchmark {
+	private static final int TRACKS = 200_000;
+	private static final int ITERATIONS = 20;
+	private static final String PREFIX = "/benchmark/";
+	private static final String[] WORDS = {
+		"love", "night", "heart", "dream", "fire", "rain", "river", "summer", "shadow", "light",
+		"dance", "home", "road", "blue", "gold", "wild", "city", "ocean", "storm", "angel"
+	};
+	private static final String SEARCH = "upnp:class derivedfrom \"object.item.audioItem\" and dc:title contains \"%s\"";
+	private static final String LIKE_SQL = "select count(DISTINCT F.id) from FILES as F left outer join AUDIO_METADATA as A on F.ID = A.FILEID where F.FORMAT_TYPE = 1 and LOWER(A.SONGNAME) LIKE '%%%s%%'";
+
+	@Test
+	public void benchmark() throws Exception {
+		PMS.setConfiguration(new UmsConfiguration(false));
+		TestHelper.SetLoggingOff();
+		MediaDatabase.init();
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			// start from the current table definition
+			MediaDatabase.dropTableAndConstraint(connection, MediaTableSearchIndex.TABLE_NAME);
+			MediaDatabase.get().checkTables(true);
+			cleanup(connection);
+			populate(connection);
+			long start = System.nanoTime();
+			MediaTableSearchIndex.rebuild(connection);
+			System.out.printf("index build:  %d ms%n", (System.nanoTime() - start) / 1_000_000);
+			try {
+				String term = "zzqx";
+				assertEquals(count(connection, String.format(LIKE_SQL, term)), count(connection, getIndexSql(term)));
+				run(connection, "LIKE scan", LIKE_SQL, true);
+				run(connection, "search index", null, true);
+				run(connection, "LIKE scan", LIKE_SQL, false);
+				run(connection, "search index", null, false);
+			} finally {
+				cleanup(connection);
+			}
+		}
+	}
+
+	private static void cleanup(Connection connection) throws Exception {
+		try (Statement stmt = connection.createStatement()) {
+			stmt.executeUpdate("DELETE FROM FILES WHERE FILENAME LIKE '" + PREFIX + "%'");
+		}
+	}
+
+	private static String getIndexSql(String term) {
+		String criteria = String.format(SEARCH, term);
+		return SearchRequestHandler.convertToCountSql(criteria, SearchRequestHandler.getRequestType(criteria));
+	}
+
+	/**
+	 * @param selective whether the searched words match a few tracks, as a
+	 *            whole word does, or a large part of the library, as the
+	 *            first letters typed do.
+	 */
+	private static void run(Connection connection, String name, String likeSql, boolean selective) throws Exception {
+		long nanos = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			String word = WORDS[i % WORDS.length];
+			String term = selective ? word + (i * 7 % 100) : word.substring(0, 3);
+			String sql = likeSql != null ? String.format(likeSql, term) : getIndexSql(term);
+			long start = System.nanoTime();
+			count(connection, sql);
+			nanos += System.nanoTime() - start;
+		}
+		System.out.printf("%-13s %-10s %.2f ms/query%n", name + ":", selective ? "selective" : "broad", nanos / 1e6 / ITERATIONS);
+	}
+
+	private static long count(Connection connection, String sql) throws Exception {
+		try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+			rs.next();
+			return rs.getLong(1);
+		}
+	}
+
+	private static void populate(Connection connection) throws Exception {
+		Random random = new Random(0);
+		try (
+			PreparedStatement files = connection.prepareStatement("INSERT INTO FILES (FILENAME, MODIFIED, FORMAT_TYPE) VALUES (?, CURRENT_TIMESTAMP, ?)", Statement.RETURN_GENERATED_KEYS);
+			PreparedStatement audio = connection.prepareStatement("INSERT INTO AUDIO_METADATA (FILEID, SONGNAME, ARTIST, ALBUM, GENRE) VALUES (?, ?, ?, ?, ?)")
+		) {
+			for (int i = 0; i < TRACKS; i++) {
+				files.setString(1, PREFIX + i + ".mp3");
+				files.setInt(2, Format.AUDIO);
+				files.executeUpdate();
+				long fileId;
+				try (ResultSet keys = files.getGeneratedKeys()) {
+					keys.next();
+					fileId = keys.getLong(1);
+				}
+				audio.setLong(1, fileId);
+				audio.setString(2, words(random, 3));
+				audio.setString(3, words(random, 2));
+				audio.setString(4, words(random, 2));
+				audio.setString(5, words(random, 1));
+				audio.addBatch();
+				if (i % 1000 == 999) {
+					audio.executeBatch();
+				}
+			}
+			audio.executeBatch();
+		}
+	}
+
+	private static String words(Random random, int count) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sb.append(' ');
+			}
+			String word = WORDS[random.nextInt(WORDS.length)];
+			sb.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1)).append(random.nextInt(100));
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.image.BufferedImageFilterChain;
+import net.pms.util.FullyPlayed;
+import org.apache.commons.configuration.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class DLNAThumbnailVariantCacheTest {
+
+	@BeforeAll
+	public static void setUpClass() throws ConfigurationException, InterruptedException {
+		PMS.setConfiguration(new UmsConfiguration(false));
+	}
+
+	@BeforeEach
+	public void setUp() {
+		TestHelper.SetLoggingOff();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		PMS.getConfiguration().getConfiguration().setProperty("thumbnail_variant_cache_size", 16);
+		PMS.getConfiguration().getConfiguration().setProperty("thumbnail_variant_cache_disk_size", 0);
+		DLNAThumbnailVariantCache.clear();
+	}
+
+	private static DLNAThumbnail createThumbnail() throws IOException {
+		BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return DLNAThumbnail.toThumbnail(out.toByteArray());
+	}
+
+	@Test
+	public void testKey() {
+		String plain = DLNAThumbnailVariantCache.getKey(1, "5", DLNAImageProfile.JPEG_TN, true, null, false);
+		assertEquals(plain, DLNAThumbnailVariantCache.getKey(1, "5", DLNAImageProfile.JPEG_TN, true, new BufferedImageFilterChain(), false));
+		assertNotEquals(plain, DLNAThumbnailVariantCache.getKey(1, "5", DLNAImageProfile.PNG_TN, true, null, false));
+		assertNotEquals(plain, DLNAThumbnailVariantCache.getKey(1, "5", DLNAImageProfile.JPEG_TN, false, null, false));
+		assertNotEquals(plain, DLNAThumbnailVariantCache.getKey(1, "5", DLNAImageProfile.JPEG_TN, true, null, true));
+		String overlay = DLNAThumbnailVariantCache.getKey(1, "5", DLNAImageProfile.JPEG_TN, true, new BufferedImageFilterChain(FullyPlayed.getOverlayFilter()), false);
+		assertNotEquals(plain, overlay);
+		assertNotEquals(DLNAThumbnailVariantCache.getETag("5", plain), DLNAThumbnailVariantCache.getETag("5", overlay));
+	}
+
+	@Test
+	public void testUpdateIdInvalidation() throws IOException {
+		DLNAThumbnail thumbnail = createThumbnail();
+		String key = DLNAThumbnailVariantCache.getKey(1, "5", DLNAImageProfile.JPEG_TN, true, null, false);
+		String otherKey = DLNAThumbnailVariantCache.getKey(2, "5", DLNAImageProfile.JPEG_TN, true, null, false);
+		DLNAThumbnailVariantCache.put(1, "5", key, thumbnail);
+		DLNAThumbnailVariantCache.put(2, "5", otherKey, thumbnail);
+		assertSame(thumbnail, DLNAThumbnailVariantCache.get(1, "5", key));
+
+		String newKey = DLNAThumbnailVariantCache.getKey(1, "6", DLNAImageProfile.JPEG_TN, true, null, false);
+		assertNull(DLNAThumbnailVariantCache.get(1, "6", newKey));
+		assertNull(DLNAThumbnailVariantCache.get(1, "5", key));
+		assertSame(thumbnail, DLNAThumbnailVariantCache.get(2, "5", otherKey));
+	}
+
+	@Test
+	public void testSpill() throws IOException {
+		PMS.getConfiguration().getConfiguration().setProperty("thumbnail_variant_cache_size", 1);
+		PMS.getConfiguration().getConfiguration().setProperty("thumbnail_variant_cache_disk_size", 16);
+		Random random = new Random(0);
+		DLNAThumbnail first = null;
+		String firstKey = null;
+		// noise doesn't compress, 20 of them are over 1 MB
+		for (int i = 0; i < 20; i++) {
+			BufferedImage image = new BufferedImage(160, 160, BufferedImage.TYPE_INT_RGB);
+			for (int x = 0; x < 160; x++) {
+				for (int y = 0; y < 160; y++) {
+					image.setRGB(x, y, random.nextInt());
+				}
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ImageIO.write(image, "png", out);
+			DLNAThumbnail thumbnail = DLNAThumbnail.toThumbnail(out.toByteArray());
+			String key = DLNAThumbnailVariantCache.getKey(i, "1", DLNAImageProfile.PNG_TN, false, null, false);
+			DLNAThumbnailVariantCache.put(i, "1", key, thumbnail);
+			if (first == null) {
+				first = thumbnail;
+				firstKey = key;
+			}
+		}
+		DLNAThumbnail spilled = DLNAThumbnailVariantCache.get(0, "1", firstKey);
+		assertNotNull(spilled);
+		assertNotSame(first, spilled);
+		assertArrayEquals(first.getBytes(false), spilled.getBytes(false));
+		assertEquals(first.getDLNAImageProfile(), spilled.getDLNAImageProfile());
+		assertEquals(first.getWidth(), spilled.getWidth());
+		assertEquals(first.getHeight(), spilled.getHeight());
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Supplier;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.RendererConfigurations;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.renderers.Renderer;
+import net.pms.store.StoreItem;
+import net.pms.store.StoreResource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the DIDL-Lite of a {@link #PAGE_SIZE} items browse page written
+ * escaped then unescaped as a whole, as before, written directly, and taken
+ * from the fragments of the previous browse.
+ *
+ * This is not part of the regular test run, launch it with:
+ * {@code mvn test -Dtest=DidlBenchmark -Dsurefire.failIfNoSpecifiedTests=false}
+ */
+public class DidlBenchmark {
+	private static final int PAGE_SIZE = 500;
+	private static final int WARMUP = 50;
+	private static final int ITERATIONS = 200;
+
+	@Test
+	public void benchmark() throws Exception {
+		PMS.setConfiguration(new UmsConfiguration(false));
+		RendererConfigurations.loadRendererConfigurations();
+		TestHelper.SetLoggingOff();
+		Renderer renderer = new Renderer(RendererConfigurations.getDefaultConf());
+		List<StoreResource> page = DidlHelperTest.createPage(renderer, PAGE_SIZE);
+		assertEquals(DidlHelperTest.getUnescapedDidlResults(page), DidlHelper.getDidlResults(page));
+
+		run("escaped + unescape", () -> DidlHelperTest.getUnescapedDidlResults(page));
+		run("direct writer", () -> {
+			for (StoreResource resource : page) {
+				if (resource instanceof StoreItem item) {
+					item.setDidlFragment(null);
+				}
+			}
+			return DidlHelper.getDidlResults(page);
+		});
+		run("cached fragments", () -> DidlHelper.getDidlResults(page));
+	}
+
+	private static void run(String name, Supplier<String> didl) {
+		for (int i = 0; i < WARMUP; i++) {
+			didl.get();
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long bytes = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			didl.get();
+		}
+		long nanos = System.nanoTime() - start;
+		bytes = threads.getThreadAllocatedBytes(thread) - bytes;
+		System.out.printf("%-19s %.2f ms/page %,d KB/page%n", name + ":", nanos / 1e6 / ITERATIONS, bytes / 1024 / ITERATIONS);
+	}
+
+}
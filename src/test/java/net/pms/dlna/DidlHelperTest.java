@@ -0,0 +1,128 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.RendererConfigurations;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.media.MediaInfo;
+import net.pms.media.audio.metadata.MediaAudioMetadata;
+import net.pms.network.mediaserver.HTTPXMLHelper;
+import net.pms.renderers.Renderer;
+import net.pms.store.StoreContainer;
+import net.pms.store.StoreResource;
+import net.pms.store.item.RealFile;
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.text.StringEscapeUtils;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class DidlHelperTest {
+
+	private static Renderer renderer;
+
+	@BeforeAll
+	public static void setUpClass() throws ConfigurationException, InterruptedException {
+		PMS.setConfiguration(new UmsConfiguration(false));
+		RendererConfigurations.loadRendererConfigurations();
+		renderer = new Renderer(RendererConfigurations.getDefaultConf());
+	}
+
+	@BeforeEach
+	public void setUp() {
+		TestHelper.SetLoggingOff();
+	}
+
+	/**
+	 * Returns a page of audio tracks, with titles to escape.
+	 */
+	static List<StoreResource> createPage(Renderer renderer, int size) {
+		StoreContainer folder = new StoreContainer(renderer, "Rock & Roll", null);
+		List<StoreResource> resources = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			RealFile file = new RealFile(renderer, new File("/didl/track" + i + ".mp3"));
+			file.resolveFormat();
+			MediaInfo mediaInfo = new MediaInfo();
+			mediaInfo.setMediaParser("test");
+			mediaInfo.setDuration(180.0 + i);
+			mediaInfo.setSize(4_000_000L + i);
+			MediaAudioMetadata audioMetadata = new MediaAudioMetadata();
+			audioMetadata.setSongname("Song " + i);
+			audioMetadata.setArtist("Artist <" + i + "> & \"Band\"");
+			audioMetadata.setAlbum("Album " + (i / 10));
+			audioMetadata.setGenre("Rock");
+			audioMetadata.setTrack(i % 10 + 1);
+			mediaInfo.setAudioMetadata(audioMetadata);
+			file.setMediaInfo(mediaInfo);
+			folder.addChild(file);
+			resources.add(file);
+		}
+		resources.add(folder);
+		return resources;
+	}
+
+	/**
+	 * The previous way, one escaped DIDL string per resource then unescaped as
+	 * a whole.
+	 */
+	static String getUnescapedDidlResults(List<StoreResource> resources) {
+		StringBuilder filesData = new StringBuilder();
+		filesData.append(HTTPXMLHelper.DIDL_HEADER);
+		for (StoreResource resource : resources) {
+			filesData.append(DidlHelper.getDidlString(resource));
+		}
+		filesData.append(HTTPXMLHelper.DIDL_FOOTER);
+		return StringEscapeUtils.unescapeXml(filesData.toString());
+	}
+
+	@Test
+	public void testDidlResults() {
+		List<StoreResource> resources = createPage(renderer, 5);
+		String expected = getUnescapedDidlResults(resources);
+		assertTrue(expected.contains("<upnp:artist>Artist &lt;0&gt; &amp; \"Band\"</upnp:artist>"));
+		assertEquals(expected, DidlHelper.getDidlResults(resources));
+		// from the fragments
+		assertEquals(expected, DidlHelper.getDidlResults(resources));
+	}
+
+	@Test
+	public void testFragmentInvalidation() {
+		List<StoreResource> resources = createPage(renderer, 1);
+		RealFile file = (RealFile) resources.get(0);
+		DidlHelper.getDidlResults(resources);
+		DidlFragment fragment = file.getDidlFragment();
+		assertNotNull(fragment);
+		DidlHelper.getDidlResults(resources);
+		assertSame(fragment, file.getDidlFragment());
+
+		MediaInfo mediaInfo = new MediaInfo();
+		mediaInfo.setMediaParser("test");
+		MediaAudioMetadata audioMetadata = new MediaAudioMetadata();
+		audioMetadata.setAlbum("Renamed");
+		mediaInfo.setAudioMetadata(audioMetadata);
+		file.setMediaInfo(mediaInfo);
+		assertTrue(DidlHelper.getDidlResults(resources).contains("<upnp:album>Renamed</upnp:album>"));
+		assertNotSame(fragment, file.getDidlFragment());
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.external;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import org.apache.commons.configuration.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class JavaHttpClientTest {
+
+	private static HttpServer server;
+	private static String baseUri;
+	private static final List<String> REQUESTS = new ArrayList<>();
+	private static final AtomicInteger VERSION = new AtomicInteger();
+
+	@BeforeAll
+	public static void setUpClass() throws ConfigurationException, InterruptedException, IOException {
+		PMS.setConfiguration(new UmsConfiguration(false));
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/etag", exchange -> {
+			String etag = "\"v" + VERSION.get() + "\"";
+			exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+			exchange.getResponseHeaders().set("ETag", etag);
+			if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				respond(exchange, 304, null);
+			} else {
+				respond(exchange, 200, "version " + VERSION.get());
+			}
+		});
+		server.createContext("/max-age", exchange -> {
+			exchange.getResponseHeaders().set("Cache-Control", "public, max-age=3600");
+			respond(exchange, 200, "fresh");
+		});
+		server.createContext("/no-store", exchange -> {
+			exchange.getResponseHeaders().set("Cache-Control", "no-store");
+			exchange.getResponseHeaders().set("ETag", "\"v1\"");
+			respond(exchange, 200, "private");
+		});
+		server.createContext("/latin1", exchange -> {
+			byte[] bytes = "caf\u00e9".getBytes(StandardCharsets.ISO_8859_1);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=\"ISO-8859-1\"");
+			exchange.sendResponseHeaders(200, bytes.length);
+			exchange.getResponseBody().write(bytes);
+			exchange.close();
+		});
+		server.createContext("/missing", exchange -> respond(exchange, 404, null));
+		server.start();
+		baseUri = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+	}
+
+	@AfterAll
+	public static void tearDownClass() {
+		HttpResponseCache.clear();
+		server.stop(0);
+	}
+
+	@BeforeEach
+	public void setUp() {
+		TestHelper.SetLoggingOff();
+		HttpResponseCache.clear();
+		synchronized (REQUESTS) {
+			REQUESTS.clear();
+		}
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		synchronized (REQUESTS) {
+			REQUESTS.add(exchange.getRequestURI().getPath() + " " + status);
+		}
+		byte[] bytes = body == null ? null : body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(status, bytes == null ? -1 : bytes.length);
+		if (bytes != null) {
+			exchange.getResponseBody().write(bytes);
+		}
+		exchange.close();
+	}
+
+	private static List<String> getRequests() {
+		synchronized (REQUESTS) {
+			return new ArrayList<>(REQUESTS);
+		}
+	}
+
+	@Test
+	public void testRevalidation() throws IOException {
+		VERSION.set(1);
+		assertEquals("version 1", JavaHttpClient.getStringBody(baseUri + "/etag"));
+		// the cached body is used on 304
+		assertEquals("version 1", JavaHttpClient.getStringBody(baseUri + "/etag"));
+		VERSION.set(2);
+		assertEquals("version 2", JavaHttpClient.getStringBody(baseUri + "/etag"));
+		assertEquals(List.of("/etag 200", "/etag 304", "/etag 200"), getRequests());
+	}
+
+	@Test
+	public void testFreshResponse() throws IOException {
+		assertEquals("fresh", JavaHttpClient.getStringBody(baseUri + "/max-age"));
+		HttpResponse<byte[]> response = JavaHttpClient.getResponse(baseUri + "/max-age");
+		assertEquals(200, response.statusCode());
+		assertEquals("fresh", new String(response.body(), StandardCharsets.UTF_8));
+		assertEquals(List.of("/max-age 200"), getRequests());
+	}
+
+	@Test
+	public void testNoStore() throws IOException {
+		assertEquals("private", JavaHttpClient.getStringBody(baseUri + "/no-store"));
+		assertEquals("private", JavaHttpClient.getStringBody(baseUri + "/no-store"));
+		assertEquals(List.of("/no-store 200", "/no-store 200"), getRequests());
+		assertNull(HttpResponseCache.get(URI.create(baseUri + "/no-store")));
+	}
+
+	@Test
+	public void testCharset() throws IOException {
+		assertEquals("caf\u00e9", JavaHttpClient.getStringBody(baseUri + "/latin1"));
+	}
+
+	@Test
+	public void testErrorStatus() throws IOException {
+		assertEquals(404, JavaHttpClient.getResponse(baseUri + "/missing").statusCode());
+		assertThrows(IOException.class, () -> JavaHttpClient.getBytes(baseUri + "/missing"));
+		assertEquals(List.of("/missing 404", "/missing 404"), getRequests());
+	}
+
+}
@@ -17,19 +17,29 @@
 package net.pms.formats.v2;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
 import net.pms.TestHelper;
 import static net.pms.formats.v2.SubtitleType.VOBSUB;
+import net.pms.media.MediaInfo;
 import net.pms.media.subtitle.MediaSubtitle;
 import net.pms.media.subtitle.MediaSubtitleTest;
+import net.pms.util.SubtitleUtils;
 import static net.pms.util.SubtitleUtils.getSubCpOptionForMencoder;
 import org.apache.commons.io.FileUtils;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class SubtitleUtilsTest {
 	private final Class<?> CLASS = MediaSubtitleTest.class;
 
+	@TempDir
+	Path folder;
+
 	/**
 	 * Set up testing conditions before running the tests.
 	 */
@@ -136,4 +146,41 @@ public class SubtitleUtilsTest {
 		sub7.setExternalFile(file_utf8_3);
 		assertNull(getSubCpOptionForMencoder(sub7));
 	}
+
+	private static Set<String> getExternalSubtitlesNames(MediaInfo media) {
+		Set<String> names = new HashSet<>();
+		for (MediaSubtitle subtitle : media.getSubtitlesTracks()) {
+			names.add(subtitle.getExternalFile().getName());
+		}
+		return names;
+	}
+
+	@Test
+	public void testSearchAndAttachExternalSubtitles() throws Exception {
+		String content = "1\n00:00:01,000 --> 00:00:02,000\nHello\n";
+		File video = folder.resolve("Show.S01E01.mkv").toFile();
+		Files.writeString(video.toPath(), "");
+		Files.writeString(folder.resolve("Show.S01E01.en.srt"), content);
+		Files.writeString(folder.resolve("Show.S01E02.en.srt"), content);
+		Files.writeString(folder.resolve("Show.S01E01.nfo"), content);
+		Files.createDirectory(folder.resolve("Subs"));
+		Files.writeString(folder.resolve("Subs").resolve("show.s01e01.fr.srt"), content);
+
+		MediaInfo media = new MediaInfo();
+		assertTrue(SubtitleUtils.searchAndAttachExternalSubtitles(video, media, false));
+		assertEquals(Set.of("Show.S01E01.en.srt", "show.s01e01.fr.srt"), getExternalSubtitlesNames(media));
+		assertFalse(SubtitleUtils.searchAndAttachExternalSubtitles(video, media, false));
+
+		// a new file, seen once the watcher reports the change
+		Files.writeString(folder.resolve("Show.S01E01.de.srt"), content);
+		SubtitleUtils.invalidateFolder(folder.toFile());
+		assertTrue(SubtitleUtils.searchAndAttachExternalSubtitles(video, media, false));
+		assertEquals(Set.of("Show.S01E01.en.srt", "Show.S01E01.de.srt", "show.s01e01.fr.srt"), getExternalSubtitlesNames(media));
+
+		// a removed file in the subtitles subfolder
+		Files.delete(folder.resolve("Subs").resolve("show.s01e01.fr.srt"));
+		SubtitleUtils.invalidateFolder(folder.resolve("Subs").toFile());
+		assertTrue(SubtitleUtils.searchAndAttachExternalSubtitles(video, media, false));
+		assertEquals(Set.of("Show.S01E01.en.srt", "Show.S01E01.de.srt"), getExternalSubtitlesNames(media));
+	}
 }
@@ -0,0 +1,87 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.image;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import javax.imageio.ImageIO;
+import net.pms.image.ImageIOTools.ImageReaderResult;
+import net.pms.image.ImagesUtil.ScaleType;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class ImageIOToolsTest {
+
+	private static byte[] jpeg;
+
+	@BeforeAll
+	public static void setUpClass() throws Exception {
+		BufferedImage image = new BufferedImage(4000, 3000, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D graphics = image.createGraphics();
+		graphics.setColor(Color.BLUE);
+		graphics.fillRect(0, 0, 4000, 3000);
+		graphics.setColor(Color.YELLOW);
+		graphics.fillRect(1000, 1000, 2000, 1000);
+		graphics.dispose();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "jpeg", out);
+		jpeg = out.toByteArray();
+	}
+
+	@Test
+	public void testGetSubsampling() {
+		assertEquals(1, ImageIOTools.getSubsampling(4000, 3000, 0, 0, ScaleType.MAX));
+		assertEquals(1, ImageIOTools.getSubsampling(4000, 3000, 4096, 4096, ScaleType.MAX));
+		// 4000x3000 into 1000x1000 is 1000x750, at least 1000x750 whatever the orientation
+		assertEquals(4, ImageIOTools.getSubsampling(4000, 3000, 1000, 1000, ScaleType.MAX));
+		// 7952x5304 into 3840x2400 is 3598x2400, or 1600x2400 rotated
+		assertEquals(2, ImageIOTools.getSubsampling(7952, 5304, 3840, 2400, ScaleType.MAX));
+		// 4000x3000 into 1000x100 is 133x100
+		assertEquals(30, ImageIOTools.getSubsampling(4000, 3000, 1000, 100, ScaleType.MAX));
+		assertEquals(3, ImageIOTools.getSubsampling(4000, 3000, 1000, 1000, ScaleType.EXACT));
+	}
+
+	@Test
+	public void testSubsampledRead() throws Exception {
+		ImageReaderResult full = ImageIOTools.read(new ByteArrayInputStream(jpeg));
+		assertEquals(4000, full.width);
+		assertFalse(full.subsampled);
+
+		ImageReaderResult result = ImageIOTools.read(new ByteArrayInputStream(jpeg), 1000, 1000, ScaleType.MAX);
+		assertEquals(ImageFormat.JPEG, result.imageFormat);
+		assertTrue(result.subsampled);
+		assertEquals(1000, result.width);
+		assertEquals(750, result.height);
+		Color center = new Color(result.bufferedImage.getRGB(500, 375));
+		assertTrue(center.getRed() > 200 && center.getGreen() > 200 && center.getBlue() < 80);
+	}
+
+	@Test
+	public void testScaledImage() throws Exception {
+		Image image = Image.toImage(jpeg, 1000, 1000, ScaleType.MAX, ImageFormat.JPEG, false);
+		assertNotNull(image);
+		assertEquals(1000, image.getWidth());
+		assertEquals(750, image.getHeight());
+		BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(image.getBytes(false)));
+		assertEquals(1000, decoded.getWidth());
+	}
+
+}
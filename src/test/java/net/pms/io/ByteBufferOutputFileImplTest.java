@@ -0,0 +1,123 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import org.apache.commons.configuration.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ByteBufferOutputFileImplTest {
+
+	@BeforeAll
+	public static void setUpClass() throws ConfigurationException, InterruptedException {
+		PMS.setConfiguration(new UmsConfiguration(false));
+	}
+
+	@BeforeEach
+	public void setUp() {
+		TestHelper.SetLoggingOff();
+	}
+
+	private static OutputParams getParams() {
+		OutputParams params = new OutputParams(PMS.getConfiguration());
+		params.setMaxBufferSize(25);
+		params.setMinBufferSize(0);
+		params.setSecondReadMinSize(0);
+		params.setHideBuffer(true);
+		return params;
+	}
+
+	private static byte[] getBytes(int start, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = (byte) (start + i);
+		}
+		return bytes;
+	}
+
+	private static int readFully(InputStream is, byte[] bytes, int length) throws IOException {
+		int total = 0;
+		while (total < length) {
+			int read = is.read(bytes, total, length - total);
+			if (read == -1) {
+				break;
+			}
+			total += read;
+		}
+		return total;
+	}
+
+	@Test
+	public void testWrapAround() throws IOException {
+		ByteBufferOutputFileImpl buffer = new ByteBufferOutputFileImpl(getParams(), false);
+		assertEquals(25 * 1048576, buffer.getBufferCapacity());
+		InputStream is = buffer.getInputStream(0);
+
+		// the buffer wraps around after the fifth chunk
+		int chunk = 5000000;
+		byte[] read = new byte[chunk];
+		for (int i = 0; i < 6; i++) {
+			buffer.write(getBytes(i * chunk, chunk));
+			assertEquals(chunk, buffer.getBufferedBytes());
+			assertEquals(chunk, readFully(is, read, chunk));
+			assertArrayEquals(getBytes(i * chunk, chunk), read);
+		}
+		buffer.close();
+		assertEquals(-1, is.read());
+		assertEquals(6L * chunk, buffer.getWriteCount());
+	}
+
+	@Test
+	public void testLazyAllocation() throws IOException {
+		ByteBufferOutputFileImpl buffer = new ByteBufferOutputFileImpl(getParams(), false);
+		assertEquals(0, buffer.getAllocatedBytes());
+		buffer.write(getBytes(0, 5000000));
+		assertEquals(8 * 1048576, buffer.getAllocatedBytes());
+		buffer.close();
+		buffer.reset();
+		assertEquals(0, buffer.getAllocatedBytes());
+		// the chunks of the first buffer are reused
+		ByteBufferOutputFileImpl next = new ByteBufferOutputFileImpl(getParams(), false);
+		InputStream is = next.getInputStream(0);
+		next.write(getBytes(1, 5000000));
+		next.close();
+		byte[] read = new byte[5000000];
+		assertEquals(5000000, readFully(is, read, 5000000));
+		assertArrayEquals(getBytes(1, 5000000), read);
+		next.reset();
+	}
+
+	@Test
+	public void testSingleByteReadWrite() throws IOException {
+		ByteBufferOutputFileImpl buffer = new ByteBufferOutputFileImpl(getParams(), false);
+		InputStream is = buffer.getInputStream(0);
+		buffer.write(0x7F);
+		buffer.write(0xFF);
+		buffer.close();
+		assertEquals(0x7F, is.read());
+		assertEquals(0xFF, is.read());
+		assertEquals(-1, is.read());
+	}
+
+}
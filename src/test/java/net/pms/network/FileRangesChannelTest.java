@@ -0,0 +1,80 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileRangesChannelTest {
+
+	@TempDir
+	File tempDir;
+
+	private File createFile() throws IOException {
+		File file = new File(tempDir, "ranges.txt");
+		Files.writeString(file.toPath(), "0123456789abcdefghij");
+		return file;
+	}
+
+	private static String readAll(FileRangesChannel channel, int bufferSize) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+		while (channel.read(buffer) != -1) {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				out.write(buffer.get());
+			}
+			buffer.clear();
+		}
+		return out.toString(StandardCharsets.ISO_8859_1);
+	}
+
+	@Test
+	public void testSingleRange() throws IOException {
+		try (FileRangesChannel channel = new FileRangesChannel(createFile())) {
+			channel.addRange(5, 14);
+			assertEquals(10, channel.length());
+			assertEquals("56789abcde", readAll(channel, 3));
+			assertEquals(10, channel.position());
+		}
+	}
+
+	@Test
+	public void testMultipleRanges() throws IOException {
+		try (FileRangesChannel channel = new FileRangesChannel(createFile())) {
+			channel.addText("--a\r\n").addRange(0, 1).addText("--b\r\n").addRange(18, 19).addText("--");
+			assertEquals(16, channel.length());
+			assertEquals("--a\r\n01--b\r\nij--", readAll(channel, 4));
+		}
+	}
+
+	@Test
+	public void testClosed() throws IOException {
+		FileRangesChannel channel = new FileRangesChannel(createFile());
+		channel.close();
+		assertFalse(channel.isOpen());
+		assertThrows(IOException.class, () -> channel.read(ByteBuffer.allocate(1)));
+	}
+
+}
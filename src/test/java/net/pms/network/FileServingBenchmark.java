@@ -0,0 +1,146 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.network;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import org.eclipse.jetty.ee10.servlet.ServletContextHandler;
+import org.eclipse.jetty.ee10.servlet.ServletHolder;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Compares the throughput of the stream copy path and of the file channel
+ * path used to serve regular files.
+ *
+ * This is not part of the regular test run, launch it with:
+ * {@code mvn test -Dtest=FileServingBenchmark -Dsurefire.failIfNoSpecifiedTests=false}
+ */
+public class FileServingBenchmark {
+	private static final long FILE_SIZE = 512L * 1024 * 1024;
+	private static final int WARMUP_ITERATIONS = 2;
+	private static final int ITERATIONS = 5;
+
+	@TempDir
+	static File tempDir;
+
+	private static File file;
+	private static Server server;
+	private static URI uri;
+
+	@BeforeAll
+	public static void setUpClass() throws Exception {
+		PMS.setConfiguration(new UmsConfiguration(false));
+		TestHelper.SetLoggingOff();
+		file = new File(tempDir, "benchmark.bin");
+		byte[] block = new byte[1024 * 1024];
+		new Random(0).nextBytes(block);
+		try (OutputStream os = new FileOutputStream(file)) {
+			for (long written = 0; written < FILE_SIZE; written += block.length) {
+				os.write(block);
+			}
+		}
+		server = new Server();
+		ServerConnector connector = new ServerConnector(server);
+		connector.setHost("127.0.0.1");
+		connector.setPort(0);
+		server.addConnector(connector);
+		ServletContextHandler context = new ServletContextHandler();
+		ServletHolder holder = new ServletHolder(new FileServlet());
+		holder.setAsyncSupported(true);
+		context.addServlet(holder, "/*");
+		server.setHandler(context);
+		server.start();
+		uri = URI.create("http://127.0.0.1:" + connector.getLocalPort() + "/");
+	}
+
+	@AfterAll
+	public static void tearDownClass() throws Exception {
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void benchmark() throws Exception {
+		HttpClient client = HttpClient.newHttpClient();
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			download(client, "stream");
+			download(client, "channel");
+		}
+		long streamNanos = 0;
+		long channelNanos = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			streamNanos += download(client, "stream");
+			channelNanos += download(client, "channel");
+		}
+		System.out.printf("stream copy:  %.1f MB/s%n", getThroughput(streamNanos));
+		System.out.printf("file channel: %.1f MB/s%n", getThroughput(channelNanos));
+	}
+
+	private static double getThroughput(long nanos) {
+		return (FILE_SIZE * ITERATIONS / (1024.0 * 1024.0)) / (nanos / 1e9);
+	}
+
+	private static long download(HttpClient client, String path) throws Exception {
+		AtomicLong received = new AtomicLong();
+		HttpRequest request = HttpRequest.newBuilder(uri.resolve("?path=" + path)).build();
+		long start = System.nanoTime();
+		HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.ofByteArrayConsumer(bytes -> bytes.ifPresent(b -> received.addAndGet(b.length))));
+		long elapsed = System.nanoTime() - start;
+		assertEquals(200, response.statusCode());
+		assertEquals(FILE_SIZE, received.get());
+		return elapsed;
+	}
+
+	private static class FileServlet extends HttpServletHelper {
+		@Override
+		protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+			AsyncContext async = req.startAsync();
+			resp.setContentLengthLong(file.length());
+			resp.setStatus(200);
+			if ("stream".equals(req.getParameter("path"))) {
+				// as MediaServerServlet.sendResponse
+				copyStreamAsync(new FileInputStream(file), resp.getOutputStream(), async);
+			} else {
+				// as MediaServerServlet.sendFileResponse
+				sendChannelAsync(new FileRangesChannel(file).addRange(0, file.length() - 1), resp.getOutputStream(), async, null);
+			}
+		}
+	}
+
+}
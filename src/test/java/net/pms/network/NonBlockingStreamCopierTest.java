@@ -0,0 +1,242 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.network;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.io.NonBlockingReadable;
+import org.eclipse.jetty.ee10.servlet.ServletContextHandler;
+import org.eclipse.jetty.ee10.servlet.ServletHolder;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class NonBlockingStreamCopierTest {
+	private static final int MAX_THREADS = 16;
+	private static final int CLIENTS = 200;
+	private static final int STREAM_SIZE = 2 * 1024 * 1024;
+	private static final AtomicInteger ACTIVE = new AtomicInteger();
+	private static final AtomicInteger MAX_ACTIVE = new AtomicInteger();
+
+	private static Server server;
+	private static int port;
+
+	@BeforeAll
+	public static void setUpClass() throws Exception {
+		PMS.setConfiguration(new UmsConfiguration(false));
+		TestHelper.SetLoggingOff();
+		QueuedThreadPool threadPool = new QueuedThreadPool(MAX_THREADS, 4);
+		server = new Server(threadPool);
+		ServerConnector connector = new ServerConnector(server, 1, 1);
+		connector.setHost("127.0.0.1");
+		connector.setPort(0);
+		// keep the kernel from absorbing the whole stream
+		connector.setAcceptedSendBufferSize(16 * 1024);
+		server.addConnector(connector);
+		ServletContextHandler context = new ServletContextHandler();
+		ServletHolder holder = new ServletHolder(new StreamServlet());
+		holder.setAsyncSupported(true);
+		context.addServlet(holder, "/*");
+		server.setHandler(context);
+		server.start();
+		port = connector.getLocalPort();
+	}
+
+	@AfterAll
+	public static void tearDownClass() throws Exception {
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Slow clients must not hold a server thread each.
+	 */
+	@Test
+	public void testSlowClients() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+		try {
+			CountDownLatch startSignal = new CountDownLatch(1);
+			List<Future<Long>> results = new ArrayList<>();
+			for (int i = 0; i < CLIENTS; i++) {
+				results.add(executor.submit(() -> {
+					startSignal.await();
+					return download("/stream", 8 * 1024, 2);
+				}));
+			}
+			startSignal.countDown();
+			for (Future<Long> result : results) {
+				assertEquals(STREAM_SIZE, result.get(2, TimeUnit.MINUTES));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertTrue(MAX_ACTIVE.get() > MAX_THREADS, "only " + MAX_ACTIVE.get() + " concurrent streams");
+	}
+
+	/**
+	 * A source without data yet is polled instead of being read.
+	 */
+	@Test
+	public void testSourceNotReady() throws Exception {
+		long start = System.currentTimeMillis();
+		assertEquals(STREAM_SIZE, download("/late", 64 * 1024, 0));
+		assertTrue(System.currentTimeMillis() - start >= 300);
+	}
+
+	/**
+	 * Downloads a response and checks its content.
+	 *
+	 * @return the body length.
+	 */
+	private static long download(String path, int readSize, long pause) throws IOException, InterruptedException {
+		try (Socket socket = new Socket()) {
+			socket.setReceiveBufferSize(16 * 1024);
+			socket.connect(new InetSocketAddress("127.0.0.1", port));
+			socket.setSoTimeout(60000);
+			OutputStream os = socket.getOutputStream();
+			os.write(("GET " + path + " HTTP/1.1\r\nHost: 127.0.0.1\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+			os.flush();
+			InputStream in = socket.getInputStream();
+			StringBuilder headers = new StringBuilder();
+			while (!headers.toString().endsWith("\r\n\r\n")) {
+				int b = in.read();
+				if (b == -1) {
+					throw new IOException("Unexpected end of headers");
+				}
+				headers.append((char) b);
+			}
+			assertTrue(headers.toString().startsWith("HTTP/1.1 200"), headers.toString());
+			byte[] buffer = new byte[readSize];
+			long received = 0;
+			int bytes;
+			while ((bytes = in.read(buffer)) != -1) {
+				for (int i = 0; i < bytes; i++) {
+					if (buffer[i] != GeneratedInputStream.getByte(received + i)) {
+						throw new IOException("Unexpected byte at " + (received + i));
+					}
+				}
+				received += bytes;
+				if (pause > 0) {
+					Thread.sleep(pause);
+				}
+			}
+			return received;
+		}
+	}
+
+	private static class StreamServlet extends HttpServletHelper {
+		@Override
+		protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+			AsyncContext async = req.startAsync();
+			int active = ACTIVE.incrementAndGet();
+			MAX_ACTIVE.accumulateAndGet(active, Math::max);
+			async.addListener(new AsyncListener() {
+				@Override
+				public void onComplete(AsyncEvent event) {
+					ACTIVE.decrementAndGet();
+				}
+
+				@Override
+				public void onTimeout(AsyncEvent event) {
+				}
+
+				@Override
+				public void onError(AsyncEvent event) {
+				}
+
+				@Override
+				public void onStartAsync(AsyncEvent event) {
+				}
+			});
+			resp.setContentLength(STREAM_SIZE);
+			resp.setStatus(200);
+			InputStream in = "/late".equals(req.getRequestURI()) ?
+				new GeneratedInputStream(System.currentTimeMillis() + 300) :
+				new GeneratedInputStream(0);
+			copyStreamAsync(in, resp.getOutputStream(), async);
+		}
+	}
+
+	/**
+	 * A stream of {@link #STREAM_SIZE} known bytes, like a transcoding buffer
+	 * which has data from a given time.
+	 */
+	private static class GeneratedInputStream extends InputStream implements NonBlockingReadable {
+		private final long readyTime;
+		private long position;
+
+		GeneratedInputStream(long readyTime) {
+			this.readyTime = readyTime;
+		}
+
+		static byte getByte(long position) {
+			return (byte) (position % 251);
+		}
+
+		@Override
+		public boolean isReadReady() {
+			return System.currentTimeMillis() >= readyTime;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (!isReadReady()) {
+				throw new IOException("Read before the data is available");
+			}
+			if (position >= STREAM_SIZE) {
+				return -1;
+			}
+			int bytes = (int) Math.min(len, STREAM_SIZE - position);
+			for (int i = 0; i < bytes; i++) {
+				b[off + i] = getByte(position++);
+			}
+			return bytes;
+		}
+	}
+
+}
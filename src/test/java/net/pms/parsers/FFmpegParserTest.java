@@ -16,11 +16,18 @@
  */
 package net.pms.parsers;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.util.List;
+import javax.imageio.ImageIO;
 import net.pms.formats.Format;
 import net.pms.formats.FormatFactory;
 import net.pms.media.MediaInfo;
+import net.pms.media.audio.MediaAudio;
 import net.pms.util.InputFile;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -46,6 +53,57 @@ public class FFmpegParserTest {
 		return mediaInfo;
 	}
 
+	/**
+	 * A failed ffprobe parsing falls back to FFmpeg.
+	 */
+	@Test
+	public void testFFprobeFailure() throws Exception {
+		if (!FFmpegParser.isValid()) {
+			//the executable was not found
+			LOGGER.info("FFmpegParser test skipped");
+			return;
+		}
+
+		File file = ParserTest.getTestFile("video-h264-aac.mp4");
+		InputFile inputFile = new InputFile();
+		inputFile.setFile(file);
+		MediaInfo mediaInfo = new MediaInfo();
+		mediaInfo.setSize(file.length());
+		FFmpegParser.parse(mediaInfo, inputFile, (media, input) -> {
+			// a partial result, as a killed ffprobe would leave
+			media.addAudioTrack(new MediaAudio());
+			return false;
+		});
+		MediaInfo expected = new MediaInfo();
+		expected.setSize(file.length());
+		FFmpegParser.parse(expected, inputFile, (media, input) -> false);
+		assertEquals(1, mediaInfo.getAudioTracks().size());
+		assertEquals(1, mediaInfo.getVideoTracks().size());
+		assertEquals(expected.toString(), mediaInfo.toString());
+	}
+
+	/**
+	 * An ffprobe error falls back to FFmpeg instead of escaping.
+	 */
+	@Test
+	public void testFFprobeError() throws Exception {
+		File file = ParserTest.getTestFile("video-h264-aac.mp4");
+		InputFile inputFile = new InputFile();
+		inputFile.setFile(file);
+		MediaInfo mediaInfo = new MediaInfo();
+		assertDoesNotThrow(() -> FFmpegParser.parse(mediaInfo, inputFile, (media, input) -> {
+			media.addAudioTrack(new MediaAudio());
+			throw new IllegalArgumentException("Redirect invalid for reading");
+		}));
+		if (!FFmpegParser.isValid()) {
+			// the partial result was dropped
+			assertEquals(0, mediaInfo.getAudioTracks().size());
+		} else {
+			assertEquals(1, mediaInfo.getAudioTracks().size());
+			assertEquals(1, mediaInfo.getVideoTracks().size());
+		}
+	}
+
 	@Test
 	public void testParser() throws Exception {
 		if (!FFmpegParser.isValid()) {
@@ -207,4 +265,32 @@ public class FFmpegParserTest {
 
 	}
 
+	@Test
+	public void testSplitJpegImages() throws Exception {
+		byte[] first = getJpeg(32, 24);
+		byte[] second = getJpeg(16, 16);
+		ByteArrayOutputStream piped = new ByteArrayOutputStream();
+		piped.write(first);
+		piped.write(second);
+		piped.write(first, 0, first.length / 2);
+
+		List<byte[]> images = FFmpegParser.splitJpegImages(piped.toByteArray());
+		assertEquals(2, images.size());
+		assertArrayEquals(first, images.get(0));
+		assertArrayEquals(second, images.get(1));
+		assertEquals(0, FFmpegParser.splitJpegImages(new byte[0]).size());
+	}
+
+	private static byte[] getJpeg(int width, int height) throws Exception {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				image.setRGB(x, y, x * 0x0F0F0F + y * 0xF00F);
+			}
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "jpg", out);
+		return out.toByteArray();
+	}
+
 }
@@ -0,0 +1,214 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.parsers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import net.pms.PMS;
+import net.pms.configuration.FormatConfiguration;
+import net.pms.formats.Format;
+import net.pms.formats.FormatFactory;
+import net.pms.formats.v2.SubtitleType;
+import net.pms.media.MediaInfo;
+import net.pms.media.audio.MediaAudio;
+import net.pms.media.video.MediaVideo;
+import net.pms.util.InputFile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class FFprobeParserTest {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FFprobeParserTest.class.getName());
+
+	private static final String[] FIXTURES = {
+		"video-h264-aac.mp4",
+		"video-mpeg4-aac.mkv",
+		"video-h265-aac.mkv",
+		"video-theora-vorbis.ogg",
+		"video-h264-aac.m4v",
+		"video-mp4-aac.3g2",
+		"video-mp4-aac.mov",
+		"video-vp8-vorbis.webm",
+		"video-sor-aac.flv",
+		"video-xvid-mp3.avi",
+		"video-h264-eac3.mkv",
+		"video-h265_hdr10-aac.mkv"
+	};
+
+	private static final String PROBE = """
+		{
+			"streams": [
+				{
+					"index": 0, "codec_name": "hevc", "profile": "Main 10", "codec_type": "video",
+					"width": 3840, "height": 2160, "r_frame_rate": "24000/1001", "color_transfer": "smpte2084",
+					"disposition": {"default": 1, "forced": 0, "attached_pic": 0},
+					"side_data_list": [{"side_data_type": "DOVI configuration record", "dv_profile": 8, "dv_bl_signal_compatibility_id": 1}]
+				},
+				{
+					"index": 1, "codec_name": "aac", "profile": "HE-AAC", "codec_type": "audio",
+					"sample_rate": "48000", "channels": 6, "bit_rate": "256000",
+					"disposition": {"default": 1, "forced": 0},
+					"tags": {"language": "fre", "title": "Surround"}
+				},
+				{
+					"index": 2, "codec_name": "hdmv_pgs_subtitle", "codec_type": "subtitle",
+					"disposition": {"default": 0, "forced": 1},
+					"tags": {"language": "eng"}
+				},
+				{
+					"index": 3, "codec_name": "mjpeg", "codec_type": "video",
+					"disposition": {"default": 0, "forced": 0, "attached_pic": 1}
+				}
+			],
+			"chapters": [
+				{"id": 1, "start_time": "0.000000", "end_time": "60.000000", "tags": {"title": "Opening"}},
+				{"id": 2, "start_time": "60.000000", "end_time": "120.500000", "tags": {"title": "Chapter 2"}}
+			],
+			"format": {
+				"format_name": "matroska,webm", "duration": "120.500000", "bit_rate": "20000000",
+				"tags": {"title": "Movie"}
+			}
+		}
+		""";
+
+	@BeforeAll
+	public static void setUpClass() {
+		ParserTest.setUpClass();
+	}
+
+	@Test
+	public void testParseJson() throws Exception {
+		MediaInfo media = new MediaInfo();
+		FFprobeParser.parseJson(media, new StringReader(PROBE), "movie.mkv");
+
+		assertEquals(FormatConfiguration.MKV, media.getContainer());
+		assertEquals(120.5, media.getDurationInSeconds(), 0.001);
+		assertEquals(20000000, media.getBitRate());
+		assertEquals("Movie", media.getTitle());
+		assertEquals(FFprobeParser.PARSER_NAME, media.getMediaParser());
+
+		assertEquals(1, media.getVideoTracks().size());
+		MediaVideo video = media.getDefaultVideoTrack();
+		assertEquals(FormatConfiguration.H265, video.getCodec());
+		assertEquals("main 10", video.getFormatProfile());
+		assertEquals(10, video.getBitDepth());
+		assertEquals(3840, video.getWidth());
+		assertEquals(2160, video.getHeight());
+		assertEquals(23.976, video.getFrameRate(), 0.001);
+		assertEquals("Dolby Vision / SMPTE ST 2086", video.getHDRFormat());
+		assertEquals("HDR10", video.getHDRFormatCompatibility());
+
+		assertEquals(1, media.getAudioTracks().size());
+		MediaAudio audio = media.getDefaultAudioTrack();
+		assertEquals(FormatConfiguration.HE_AAC, audio.getCodec());
+		assertEquals(6, audio.getNumberOfChannels());
+		assertEquals(48000, audio.getSampleRate());
+		assertEquals(256000, audio.getBitRate());
+		assertEquals("fre", audio.getLang());
+		assertEquals("Surround", audio.getTitle());
+
+		assertEquals(1, media.getSubtitlesTracks().size());
+		assertEquals(SubtitleType.PGS, media.getSubtitlesTracks().get(0).getType());
+		assertEquals(true, media.getSubtitlesTracks().get(0).isForced());
+
+		assertEquals(2, media.getChapters().size());
+		assertEquals("Opening", media.getChapters().get(0).getTitle());
+		assertEquals(120.5, media.getChapters().get(1).getEnd(), 0.001);
+	}
+
+	/**
+	 * Checks the ffprobe process without the executable.
+	 */
+	@Test
+	public void testProcessBuilder() throws Exception {
+		ProcessBuilder pb = FFprobeParser.getProcessBuilder("ffprobe", "movie.mkv");
+		assertEquals("ffprobe", pb.command().get(0));
+		assertEquals("movie.mkv", pb.command().get(pb.command().size() - 1));
+		assertEquals(ProcessBuilder.Redirect.PIPE, pb.redirectOutput());
+		assertEquals(ProcessBuilder.Redirect.DISCARD, pb.redirectError());
+		// a missing executable is reported as an IOException
+		File missing = new File(ParserTest.getTestFile("video-h264-aac.mp4").getParentFile(), "missing-ffprobe");
+		assertThrows(IOException.class, () -> FFprobeParser.getProcessBuilder(missing.getAbsolutePath(), "movie.mkv").start());
+	}
+
+	/**
+	 * Compares the ffprobe parser to the FFmpeg log parser on the test
+	 * fixtures.
+	 */
+	@Test
+	public void testRegression() throws Exception {
+		if (!FFprobeParser.isValid()) {
+			//the executable was not found
+			LOGGER.info("FFprobeParser test skipped");
+			return;
+		}
+
+		for (String fixture : FIXTURES) {
+			MediaInfo expected = parse(fixture, false);
+			MediaInfo actual = parse(fixture, true);
+			assertEquals(FFprobeParser.PARSER_NAME, actual.getMediaParser(), fixture);
+			assertEquals(expected.getContainer(), actual.getContainer(), fixture);
+			assertEquals(expected.getDurationInSeconds(), actual.getDurationInSeconds(), 0.1, fixture);
+			assertEquals(expected.getVideoTracks().size(), actual.getVideoTracks().size(), fixture);
+			assertEquals(expected.getAudioTracks().size(), actual.getAudioTracks().size(), fixture);
+			assertEquals(expected.getSubtitlesTracks().size(), actual.getSubtitlesTracks().size(), fixture);
+			for (int i = 0; i < expected.getVideoTracks().size(); i++) {
+				MediaVideo expectedVideo = expected.getVideoTracks().get(i);
+				MediaVideo actualVideo = actual.getVideoTracks().get(i);
+				assertEquals(expectedVideo.getCodec(), actualVideo.getCodec(), fixture);
+				assertEquals(expectedVideo.getWidth(), actualVideo.getWidth(), fixture);
+				assertEquals(expectedVideo.getHeight(), actualVideo.getHeight(), fixture);
+				assertEquals(expectedVideo.getBitDepth(), actualVideo.getBitDepth(), fixture);
+				assertEquals(expectedVideo.getHDRFormat(), actualVideo.getHDRFormat(), fixture);
+				if (expectedVideo.getFrameRate() != null) {
+					assertNotNull(actualVideo.getFrameRate(), fixture);
+					assertEquals(expectedVideo.getFrameRate(), actualVideo.getFrameRate(), 0.01, fixture);
+				}
+			}
+			for (int i = 0; i < expected.getAudioTracks().size(); i++) {
+				MediaAudio expectedAudio = expected.getAudioTracks().get(i);
+				MediaAudio actualAudio = actual.getAudioTracks().get(i);
+				assertEquals(expectedAudio.getCodec(), actualAudio.getCodec(), fixture);
+				assertEquals(expectedAudio.getNumberOfChannels(), actualAudio.getNumberOfChannels(), fixture);
+				assertEquals(expectedAudio.getSampleRate(), actualAudio.getSampleRate(), fixture);
+				assertEquals(expectedAudio.getLang(), actualAudio.getLang(), fixture);
+			}
+		}
+	}
+
+	private static MediaInfo parse(String testFile, boolean ffprobe) {
+		PMS.getConfiguration().setUseFFprobeParser(ffprobe);
+		try {
+			File file = ParserTest.getTestFile(testFile);
+			InputFile inputFile = new InputFile();
+			inputFile.setFile(file);
+			Format format = FormatFactory.getAssociatedFormat(file.getAbsolutePath());
+			MediaInfo mediaInfo = new MediaInfo();
+			FFmpegParser.parse(mediaInfo, inputFile, format, format.getType());
+			return mediaInfo;
+		} finally {
+			PMS.getConfiguration().setUseFFprobeParser(false);
+		}
+	}
+
+}
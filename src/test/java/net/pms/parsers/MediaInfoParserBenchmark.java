@@ -0,0 +1,100 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.parsers;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.pms.PMS;
+import net.pms.formats.Format;
+import net.pms.formats.FormatFactory;
+import net.pms.media.MediaInfo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the MediaInfo parse throughput when reading one JSON report per
+ * file and when asking the library for each property, on the audio and video
+ * samples of the parser tests.
+ *
+ * This is not part of the regular test run, launch it with:
+ * {@code mvn test -Dtest=MediaInfoParserBenchmark -Dsurefire.failIfNoSpecifiedTests=false}
+ */
+public class MediaInfoParserBenchmark {
+	private static final int WARMUP_ITERATIONS = 2;
+	private static final int ITERATIONS = 10;
+
+	private static final List<File> CORPUS = new ArrayList<>();
+
+	@BeforeAll
+	public static void setUpClass() {
+		ParserTest.setUpClass();
+		File directory = ParserTest.getTestFile("video-h264-aac.mp4").getParentFile();
+		File[] files = directory.listFiles((dir, name) -> name.startsWith("audio-") || name.startsWith("video-"));
+		if (files != null) {
+			Arrays.sort(files);
+			CORPUS.addAll(Arrays.asList(files));
+		}
+	}
+
+	@Test
+	public void benchmark() {
+		assumeTrue(MediaInfoParser.isValid(), "The MediaInfo library is not available");
+
+		for (File file : CORPUS) {
+			assertEquals(parse(file, false).toString(), parse(file, true).toString(), file.getName());
+		}
+
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			parseCorpus(false);
+			parseCorpus(true);
+		}
+		long propertyNanos = 0;
+		long reportNanos = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			propertyNanos += parseCorpus(false);
+			reportNanos += parseCorpus(true);
+		}
+		System.out.printf("%d files%n", CORPUS.size());
+		System.out.printf("per property: %.1f files/s%n", getThroughput(propertyNanos));
+		System.out.printf("JSON report:  %.1f files/s%n", getThroughput(reportNanos));
+	}
+
+	private static double getThroughput(long nanos) {
+		return (double) CORPUS.size() * ITERATIONS / (nanos / 1e9);
+	}
+
+	private static long parseCorpus(boolean jsonIngest) {
+		long start = System.nanoTime();
+		for (File file : CORPUS) {
+			parse(file, jsonIngest);
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static MediaInfo parse(File file, boolean jsonIngest) {
+		PMS.getConfiguration().setMediaInfoJsonIngest(jsonIngest);
+		Format format = FormatFactory.getAssociatedFormat(file.getAbsolutePath());
+		MediaInfo mediaInfo = new MediaInfo();
+		MediaInfoParser.parse(mediaInfo, file, format == null ? Format.UNKNOWN : format.getType());
+		return mediaInfo;
+	}
+
+}
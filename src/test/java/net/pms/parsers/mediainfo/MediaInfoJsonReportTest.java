@@ -0,0 +1,94 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.parsers.mediainfo;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class MediaInfoJsonReportTest {
+
+	private static final String REPORT = """
+		{
+		"creatingLibrary":{"name":"MediaInfoLib","version":"24.06","url":"https://mediaarea.net/MediaInfo"},
+		"media":{
+		"@ref":"/media/movie.mkv",
+		"track":[
+		{"@type":"General","VideoCount":"1","AudioCount":"2","Format":"Matroska","Duration":"5954.112","Title":"Movie","extra":{"ALBUM_ARTISTS":"Someone"}},
+		{"@type":"Video","StreamOrder":"0","ID":"1","Format":"HEVC","Width":"3840","Height":"2160","BitDepth":"10","HDR_Format":"SMPTE ST 2086","Default":"Yes"},
+		{"@type":"Audio","@typeorder":"1","StreamOrder":"1","ID":"2","Format":"E-AC-3","Channels":"6","SamplingRate":"48000","Language":"en"},
+		{"@type":"Audio","@typeorder":"2","StreamOrder":"2","ID":"3","Format":"AAC","Channels":"2","SamplingRate":"44100","Language":"fr"}
+		]
+		}
+		}
+		""";
+
+	@Test
+	public void testGet() throws Exception {
+		MediaInfoJsonReport report = MediaInfoJsonReport.parse(REPORT);
+		assertNotNull(report);
+		assertEquals("Matroska", report.get(StreamKind.GENERAL, 0, "Format"));
+		assertEquals("Someone", report.get(StreamKind.GENERAL, 0, "ALBUM_ARTISTS"));
+		assertEquals("3840", report.get(StreamKind.VIDEO, 0, "Width"));
+		assertEquals("E-AC-3", report.get(StreamKind.AUDIO, 0, "Format"));
+		assertEquals("2", report.get(StreamKind.AUDIO, 1, "Channel(s)"));
+		assertEquals("fr", report.get(StreamKind.AUDIO, 1, "Language"));
+	}
+
+	@Test
+	public void testMissingValues() throws Exception {
+		MediaInfoJsonReport report = MediaInfoJsonReport.parse(REPORT);
+		assertNotNull(report);
+		assertEquals("", report.get(StreamKind.VIDEO, 0, "HDR_Format_Compatibility"));
+		assertEquals("", report.get(StreamKind.AUDIO, 2, "Format"));
+		assertEquals("", report.get(StreamKind.TEXT, 0, "Format"));
+	}
+
+	@Test
+	public void testStreamCount() throws Exception {
+		MediaInfoJsonReport report = MediaInfoJsonReport.parse(REPORT);
+		assertNotNull(report);
+		assertEquals("1", report.get(StreamKind.VIDEO, 0, "StreamCount"));
+		assertEquals("2", report.get(StreamKind.AUDIO, 0, "StreamCount"));
+		assertEquals("", report.get(StreamKind.TEXT, 0, "StreamCount"));
+	}
+
+	@Test
+	public void testNotReported() throws Exception {
+		MediaInfoJsonReport report = MediaInfoJsonReport.parse(REPORT);
+		assertNotNull(report);
+		assertNull(report.get(StreamKind.GENERAL, 0, "Duration"));
+		assertNull(report.get(StreamKind.AUDIO, 0, "Video_Delay"));
+		assertNull(report.get(StreamKind.AUDIO, 0, "Language/String3"));
+		assertNull(report.get(StreamKind.VIDEO, 0, "DisplayAspectRatio/String"));
+		assertNull(report.get(StreamKind.GENERAL, 0, "Cover_Data"));
+	}
+
+	@Test
+	public void testToReportKey() {
+		assertEquals("Format", MediaInfoJsonReport.toReportKey("Format"));
+		assertEquals("Channels", MediaInfoJsonReport.toReportKey("Channel(s)"));
+		assertEquals("Track_Position", MediaInfoJsonReport.toReportKey("Track/Position"));
+		assertEquals("Album_Performer", MediaInfoJsonReport.toReportKey("Album/Performer"));
+	}
+
+	@Test
+	public void testEmptyReport() throws Exception {
+		assertNull(MediaInfoJsonReport.parse(""));
+		assertNull(MediaInfoJsonReport.parse("{\"creatingLibrary\":{}}"));
+	}
+
+}
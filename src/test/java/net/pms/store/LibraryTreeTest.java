@@ -0,0 +1,128 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import org.apache.commons.configuration.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LibraryTreeTest {
+
+	@TempDir
+	File tempDir;
+
+	@BeforeAll
+	public static void setUpClass() throws ConfigurationException, InterruptedException {
+		PMS.setConfiguration(new UmsConfiguration(false));
+	}
+
+	@BeforeEach
+	public void setUp() {
+		TestHelper.SetLoggingOff();
+		LibraryTree.clear();
+	}
+
+	private File createFile(String path) throws IOException {
+		File file = new File(tempDir, path);
+		file.getParentFile().mkdirs();
+		Files.writeString(file.toPath(), path);
+		return file;
+	}
+
+	@Test
+	public void testGetDirectory() throws IOException {
+		File movie = createFile("movie.mkv");
+		createFile("movie.jpg");
+		File cover = createFile("folder.jpg");
+		File photo = createFile("photo.png");
+		File album = new File(tempDir, "album");
+		album.mkdir();
+		new File(tempDir, "extrafanart").mkdir();
+
+		LibraryTree.Directory directory = LibraryTree.getDirectory(tempDir, List.of("extrafanart"));
+		assertNotNull(directory);
+		assertEquals(List.of(album), directory.getFolders());
+		assertEquals(2, directory.getFiles().size());
+		assertTrue(directory.getFiles().contains(movie));
+		assertTrue(directory.getFiles().contains(photo));
+		assertEquals(cover, directory.getPotentialCover());
+
+		// listed once for all the renderers
+		assertSame(directory, LibraryTree.getDirectory(tempDir, List.of("extrafanart")));
+		assertNotSame(directory, LibraryTree.getDirectory(tempDir, List.of()));
+
+		LibraryTree.Directory listed = LibraryTree.getDirectory(tempDir, List.of());
+		File song = createFile("song.mp3");
+		assertTrue(tempDir.setLastModified(tempDir.lastModified() + 2000));
+		LibraryTree.Directory modified = LibraryTree.getDirectory(tempDir, List.of());
+		assertNotSame(listed, modified);
+		assertTrue(modified.getFiles().contains(song));
+
+		assertNull(LibraryTree.getDirectory(movie, List.of()));
+	}
+
+	@Test
+	public void testInvalidate() throws IOException {
+		createFile("music/album/a.mp3");
+		File music = new File(tempDir, "music");
+		File album = new File(music, "album");
+		LibraryTree.Directory directory = LibraryTree.getDirectory(music, List.of());
+		LibraryTree.getDirectory(album, List.of());
+		assertEquals(2, LibraryTree.size());
+
+		LibraryTree.invalidate(album);
+		assertEquals(1, LibraryTree.size());
+		assertSame(directory, LibraryTree.getDirectory(music, List.of()));
+
+		LibraryTree.getDirectory(album, List.of());
+		LibraryTree.invalidateTree(music);
+		assertEquals(0, LibraryTree.size());
+	}
+
+	@Test
+	public void testMaxDirectories() {
+		File first = new File(tempDir, "0");
+		File second = new File(tempDir, "1");
+		first.mkdir();
+		second.mkdir();
+		LibraryTree.Directory firstDirectory = LibraryTree.getDirectory(first, List.of());
+		LibraryTree.Directory secondDirectory = LibraryTree.getDirectory(second, List.of());
+		assertSame(firstDirectory, LibraryTree.getDirectory(first, List.of()));
+		for (int i = 2; i <= LibraryTree.MAX_DIRECTORIES; i++) {
+			File folder = new File(tempDir, String.valueOf(i));
+			folder.mkdir();
+			assertNotNull(LibraryTree.getDirectory(folder, List.of()));
+		}
+		assertEquals(LibraryTree.MAX_DIRECTORIES, LibraryTree.size());
+
+		// the least recently used listing was dropped
+		assertSame(firstDirectory, LibraryTree.getDirectory(first, List.of()));
+		assertNotSame(secondDirectory, LibraryTree.getDirectory(second, List.of()));
+		assertEquals(LibraryTree.MAX_DIRECTORIES, LibraryTree.size());
+	}
+
+}
@@ -0,0 +1,160 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import org.apache.commons.configuration.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MediaScanEngineTest {
+
+	@TempDir
+	File tempDir;
+
+	@BeforeAll
+	public static void setUpClass() throws ConfigurationException, InterruptedException {
+		PMS.setConfiguration(new UmsConfiguration(false));
+	}
+
+	@BeforeEach
+	public void setUp() {
+		TestHelper.SetLoggingOff();
+	}
+
+	private File createFile(String path) throws IOException {
+		File file = new File(tempDir, path);
+		file.getParentFile().mkdirs();
+		Files.writeString(file.toPath(), path);
+		return file;
+	}
+
+	@Test
+	public void testScan() throws IOException {
+		File a = createFile("music/a.mp3");
+		File b = createFile("music/album/b.flac");
+		File c = createFile("videos/c.mkv");
+		createFile("videos/c.srt");
+		createFile("notes.txt");
+		File upToDate = createFile("music/album/d.mp3");
+
+		Set<String> parsed = ConcurrentHashMap.newKeySet();
+		MediaScanEngine engine = new MediaScanEngine(
+			() -> true,
+			files -> files.contains(upToDate) ? Set.of(upToDate.getAbsolutePath()) : Collections.emptySet(),
+			file -> parsed.add(file.getAbsolutePath())
+		);
+		engine.scan(List.of(new File(tempDir, "music"), new File(tempDir, "videos"), new File(tempDir, "music/album")));
+
+		assertEquals(Set.of(a.getAbsolutePath(), b.getAbsolutePath(), c.getAbsolutePath()), parsed);
+		assertEquals(3, engine.getParsedCount());
+		assertEquals(1, engine.getSkippedCount());
+	}
+
+	@Test
+	public void testStop() throws IOException {
+		for (int i = 0; i < 20; i++) {
+			createFile("music/" + i + ".mp3");
+		}
+		AtomicBoolean running = new AtomicBoolean(true);
+		MediaScanEngine engine = new MediaScanEngine(
+			running::get,
+			files -> Collections.emptySet(),
+			file -> running.set(false)
+		);
+		engine.scan(List.of(new File(tempDir, "music")));
+		assertTrue(engine.getParsedCount() < 20);
+	}
+
+	@Test
+	public void testSettleTracker() throws IOException, InterruptedException {
+		File file = createFile("download.mkv");
+		CountDownLatch settled = new CountDownLatch(1);
+		AtomicBoolean created = new AtomicBoolean();
+		FileSettleTracker tracker = new FileSettleTracker(50, (settledFile, isNew) -> {
+			created.set(isNew);
+			settled.countDown();
+		});
+		try {
+			tracker.track(file, true);
+			tracker.track(file, false);
+			assertEquals(1, tracker.getPendingCount());
+			assertTrue(settled.await(5, TimeUnit.SECONDS));
+			assertTrue(created.get());
+			assertEquals(0, tracker.getPendingCount());
+
+			File missing = new File(tempDir, "missing.mkv");
+			tracker.track(missing, true);
+			Thread.sleep(200);
+			assertEquals(0, tracker.getPendingCount());
+		} finally {
+			tracker.shutdown();
+		}
+	}
+
+	@Test
+	public void testBlockingExecutor() throws InterruptedException {
+		ThreadPoolExecutor executor = MediaScanEngine.newBlockingExecutor(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Set<Thread> threads = ConcurrentHashMap.newKeySet();
+		int tasks = 40;
+		CountDownLatch done = new CountDownLatch(tasks);
+		try {
+			Thread submitter = new Thread(() -> {
+				for (int i = 0; i < tasks; i++) {
+					executor.execute(() -> {
+						try {
+							release.await();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						threads.add(Thread.currentThread());
+						done.countDown();
+					});
+				}
+			});
+			submitter.start();
+			// the queue is full, the submitter waits instead of running a task
+			Thread.sleep(200);
+			assertTrue(submitter.isAlive());
+			release.countDown();
+			submitter.join(5000);
+			assertFalse(submitter.isAlive());
+			assertTrue(done.await(5, TimeUnit.SECONDS));
+			assertFalse(threads.contains(submitter));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.database.MediaDatabase;
+import net.pms.database.MediaTableStoreIds;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measures the update ids read by renderers browsing while the scanner bumps
+ * them, on {@link #OBJECTS} objects.
+ *
+ * This is not part of the regular test run, launch it with:
+ * {@code mvn test -Dtest=MediaStoreIdsBenchmark -Dsurefire.failIfNoSpecifiedTests=false}
+ */
+public class MediaStoreIdsBenchmark {
+	private static final int OBJECTS = 20_000;
+	private static final int BROWSE_THREADS = 8;
+	private static final int SCAN_THREADS = 2;
+	private static final long DURATION = 5_000;
+	private static final String PREFIX = "/benchmark/";
+
+	@Test
+	public void benchmark() throws Exception {
+		PMS.setConfiguration(new UmsConfiguration(false));
+		TestHelper.SetLoggingOff();
+		MediaDatabase.init();
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			cleanup(connection);
+			List<Long> ids = populate(connection);
+			try {
+				run(ids);
+			} finally {
+				cleanup(connection);
+			}
+		}
+	}
+
+	private static void run(List<Long> ids) throws Exception {
+		AtomicBoolean running = new AtomicBoolean(true);
+		LongAdder reads = new LongAdder();
+		LongAdder increments = new LongAdder();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < BROWSE_THREADS; i++) {
+			threads.add(new Thread(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				while (running.get()) {
+					// a browse page of 50 items
+					int from = random.nextInt(ids.size() - 50);
+					for (int j = from; j < from + 50; j++) {
+						MediaStoreIds.getObjectUpdateIdAsString(ids.get(j));
+					}
+					MediaStoreIds.getSystemUpdateId();
+					reads.add(51);
+				}
+			}));
+		}
+		for (int i = 0; i < SCAN_THREADS; i++) {
+			threads.add(new Thread(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				while (running.get()) {
+					MediaStoreIds.incrementUpdateId(ids.get(random.nextInt(ids.size())));
+					increments.increment();
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		Thread.sleep(DURATION);
+		running.set(false);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		System.out.printf("browse reads: %,d/s%n", reads.sum() * 1000 / DURATION);
+		System.out.printf("scan updates: %,d/s%n", increments.sum() * 1000 / DURATION);
+	}
+
+	private static List<Long> populate(Connection connection) throws Exception {
+		List<Long> ids = new ArrayList<>();
+		try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO " + MediaTableStoreIds.TABLE_NAME + " (PARENT_ID, NAME, OBJECT_TYPE, UPDATE_ID) VALUES (0, ?, 'Benchmark', 1)", Statement.RETURN_GENERATED_KEYS)) {
+			for (int i = 0; i < OBJECTS; i++) {
+				stmt.setString(1, PREFIX + i);
+				stmt.executeUpdate();
+				try (ResultSet keys = stmt.getGeneratedKeys()) {
+					keys.next();
+					ids.add(keys.getLong(1));
+				}
+			}
+		}
+		return ids;
+	}
+
+	private static void cleanup(Connection connection) throws Exception {
+		try (Statement stmt = connection.createStatement()) {
+			stmt.executeUpdate("DELETE FROM " + MediaTableStoreIds.TABLE_NAME + " WHERE NAME LIKE '" + PREFIX + "%'");
+		}
+	}
+
+}
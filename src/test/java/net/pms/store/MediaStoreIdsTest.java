@@ -0,0 +1,88 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.database.MediaDatabase;
+import net.pms.database.MediaTableStoreIds;
+import org.apache.commons.configuration.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MediaStoreIdsTest {
+
+	@BeforeEach
+	public final void setUp() throws ConfigurationException, InterruptedException {
+		TestHelper.SetLoggingOff();
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+	}
+
+	@Test
+	public void testIncrementUpdateId() throws Exception {
+		MediaDatabase.init();
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			long id;
+			try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO " + MediaTableStoreIds.TABLE_NAME + " (PARENT_ID, NAME, OBJECT_TYPE, UPDATE_ID) VALUES (0, 'MediaStoreIdsTest', 'Test', 0)", Statement.RETURN_GENERATED_KEYS)) {
+				stmt.executeUpdate();
+				try (ResultSet keys = stmt.getGeneratedKeys()) {
+					keys.next();
+					id = keys.getLong(1);
+				}
+			}
+			long systemUpdateId = MediaStoreIds.getSystemUpdateId().getValue();
+			// not yet updated, follows the system update id
+			assertEquals(Long.toString(systemUpdateId), MediaStoreIds.getObjectUpdateIdAsString(id));
+
+			long updateId = MediaStoreIds.incrementUpdateId(id);
+			assertEquals(systemUpdateId + 1, updateId);
+			assertEquals(updateId, MediaStoreIds.getSystemUpdateId().getValue());
+			assertEquals(Long.toString(updateId), MediaStoreIds.getObjectUpdateIdAsString(id));
+
+			MediaStoreIds.incrementSystemUpdateId();
+			assertEquals(updateId + 1, MediaStoreIds.getSystemUpdateId().getValue());
+			assertEquals(Long.toString(updateId), MediaStoreIds.getObjectUpdateIdAsString(id));
+
+			MediaStoreIds.flush();
+			assertEquals(updateId, MediaTableStoreIds.getMediaStoreId(connection, id).getUpdateId());
+			assertEquals(updateId + 1, MediaTableStoreIds.getMediaStoreId(connection, -1).getUpdateId());
+
+			try (Statement stmt = connection.createStatement()) {
+				stmt.executeUpdate("DELETE FROM " + MediaTableStoreIds.TABLE_NAME + " WHERE ID = " + id);
+			}
+		}
+	}
+
+	@Test
+	public void testLatestUpdateId() {
+		assertEquals(6, MediaStoreIds.getLatestUpdateId(5, 6));
+		assertEquals(6, MediaStoreIds.getLatestUpdateId(6, 5));
+		assertEquals(5, MediaStoreIds.getLatestUpdateId(5, 5));
+		// after the wraparound
+		assertEquals(0, MediaStoreIds.getLatestUpdateId(4294967295L, 0));
+		assertEquals(2, MediaStoreIds.getLatestUpdateId(2, 4294967290L));
+		assertEquals(2, MediaStoreIds.getLatestUpdateId(4294967290L, 2));
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import com.sun.net.httpserver.HttpServer;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.database.MediaDatabase;
+import net.pms.database.MediaTableFiles;
+import net.pms.formats.Format;
+import net.pms.media.MediaInfo;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PosterLocalizationQueueTest {
+	private static final AtomicInteger REQUESTS = new AtomicInteger();
+	private static HttpServer server;
+	private static String baseUri;
+
+	@BeforeAll
+	public static void setUpClass() throws Exception {
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+		MediaDatabase.init();
+		BufferedImage image = new BufferedImage(32, 48, BufferedImage.TYPE_INT_RGB);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "jpg", out);
+		byte[] poster = out.toByteArray();
+		// stands in for the TMDB image server, fails every other request
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/poster.jpg", exchange -> {
+			if (REQUESTS.incrementAndGet() % 2 == 1) {
+				exchange.sendResponseHeaders(503, -1);
+			} else {
+				exchange.getResponseHeaders().add("Content-Type", "image/jpeg");
+				exchange.sendResponseHeaders(200, poster.length);
+				try (OutputStream os = exchange.getResponseBody()) {
+					os.write(poster);
+				}
+			}
+			exchange.close();
+		});
+		server.createContext("/missing.jpg", exchange -> {
+			REQUESTS.incrementAndGet();
+			exchange.sendResponseHeaders(503, -1);
+			exchange.close();
+		});
+		server.start();
+		baseUri = "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	@AfterAll
+	public static void tearDownClass() {
+		if (server != null) {
+			server.stop(0);
+		}
+	}
+
+	@BeforeEach
+	public void setUp() {
+		TestHelper.SetLoggingOff();
+		REQUESTS.set(0);
+	}
+
+	private static MediaInfo createMediaInfo(String filename) throws Exception {
+		MediaInfo media = new MediaInfo();
+		media.setMediaParser("test");
+		media.setMimeType("video/x-matroska");
+		try (Connection connection = MediaDatabase.get().getConnection()) {
+			MediaTableFiles.insertOrUpdateData(connection, filename, 1000, Format.VIDEO, media);
+		}
+		return media;
+	}
+
+	@Test
+	public void testRetry() throws Exception {
+		PosterLocalizationQueue queue = new PosterLocalizationQueue(1, 10, 3);
+		try {
+			MediaInfo media = createMediaInfo("/poster/retry.mkv");
+			assertTrue(queue.submit("/poster/retry.mkv", media, baseUri + "/poster.jpg").get(10, TimeUnit.SECONDS));
+			assertEquals(2, REQUESTS.get());
+			assertNotNull(media.getThumbnailId());
+			assertEquals(ThumbnailSource.TMDB_LOC, media.getThumbnailSource());
+			try (Connection connection = MediaDatabase.get().getConnection()) {
+				MediaInfo stored = MediaTableFiles.getMediaInfo(connection, "/poster/retry.mkv", 1000);
+				assertEquals(media.getThumbnailId(), stored.getThumbnailId());
+				assertEquals(ThumbnailSource.TMDB_LOC, stored.getThumbnailSource());
+			}
+			assertEquals(0, queue.getPendingCount());
+		} finally {
+			queue.shutdown();
+		}
+	}
+
+	@Test
+	public void testGiveUp() throws Exception {
+		PosterLocalizationQueue queue = new PosterLocalizationQueue(1, 10, 3);
+		try {
+			MediaInfo media = createMediaInfo("/poster/missing.mkv");
+			assertFalse(queue.submit("/poster/missing.mkv", media, baseUri + "/missing.jpg").get(10, TimeUnit.SECONDS));
+			assertEquals(3, REQUESTS.get());
+			assertNull(media.getThumbnailId());
+		} finally {
+			queue.shutdown();
+		}
+	}
+
+}
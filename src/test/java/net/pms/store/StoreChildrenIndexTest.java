@@ -0,0 +1,140 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.RendererConfigurations;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.renderers.Renderer;
+import org.apache.commons.configuration.ConfigurationException;
+import org.jupnp.support.model.SortCriterion;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class StoreChildrenIndexTest {
+
+	private static final Comparator<StoreResource> BY_NAME = Comparator.comparing(StoreResource::getName);
+	private static Renderer renderer;
+
+	@BeforeAll
+	public static void setUpClass() throws ConfigurationException, InterruptedException {
+		PMS.setConfiguration(new UmsConfiguration(false));
+		renderer = RendererConfigurations.getDefaultRenderer();
+	}
+
+	@BeforeEach
+	public void setUp() {
+		TestHelper.SetLoggingOff();
+	}
+
+	@Test
+	public void testChildrenVersion() {
+		StoreContainer container = new StoreContainer(renderer, "root", null);
+		int version = container.getChildrenVersion();
+		container.addChildInternal(new StoreContainer(renderer, "b", null), false);
+		container.addChildInternal(new StoreContainer(renderer, "a", null), false);
+		assertNotEquals(version, container.getChildrenVersion());
+
+		version = container.getChildrenVersion();
+		container.getChildren().sort(BY_NAME);
+		assertNotEquals(version, container.getChildrenVersion());
+		assertEquals("a", container.getChildren().get(0).getName());
+
+		// sorting again does not change the order
+		version = container.getChildrenVersion();
+		container.getChildren().sort(BY_NAME);
+		assertEquals(version, container.getChildrenVersion());
+
+		container.getChildren().set(0, new StoreContainer(renderer, "c", null));
+		assertNotEquals(version, container.getChildrenVersion());
+	}
+
+	/**
+	 * A container whose children change without its update id is refreshed
+	 * on the next browse.
+	 */
+	@Test
+	public void testRefreshNeeded() {
+		RefreshingContainer container = new RefreshingContainer();
+		container.addChildInternal(new StoreContainer(renderer, "a", null), false);
+		StoreChildrenIndex index = MediaStore.indexChildren(container, null);
+		assertEquals(1, index.size());
+		assertSame(index, MediaStore.indexChildren(container, null));
+
+		container.refreshNeeded = true;
+		index = MediaStore.indexChildren(container, null);
+		assertEquals(2, index.size());
+		assertEquals("b", index.getWindow(1, 1).get(0).getName());
+	}
+
+	@Test
+	public void testWindow() {
+		List<StoreResource> resources = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			resources.add(new StoreContainer(renderer, "folder" + i, null));
+		}
+		StoreChildrenIndex index = new StoreChildrenIndex("5", 3, resources);
+		assertEquals(25, index.size());
+		assertTrue(index.isValid("5", 3));
+		assertFalse(index.isValid("6", 3));
+		assertFalse(index.isValid("5", 4));
+
+		List<StoreResource> window = index.getWindow(20, 10);
+		assertEquals(5, window.size());
+		assertSame(resources.get(20), window.get(0));
+		assertEquals(25, index.getWindow(0, 0).size());
+		assertEquals(10, index.getWindow(10, 10).size());
+		assertTrue(index.getWindow(25, 10).isEmpty());
+		assertThrows(UnsupportedOperationException.class, () -> index.getWindow(0, 1).clear());
+	}
+
+	@Test
+	public void testSortKey() {
+		assertEquals("", StoreChildrenIndex.getSortKey(null));
+		assertEquals("", StoreChildrenIndex.getSortKey(new SortCriterion[0]));
+		assertEquals("+dc:title,-upnp:genre", StoreChildrenIndex.getSortKey(new SortCriterion[] {
+			new SortCriterion(true, "dc:title"),
+			new SortCriterion(false, "upnp:genre")
+		}));
+	}
+
+	private static class RefreshingContainer extends StoreContainer {
+		private boolean refreshNeeded;
+
+		RefreshingContainer() {
+			super(renderer, "refreshing", null);
+		}
+
+		@Override
+		public boolean isRefreshNeeded() {
+			return refreshNeeded;
+		}
+
+		@Override
+		public void doRefreshChildren() {
+			refreshNeeded = false;
+			addChildInternal(new StoreContainer(renderer, "b", null), false);
+		}
+	}
+
+}
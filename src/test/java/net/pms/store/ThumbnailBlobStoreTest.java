@@ -0,0 +1,98 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.apache.commons.codec.digest.DigestUtils;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ThumbnailBlobStoreTest {
+
+	@TempDir
+	Path root;
+
+	@Test
+	public void testPutGet() throws Exception {
+		ThumbnailBlobStore store = new ThumbnailBlobStore(root);
+		byte[] bytes = "thumbnail".getBytes(StandardCharsets.UTF_8);
+		String hash = DigestUtils.md5Hex(bytes);
+		assertNull(store.get(hash));
+		assertTrue(store.put(hash, bytes));
+		assertFalse(store.put(hash, bytes));
+		assertEquals(root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash), store.getPath(hash));
+		assertArrayEquals(bytes, store.get(hash));
+
+		assertTrue(store.delete(hash));
+		assertFalse(store.contains(hash));
+		assertFalse(store.delete(hash));
+		assertThrows(IllegalArgumentException.class, () -> store.getPath("../../etc"));
+	}
+
+	@Test
+	public void testConcurrentPut() throws Exception {
+		ThumbnailBlobStore store = new ThumbnailBlobStore(root);
+		byte[] bytes = new byte[64 * 1024];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) i;
+		}
+		String hash = DigestUtils.md5Hex(bytes);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Callable<Boolean>> tasks = new ArrayList<>();
+			for (int i = 0; i < 16; i++) {
+				tasks.add(() -> store.put(hash, bytes));
+			}
+			int written = 0;
+			for (Future<Boolean> result : executor.invokeAll(tasks)) {
+				if (result.get()) {
+					written++;
+				}
+			}
+			assertTrue(written >= 1);
+		} finally {
+			executor.shutdown();
+		}
+		assertArrayEquals(bytes, store.get(hash));
+		try (Stream<Path> files = Files.list(store.getPath(hash).getParent())) {
+			// no temporary file left behind
+			assertEquals(1, files.count());
+		}
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		ThumbnailBlobStore store = new ThumbnailBlobStore(root);
+		byte[] bytes = "thumbnail".getBytes(StandardCharsets.UTF_8);
+		String hash = DigestUtils.md5Hex(bytes);
+		store.put(hash, bytes);
+		store.clear();
+		assertFalse(store.contains(hash));
+		assertTrue(Files.isDirectory(root));
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import net.pms.dlna.DLNAThumbnail;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class ThumbnailQueueTest {
+
+	private static Function<List<Double>, List<DLNAThumbnail>> record(List<String> calls, String key) {
+		return positions -> {
+			synchronized (calls) {
+				calls.add(key + positions);
+			}
+			return Collections.nCopies(positions.size(), null);
+		};
+	}
+
+	private static Function<List<Double>, List<DLNAThumbnail>> block(CountDownLatch started, CountDownLatch release) {
+		return positions -> {
+			started.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		};
+	}
+
+	@Test
+	public void testPriority() throws Exception {
+		ThumbnailQueue queue = new ThumbnailQueue(1);
+		try {
+			CountDownLatch started = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			queue.submit("busy", null, ThumbnailQueue.Priority.SCAN, block(started, release));
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+
+			List<String> calls = new ArrayList<>();
+			queue.submit("a", null, ThumbnailQueue.Priority.SCAN, record(calls, "a"));
+			queue.submit("b", null, ThumbnailQueue.Priority.SCAN, record(calls, "b"));
+			queue.submit("c", null, ThumbnailQueue.Priority.BROWSE, record(calls, "c"));
+			// a renderer now shows b, which moves ahead of a
+			CompletableFuture<DLNAThumbnail> last = queue.submit("b", null, ThumbnailQueue.Priority.BROWSE, record(calls, "ignored"));
+			CompletableFuture<DLNAThumbnail> a = queue.submit("a", null, ThumbnailQueue.Priority.SCAN, record(calls, "ignored"));
+			assertEquals(3, queue.getPendingCount());
+
+			release.countDown();
+			a.get(10, TimeUnit.SECONDS);
+			assertTrue(last.isDone());
+			assertEquals(Arrays.asList("b[null]", "c[null]", "a[null]"), calls);
+			assertEquals(0, queue.getPendingCount());
+		} finally {
+			queue.shutdown();
+		}
+	}
+
+	@Test
+	public void testMerge() throws Exception {
+		ThumbnailQueue queue = new ThumbnailQueue(1);
+		try {
+			CountDownLatch started = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			queue.submit("busy", null, ThumbnailQueue.Priority.SCAN, block(started, release));
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+
+			List<String> calls = new ArrayList<>();
+			CompletableFuture<DLNAThumbnail> first = queue.submit("x", null, ThumbnailQueue.Priority.SCAN, record(calls, "x"));
+			CompletableFuture<DLNAThumbnail> resume = queue.submit("x", 10.0, ThumbnailQueue.Priority.SCAN, record(calls, "ignored"));
+			assertSame(first, queue.submit("x", null, ThumbnailQueue.Priority.BROWSE, record(calls, "ignored")));
+			assertSame(resume, queue.submit("x", 10.0, ThumbnailQueue.Priority.SCAN, record(calls, "ignored")));
+			assertNotSame(first, resume);
+
+			release.countDown();
+			assertNull(first.get(10, TimeUnit.SECONDS));
+			assertNull(resume.get(10, TimeUnit.SECONDS));
+			assertEquals(Collections.singletonList("x[null, 10.0]"), calls);
+		} finally {
+			queue.shutdown();
+		}
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		ThumbnailQueue queue = new ThumbnailQueue(1);
+		try {
+			CompletableFuture<DLNAThumbnail> result = queue.submit("fail", null, ThumbnailQueue.Priority.BROWSE, positions -> {
+				throw new IllegalStateException("test");
+			});
+			assertNull(result.get(10, TimeUnit.SECONDS));
+		} finally {
+			queue.shutdown();
+		}
+		assertNull(queue.submit("after", null, ThumbnailQueue.Priority.BROWSE, positions -> null).get(1, TimeUnit.SECONDS));
+	}
+
+}
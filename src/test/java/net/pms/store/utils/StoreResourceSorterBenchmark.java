@@ -0,0 +1,115 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.store.StoreResource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares sorting 1k, 10k and 100k children by title with the previous
+ * comparator, normalizing the titles on every comparison, and with the
+ * sort keys, computed on the first sort then cached.
+ *
+ * This is not part of the regular test run, launch it with:
+ * {@code mvn test -Dtest=StoreResourceSorterBenchmark -Dsurefire.failIfNoSpecifiedTests=false}
+ */
+public class StoreResourceSorterBenchmark {
+	private static final int[] SIZES = {1_000, 10_000, 100_000};
+	private static final String[] WORDS = {"The", "A", "Love", "\u00c9t\u00e9", "night", "Road", "blue", "Caf\u00e9", "song", "Live"};
+
+	@Test
+	public void benchmark() throws Exception {
+		StoreResourceSorterTest.setUpClass();
+		TestHelper.SetLoggingOff();
+		PMS.getConfiguration().setIgnoreTheWordAandThe(true);
+		for (int size : SIZES) {
+			List<StoreResource> resources = createChildren(size);
+			List<StoreResource> expected = new ArrayList<>(resources);
+			sortByPreviousComparator(expected);
+			long start = System.nanoTime();
+			StoreResourceSorter.sortResourcesByTitle(resources);
+			System.out.printf("%,7d children, first sort:  %.2f ms%n", size, (System.nanoTime() - start) / 1e6);
+			assertEquals(getTitles(expected), getTitles(resources));
+
+			int iterations = Math.max(3, 1_000_000 / size);
+			run(size, "previous comparator", iterations, resources, StoreResourceSorterBenchmark::sortByPreviousComparator);
+			run(size, "cached sort keys", iterations, resources, StoreResourceSorter::sortResourcesByTitle);
+		}
+	}
+
+	private static List<StoreResource> createChildren(int size) {
+		Random random = new Random(size);
+		List<StoreResource> resources = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			StringBuilder name = new StringBuilder();
+			for (int j = 0; j < 4; j++) {
+				name.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+			}
+			resources.add(StoreResourceSorterTest.createFile(name.append(i).toString(), null));
+		}
+		return resources;
+	}
+
+	private static List<String> getTitles(List<StoreResource> resources) {
+		List<String> titles = new ArrayList<>(resources.size());
+		for (StoreResource resource : resources) {
+			titles.add(resource.getLocalizedDisplayName(null));
+		}
+		return titles;
+	}
+
+	private static void run(int size, String name, int iterations, List<StoreResource> resources, Consumer<List<StoreResource>> sorter) {
+		// warm up
+		for (int i = 0; i < iterations; i++) {
+			Collections.shuffle(resources, new Random(i));
+			sorter.accept(resources);
+		}
+		long nanos = 0;
+		for (int i = 0; i < iterations; i++) {
+			Collections.shuffle(resources, new Random(i));
+			long start = System.nanoTime();
+			sorter.accept(resources);
+			nanos += System.nanoTime() - start;
+		}
+		System.out.printf("%,7d children, %-20s %.2f ms/sort%n", size, name + ":", nanos / 1e6 / iterations);
+	}
+
+	/**
+	 * The previous way, the titles normalized in the comparator.
+	 */
+	private static void sortByPreviousComparator(List<StoreResource> resources) {
+		Collections.sort(resources, (StoreResource resources1, StoreResource resources2) -> {
+			String str1 = resources1.getLocalizedDisplayName(null);
+			String str2 = resources2.getLocalizedDisplayName(null);
+			str1 = str1.replaceAll("^(?i)A[ .]|The[ .]", "").replaceAll("\\s{2,}", " ");
+			str2 = str2.replaceAll("^(?i)A[ .]|The[ .]", "").replaceAll("\\s{2,}", " ");
+			str1 = Normalizer.normalize(str1, Normalizer.Form.NFKD);
+			str2 = Normalizer.normalize(str2, Normalizer.Form.NFKD);
+			return str1.compareToIgnoreCase(str2);
+		});
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store.utils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.RendererConfigurations;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.media.MediaInfo;
+import net.pms.media.audio.MediaAudio;
+import net.pms.media.audio.metadata.MediaAudioMetadata;
+import net.pms.renderers.Renderer;
+import net.pms.store.StoreContainer;
+import net.pms.store.StoreResource;
+import net.pms.store.item.RealFile;
+import org.apache.commons.configuration.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class StoreResourceSorterTest {
+
+	private static Renderer renderer;
+
+	@BeforeAll
+	public static void setUpClass() throws ConfigurationException, InterruptedException {
+		PMS.setConfiguration(new UmsConfiguration(false));
+		renderer = RendererConfigurations.getDefaultRenderer();
+	}
+
+	@BeforeEach
+	public void setUp() {
+		TestHelper.SetLoggingOff();
+		PMS.getConfiguration().setIgnoreTheWordAandThe(true);
+	}
+
+	static RealFile createFile(String name, String artist) {
+		RealFile file = new RealFile(renderer, new File("/sorter/" + name + ".mp3"), name + ".mp3");
+		if (artist != null) {
+			MediaInfo mediaInfo = new MediaInfo();
+			List<MediaAudio> audioTracks = new ArrayList<>();
+			audioTracks.add(new MediaAudio());
+			mediaInfo.setAudioTracks(audioTracks);
+			MediaAudioMetadata audioMetadata = new MediaAudioMetadata();
+			audioMetadata.setArtist(artist);
+			audioMetadata.setAlbum(artist + " Live");
+			mediaInfo.setAudioMetadata(audioMetadata);
+			file.setMediaInfo(mediaInfo);
+		}
+		return file;
+	}
+
+	private static List<String> getNames(List<StoreResource> resources) {
+		List<String> names = new ArrayList<>();
+		for (StoreResource resource : resources) {
+			names.add(resource.getName());
+		}
+		return names;
+	}
+
+	@Test
+	public void testSortByTitle() {
+		StoreContainer container = new StoreContainer(renderer, "folder", null);
+		List<StoreResource> resources = new ArrayList<>();
+		resources.add(createFile("f", null));
+		resources.add(createFile("The Beatles", null));
+		resources.add(container);
+		resources.add(createFile("\u00e9t\u00e9", null));
+		resources.add(createFile("B", null));
+		resources.add(createFile("alpha", null));
+
+		// containers first, case and accents ignored, "The" skipped
+		StoreResourceSorter.sortResourcesByTitle(resources, true, null);
+		assertEquals(List.of("folder", "alpha.mp3", "B.mp3", "The Beatles.mp3", "\u00e9t\u00e9.mp3", "f.mp3"), getNames(resources));
+
+		StoreResourceSorter.sortResourcesByTitle(resources, false, null);
+		assertEquals(List.of("folder", "f.mp3", "\u00e9t\u00e9.mp3", "The Beatles.mp3", "B.mp3", "alpha.mp3"), getNames(resources));
+
+		PMS.getConfiguration().setIgnoreTheWordAandThe(false);
+		StoreResourceSorter.sortResourcesByTitle(resources, true, null);
+		assertEquals(List.of("folder", "alpha.mp3", "B.mp3", "\u00e9t\u00e9.mp3", "f.mp3", "The Beatles.mp3"), getNames(resources));
+	}
+
+	@Test
+	public void testSortKeysCached() {
+		List<StoreResource> resources = new ArrayList<>();
+		resources.add(createFile("y", null));
+		resources.add(createFile("x", null));
+		StoreResourceSorter.sortResourcesByTitle(resources, true, "en");
+		StoreResourceSortKey sortKey = resources.get(0).getSortKey("title|en|true");
+		assertNotNull(sortKey);
+
+		StoreResourceSorter.sortResourcesByTitle(resources, false, "en");
+		assertSame(sortKey, resources.get(1).getSortKey("title|en|true"));
+		assertEquals("y.mp3", resources.get(0).getName());
+	}
+
+	@Test
+	public void testSortByArtist() {
+		List<StoreResource> resources = new ArrayList<>();
+		resources.add(createFile("1", "Zappa"));
+		resources.add(createFile("2", null));
+		resources.add(createFile("3", "abba"));
+		resources.add(createFile("4", "Bowie"));
+
+		StoreResourceSorter.sortResourcesByArtist(resources, true, null);
+		assertEquals(List.of("2.mp3", "3.mp3", "4.mp3", "1.mp3"), getNames(resources));
+
+		StoreResourceSorter.sortResourcesByAlbum(resources, false, null);
+		assertEquals(List.of("2.mp3", "1.mp3", "4.mp3", "3.mp3"), getNames(resources));
+	}
+
+}
@@ -0,0 +1,117 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import org.apache.commons.configuration.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ArchiveExtractionCacheTest {
+
+	@BeforeAll
+	public static void setUpClass() throws ConfigurationException, InterruptedException {
+		PMS.setConfiguration(new UmsConfiguration(false));
+	}
+
+	@BeforeEach
+	public void setUp() {
+		TestHelper.SetLoggingOff();
+		PMS.getConfiguration().getConfiguration().setProperty("archive_extraction_cache_size", 1);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		ArchiveExtractionCache.clear();
+		PMS.getConfiguration().getConfiguration().setProperty("archive_extraction_cache_size", 0);
+	}
+
+	private static byte[] createContent(int length) {
+		byte[] content = new byte[length];
+		for (int i = 0; i < length; i++) {
+			content[i] = (byte) (i * 31 + i / 251);
+		}
+		return content;
+	}
+
+	@Test
+	public void testRangesExtractOnce() throws Exception {
+		byte[] content = createContent(600000);
+		AtomicInteger opened = new AtomicInteger();
+		AtomicLong extracted = new AtomicLong();
+		ArchiveExtractionCache.Source source = () -> {
+			opened.incrementAndGet();
+			return new ByteArrayInputStream(content) {
+				@Override
+				public synchronized int read(byte[] b, int off, int len) {
+					int count = super.read(b, off, len);
+					if (count > 0) {
+						extracted.addAndGet(count);
+					}
+					return count;
+				}
+			};
+		};
+
+		try (InputStream in = ArchiveExtractionCache.getInputStream("a", content.length, 500000, source)) {
+			assertNotNull(in);
+			assertArrayEquals(Arrays.copyOfRange(content, 500000, content.length), in.readAllBytes());
+		}
+		long extractedOnce = extracted.get();
+		assertEquals(content.length, extractedOnce);
+
+		// seeking back reads the extracted file
+		try (InputStream in = ArchiveExtractionCache.getInputStream("a", content.length, 1000, source)) {
+			assertArrayEquals(Arrays.copyOfRange(content, 1000, 2000), in.readNBytes(1000));
+			assertEquals(1000, in.skip(1000));
+			assertArrayEquals(Arrays.copyOfRange(content, 3000, 4000), in.readNBytes(1000));
+		}
+		assertEquals(1, opened.get());
+		assertEquals(extractedOnce, extracted.get());
+	}
+
+	@Test
+	public void testBounded() throws Exception {
+		byte[] content = createContent(600000);
+		ArchiveExtractionCache.Source source = () -> new ByteArrayInputStream(content);
+		assertNull(ArchiveExtractionCache.getInputStream("large", 2 * 1024 * 1024, 0, source));
+
+		InputStream first = ArchiveExtractionCache.getInputStream("first", content.length, 0, source);
+		assertNotNull(first);
+		// the first entry is being read and can't be evicted
+		assertNull(ArchiveExtractionCache.getInputStream("second", content.length, 0, source));
+		first.close();
+		try (InputStream second = ArchiveExtractionCache.getInputStream("second", content.length, 10, source)) {
+			assertNotNull(second);
+			assertArrayEquals(Arrays.copyOfRange(content, 10, 20), second.readNBytes(10));
+		}
+
+		PMS.getConfiguration().getConfiguration().setProperty("archive_extraction_cache_size", 0);
+		assertNull(ArchiveExtractionCache.getInputStream("second", content.length, 0, source));
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ArchiveFileInputStreamTest {
+
+	@TempDir
+	Path folder;
+
+	private static byte[] createContent(int length) {
+		byte[] content = new byte[length];
+		for (int i = 0; i < length; i++) {
+			content[i] = (byte) (i * 31 + i / 251);
+		}
+		return content;
+	}
+
+	private static void addEntry(ZipOutputStream zip, String name, byte[] content, boolean stored) throws Exception {
+		ZipEntry entry = new ZipEntry(name);
+		if (stored) {
+			CRC32 crc = new CRC32();
+			crc.update(content);
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(content.length);
+			entry.setCompressedSize(content.length);
+			entry.setCrc(crc.getValue());
+		}
+		zip.putNextEntry(entry);
+		zip.write(content);
+		zip.closeEntry();
+	}
+
+	@Test
+	public void testStoredZipEntryOffset() throws Exception {
+		byte[] content = createContent(200000);
+		File file = folder.resolve("test.zip").toFile();
+		try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+			zip.setComment("comment");
+			addEntry(zip, "deflated.bin", content, false);
+			addEntry(zip, "folder/stored \u00e9.bin", content, true);
+		}
+
+		assertEquals(-1, ArchiveFileInputStream.getStoredZipEntryOffset(file, "deflated.bin"));
+		assertEquals(-1, ArchiveFileInputStream.getStoredZipEntryOffset(file, "missing.bin"));
+		long offset = ArchiveFileInputStream.getStoredZipEntryOffset(file, "folder/stored \u00e9.bin");
+		assertTrue(offset > 0);
+
+		try (InputStream in = new FileRangeInputStream(file, offset + 150000, content.length - 150000)) {
+			assertArrayEquals(Arrays.copyOfRange(content, 150000, content.length), in.readAllBytes());
+			assertEquals(-1, in.read());
+		}
+		try (InputStream in = new FileRangeInputStream(file, offset, content.length)) {
+			assertEquals(1000, in.skip(1000));
+			assertArrayEquals(Arrays.copyOfRange(content, 1000, 1100), in.readNBytes(100));
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class PathPrefixTrieTest {
+
+	@Test
+	public void testContains() {
+		PathPrefixTrie trie = new PathPrefixTrie();
+		assertFalse(trie.contains("/media/music/a.mp3"));
+
+		trie.add("/media/music");
+		trie.add("D:\\Videos\\");
+		assertTrue(trie.contains("/media/music"));
+		assertTrue(trie.contains("/media/music/a.mp3"));
+		assertTrue(trie.contains("/media/music/album/b.flac"));
+		assertFalse(trie.contains("/media/music2/a.mp3"));
+		assertFalse(trie.contains("/media"));
+		assertTrue(trie.contains("D:\\Videos\\c.mkv"));
+		assertFalse(trie.contains("D:\\Pictures\\d.jpg"));
+
+		trie.add("/");
+		assertTrue(trie.contains("/media/music2/a.mp3"));
+	}
+
+}
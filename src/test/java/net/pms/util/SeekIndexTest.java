@@ -0,0 +1,205 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SeekIndexTest {
+
+	/**
+	 * 40 ms per frame, in 90 kHz units.
+	 */
+	private static final long FRAME_PTS = 3600;
+
+	@TempDir
+	Path folder;
+
+	private static void writePts(byte[] buffer, int offset, long pts) {
+		buffer[offset] = (byte) (0x21 | ((pts >> 29) & 0x0E));
+		buffer[offset + 1] = (byte) (pts >> 22);
+		buffer[offset + 2] = (byte) (0x01 | ((pts >> 14) & 0xFE));
+		buffer[offset + 3] = (byte) (pts >> 7);
+		buffer[offset + 4] = (byte) (0x01 | ((pts << 1) & 0xFE));
+	}
+
+	private static void writePesHeader(byte[] buffer, int offset, long pts) {
+		buffer[offset + 2] = 1;
+		buffer[offset + 3] = (byte) 0xE0;
+		buffer[offset + 6] = (byte) 0x80;
+		buffer[offset + 7] = (byte) 0x80;
+		buffer[offset + 8] = 5;
+		writePts(buffer, offset + 9, pts);
+	}
+
+	/**
+	 * Reads back the PTS of the video PES header starting at a position.
+	 */
+	private static long readPts(File file, long position, int headerOffset) throws Exception {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			byte[] buffer = new byte[14];
+			raf.seek(position + headerOffset);
+			raf.readFully(buffer);
+			assertEquals(1, buffer[2]);
+			assertEquals((byte) 0xE0, buffer[3]);
+			return ((long) (buffer[9] & 0x0E) << 29) | ((buffer[10] & 0xFF) << 22) | ((buffer[11] & 0xFE) << 14) | ((buffer[12] & 0xFF) << 7) | ((buffer[13] & 0xFF) >> 1);
+		}
+	}
+
+	@Test
+	public void testTransportStream() throws Exception {
+		// a video packet starting a frame every 40 packets, with a PTS close to the wrap around
+		long firstPts = (1L << 33) - 10 * 90000;
+		byte[] content = new byte[188 * 40 * 1000];
+		for (int frame = 0; frame < 1000; frame++) {
+			for (int i = 0; i < 40; i++) {
+				int packet = (frame * 40 + i) * 188;
+				content[packet] = 0x47;
+				content[packet + 1] = (byte) (i == 0 ? 0x41 : 0x01);
+				content[packet + 2] = 0x00;
+				content[packet + 3] = 0x10;
+				if (i == 0) {
+					writePesHeader(content, packet + 4, (firstPts + frame * FRAME_PTS) % (1L << 33));
+				}
+			}
+		}
+		File file = folder.resolve("test.ts").toFile();
+		Files.write(file.toPath(), content);
+
+		SeekIndex seekIndex = SeekIndex.parse(file);
+		assertNotNull(seekIndex);
+		assertTrue(seekIndex.size() > 3);
+		assertEquals(0, seekIndex.getPosition(0));
+		long previous = 0;
+		for (int seconds = 1; seconds < 40; seconds++) {
+			long position = seekIndex.getPosition(seconds);
+			assertEquals(0, position % 188);
+			assertTrue(position >= previous);
+			long pts = readPts(file, position, 4);
+			long time = ((pts - firstPts + (1L << 33)) % (1L << 33)) / 90;
+			assertTrue(time <= seconds * 1000L, "entry after the requested time");
+			previous = position;
+		}
+		assertTrue(seekIndex.getPosition(39) > 0);
+
+		SeekIndex copy = SeekIndex.fromBytes(seekIndex.toBytes());
+		assertNotNull(copy);
+		assertEquals(seekIndex.size(), copy.size());
+		assertEquals(seekIndex.getPosition(20), copy.getPosition(20));
+		assertNull(SeekIndex.fromBytes(new byte[] {0}));
+	}
+
+	@Test
+	public void testProgramStream() throws Exception {
+		// a pack and a video PES every 8 kB
+		byte[] content = new byte[8192 * 1000];
+		for (int frame = 0; frame < 1000; frame++) {
+			int pack = frame * 8192;
+			content[pack + 2] = 1;
+			content[pack + 3] = (byte) 0xBA;
+			writePesHeader(content, pack + 14, frame * FRAME_PTS);
+		}
+		File file = folder.resolve("test.mpg").toFile();
+		Files.write(file.toPath(), content);
+
+		SeekIndex seekIndex = SeekIndex.parse(file);
+		assertNotNull(seekIndex);
+		long position = seekIndex.getPosition(30);
+		assertEquals(0, position % 8192);
+		assertTrue(readPts(file, position, 14) <= 30 * 90000);
+		assertTrue(position > 0);
+	}
+
+	private static byte[] box(String type, byte[]... contents) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int size = 8;
+		for (byte[] content : contents) {
+			size += content.length;
+		}
+		out.writeBytes(ByteBuffer.allocate(4).putInt(size).array());
+		out.writeBytes(type.getBytes(StandardCharsets.ISO_8859_1));
+		for (byte[] content : contents) {
+			out.writeBytes(content);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] ints(int... values) {
+		ByteBuffer buffer = ByteBuffer.allocate(values.length * 4);
+		for (int value : values) {
+			buffer.putInt(value);
+		}
+		return buffer.array();
+	}
+
+	@Test
+	public void testMp4() throws Exception {
+		// 250 samples of 1000 bytes at 25 fps in 25 chunks, a sync sample every 2 seconds
+		int timescale = 1000;
+		byte[] ftyp = box("ftyp", "isom".getBytes(StandardCharsets.ISO_8859_1), ints(0));
+		int mdatOffset = ftyp.length;
+		byte[] mdat = box("mdat", new byte[250 * 1000]);
+		int[] chunkOffsets = new int[26];
+		chunkOffsets[0] = 25;
+		for (int i = 0; i < 25; i++) {
+			chunkOffsets[i + 1] = mdatOffset + 8 + i * 10 * 1000;
+		}
+		int[] syncSamples = new int[6];
+		syncSamples[0] = 5;
+		for (int i = 0; i < 5; i++) {
+			syncSamples[i + 1] = 1 + i * 50;
+		}
+		byte[] stbl = box("stbl",
+			box("stts", ints(0, 1, 250, 40)),
+			box("stss", ints(0), ints(syncSamples)),
+			box("stsc", ints(0, 1, 1, 10, 1)),
+			box("stsz", ints(0, 1000, 250)),
+			box("stco", ints(0), ints(chunkOffsets))
+		);
+		byte[] mdia = box("mdia",
+			box("mdhd", ints(0, 0, 0, timescale, 10000, 0)),
+			box("hdlr", ints(0, 0), "vide".getBytes(StandardCharsets.ISO_8859_1), ints(0, 0, 0), new byte[1]),
+			box("minf", stbl)
+		);
+		byte[] moov = box("moov", box("trak", mdia));
+		File file = folder.resolve("test.mp4").toFile();
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.write(ftyp);
+			raf.write(mdat);
+			raf.write(moov);
+		}
+
+		// a byte offset in the media data is not playable
+		assertNull(SeekIndex.parse(file));
+	}
+
+	@Test
+	public void testUnsupported() throws Exception {
+		File file = folder.resolve("test.txt").toFile();
+		Files.write(file.toPath(), new byte[4096]);
+		assertNull(SeekIndex.parse(file));
+	}
+
+}